@@ -31,6 +31,15 @@ import java.text.ParseException;
  */
 public class Pti_Format {
 
+  private static final String ZEROS = "0000000000000000000000000000000000000000000000000000000000000000";
+
+  // DecimalFormat is not thread safe, each thread keeps one formatter per length
+  private static final ThreadLocal numberFormatters = new ThreadLocal() {
+    protected Object initialValue() {
+      return new DecimalFormat[ZEROS.length() + 1];
+    }
+  };
+
   /**
    * This will either truncate or pad the string with spaces based on the length
    *
@@ -58,12 +67,16 @@ public class Pti_Format {
    */
   public static String FormatNumber(String str, int length)
       throws ParseException {
-    String pattern = "0000000000000000000000000000000000000000000000000000000000000000";
-    pattern = pattern.substring(0, length);
-    DecimalFormat myFormatter = new DecimalFormat(pattern);
-    String r_str = new String();
-    r_str = myFormatter.format(myFormatter.parse(str));
-    return r_str;
+    if (length < 0 || length > ZEROS.length()) {
+      throw new StringIndexOutOfBoundsException(length);
+    }
+    DecimalFormat[] formatters = (DecimalFormat[]) numberFormatters.get();
+    DecimalFormat myFormatter = formatters[length];
+    if (myFormatter == null) {
+      myFormatter = new DecimalFormat(ZEROS.substring(0, length));
+      formatters[length] = myFormatter;
+    }
+    return myFormatter.format(myFormatter.parse(str));
   }
 
   /**
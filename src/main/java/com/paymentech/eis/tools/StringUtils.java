@@ -329,6 +329,13 @@ public class StringUtils {
     return new String(sb);
   }
 
+  // NumberFormat is not thread safe, each thread keeps its own
+  private static final ThreadLocal dollarsFormats = new ThreadLocal() {
+    protected Object initialValue() {
+      return NumberFormat.getNumberInstance();
+    }
+  };
+
   /**
    * Formats a number from a string format
    *
@@ -336,7 +343,7 @@ public class StringUtils {
    * @param decPlaces number of places past the decimal to display
    */
   public static String decimalFormat(String number, int decPlaces) {
-    NumberFormat dollarsFormat = NumberFormat.getNumberInstance();
+    NumberFormat dollarsFormat = (NumberFormat) dollarsFormats.get();
     dollarsFormat.setMinimumFractionDigits(decPlaces);
     dollarsFormat.setMaximumFractionDigits(decPlaces);
     return dollarsFormat.format(Double.parseDouble(number));
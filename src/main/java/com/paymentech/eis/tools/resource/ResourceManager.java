@@ -63,7 +63,7 @@ public class ResourceManager {
   //--------------------------------------------------
   private IResource[] m_resources;  // The resources to manage
   private Stack m_availableResources;  // Container for available resources
-  /* Maps the thread-id to the index into the resource array
+  /* Maps the thread to the index into the resource array
    * of the resource in-use.
   */
   private Hashtable m_occupiedResources;
@@ -100,8 +100,9 @@ public class ResourceManager {
   public IResource acquire() throws ResourceNotAvailable {
     IResource resource = null;
 
-    // Identify the current thread
-    String threadId = Thread.currentThread().getName();
+    // Identify the current thread (by identity; thread names need not be unique)
+    Thread owner = Thread.currentThread();
+    String threadId = owner.getName();
 
     // For debugging
     Debug.trace_debug(threadId, "inside acquire()");
@@ -109,7 +110,7 @@ public class ResourceManager {
     // Do we have any resources available?
     synchronized (this) {
       // Make sure this thread hasn't already acquired something
-      if (m_occupiedResources.containsKey(threadId))
+      if (m_occupiedResources.containsKey(owner))
         throw new ResourceNotAvailable("Thread [" + threadId +
             "] has already acquired a resource from this manager.");
 
@@ -127,7 +128,7 @@ public class ResourceManager {
       resource = m_resources[availableIndex.intValue()];
 
       // Associate the threadId to the resource index.
-      m_occupiedResources.put(threadId, availableIndex);
+      m_occupiedResources.put(owner, availableIndex);
     }
 
 		/* Tell the resource it's about to be acquired by someone.
@@ -142,16 +143,16 @@ public class ResourceManager {
    * calling thread.
    */
   public void release() {
-    // Identify the current thread
-    String threadId = Thread.currentThread().getName();
+    // Identify the current thread (by identity; thread names need not be unique)
+    Thread owner = Thread.currentThread();
 
 		/* Acquire object lock only if the calling thread previously
 		 * acquired something.
 		*/
-    if (m_occupiedResources.containsKey(threadId)) {
+    if (m_occupiedResources.containsKey(owner)) {
       synchronized (this) {
         Short resourceIndex = (Short) m_occupiedResources.remove
-            (threadId);
+            (owner);
 
         // Mark this resource as 'available'.
         m_availableResources.push(resourceIndex);
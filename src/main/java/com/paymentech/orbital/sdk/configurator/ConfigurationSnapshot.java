@@ -0,0 +1,241 @@
+package com.paymentech.orbital.sdk.configurator;
+
+import com.paymentech.eis.tools.StringUtils;
+import com.paymentech.orbital.sdk.engine.http.HttpEngineConstants;
+import com.paymentech.orbital.sdk.interfaces.ResponseIF;
+import com.paymentech.orbital.sdk.response.Response;
+import org.apache.log4j.Logger;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p><b>Title:</b> ConfigurationSnapshot</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights
+ * reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> The settings read on every transaction (gateway hosts and ports, timeouts,
+ * proxy, mime header versions, response type), parsed once from the configurations.  Defaults are applied, and
+ * the settings that are missing or invalid are logged, when the snapshot is compiled rather than each time a
+ * setting is read.
+ * <br><br> A snapshot is immutable; the Configurator publishes a new one when its configurations are replaced,
+ * so a reader sees either all the old settings or all the new ones.  The JVM proxy properties (http.proxyHost,
+ * http.proxyPort) are read when the snapshot is compiled. </p>
+ */
+public final class ConfigurationSnapshot {
+
+  private static final int DEFAULT_PORT = 80;
+  private static final int DEFAULT_TIMEOUT_SECONDS = 90;
+  private static final String DEFAULT_AUTHORIZATION_URI = "/authorize";
+
+  private final Map configurations;
+  private final boolean verbose;
+  private final String hostName;
+  private final int port;
+  private final String failoverHostName;
+  private final int failoverPort;
+  private final int connectionTimeoutSeconds;
+  private final int readTimeoutSeconds;
+  private final String authorizationURI;
+  private final InetSocketAddress proxyAddress;
+  private final String sdkVersion;
+  private final String dtdVersion;
+  private final String responseType;
+  private final boolean leanResponses;
+
+  private ConfigurationSnapshot(Map configurations, Logger logger) {
+    this.configurations = Collections.unmodifiableMap(new HashMap(configurations));
+
+    String sVerbose = getString(HttpEngineConstants.VERBOSITY_KEY);
+    verbose = !StringUtils.isEmpty(sVerbose) && Boolean.getBoolean(sVerbose.toLowerCase());
+
+    hostName = getString(HttpEngineConstants.HOSTNAME_KEY);
+    if (StringUtils.isEmpty(hostName)) {
+      log(logger, "hostName is not configured.");
+    }
+    port = getInt(HttpEngineConstants.PORT_KEY, DEFAULT_PORT, logger,
+        "port is not configured... will default to port 80");
+
+    failoverHostName = getString(HttpEngineConstants.HOSTNAME_FAILOVER_KEY);
+    if (StringUtils.isEmpty(failoverHostName)) {
+      log(logger, "failover hostName is not configured.");
+    }
+    failoverPort = getInt(HttpEngineConstants.PORT_FAILOVER_KEY, DEFAULT_PORT, logger,
+        "failover port is not configured... will default to port 80");
+
+    connectionTimeoutSeconds = getInt(HttpEngineConstants.CONNECTION_TIMEOUT_KEY, DEFAULT_TIMEOUT_SECONDS, logger,
+        "Connection timeout is not configured... defaulting to 90 seconds.");
+    readTimeoutSeconds = getInt(HttpEngineConstants.READ_TIMEOUT_KEY, DEFAULT_TIMEOUT_SECONDS, logger,
+        "Read timeout is not configured... defaulting to 90 seconds.");
+
+    String uri = getString(HttpEngineConstants.AUTHORIZATION_URI_KEY);
+    authorizationURI = StringUtils.isEmpty(uri) ? DEFAULT_AUTHORIZATION_URI : uri;
+
+    proxyAddress = compileProxyAddress(logger);
+
+    sdkVersion = getString(HttpEngineConstants.SDK_VERSION_KEY);
+    dtdVersion = getString(HttpEngineConstants.DTD_VERSION_KEY);
+
+    String type = getString(ResponseIF.RESPONSE_TYPE_KEY);
+    if (StringUtils.isEmpty(type)
+        || (!type.equalsIgnoreCase(Response.GATEWAY_TYPE) && !type.equalsIgnoreCase(Response.HOST_TYPE))) {
+      if (logger != null) {
+        logger.warn(type + " is an invalid Response.response_type. Defaulting to [gateway]");
+      }
+      type = Response.GATEWAY_TYPE;
+    }
+    responseType = type;
+
+    String lean = getString(ResponseIF.LEAN_MODE_KEY);
+    leanResponses = !StringUtils.isEmpty(lean) && lean.trim().equalsIgnoreCase("true");
+  }
+
+  /**
+   * Compile the settings of a configurations map
+   *
+   * @param configurations the configurations (copied)
+   * @param logger         the logger of the missing and invalid settings (or null)
+   * @return the snapshot
+   */
+  public static ConfigurationSnapshot compile(Map configurations, Logger logger) {
+    return new ConfigurationSnapshot((configurations == null) ? new HashMap() : configurations, logger);
+  }
+
+  /**
+   * Determine the proxy, either from the configurations or from the JVM properties
+   */
+  private InetSocketAddress compileProxyAddress(Logger logger) {
+    String proxyHost = getString(HttpEngineConstants.PROXY_HOSTNAME);
+    int proxyPort = 0;
+    if (proxyHost != null) {
+      try {
+        proxyPort = Integer.parseInt(getString(HttpEngineConstants.PROXY_PORT));
+      } catch (Exception ex) {
+        proxyPort = 0;
+        warn(logger, "Missing or non numeric proxy port no is specified");
+        warn(logger, "Disabling the proxy functionality from the linehandler.properties file");
+      }
+    } else {
+      proxyHost = System.getProperty("http.proxyHost");
+      try {
+        proxyPort = Integer.parseInt(System.getProperty("http.proxyPort", "80"));
+      } catch (Exception ex) {
+        warn(logger, "Missing or non numeric proxy port no is specified");
+        warn(logger, "Disabling the proxy functionality from the JVM property");
+        proxyPort = 0;
+      }
+    }
+
+    if (proxyHost != null && proxyHost.length() > 0 && proxyPort > 0) {
+      log(logger, "Using proxy host [" + proxyHost + "] and proxy port [" + proxyPort + "]");
+      return InetSocketAddress.createUnresolved(proxyHost, proxyPort);
+    }
+    return null;
+  }
+
+  private String getString(String key) {
+    return (String) configurations.get(key);
+  }
+
+  private int getInt(String key, int defaultValue, Logger logger, String message) {
+    try {
+      return Integer.parseInt(getString(key));
+    } catch (Exception ex) {
+      log(logger, message);
+      return defaultValue;
+    }
+  }
+
+  private static void log(Logger logger, String message) {
+    if (logger != null) {
+      logger.info(message);
+    }
+  }
+
+  private static void warn(Logger logger, String message) {
+    if (logger != null) {
+      logger.warn(message);
+    }
+  }
+
+  /**
+   * @return the configurations the snapshot was compiled from (unmodifiable)
+   */
+  public Map getConfigurations() {
+    return configurations;
+  }
+
+  public boolean isVerbose() {
+    return verbose;
+  }
+
+  /**
+   * @return the hostname of the gateway (null if it is not configured)
+   */
+  public String getHostName() {
+    return hostName;
+  }
+
+  public int getPort() {
+    return port;
+  }
+
+  /**
+   * @return the hostname of the failover gateway (null if it is not configured)
+   */
+  public String getFailoverHostName() {
+    return failoverHostName;
+  }
+
+  public int getFailoverPort() {
+    return failoverPort;
+  }
+
+  public int getConnectionTimeoutSeconds() {
+    return connectionTimeoutSeconds;
+  }
+
+  public int getReadTimeoutSeconds() {
+    return readTimeoutSeconds;
+  }
+
+  /**
+   * @return the path the requests are posted to
+   */
+  public String getAuthorizationURI() {
+    return authorizationURI;
+  }
+
+  /**
+   * @return the (unresolved) proxy address, or null if no proxy is configured
+   */
+  public InetSocketAddress getProxyAddress() {
+    return proxyAddress;
+  }
+
+  public String getSdkVersion() {
+    return sdkVersion;
+  }
+
+  public String getDtdVersion() {
+    return dtdVersion;
+  }
+
+  /**
+   * @return the response type ("host" or "gateway", gateway if the configured one is not valid)
+   */
+  public String getResponseType() {
+    return responseType;
+  }
+
+  /**
+   * @return true if responses are decided from the bytes of the message (see LeanResponse)
+   */
+  public boolean isLeanResponses() {
+    return leanResponses;
+  }
+}
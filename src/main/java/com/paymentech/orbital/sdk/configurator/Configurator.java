@@ -37,6 +37,8 @@ public class Configurator implements ConfiguratorIF {
   private static final String SEARCH_BY_LOG4J = "log4j";
   // singleton instance
   private static Configurator instance = null;
+  // singleton instance once it is loaded (read without locking)
+  private static volatile Configurator loaded = null;
   // reference to the template loader implementation
   private static TemplateLoaderIF templateLoader = null;
   // default template loader
@@ -53,6 +55,8 @@ public class Configurator implements ConfiguratorIF {
   private static boolean logInitializedBySDK = false;
   // Map which contains all the linehandler.properties
   private Map configurations = new HashMap();
+  // the settings compiled from the configurations (replaced with them)
+  private volatile ConfigurationSnapshot snapshot = null;
   // Map which contains - Key as the transaction type and value as the xml template (as string)
   private Map xmlTemplates = new HashMap();
   private Properties propsFile = null;
@@ -89,11 +93,20 @@ public class Configurator implements ConfiguratorIF {
    * @return Configurator - which is a singleton
    * @throws InitializationException
    */
-  public static synchronized Configurator getInstance() throws InitializationException {
+  public static Configurator getInstance() throws InitializationException {
+    Configurator current = loaded;
+    if (current != null) {
+      return current;
+    }
+    return loadInstance();
+  }
+
+  private static synchronized Configurator loadInstance() throws InitializationException {
     if (instance == null) {
       try {
         instance = new Configurator();
         instance.load();
+        loaded = instance;
       } catch (InitializationException iex) {
         instance = null;
         Configurator.configFile = null;
@@ -123,24 +136,15 @@ public class Configurator implements ConfiguratorIF {
       }
       setConfigFileName(theConfigFile);
     }
-    if (instance == null) {
-      try {
-        instance = new Configurator();
-        instance.load();
-      } catch (InitializationException iex) {
-        instance = null;
-        Configurator.configFile = null;
-        throw iex;
-      }
-    }
-    return instance;
+    return loadInstance();
   }
 
   /**
    * Used for JUnit test cases only
    */
-  public static void reload() {
+  public static synchronized void reload() {
     instance = null;
+    loaded = null;
   }
 
   public String getConfigFileName() {
@@ -157,6 +161,21 @@ public class Configurator implements ConfiguratorIF {
 
   public void setConfigurations(Map configurations) {
     this.configurations = configurations;
+    this.snapshot = ConfigurationSnapshot.compile(configurations, engineLogger);
+  }
+
+  /**
+   * Get the settings compiled from the configurations; the snapshot is replaced when the configurations are
+   *
+   * @return ConfigurationSnapshot
+   */
+  public ConfigurationSnapshot getSnapshot() {
+    ConfigurationSnapshot current = snapshot;
+    if (current == null) {
+      current = ConfigurationSnapshot.compile(configurations, engineLogger);
+      snapshot = current;
+    }
+    return current;
   }
 
   /**
@@ -406,8 +425,10 @@ public class Configurator implements ConfiguratorIF {
 
       engineLogger.info("************ XML Templates Loaded *************");
 
+      snapshot = ConfigurationSnapshot.compile(configurations, engineLogger);
+
       // dump the properties file
-      engineLogger.info(instance.toString());
+      engineLogger.info(toString());
 
     } catch (InitializationException iex) {
       throw iex;
@@ -69,4 +69,14 @@ public interface ConfiguratorIF {
    */
   TemplateLoaderIF getTemplateLoader();
 
+  /**
+   * Get the settings compiled from the configurations (implementations keep the snapshot until their
+   * configurations change)
+   *
+   * @return ConfigurationSnapshot
+   */
+  default ConfigurationSnapshot getSnapshot() {
+    return ConfigurationSnapshot.compile(getConfigurations(), getCommonEngineLogger());
+  }
+
 }
@@ -0,0 +1,59 @@
+package com.paymentech.orbital.sdk.engine;
+
+import com.paymentech.orbital.sdk.engine.failover.Endpoint;
+import com.paymentech.orbital.sdk.interfaces.RequestIF;
+import com.paymentech.orbital.sdk.interfaces.ResponseIF;
+import com.paymentech.orbital.sdk.transactionProcessor.Deadline;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <p><b>Title:</b> AsyncEngineIF</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <b>Description:</b><br><br> Published interface for engines that execute transactions without blocking the
+ * calling thread.  An asynchronous engine is shared by all callers and must be thread safe. </p>
+ */
+public interface AsyncEngineIF extends EngineIF {
+  /**
+   * Key that locates the asynchronous engine class in the configurations.
+   */
+  String ASYNC_ENGINE_CLASS_KEY = "engine.async.class";
+
+  /**
+   * Execute an Orbital Gateway transaction without blocking.  The returned future completes with the response,
+   * or exceptionally with the InitializationException, IOException or TransactionException that the blocking
+   * {@link EngineIF#execute(RequestIF)} would have thrown.
+   *
+   * @param request The xml request object
+   * @return a future for the xml response object
+   */
+  CompletableFuture<ResponseIF> executeAsync(RequestIF request);
+
+  /**
+   * Execute an Orbital Gateway transaction without blocking, within the time remaining on a deadline.  Engines
+   * that can't bound or abort an exchange ignore the deadline.
+   *
+   * @param request  The xml request object
+   * @param deadline The deadline of the transaction
+   * @return a future for the xml response object
+   */
+  default CompletableFuture<ResponseIF> executeAsync(RequestIF request, Deadline deadline) {
+    return executeAsync(request);
+  }
+
+  /**
+   * Execute an Orbital Gateway transaction on the given gateway without blocking, within the time remaining on a
+   * deadline.  Engines that can't choose the gateway per transaction ignore the endpoint.
+   *
+   * @param request  The xml request object
+   * @param endpoint The gateway (primary or failover) to send the transaction to
+   * @param deadline The deadline of the transaction
+   * @return a future for the xml response object
+   */
+  default CompletableFuture<ResponseIF> executeAsync(RequestIF request, Endpoint endpoint, Deadline deadline) {
+    return executeAsync(request, deadline);
+  }
+}
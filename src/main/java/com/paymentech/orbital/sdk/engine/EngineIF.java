@@ -1,7 +1,9 @@
 package com.paymentech.orbital.sdk.engine;
 
+import com.paymentech.orbital.sdk.engine.failover.Endpoint;
 import com.paymentech.orbital.sdk.interfaces.RequestIF;
 import com.paymentech.orbital.sdk.interfaces.ResponseIF;
+import com.paymentech.orbital.sdk.transactionProcessor.Deadline;
 import com.paymentech.orbital.sdk.transactionProcessor.TransactionException;
 import com.paymentech.orbital.sdk.util.exceptions.InitializationException;
 
@@ -38,6 +40,53 @@ public interface EngineIF {
   ResponseIF execute(RequestIF request) throws InitializationException,
       IOException, TransactionException;
 
+  /**
+   * Execute an Orbital Gateway transaction within the time remaining on a deadline.  Engines that can't bound or
+   * abort an exchange only check the deadline before executing the transaction.
+   *
+   * @param request  The xml request object
+   * @param deadline The deadline of the transaction
+   * @return The xml response object
+   */
+  default ResponseIF execute(RequestIF request, Deadline deadline) throws InitializationException,
+      IOException, TransactionException {
+    deadline.check("sending the request");
+    return execute(request);
+  }
+
+  /**
+   * Execute an Orbital Gateway transaction on the given gateway, within the time remaining on a deadline.
+   * Engines that can't choose the gateway per transaction ignore the endpoint.
+   *
+   * @param request  The xml request object
+   * @param endpoint The gateway (primary or failover) to send the transaction to
+   * @param deadline The deadline of the transaction
+   * @return The xml response object
+   */
+  default ResponseIF execute(RequestIF request, Endpoint endpoint, Deadline deadline)
+      throws InitializationException, IOException, TransactionException {
+    return execute(request, deadline);
+  }
+
+  /**
+   * Get a connection ready to one of two gateways before a transaction is sent: the preferred gateway gets a
+   * head start of staggerMillis, after which the alternate gateway is connected too.  The engine reports the
+   * outcome of the losing connection to the circuit breaker of its gateway.  Engines that can't race
+   * connections return the preferred gateway.
+   *
+   * @param preferred     the gateway the transaction would be sent to
+   * @param alternate     the gateway raced against it
+   * @param staggerMillis the head start of the preferred gateway
+   * @param deadline      the deadline of the transaction
+   * @return the gateway to send the transaction to
+   * @throws IOException if neither gateway could be connected
+   */
+  default Endpoint connect(Endpoint preferred, Endpoint alternate, long staggerMillis, Deadline deadline)
+      throws IOException {
+    alternate.getCircuitBreaker().onIgnored();
+    return preferred;
+  }
+
   /**
    * Get the connection timeout (in seconds)
    *
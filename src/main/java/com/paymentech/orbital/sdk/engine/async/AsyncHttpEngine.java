@@ -0,0 +1,309 @@
+package com.paymentech.orbital.sdk.engine.async;
+
+import com.paymentech.eis.tools.StringUtils;
+import com.paymentech.orbital.sdk.configurator.ConfigurationSnapshot;
+import com.paymentech.orbital.sdk.engine.AsyncEngineIF;
+import com.paymentech.orbital.sdk.engine.failover.Endpoint;
+import com.paymentech.orbital.sdk.engine.http.HttpEngine;
+import com.paymentech.orbital.sdk.interfaces.RequestIF;
+import com.paymentech.orbital.sdk.interfaces.ResponseIF;
+import com.paymentech.orbital.sdk.request.RequestPayload;
+import com.paymentech.orbital.sdk.response.ResponseBody;
+import com.paymentech.orbital.sdk.transactionProcessor.Deadline;
+import com.paymentech.orbital.sdk.transactionProcessor.TransactionException;
+import com.paymentech.orbital.sdk.util.exceptions.InitializationException;
+import com.paymentech.orbital.sdk.util.mimeHeader.MimeHeader;
+import org.apache.commons.httpclient.ConnectTimeoutException;
+import org.apache.commons.httpclient.Header;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProxySelector;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+
+/**
+ * <p><b>Title:</b> AsyncHttpEngine</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b>
+ * <br><br> Uses the non-blocking java.net.http client to execute Orbital Gateway transactions.  A single instance
+ * is shared by all callers; a transaction only holds a thread while its request is written and its response is
+ * parsed, so many transactions can be in flight at the same time.  The blocking {@link #execute(RequestIF)} is
+ * inherited from {@link HttpEngine}. </p>
+ */
+public class AsyncHttpEngine extends HttpEngine implements AsyncEngineIF {
+
+  // charset used by the gateway when the response does not declare one
+  private static final Charset DEFAULT_CHARSET = StandardCharsets.ISO_8859_1;
+
+  // non-blocking client shared by every transaction executed by this engine
+  protected volatile HttpClient asyncClient = null;
+  private volatile URI normalURI = null;
+  private volatile URI failoverURI = null;
+  // the snapshot the client and the uris were built from
+  private volatile ConfigurationSnapshot clientSnapshot = null;
+
+  /**
+   * Initialize the engine and build the non-blocking client (again, when the configurations have been replaced)
+   *
+   * @throws InitializationException if an error occurs during intialization
+   */
+  public synchronized void init() throws InitializationException {
+    super.init();
+
+    if (snapshot != clientSnapshot) {
+      // transactions in flight finish on the client they were sent with
+      HttpClient.Builder builder = HttpClient.newBuilder()
+          .version(HttpClient.Version.HTTP_1_1)
+          .connectTimeout(Duration.ofSeconds(connectionTimeoutSeconds));
+
+      InetSocketAddress proxy = getProxyAddress();
+      if (proxy != null) {
+        builder.proxy(ProxySelector.of(new InetSocketAddress(proxy.getHostString(), proxy.getPort())));
+      }
+
+      asyncClient = configureClient(builder).build();
+      normalURI = createURI(snapshot.getHostName(), normalPort);
+      failoverURI = StringUtils.isEmpty(failoverHostName) ? null : createURI(failoverHostName, failoverPort);
+      clientSnapshot = snapshot;
+    }
+  }
+
+  /**
+   * Executes a transaction without blocking; sends the request and completes the future with the resulting response
+   *
+   * @param request the request
+   * @return a future for the response
+   */
+  public CompletableFuture<ResponseIF> executeAsync(RequestIF request) {
+    return executeAsync(request, Deadline.none());
+  }
+
+  /**
+   * Executes a transaction without blocking, within the time remaining on a deadline.  The exchange is cancelled
+   * when the deadline expires or the transaction is cancelled.
+   *
+   * @param request  the request
+   * @param deadline the deadline of the transaction
+   * @return a future for the response
+   */
+  public CompletableFuture<ResponseIF> executeAsync(RequestIF request, Deadline deadline) {
+    return executeAsync(request, isRoutedToFailover(), deadline);
+  }
+
+  /**
+   * Executes a transaction on the given gateway without blocking, within the time remaining on a deadline
+   *
+   * @param request  the request
+   * @param endpoint the gateway (primary or failover)
+   * @param deadline the deadline of the transaction
+   * @return a future for the response
+   */
+  public CompletableFuture<ResponseIF> executeAsync(RequestIF request, Endpoint endpoint, Deadline deadline) {
+    return executeAsync(request, endpoint.isFailover(), deadline);
+  }
+
+  protected CompletableFuture<ResponseIF> executeAsync(final RequestIF request, boolean failover,
+                                                       final Deadline deadline) {
+    final CompletableFuture<ResponseIF> result = new CompletableFuture<ResponseIF>();
+    HttpRequest httpRequest = null;
+
+    try {
+
+      engineLogger.debug("executing async engine...");
+
+      // the engine is shared and initialized once, so it picks up new configurations here
+      if (configurator.getSnapshot() != clientSnapshot) {
+        init();
+      }
+
+      if (eCommerceLogger.isDebugEnabled()) {
+        eCommerceLogger.debug("request " + request.getLogTransactionID() + " ==> "
+            + request.getMaskedXML());
+      }
+
+      deadline.check("sending the request");
+
+      httpRequest = buildRequest(request, failover, deadline);
+
+    } catch (InitializationException ie) {
+      engineLogger.error("Unable to create the request.", ie);
+      result.completeExceptionally(ie);
+      return result;
+    } catch (TransactionException te) {
+      result.completeExceptionally(te);
+      return result;
+    } catch (Throwable th) {
+      engineLogger.error("Exception occurred.", th);
+      result.completeExceptionally(new TransactionException(th.getMessage()));
+      return result;
+    }
+
+    final CompletableFuture<HttpResponse<byte[]>> exchange =
+        asyncClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofByteArray());
+
+    // cancelling the future aborts the exchange
+    deadline.setAbortAction(new Runnable() {
+      public void run() {
+        engineLogger.debug("aborting the exchange with the gateway...");
+        exchange.cancel(true);
+      }
+    });
+
+    exchange.whenComplete(
+        new BiConsumer<HttpResponse<byte[]>, Throwable>() {
+          public void accept(HttpResponse<byte[]> httpResponse, Throwable failure) {
+            deadline.clearAbortAction();
+
+            if (failure != null) {
+              Throwable cause = translateException(failure);
+              engineLogger.error("Exception occurred.", cause);
+              result.completeExceptionally(cause);
+              return;
+            }
+
+            try {
+              engineLogger.debug("building the response...");
+              result.complete(buildResponse(request,
+                  new ResponseBody(httpResponse.body()), getCharset(httpResponse),
+                  httpResponse.headers().firstValue("retry-count").orElse(null),
+                  httpResponse.headers().firstValue("last-retry-attempt").orElse(null)));
+            } catch (InitializationException ie) {
+              engineLogger.error("Unable to create a response object.", ie);
+              result.completeExceptionally(ie);
+            } catch (Throwable th) {
+              engineLogger.error("Exception occurred.", th);
+              result.completeExceptionally(new TransactionException(th.getMessage()));
+            }
+          }
+        });
+
+    return result;
+  }
+
+  /**
+   * Builds the http request (uri, mime headers and payload) for a transaction
+   *
+   * @param request  the request
+   * @param failover true to send the request to the failover gateway
+   * @param deadline the deadline of the transaction (bounds the time allowed for the response)
+   * @return the http request
+   * @throws Exception if the mime headers can not be built
+   */
+  protected HttpRequest buildRequest(RequestIF request, boolean failover, Deadline deadline) throws Exception {
+    RequestPayload payload = getPayload(request);
+
+    HttpRequest.Builder builder = HttpRequest.newBuilder(getURI(failover))
+        .timeout(Duration.ofMillis(deadline.bound(readTimeoutSeconds * 1000L)))
+        .POST(HttpRequest.BodyPublishers.ofByteArray(payload.getBuffer(), 0, payload.getLength()));
+
+    // populate the mime headers (the content length is set by the client)
+    Header[] headers = new MimeHeader(this.configurator).getMimeHeaders(request, payload.getLength());
+    for (int index = 0; index < headers.length; index++) {
+      builder.header(headers[index].getName(), headers[index].getValue());
+    }
+
+    return builder.build();
+  }
+
+  /**
+   * Give subclasses the opportunity to configure the client (for instance with an SSL context)
+   *
+   * @param builder the client builder
+   * @return the builder
+   */
+  protected HttpClient.Builder configureClient(HttpClient.Builder builder) {
+    return builder;
+  }
+
+  /**
+   * The uri scheme used to talk to the gateway
+   *
+   * @return the scheme
+   */
+  protected String getScheme() {
+    return "http";
+  }
+
+  /**
+   * Get the authorization uri of the normal or failover gateway
+   *
+   * @param failover true for the failover gateway
+   * @return the uri
+   */
+  protected URI getURI(boolean failover) {
+    return failover ? failoverURI : normalURI;
+  }
+
+  private URI createURI(String hostname, int port) {
+    //authorizationURI is the path where the server will look for the xml dtd
+    return URI.create(getScheme() + "://" + hostname + ":" + port + snapshot.getAuthorizationURI());
+  }
+
+  /**
+   * Translates the failures of the non-blocking client into the exceptions thrown by the blocking engine, so
+   * that the TransactionProcessor applies the same retry rules to both
+   *
+   * @param failure the failure reported by the client
+   * @return the translated exception
+   */
+  protected Throwable translateException(Throwable failure) {
+    Throwable cause = failure;
+    while (cause instanceof CompletionException && cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+
+    if (cause instanceof HttpConnectTimeoutException) {
+      return new ConnectTimeoutException(cause.getMessage());
+    } else if (cause instanceof HttpTimeoutException) {
+      return new SocketTimeoutException(cause.getMessage());
+    } else if (cause instanceof IOException) {
+      return cause;
+    } else {
+      return new TransactionException(cause.getMessage());
+    }
+  }
+
+  /**
+   * The engine is shared by concurrent callers of the blocking execute, so each response is read into its own body
+   *
+   * @return a new body
+   */
+  protected ResponseBody getResponseBody() {
+    return new ResponseBody();
+  }
+
+  private Charset getCharset(HttpResponse<?> httpResponse) {
+    String contentType = httpResponse.headers().firstValue("Content-Type").orElse(null);
+    if (contentType != null) {
+      int index = contentType.toLowerCase().indexOf("charset=");
+      if (index >= 0) {
+        String charset = contentType.substring(index + 8).trim();
+        int end = charset.indexOf(';');
+        if (end >= 0) {
+          charset = charset.substring(0, end).trim();
+        }
+        try {
+          return Charset.forName(charset.replace("\"", ""));
+        } catch (Exception ex) {
+          engineLogger.warn("unsupported response charset [" + charset + "]... using " + DEFAULT_CHARSET);
+        }
+      }
+    }
+    return DEFAULT_CHARSET;
+  }
+}
@@ -0,0 +1,38 @@
+package com.paymentech.orbital.sdk.engine.async;
+
+import com.paymentech.orbital.sdk.util.ssl.SocketFactoryFactory;
+
+import javax.net.ssl.SSLContext;
+import java.net.http.HttpClient;
+
+/**
+ * <p><b>Title:</b> AsyncHttpsEngine</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b>
+ * <br><br> Uses the non-blocking java.net.http client and the SDK's SSL context (keystore, truststore and
+ * session cache) to execute Orbital Gateway transactions over HTTPS.  The java.net.http client always verifies
+ * the gateway host name. </p>
+ */
+public class AsyncHttpsEngine extends AsyncHttpEngine {
+
+  /**
+   * Use the SSL context shared with the blocking engines
+   *
+   * @param builder the client builder
+   * @return the builder
+   */
+  protected HttpClient.Builder configureClient(HttpClient.Builder builder) {
+    SSLContext sslContext = SocketFactoryFactory.getSSLContext(this.configurator);
+    if (sslContext != null) {
+      builder.sslContext(sslContext);
+    }
+    return builder;
+  }
+
+  protected String getScheme() {
+    return "https";
+  }
+}
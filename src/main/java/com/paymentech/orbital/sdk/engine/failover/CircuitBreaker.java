@@ -0,0 +1,343 @@
+package com.paymentech.orbital.sdk.engine.failover;
+
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p><b>Title:</b> CircuitBreaker</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Tracks the health of one gateway endpoint.
+ * <br><br> <b>Closed:</b> requests flow; the outcome of the most recent calls is kept in a sliding window and the
+ * circuit opens when their failure rate reaches the threshold.
+ * <br><b>Open:</b> requests are refused until the open period has elapsed.
+ * <br><b>Half-open:</b> a limited number of trial requests are let through; the circuit closes once they all
+ * succeed and opens again as soon as one fails.
+ * <br><br> The state, including the trial requests of a half-open circuit, is held in a single atomic reference
+ * and changes by compare-and-set, so every thread sees a transition as soon as it happens and only one thread
+ * performs it.  Outcomes are only counted as trials while the half-open state that granted the trials has some
+ * in flight; the outcome of a request let through before the circuit went half-open does not close or open it.
+ * </p>
+ */
+public class CircuitBreaker {
+
+  public static final String CLOSED = "CLOSED";
+  public static final String OPEN = "OPEN";
+  public static final String HALF_OPEN = "HALF_OPEN";
+
+  private final String name;
+  private final Logger engineLogger;
+  private final int minimumCalls;
+  private final int failureRateThreshold;
+  private final long openMillis;
+  private final int halfOpenTrials;
+
+  // current state; replaced (never modified) on every transition
+  private final AtomicReference state = new AtomicReference();
+
+  // outcome of the most recent calls (true = failure), guarded by the window itself
+  private final boolean[] window;
+  private int windowIndex = 0;
+  private int windowCalls = 0;
+  private int windowFailures = 0;
+
+  /**
+   * @param name                 name of the endpoint (used in the log)
+   * @param windowSize           number of recent calls the failure rate is measured over
+   * @param minimumCalls         calls needed in the window before the circuit can open
+   * @param failureRateThreshold failure rate (percent) that opens the circuit
+   * @param openMillis           time the circuit stays open before trial requests are let through
+   * @param halfOpenTrials       trial requests that must succeed to close the circuit
+   * @param engineLogger         the engine logger
+   */
+  public CircuitBreaker(String name, int windowSize, int minimumCalls, int failureRateThreshold, long openMillis,
+                        int halfOpenTrials, Logger engineLogger) {
+    this.name = name;
+    this.window = new boolean[Math.max(windowSize, 1)];
+    this.minimumCalls = Math.max(Math.min(minimumCalls, this.window.length), 1);
+    this.failureRateThreshold = failureRateThreshold;
+    this.openMillis = Math.max(openMillis, 0);
+    this.halfOpenTrials = Math.max(halfOpenTrials, 1);
+    this.engineLogger = engineLogger;
+    this.state.set(new State(CLOSED, 0, 0, 0, 0));
+  }
+
+  /**
+   * Ask for permission to send a request to the endpoint.  Every granted permission must be followed by a
+   * call to {@link #onSuccess()}, {@link #onFailure()} or {@link #onIgnored()}.
+   *
+   * @return true if the request may be sent
+   */
+  public boolean tryAcquirePermission() {
+    while (true) {
+      State current = (State) state.get();
+
+      if (CLOSED.equals(current.name)) {
+        return true;
+      }
+
+      if (OPEN.equals(current.name)) {
+        if (System.currentTimeMillis() - current.sinceMillis < openMillis) {
+          return false;
+        }
+        // the open period is over: this request is the first trial (only one thread makes the transition)
+        if (state.compareAndSet(current,
+            new State(HALF_OPEN, System.currentTimeMillis(), halfOpenTrials - 1, 1, 0))) {
+          engineLogger.info("circuit for " + name + " is half-open... sending up to " + halfOpenTrials +
+              " trial requests");
+          return true;
+        }
+      } else {
+        // half-open: only a limited number of trial requests
+        if (current.trialPermits <= 0) {
+          return false;
+        }
+        if (state.compareAndSet(current, current.withTrials(current.trialPermits - 1, current.trialsInFlight + 1,
+            current.trialSuccesses))) {
+          return true;
+        }
+      }
+    }
+  }
+
+  /**
+   * Let a request through whatever the state of the circuit, for an endpoint that has no other endpoint to fall
+   * back on (refusing the request would fail it for certain).  An open circuit goes half-open at once, so the
+   * outcome of the request closes the circuit or opens it for another open period.  The outcome must be reported
+   * as for {@link #tryAcquirePermission()}.
+   */
+  public void forcePermission() {
+    while (true) {
+      State current = (State) state.get();
+      State forced = null;
+
+      if (OPEN.equals(current.name)) {
+        // the forced request is the trial; no other request is needed to close the circuit
+        forced = new State(HALF_OPEN, System.currentTimeMillis(), 0, 1, Math.max(halfOpenTrials - 1, 0));
+      } else if (HALF_OPEN.equals(current.name)) {
+        // one more trial in flight, beyond the permits
+        forced = current.withTrials(current.trialPermits, current.trialsInFlight + 1, current.trialSuccesses);
+      } else {
+        return;
+      }
+
+      if (state.compareAndSet(current, forced)) {
+        if (OPEN.equals(current.name)) {
+          engineLogger.info("circuit for " + name + " is half-open... no other endpoint, sending the request " +
+              "anyway");
+        }
+        return;
+      }
+    }
+  }
+
+  /**
+   * The endpoint answered the request
+   */
+  public void onSuccess() {
+    while (true) {
+      State current = (State) state.get();
+
+      if (CLOSED.equals(current.name)) {
+        record(false);
+        return;
+      }
+      if (!HALF_OPEN.equals(current.name) || current.trialsInFlight <= 0) {
+        // not a trial of this half-open state
+        return;
+      }
+
+      if (current.trialSuccesses + 1 >= halfOpenTrials) {
+        if (transition(current, CLOSED, "trial requests succeeded")) {
+          return;
+        }
+      } else if (state.compareAndSet(current, current.withTrials(current.trialPermits,
+          current.trialsInFlight - 1, current.trialSuccesses + 1))) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * The endpoint could not be reached (or did not answer in time)
+   */
+  public void onFailure() {
+    while (true) {
+      State current = (State) state.get();
+
+      if (CLOSED.equals(current.name)) {
+        if (record(true)) {
+          transition(current, OPEN, "failure rate of at least " + failureRateThreshold + "% over the last " +
+              windowCalls + " calls");
+        }
+        return;
+      }
+      if (!HALF_OPEN.equals(current.name) || current.trialsInFlight <= 0) {
+        // not a trial of this half-open state
+        return;
+      }
+
+      if (transition(current, OPEN, "a trial request failed")) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * The request was abandoned without telling anything about the health of the endpoint (returns a trial
+   * permit taken in the half-open state)
+   */
+  public void onIgnored() {
+    while (true) {
+      State current = (State) state.get();
+      if (!HALF_OPEN.equals(current.name) || current.trialsInFlight <= 0) {
+        return;
+      }
+      if (state.compareAndSet(current, current.withTrials(current.trialPermits + 1, current.trialsInFlight - 1,
+          current.trialSuccesses))) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Open the circuit now (for instance when the endpoint is known to be down); an open circuit stays open for
+   * another open period
+   *
+   * @param reason why the circuit is opened (used in the log)
+   */
+  public void trip(String reason) {
+    transition((State) state.get(), OPEN, reason);
+  }
+
+  /**
+   * Close the circuit now (for instance when the endpoint is known to be back)
+   */
+  public void reset(String reason) {
+    State current = (State) state.get();
+    if (!CLOSED.equals(current.name)) {
+      transition(current, CLOSED, reason);
+    }
+  }
+
+  /**
+   * Change the state, unless another thread changed it first
+   *
+   * @return true if the state was changed by this thread
+   */
+  private boolean transition(State from, String to, String reason) {
+    // the new state has no trial permits: they are handed out when the next half-open period starts
+    if (state.compareAndSet(from, new State(to, System.currentTimeMillis(), 0, 0, 0))) {
+      clearWindow();
+      // an open circuit that is opened again only restarts its open period
+      if (!from.name.equals(to)) {
+        if (OPEN.equals(to)) {
+          engineLogger.warn("circuit for " + name + " opened (" + reason + ")... refusing requests for " +
+              openMillis + " milliseconds");
+        } else {
+          engineLogger.info("circuit for " + name + " " + to.toLowerCase() + " (" + reason + ")");
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Record the outcome of a call in the sliding window
+   *
+   * @return true if the failure rate has reached the threshold
+   */
+  private boolean record(boolean failure) {
+    synchronized (window) {
+      if (windowCalls == window.length) {
+        // the oldest outcome leaves the window
+        if (window[windowIndex]) {
+          windowFailures--;
+        }
+      } else {
+        windowCalls++;
+      }
+      window[windowIndex] = failure;
+      if (failure) {
+        windowFailures++;
+      }
+      windowIndex = (windowIndex + 1) % window.length;
+
+      return windowCalls >= minimumCalls && windowFailures * 100 >= failureRateThreshold * windowCalls;
+    }
+  }
+
+  private void clearWindow() {
+    synchronized (window) {
+      windowIndex = 0;
+      windowCalls = 0;
+      windowFailures = 0;
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return CLOSED, OPEN or HALF_OPEN
+   */
+  public String getState() {
+    return ((State) state.get()).name;
+  }
+
+  public boolean isClosed() {
+    return CLOSED.equals(getState());
+  }
+
+  /**
+   * @return the time of the last state change
+   */
+  public long getStateSinceMillis() {
+    return ((State) state.get()).sinceMillis;
+  }
+
+  /**
+   * @return the failure rate (percent) over the sliding window
+   */
+  public int getFailureRate() {
+    synchronized (window) {
+      return (windowCalls == 0) ? 0 : windowFailures * 100 / windowCalls;
+    }
+  }
+
+  public String toString() {
+    return "CircuitBreaker[" + name + ", " + getState() + ", failureRate=" + getFailureRate() + "%]";
+  }
+
+  /**
+   * An immutable state (and the time it was entered), with the trial requests of a half-open state
+   */
+  private static class State {
+    private final String name;
+    private final long sinceMillis;
+    // trial requests that may still be let through, trials sent and not reported yet, and trials that succeeded
+    private final int trialPermits;
+    private final int trialsInFlight;
+    private final int trialSuccesses;
+
+    private State(String name, long sinceMillis, int trialPermits, int trialsInFlight, int trialSuccesses) {
+      this.name = name;
+      this.sinceMillis = sinceMillis;
+      this.trialPermits = trialPermits;
+      this.trialsInFlight = trialsInFlight;
+      this.trialSuccesses = trialSuccesses;
+    }
+
+    /**
+     * @return the same state (entered at the same time) with other trial counts
+     */
+    private State withTrials(int trialPermits, int trialsInFlight, int trialSuccesses) {
+      return new State(name, sinceMillis, trialPermits, trialsInFlight, trialSuccesses);
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package com.paymentech.orbital.sdk.engine.failover;
+
+import com.paymentech.orbital.sdk.configurator.Configurator;
+import com.paymentech.orbital.sdk.util.ssl.SocketFactoryFactory;
+
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * <p><b>Title:</b> ConnectHealthProbe</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> The default health probe: opens a TCP connection to the gateway and, for an
+ * SSL gateway, completes the SSL handshake with the SDK's SSL context (so the probe also checks the gateway's
+ * certificate).  No request is sent and the connection is closed right away.
+ * <br><br> When a proxy is configured (engine.proxyname and engine.proxyport, or the http.proxyHost JVM
+ * property), the probe connects to the gateway through a CONNECT tunnel opened by the proxy, the way SSL
+ * transactions reach the gateway; a proxy that refuses the tunnel fails the probe. </p>
+ */
+public class ConnectHealthProbe implements HealthProbeIF {
+
+  // longest status or header line accepted from the proxy
+  private static final int MAX_LINE_LENGTH = 8192;
+
+  public void probe(Endpoint endpoint, boolean secure, int timeoutMillis) throws Exception {
+    InetSocketAddress proxy = Configurator.getInstance().getSnapshot().getProxyAddress();
+    Socket socket = new Socket();
+
+    try {
+      if (proxy == null) {
+        socket.connect(new InetSocketAddress(endpoint.getHostname(), endpoint.getPort()), timeoutMillis);
+      } else {
+        socket.connect(new InetSocketAddress(proxy.getHostString(), proxy.getPort()), timeoutMillis);
+        socket.setSoTimeout(timeoutMillis);
+        tunnel(socket, endpoint);
+      }
+
+      if (secure) {
+        socket.setSoTimeout(timeoutMillis);
+        socket = SocketFactoryFactory.getSSLContext(Configurator.getInstance()).getSocketFactory()
+            .createSocket(socket, endpoint.getHostname(), endpoint.getPort(), true);
+        ((SSLSocket) socket).startHandshake();
+      }
+    } finally {
+      try {
+        socket.close();
+      } catch (Exception ex) {
+        ;
+      }
+    }
+  }
+
+  /**
+   * Ask the proxy for a tunnel to the gateway
+   *
+   * @throws IOException if the proxy does not open the tunnel
+   */
+  private static void tunnel(Socket socket, Endpoint endpoint) throws IOException {
+    String authority = endpoint.getHostname() + ":" + endpoint.getPort();
+    OutputStream out = socket.getOutputStream();
+    out.write(("CONNECT " + authority + " HTTP/1.1\r\nHost: " + authority + "\r\n\r\n").getBytes("US-ASCII"));
+    out.flush();
+
+    InputStream in = socket.getInputStream();
+    String status = readLine(in);
+    // HTTP/1.x 200 Connection established
+    String[] parts = status.split(" ");
+    if (parts.length < 2 || !parts[0].startsWith("HTTP/") || !parts[1].equals("200")) {
+      throw new IOException("proxy refused the tunnel to " + authority + ": " + status);
+    }
+    // skip the headers of the response, up to the empty line
+    while (readLine(in).length() > 0) {
+      ;
+    }
+  }
+
+  private static String readLine(InputStream in) throws IOException {
+    StringBuffer line = new StringBuffer();
+    int c;
+    while ((c = in.read()) != '\n') {
+      if (c < 0) {
+        throw new IOException("proxy closed the connection");
+      }
+      if (line.length() == MAX_LINE_LENGTH) {
+        throw new IOException("proxy response line is too long");
+      }
+      if (c != '\r') {
+        line.append((char) c);
+      }
+    }
+    return line.toString();
+  }
+}
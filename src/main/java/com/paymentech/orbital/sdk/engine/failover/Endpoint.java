@@ -0,0 +1,92 @@
+package com.paymentech.orbital.sdk.engine.failover;
+
+/**
+ * <p><b>Title:</b> Endpoint</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> One of the Orbital Gateways a transaction can be sent to (the primary
+ * gateway or the failover gateway), together with the circuit breaker that tracks its health and the results
+ * of the health checker's probes. </p>
+ */
+public class Endpoint {
+
+  private final String hostname;
+  private final int port;
+  private final boolean failover;
+  private final CircuitBreaker circuitBreaker;
+
+  // weight of the latest probe in the average probe latency
+  private static final double LATENCY_WEIGHT = 0.3;
+
+  // written by the health checker only
+  private volatile long probeLatencyMillis = -1;
+  private volatile int consecutiveProbeFailures = 0;
+  private volatile int consecutiveProbeSuccesses = 0;
+
+  public Endpoint(String hostname, int port, boolean failover, CircuitBreaker circuitBreaker) {
+    this.hostname = hostname;
+    this.port = port;
+    this.failover = failover;
+    this.circuitBreaker = circuitBreaker;
+  }
+
+  public String getHostname() {
+    return hostname;
+  }
+
+  public int getPort() {
+    return port;
+  }
+
+  /**
+   * @return true for the failover gateway, false for the primary gateway
+   */
+  public boolean isFailover() {
+    return failover;
+  }
+
+  public CircuitBreaker getCircuitBreaker() {
+    return circuitBreaker;
+  }
+
+  /**
+   * Record the result of a health probe
+   *
+   * @param healthy       true if the probe passed
+   * @param latencyMillis the time the probe took
+   */
+  void recordProbe(boolean healthy, long latencyMillis) {
+    if (healthy) {
+      consecutiveProbeFailures = 0;
+      consecutiveProbeSuccesses++;
+      // exponentially weighted moving average, so a single slow probe does not swing it
+      long average = probeLatencyMillis;
+      probeLatencyMillis = (average < 0) ? latencyMillis :
+          Math.round(average + LATENCY_WEIGHT * (latencyMillis - average));
+    } else {
+      consecutiveProbeSuccesses = 0;
+      consecutiveProbeFailures++;
+    }
+  }
+
+  /**
+   * @return the average time a health probe takes (-1 until a probe has passed)
+   */
+  public long getProbeLatencyMillis() {
+    return probeLatencyMillis;
+  }
+
+  public int getConsecutiveProbeFailures() {
+    return consecutiveProbeFailures;
+  }
+
+  public int getConsecutiveProbeSuccesses() {
+    return consecutiveProbeSuccesses;
+  }
+
+  public String toString() {
+    return hostname + ":" + port;
+  }
+}
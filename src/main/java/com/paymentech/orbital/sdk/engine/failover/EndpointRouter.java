@@ -0,0 +1,165 @@
+package com.paymentech.orbital.sdk.engine.failover;
+
+import com.paymentech.eis.tools.StringUtils;
+import com.paymentech.orbital.sdk.engine.http.HttpEngineConstants;
+import com.paymentech.orbital.sdk.util.exceptions.InitializationException;
+import org.apache.log4j.Logger;
+
+import java.util.Map;
+
+/**
+ * <p><b>Title:</b> EndpointRouter</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Decides which gateway a transaction is sent to.  The primary and failover
+ * gateways each have a circuit breaker; transactions go to the primary gateway while its circuit lets them
+ * through, and to the failover gateway otherwise.  Once the primary circuit closes again, traffic returns to
+ * the primary gateway.  When a latency threshold is configured, transactions also go to the failover gateway
+ * while the health probes find the primary gateway slow and the failover gateway not.  The router is shared by
+ * all engines and is thread safe.
+ * <br><br> Without a failover gateway the primary gateway is used even while its circuit is open (the circuit
+ * then goes half-open, so the first request that succeeds closes it). </p>
+ */
+public class EndpointRouter {
+
+  private final Endpoint primary;
+  private final Endpoint failover;
+  private final Logger engineLogger;
+  // average probe latency above which a gateway is considered slow (0 = never)
+  private final long latencyThresholdMillis;
+
+  /**
+   * Create the endpoints (and their circuit breakers) from the configurations
+   *
+   * @param configurations the linehandler.properties configurations
+   * @param engineLogger   the engine logger
+   * @throws InitializationException if the primary gateway is not configured
+   */
+  public EndpointRouter(Map configurations, Logger engineLogger) throws InitializationException {
+    this.engineLogger = engineLogger;
+    this.latencyThresholdMillis = getInt(configurations, FailoverConstants.HEALTH_LATENCY_THRESHOLD_KEY, 0);
+
+    String hostname = (String) configurations.get(HttpEngineConstants.HOSTNAME_KEY);
+    if (StringUtils.isEmpty(hostname)) {
+      throw new InitializationException("HostName is not configured in linehandler.properties file");
+    }
+    primary = new Endpoint(hostname, getInt(configurations, HttpEngineConstants.PORT_KEY, 80), false,
+        createCircuitBreaker(configurations, "primary gateway " + hostname));
+
+    String failoverHostname = (String) configurations.get(HttpEngineConstants.HOSTNAME_FAILOVER_KEY);
+    if (StringUtils.isEmpty(failoverHostname) || failoverHostname.trim().length() == 0) {
+      failover = null;
+    } else {
+      failover = new Endpoint(failoverHostname, getInt(configurations, HttpEngineConstants.PORT_FAILOVER_KEY, 80),
+          true, createCircuitBreaker(configurations, "failover gateway " + failoverHostname));
+    }
+  }
+
+  private CircuitBreaker createCircuitBreaker(Map configurations, String name) {
+    return new CircuitBreaker(name,
+        getInt(configurations, FailoverConstants.WINDOW_SIZE_KEY, FailoverConstants.DEFAULT_WINDOW_SIZE),
+        getInt(configurations, FailoverConstants.MINIMUM_CALLS_KEY, FailoverConstants.DEFAULT_MINIMUM_CALLS),
+        getInt(configurations, FailoverConstants.FAILURE_RATE_THRESHOLD_KEY,
+            FailoverConstants.DEFAULT_FAILURE_RATE_THRESHOLD),
+        getInt(configurations, FailoverConstants.OPEN_SECONDS_KEY, FailoverConstants.DEFAULT_OPEN_SECONDS) * 1000L,
+        getInt(configurations, FailoverConstants.HALF_OPEN_TRIALS_KEY, FailoverConstants.DEFAULT_HALF_OPEN_TRIALS),
+        engineLogger);
+  }
+
+  /**
+   * Choose the gateway for the next request; permission is taken from its circuit breaker, so the outcome of
+   * the request must be reported to it
+   *
+   * @return the endpoint, or null if the circuits of all the gateways are open (never null without a failover
+   *         gateway)
+   */
+  public Endpoint select() {
+    Endpoint preferred = primary;
+    Endpoint other = failover;
+
+    if (isPrimarySlow()) {
+      preferred = failover;
+      other = primary;
+    }
+
+    if (preferred.getCircuitBreaker().tryAcquirePermission()) {
+      return preferred;
+    }
+    if (other == null) {
+      // no gateway to fail over to: refusing the request would only fail it
+      preferred.getCircuitBreaker().forcePermission();
+      return preferred;
+    }
+    if (other.getCircuitBreaker().tryAcquirePermission()) {
+      return other;
+    }
+    return null;
+  }
+
+  /**
+   * @return true if the probes find the primary gateway slow and the failover gateway not
+   */
+  private boolean isPrimarySlow() {
+    return failover != null && latencyThresholdMillis > 0
+        && primary.getProbeLatencyMillis() > latencyThresholdMillis
+        && failover.getProbeLatencyMillis() >= 0 && failover.getProbeLatencyMillis() <= latencyThresholdMillis;
+  }
+
+  /**
+   * Take permission to send the next request to the given gateway
+   *
+   * @param endpoint the gateway
+   * @return the endpoint, or null if its circuit is open
+   */
+  public Endpoint select(Endpoint endpoint) {
+    if (endpoint != null && endpoint.getCircuitBreaker().tryAcquirePermission()) {
+      return endpoint;
+    }
+    return null;
+  }
+
+  /**
+   * @param endpoint one of the gateways
+   * @return the other gateway (null if no failover gateway is configured)
+   */
+  public Endpoint getAlternate(Endpoint endpoint) {
+    if (failover == null) {
+      return null;
+    }
+    return (endpoint == failover) ? primary : failover;
+  }
+
+  public Endpoint getPrimary() {
+    return primary;
+  }
+
+  /**
+   * @return the failover gateway (null if it is not configured)
+   */
+  public Endpoint getFailover() {
+    return failover;
+  }
+
+  /**
+   * @return true if transactions are being routed away from the primary gateway
+   */
+  public boolean isFailover() {
+    return failover != null && (!primary.getCircuitBreaker().isClosed() || isPrimarySlow());
+  }
+
+  private static int getInt(Map configurations, String key, int defaultValue) {
+    try {
+      return Integer.parseInt(((String) configurations.get(key)).trim());
+    } catch (Exception ex) {
+      return defaultValue;
+    }
+  }
+
+  public String toString() {
+    return "EndpointRouter[" + primary.getCircuitBreaker() + " latency=" + primary.getProbeLatencyMillis() + "ms" +
+        ((failover == null) ? "" : ", " + failover.getCircuitBreaker() + " latency=" +
+            failover.getProbeLatencyMillis() + "ms") + "]";
+  }
+}
@@ -0,0 +1,78 @@
+package com.paymentech.orbital.sdk.engine.failover;
+
+/**
+ * <p><b>Title:</b> FailoverConstants</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Constants used to route transactions between the primary and failover
+ * gateways </p>
+ */
+public interface FailoverConstants {
+  /**
+   * Number of recent calls to an endpoint over which its failure rate is measured
+   */
+  String WINDOW_SIZE_KEY = "engine.circuit.window_size";
+
+  /**
+   * Minimum number of calls in the window before the failure rate can open the circuit
+   */
+  String MINIMUM_CALLS_KEY = "engine.circuit.minimum_calls";
+
+  /**
+   * Failure rate (in percent) at or above which the circuit of an endpoint opens
+   */
+  String FAILURE_RATE_THRESHOLD_KEY = "engine.circuit.failure_rate_threshold";
+
+  /**
+   * Time (in seconds) an open circuit stays open before trial requests are let through
+   */
+  String OPEN_SECONDS_KEY = "engine.circuit.open_seconds";
+
+  /**
+   * Number of trial requests that must succeed for a half-open circuit to close
+   */
+  String HALF_OPEN_TRIALS_KEY = "engine.circuit.half_open_trials";
+
+  /**
+   * Time (in seconds) between two health probes of the gateways (0, the default, turns health checking off)
+   */
+  String HEALTH_INTERVAL_KEY = "engine.health.interval_seconds";
+
+  /**
+   * Time (in seconds) a health probe may take
+   */
+  String HEALTH_TIMEOUT_KEY = "engine.health.timeout_seconds";
+
+  /**
+   * Number of consecutive failed probes that open the circuit of a gateway
+   */
+  String HEALTH_FAILURE_THRESHOLD_KEY = "engine.health.failure_threshold";
+
+  /**
+   * Number of consecutive passed probes that close the circuit of a gateway
+   */
+  String HEALTH_SUCCESS_THRESHOLD_KEY = "engine.health.success_threshold";
+
+  /**
+   * Class of the health probe (implements HealthProbeIF)
+   */
+  String HEALTH_PROBE_CLASS_KEY = "engine.health.probe.class";
+
+  /**
+   * Average probe latency (in milliseconds) above which the primary gateway is considered slow; transactions
+   * are then sent to the failover gateway if it is not slow (0 turns this off)
+   */
+  String HEALTH_LATENCY_THRESHOLD_KEY = "engine.health.latency_threshold_millis";
+
+  int DEFAULT_WINDOW_SIZE = 20;
+  int DEFAULT_MINIMUM_CALLS = 5;
+  int DEFAULT_FAILURE_RATE_THRESHOLD = 50;
+  int DEFAULT_OPEN_SECONDS = 10;
+  int DEFAULT_HALF_OPEN_TRIALS = 2;
+  int DEFAULT_HEALTH_INTERVAL_SECONDS = 0;
+  int DEFAULT_HEALTH_TIMEOUT_SECONDS = 3;
+  int DEFAULT_HEALTH_FAILURE_THRESHOLD = 2;
+  int DEFAULT_HEALTH_SUCCESS_THRESHOLD = 2;
+}
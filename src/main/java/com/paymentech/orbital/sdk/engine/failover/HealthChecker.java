@@ -0,0 +1,155 @@
+package com.paymentech.orbital.sdk.engine.failover;
+
+import com.paymentech.eis.tools.StringUtils;
+import org.apache.log4j.Logger;
+
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p><b>Title:</b> HealthChecker</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Probes the primary and failover gateways in the background, so that the
+ * circuit breakers don't depend on live transactions to find out whether a gateway is down or back.  A gateway
+ * that fails several probes in a row has its circuit opened (and kept open while the probes keep failing); a
+ * gateway that passes several probes in a row has its circuit closed, which returns traffic to the primary
+ * gateway within seconds of its recovery.  The average probe latency of each gateway is kept for the
+ * {@link EndpointRouter}.
+ * <br><br> The default probe ({@link ConnectHealthProbe}) connects and completes the SSL handshake without
+ * sending a transaction; another probe can be configured with engine.health.probe.class.
+ * <br><br> Health checking is off unless engine.health.interval_seconds is set. </p>
+ */
+public class HealthChecker {
+
+  private final EndpointRouter router;
+  private final Logger engineLogger;
+  private final boolean secure;
+  private final HealthProbeIF probe;
+  private final long intervalMillis;
+  private final int timeoutMillis;
+  private final int failureThreshold;
+  private final int successThreshold;
+  private ScheduledExecutorService scheduler = null;
+
+  /**
+   * @param router         the router whose gateways are probed
+   * @param configurations the linehandler.properties configurations
+   * @param engineLogger   the engine logger
+   * @param secure         true if the gateways are reached over SSL
+   */
+  public HealthChecker(EndpointRouter router, Map configurations, Logger engineLogger, boolean secure) {
+    this.router = router;
+    this.engineLogger = engineLogger;
+    this.secure = secure;
+    this.intervalMillis = getInt(configurations, FailoverConstants.HEALTH_INTERVAL_KEY,
+        FailoverConstants.DEFAULT_HEALTH_INTERVAL_SECONDS) * 1000L;
+    this.timeoutMillis = getInt(configurations, FailoverConstants.HEALTH_TIMEOUT_KEY,
+        FailoverConstants.DEFAULT_HEALTH_TIMEOUT_SECONDS) * 1000;
+    this.failureThreshold = Math.max(getInt(configurations, FailoverConstants.HEALTH_FAILURE_THRESHOLD_KEY,
+        FailoverConstants.DEFAULT_HEALTH_FAILURE_THRESHOLD), 1);
+    this.successThreshold = Math.max(getInt(configurations, FailoverConstants.HEALTH_SUCCESS_THRESHOLD_KEY,
+        FailoverConstants.DEFAULT_HEALTH_SUCCESS_THRESHOLD), 1);
+    this.probe = createProbe((String) configurations.get(FailoverConstants.HEALTH_PROBE_CLASS_KEY));
+  }
+
+  private HealthProbeIF createProbe(String probeClassName) {
+    if (!StringUtils.isEmpty(probeClassName)) {
+      try {
+        return (HealthProbeIF) Class.forName(probeClassName.trim()).newInstance();
+      } catch (Exception ex) {
+        engineLogger.error("could not instantiate health probe class " + probeClassName +
+            "... using the connect probe", ex);
+      }
+    }
+    return new ConnectHealthProbe();
+  }
+
+  /**
+   * Start probing the gateways (does nothing if health checking is turned off)
+   */
+  public synchronized void start() {
+    if (scheduler != null || intervalMillis <= 0) {
+      return;
+    }
+
+    scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "OrbitalGatewayHealthChecker");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    scheduler.scheduleWithFixedDelay(new Runnable() {
+      public void run() {
+        try {
+          check();
+        } catch (Throwable th) {
+          engineLogger.error("gateway health check failed", th);
+        }
+      }
+    }, 0, intervalMillis, TimeUnit.MILLISECONDS);
+
+    engineLogger.debug("probing the gateways every " + intervalMillis + " milliseconds");
+  }
+
+  /**
+   * Stop probing the gateways
+   */
+  public synchronized void stop() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+      scheduler = null;
+    }
+  }
+
+  public synchronized boolean isRunning() {
+    return scheduler != null;
+  }
+
+  /**
+   * Probe every gateway once and update their circuit breakers
+   */
+  public void check() {
+    check(router.getPrimary());
+    if (router.getFailover() != null) {
+      check(router.getFailover());
+    }
+  }
+
+  private void check(Endpoint endpoint) {
+    boolean healthy = false;
+    long start = System.currentTimeMillis();
+
+    try {
+      probe.probe(endpoint, secure, timeoutMillis);
+      healthy = true;
+    } catch (Throwable th) {
+      engineLogger.debug("health probe of " + endpoint + " failed: " + th);
+    }
+
+    endpoint.recordProbe(healthy, System.currentTimeMillis() - start);
+    CircuitBreaker circuitBreaker = endpoint.getCircuitBreaker();
+
+    if (healthy) {
+      if (!circuitBreaker.isClosed() && endpoint.getConsecutiveProbeSuccesses() >= successThreshold) {
+        circuitBreaker.reset(endpoint.getConsecutiveProbeSuccesses() + " health probes passed");
+      }
+    } else if (endpoint.getConsecutiveProbeFailures() >= failureThreshold) {
+      circuitBreaker.trip(endpoint.getConsecutiveProbeFailures() + " health probes failed");
+    }
+  }
+
+  private static int getInt(Map configurations, String key, int defaultValue) {
+    try {
+      return Integer.parseInt(((String) configurations.get(key)).trim());
+    } catch (Exception ex) {
+      return defaultValue;
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package com.paymentech.orbital.sdk.engine.failover;
+
+/**
+ * <p><b>Title:</b> HealthProbeIF</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Published interface for the probes used by the {@link HealthChecker} to find
+ * out whether a gateway is reachable.  A probe must never send a transaction.  Implementations need a public
+ * no-argument constructor and must be thread safe. </p>
+ */
+public interface HealthProbeIF {
+  /**
+   * Probe a gateway
+   *
+   * @param endpoint      the gateway
+   * @param secure        true if the gateway is reached over SSL
+   * @param timeoutMillis the time the probe may take
+   * @throws Exception if the gateway is not healthy
+   */
+  void probe(Endpoint endpoint, boolean secure, int timeoutMillis) throws Exception;
+}
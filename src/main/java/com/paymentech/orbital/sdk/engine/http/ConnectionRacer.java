@@ -0,0 +1,281 @@
+package com.paymentech.orbital.sdk.engine.http;
+
+import com.paymentech.orbital.sdk.engine.failover.Endpoint;
+import com.paymentech.orbital.sdk.transactionProcessor.Deadline;
+import org.apache.commons.httpclient.ConnectTimeoutException;
+import org.apache.commons.httpclient.HostConfiguration;
+import org.apache.commons.httpclient.HttpConnection;
+import org.apache.commons.httpclient.HttpConnectionManager;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * <p><b>Title:</b> ConnectionRacer</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Races the connections to the primary and failover gateways before a
+ * transaction is sent.  The connection to the preferred gateway is started first; if it is not up within the
+ * stagger delay (or fails sooner), a connection to the alternate gateway is started too, and the transaction is
+ * sent to the gateway whose connection is up first.  No request bytes are written until then, so racing is safe
+ * for every transaction type.
+ * <br><br> Connections are opened through the shared keep-alive pool.  The winner's connection is handed to
+ * the caller, which sends the transaction on it; the loser's connection is returned to the pool for later
+ * transactions (or is closed if it fails).  The outcome of the loser's connection is reported to the circuit
+ * breaker of its gateway. </p>
+ */
+public class ConnectionRacer {
+
+  // maximum number of connection attempts running at the same time (more attempts wait for a thread)
+  private static final int MAX_THREADS = 32;
+
+  // runs the connection attempts (shared by all engines)
+  private static ExecutorService executor = null;
+
+  private final HttpConnectionManager connectionManager;
+  private final Logger engineLogger;
+
+  public ConnectionRacer(HttpConnectionManager connectionManager, Logger engineLogger) {
+    this.connectionManager = connectionManager;
+    this.engineLogger = engineLogger;
+  }
+
+  /**
+   * Race the connections to two gateways
+   *
+   * @param preferred              the gateway the transaction would be sent to
+   * @param preferredConfiguration the host configuration of the preferred gateway
+   * @param alternate              the gateway raced against it (its circuit breaker has granted a permission)
+   * @param alternateConfiguration the host configuration of the alternate gateway
+   * @param staggerMillis          the head start of the preferred gateway
+   * @param connectTimeoutMillis   the connect timeout of each connection
+   * @param deadline               the deadline of the transaction
+   * @return the gateway whose connection was up first, and its connection (which the caller must release)
+   * @throws IOException if neither gateway could be connected (the failure of the preferred gateway)
+   */
+  public Winner race(final Endpoint preferred, HostConfiguration preferredConfiguration, final Endpoint alternate,
+                     HostConfiguration alternateConfiguration, long staggerMillis, long connectTimeoutMillis,
+                     Deadline deadline) throws IOException {
+    final CompletableFuture<HttpConnection> first = connect(preferredConfiguration,
+        deadline.bound(connectTimeoutMillis));
+
+    try {
+      HttpConnection connection = first.get(staggerMillis, TimeUnit.MILLISECONDS);
+      // the preferred gateway was up within its head start, the alternate was never tried
+      alternate.getCircuitBreaker().onIgnored();
+      return new Winner(preferred, connection);
+    } catch (TimeoutException te) {
+      engineLogger.debug("no connection to " + preferred + " after " + staggerMillis + " milliseconds... " +
+          "racing a connection to " + alternate);
+    } catch (ExecutionException ee) {
+      engineLogger.debug("connection to " + preferred + " failed... racing a connection to " + alternate);
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      alternate.getCircuitBreaker().onIgnored();
+      // the connection is not used if it comes up later
+      first.whenComplete(new BiConsumer<HttpConnection, Throwable>() {
+        public void accept(HttpConnection connection, Throwable failure) {
+          if (connection != null) {
+            connection.releaseConnection();
+          }
+        }
+      });
+      throw new ConnectTimeoutException("interrupted while connecting to " + preferred);
+    }
+
+    final CompletableFuture<HttpConnection> second = connect(alternateConfiguration,
+        deadline.bound(connectTimeoutMillis));
+
+    // the first connection that is up wins; the race is lost when both fail
+    final CompletableFuture<Winner> winner = new CompletableFuture<Winner>();
+    first.whenComplete(judge(preferred, winner, first, second));
+    second.whenComplete(judge(alternate, winner, first, second));
+
+    Winner won = null;
+    try {
+      won = winner.get(deadline.bound(connectTimeoutMillis), TimeUnit.MILLISECONDS);
+    } catch (ExecutionException ee) {
+      // the failure of the preferred gateway is reported by the caller
+      settle(alternate, second);
+      Throwable failure = ee.getCause();
+      throw (failure instanceof IOException) ? (IOException) failure : new IOException(failure.getMessage());
+    } catch (TimeoutException te) {
+      abandon(winner);
+      settle(alternate, second);
+      throw new ConnectTimeoutException("Connect to " + preferred + " and " + alternate + " timed out");
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      abandon(winner);
+      settle(alternate, second);
+      throw new ConnectTimeoutException("interrupted while connecting to " + preferred);
+    }
+
+    if (won.getEndpoint() == alternate) {
+      engineLogger.info("connection to " + alternate + " was up before the connection to " + preferred);
+      settle(preferred, first);
+    } else {
+      settle(alternate, second);
+    }
+    return won;
+  }
+
+  /**
+   * The first connection that is up completes the race; a connection that is up after the race is complete goes
+   * back to the pool
+   */
+  private static BiConsumer<HttpConnection, Throwable> judge(final Endpoint endpoint,
+                                                             final CompletableFuture<Winner> winner,
+                                                             final CompletableFuture<HttpConnection> first,
+                                                             final CompletableFuture<HttpConnection> second) {
+    return new BiConsumer<HttpConnection, Throwable>() {
+      public void accept(HttpConnection connection, Throwable failure) {
+        if (failure == null) {
+          if (!winner.complete(new Winner(endpoint, connection))) {
+            connection.releaseConnection();
+          }
+        } else if (first.isCompletedExceptionally() && second.isCompletedExceptionally()) {
+          winner.completeExceptionally(unwrap(first));
+        }
+      }
+    };
+  }
+
+  /**
+   * Give up a race nobody waits for anymore, releasing the connection of the winner if there already is one
+   */
+  private static void abandon(CompletableFuture<Winner> winner) {
+    winner.cancel(false);
+    winner.whenComplete(new BiConsumer<Winner, Throwable>() {
+      public void accept(Winner won, Throwable failure) {
+        if (won != null) {
+          won.getConnection().releaseConnection();
+        }
+      }
+    });
+  }
+
+  /**
+   * Report the outcome of the losing connection to the circuit breaker of its gateway, once it is known
+   */
+  private void settle(final Endpoint loser, CompletableFuture<HttpConnection> connection) {
+    connection.whenComplete(new BiConsumer<HttpConnection, Throwable>() {
+      public void accept(HttpConnection opened, Throwable failure) {
+        if (failure == null) {
+          loser.getCircuitBreaker().onIgnored();
+        } else {
+          loser.getCircuitBreaker().onFailure();
+        }
+      }
+    });
+  }
+
+  /**
+   * Open a pooled connection to a gateway in the background; the connection is kept until it is handed to the
+   * winner of the race or released
+   */
+  private CompletableFuture<HttpConnection> connect(final HostConfiguration hostConfiguration,
+                                                    final long timeoutMillis) {
+    return CompletableFuture.supplyAsync(new Supplier<HttpConnection>() {
+      public HttpConnection get() {
+        HttpConnection connection = null;
+        try {
+          connection = connectionManager.getConnectionWithTimeout(hostConfiguration, timeoutMillis);
+          // a kept-alive connection the gateway has closed does not count
+          if (connection.isOpen()) {
+            connection.closeIfStale();
+          }
+          if (!connection.isOpen()) {
+            connection.getParams().setConnectionTimeout((int) timeoutMillis);
+            connection.open();
+          }
+          return connection;
+        } catch (IOException ioe) {
+          if (connection != null) {
+            connection.close();
+            connection.releaseConnection();
+          }
+          throw new RacerException(ioe);
+        }
+      }
+    }, getExecutor());
+  }
+
+  private static Throwable unwrap(CompletableFuture<HttpConnection> connection) {
+    try {
+      connection.join();
+      return null;
+    } catch (Exception ex) {
+      Throwable cause = ex;
+      while (cause.getCause() != null && !(cause instanceof IOException)) {
+        cause = cause.getCause();
+      }
+      return cause;
+    }
+  }
+
+  private static synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      // idle threads go away, so the pool only holds threads while connections are being raced
+      ThreadPoolExecutor pool = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "OrbitalConnectionRacer");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+      pool.allowCoreThreadTimeOut(true);
+      executor = pool;
+    }
+    return executor;
+  }
+
+  /**
+   * The gateway that won a race, and the connection to it
+   */
+  public static final class Winner {
+
+    private final Endpoint endpoint;
+    private final HttpConnection connection;
+
+    private Winner(Endpoint endpoint, HttpConnection connection) {
+      this.endpoint = endpoint;
+      this.connection = connection;
+    }
+
+    public Endpoint getEndpoint() {
+      return endpoint;
+    }
+
+    /**
+     * @return the open connection to the gateway, checked out of the pool
+     */
+    public HttpConnection getConnection() {
+      return connection;
+    }
+  }
+
+  /**
+   * Carries the IOException of a connection attempt out of the supplier
+   */
+  private static class RacerException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private RacerException(IOException cause) {
+      super(cause);
+    }
+  }
+}
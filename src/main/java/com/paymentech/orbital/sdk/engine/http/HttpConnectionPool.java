@@ -0,0 +1,171 @@
+package com.paymentech.orbital.sdk.engine.http;
+
+import com.paymentech.orbital.sdk.configurator.ConfigurationSnapshot;
+import org.apache.commons.httpclient.DefaultHttpMethodRetryHandler;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.params.HttpClientParams;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.apache.commons.httpclient.params.HttpMethodParams;
+import org.apache.commons.httpclient.util.IdleConnectionTimeoutThread;
+import org.apache.log4j.Logger;
+
+import java.util.Map;
+
+/**
+ * <p><b>Title:</b> HttpConnectionPool</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Keep-alive connection pool shared by every engine in the EnginePool. The
+ * primary and failover gateways each get their own host pool, bounded per host and in total. Idle connections
+ * are evicted by a background thread and connections are retired once they reach their maximum lifetime.
+ * <br><br> The pool is configured from the snapshot of the Configurator, and reconfigured when the snapshot is
+ * replaced. </p>
+ */
+public class HttpConnectionPool {
+
+  public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 100;
+  public static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 200;
+  public static final int DEFAULT_IDLE_TIMEOUT_SECONDS = 60;
+  public static final int DEFAULT_MAX_LIFETIME_SECONDS = 300;
+
+  // the pool is a singleton shared by all engines
+  private static volatile HttpConnectionPool instance = null;
+
+  private final PooledConnectionManager connectionManager;
+  private final HttpClient httpClient;
+  private final IdleConnectionTimeoutThread idleConnectionEvictor;
+  // the snapshot the pool is configured from (guarded by the class)
+  private volatile ConfigurationSnapshot snapshot = null;
+
+  private HttpConnectionPool(ConfigurationSnapshot snapshot, Logger engineLogger) {
+    connectionManager = new PooledConnectionManager();
+    // make sure a connection closed by the gateway is not handed out again
+    connectionManager.getParams().setStaleCheckingEnabled(true);
+
+    httpClient = new HttpClient(connectionManager);
+    // turn off the internal retry handler (retries are managed by the TransactionProcessor)
+    httpClient.getParams().setParameter(HttpMethodParams.RETRY_HANDLER, new DefaultHttpMethodRetryHandler(0, false));
+
+    idleConnectionEvictor = new IdleConnectionTimeoutThread();
+    idleConnectionEvictor.setName("OrbitalIdleConnectionEvictor");
+    idleConnectionEvictor.addConnectionManager(connectionManager);
+
+    configure(snapshot, engineLogger);
+    idleConnectionEvictor.start();
+  }
+
+  /**
+   * Apply the settings of a snapshot; the pool bounds, the idle timeout and the maximum lifetime take effect for
+   * the next connection handed out or evicted
+   */
+  private void configure(ConfigurationSnapshot snapshot, Logger engineLogger) {
+    Map configurations = snapshot.getConfigurations();
+
+    int connectionTimeoutSeconds = snapshot.getConnectionTimeoutSeconds();
+    int readTimeoutSeconds = snapshot.getReadTimeoutSeconds();
+    int maxPerHost = getInt(configurations, HttpEngineConstants.POOL_MAX_CONNECTIONS_PER_HOST_KEY,
+        DEFAULT_MAX_CONNECTIONS_PER_HOST);
+    int maxTotal = getInt(configurations, HttpEngineConstants.POOL_MAX_TOTAL_CONNECTIONS_KEY,
+        DEFAULT_MAX_TOTAL_CONNECTIONS);
+    int idleTimeoutSeconds = getInt(configurations, HttpEngineConstants.POOL_IDLE_TIMEOUT_KEY,
+        DEFAULT_IDLE_TIMEOUT_SECONDS);
+    int maxLifetimeSeconds = getInt(configurations, HttpEngineConstants.POOL_MAX_LIFETIME_KEY,
+        DEFAULT_MAX_LIFETIME_SECONDS);
+
+    engineLogger.debug("configuring http connection pool: maxPerHost=" + maxPerHost + ", maxTotal=" + maxTotal
+        + ", idleTimeoutSeconds=" + idleTimeoutSeconds + ", maxLifetimeSeconds=" + maxLifetimeSeconds);
+
+    connectionManager.setMaxLifetimeMillis(maxLifetimeSeconds * 1000L);
+
+    HttpConnectionManagerParams managerParams = connectionManager.getParams();
+    managerParams.setDefaultMaxConnectionsPerHost(maxPerHost);
+    managerParams.setMaxTotalConnections(maxTotal);
+    // defaults only: the engines bound each exchange by the timeouts of their current settings
+    managerParams.setConnectionTimeout(connectionTimeoutSeconds * 1000);
+    managerParams.setSoTimeout(readTimeoutSeconds * 1000);
+
+    HttpClientParams clientParams = httpClient.getParams();
+    clientParams.setSoTimeout(readTimeoutSeconds * 1000);
+    // don't wait longer for a pooled connection than we would wait to connect (see PooledConnectionManager)
+    clientParams.setConnectionManagerTimeout(connectionTimeoutSeconds * 1000L);
+
+    idleConnectionEvictor.setConnectionTimeout(idleTimeoutSeconds * 1000L);
+    idleConnectionEvictor.setTimeoutInterval(Math.max(1000L, Math.min(idleTimeoutSeconds * 250L, 5000L)));
+
+    this.snapshot = snapshot;
+  }
+
+  /**
+   * Get the connection pool (created on first use). The pool is reconfigured when it is asked for with another
+   * snapshot than the one it was configured from.
+   *
+   * @param snapshot     the settings compiled from the linehandler.properties configurations
+   * @param engineLogger the engine logger
+   * @return HttpConnectionPool
+   */
+  public static HttpConnectionPool getInstance(ConfigurationSnapshot snapshot, Logger engineLogger) {
+    HttpConnectionPool pool = instance;
+    if (pool != null && pool.snapshot == snapshot) {
+      return pool;
+    }
+    return getInstanceFor(snapshot, engineLogger);
+  }
+
+  private static synchronized HttpConnectionPool getInstanceFor(ConfigurationSnapshot snapshot,
+                                                                Logger engineLogger) {
+    if (instance == null) {
+      instance = new HttpConnectionPool(snapshot, engineLogger);
+    } else if (instance.snapshot != snapshot) {
+      instance.configure(snapshot, engineLogger);
+    }
+    return instance;
+  }
+
+  /**
+   * Get the connection pool (created on first use)
+   *
+   * @param configurations the linehandler.properties configurations
+   * @param engineLogger   the engine logger
+   * @return HttpConnectionPool
+   * @deprecated use {@link #getInstance(ConfigurationSnapshot, Logger)} with the snapshot of the Configurator
+   */
+  @Deprecated
+  public static HttpConnectionPool getInstance(Map configurations, Logger engineLogger) {
+    return getInstance(ConfigurationSnapshot.compile(configurations, engineLogger), engineLogger);
+  }
+
+  /**
+   * Close every pooled connection and stop the idle connection evictor. A new pool is created the next
+   * time one is requested.
+   */
+  public static synchronized void shutdown() {
+    if (instance != null) {
+      instance.idleConnectionEvictor.shutdown();
+      instance.connectionManager.shutdown();
+      instance = null;
+    }
+  }
+
+  /**
+   * The HttpClient backed by the shared connection manager (safe for concurrent use)
+   *
+   * @return HttpClient
+   */
+  public HttpClient getHttpClient() {
+    return httpClient;
+  }
+
+  public PooledConnectionManager getConnectionManager() {
+    return connectionManager;
+  }
+
+  private static int getInt(Map configurations, String key, int defaultValue) {
+    try {
+      return Integer.parseInt(((String) configurations.get(key)).trim());
+    } catch (Exception ex) {
+      return defaultValue;
+    }
+  }
+}
@@ -1,24 +1,36 @@
 package com.paymentech.orbital.sdk.engine.http;
 
 import com.paymentech.eis.tools.StringUtils;
+import com.paymentech.orbital.sdk.configurator.ConfigurationSnapshot;
 import com.paymentech.orbital.sdk.configurator.Configurator;
 import com.paymentech.orbital.sdk.configurator.ConfiguratorIF;
 import com.paymentech.orbital.sdk.engine.EngineIF;
-import com.paymentech.orbital.sdk.engine.pool.EnginePool;
+import com.paymentech.orbital.sdk.engine.failover.Endpoint;
+import com.paymentech.orbital.sdk.engine.failover.EndpointRouter;
 import com.paymentech.orbital.sdk.interfaces.RequestIF;
 import com.paymentech.orbital.sdk.interfaces.ResponseIF;
+import com.paymentech.orbital.sdk.request.RenderedRequest;
+import com.paymentech.orbital.sdk.request.RequestConstructionException;
+import com.paymentech.orbital.sdk.request.RequestPayload;
+import com.paymentech.orbital.sdk.response.LeanResponse;
 import com.paymentech.orbital.sdk.response.Response;
+import com.paymentech.orbital.sdk.response.ResponseBody;
+import com.paymentech.orbital.sdk.transactionProcessor.Deadline;
 import com.paymentech.orbital.sdk.transactionProcessor.TransactionException;
 import com.paymentech.orbital.sdk.util.exceptions.InitializationException;
 import com.paymentech.orbital.sdk.util.mimeHeader.MimeHeader;
 import org.apache.commons.httpclient.Header;
 import org.apache.commons.httpclient.HostConfiguration;
 import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpConnectionManager;
 import org.apache.commons.httpclient.methods.PostMethod;
+import org.apache.commons.httpclient.protocol.Protocol;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
-import java.net.SocketException;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 /**
@@ -32,6 +44,9 @@ import java.util.Map;
  * <br><br> Uses HTTP protocol to execute an Orbital Gateway transaction </p>
  */
 public class HttpEngine implements EngineIF {
+  // responses are read into a body kept by the engine (an engine is leased to one transaction at a time)
+  private final ResponseBody responseBody = new ResponseBody();
+
   protected ConfiguratorIF configurator;
   protected Logger engineLogger;
   protected Logger eCommerceLogger;
@@ -42,9 +57,16 @@ public class HttpEngine implements EngineIF {
   protected int connectionTimeoutSeconds = 90;
   protected int readTimeoutSeconds = 90;
   protected boolean verbose = false;
-  // HTTPClient objects that should be able to hang around as long as this engine
-  protected HttpClient httpClient = new HttpClient();
-  protected HostConfiguration hostConfiguration = new HostConfiguration();
+  protected ConfigurationSnapshot snapshot;
+  // router of the pool the engine belongs to (null for an engine created outside of the pool)
+  protected volatile EndpointRouter endpointRouter = null;
+  // HTTPClient objects that should be able to hang around as long as this engine; the client is backed
+  // by the connection pool shared by all engines so connections are kept alive between transactions
+  protected HttpClient httpClient = null;
+  protected HostConfiguration normalHostConfiguration = null;
+  protected HostConfiguration failoverHostConfiguration = null;
+  // the snapshot the host configurations were built from
+  private ConfigurationSnapshot hostConfigurationSnapshot = null;
   private String normalHostName = "";
 
   /**
@@ -72,58 +94,32 @@ public class HttpEngine implements EngineIF {
     this.eCommerceLogger = configurator.getCommonEcommerceLogger();
     engineLogger.debug("initializing engine...");
 
-    //Get the verbosity
-    String sVerbose = (String) configurations.get(HttpEngineConstants.VERBOSITY_KEY);
-    if (!StringUtils.isEmpty(sVerbose)) {
-      verbose = Boolean.getBoolean(sVerbose.toLowerCase());
-    } else {
-      verbose = false;
-    }
+    //Get the settings compiled from the configurations (parsed once, not on every acquire)
+    this.snapshot = configurator.getSnapshot();
+    verbose = snapshot.isVerbose();
 
     //Get the normal (non-failover) hostname
-    normalHostName = (String) configurations.get(HttpEngineConstants.HOSTNAME_KEY);
+    normalHostName = snapshot.getHostName();
     if (StringUtils.isEmpty(normalHostName)) {
       this.engineLogger.error("hostName is not configured.");
       throw new InitializationException("HostName is not configured in linehandler.properties file");
     }
 
-    //Get the port
-    try {
-      normalPort = Integer.parseInt((String) configurations.get(HttpEngineConstants.PORT_KEY));
-    } catch (Exception ex) {
-      this.engineLogger.info("port is not configured... will default to port 80");
-      normalPort = 80;
+    normalPort = snapshot.getPort();
+    failoverHostName = snapshot.getFailoverHostName();
+    failoverPort = snapshot.getFailoverPort();
+    connectionTimeoutSeconds = snapshot.getConnectionTimeoutSeconds();
+    readTimeoutSeconds = snapshot.getReadTimeoutSeconds();
+
+    //Rebuild the host configurations if the configurations have been replaced
+    if (snapshot != hostConfigurationSnapshot) {
+      normalHostConfiguration = null;
+      failoverHostConfiguration = null;
+      hostConfigurationSnapshot = snapshot;
     }
 
-    //Get the failover hostname
-    failoverHostName = (String) configurations.get(HttpEngineConstants.HOSTNAME_FAILOVER_KEY);
-    if (StringUtils.isEmpty(failoverHostName)) {
-      this.engineLogger.info("failover hostName is not configured.");
-    }
-
-    //Get the failover port
-    try {
-      failoverPort = Integer.parseInt((String) configurations.get(HttpEngineConstants.PORT_FAILOVER_KEY));
-    } catch (Exception ex) {
-      this.engineLogger.info("failover port is not configured... will default to port 80");
-      failoverPort = 80;
-    }
-
-    //Get the connection timeout
-    try {
-      connectionTimeoutSeconds = Integer.parseInt((String) configurations.get(HttpEngineConstants.CONNECTION_TIMEOUT_KEY));
-    } catch (Exception ex) {
-      this.engineLogger.info("Connection timeout is not configured... defaulting to 5 seconds.");
-      connectionTimeoutSeconds = 90;
-    }
-
-    // read socket timeout here
-    try {
-      readTimeoutSeconds = Integer.parseInt((String) configurations.get(HttpEngineConstants.READ_TIMEOUT_KEY));
-    } catch (Exception ex) {
-      this.engineLogger.info("Read timeout is not configured... defaulting to 90 seconds.");
-      readTimeoutSeconds = 90;
-    }
+    //Get the client backed by the shared keep-alive connection pool (configured from the same snapshot)
+    httpClient = HttpConnectionPool.getInstance(snapshot, engineLogger).getHttpClient();
 
   }
 
@@ -136,8 +132,41 @@ public class HttpEngine implements EngineIF {
    */
   public ResponseIF execute(RequestIF request) throws InitializationException,
       IOException, TransactionException {
+    return execute(request, Deadline.none());
+  }
+
+  /**
+   * Executes a transaction within the time remaining on a deadline.  Connecting and reading are bounded by the
+   * remaining time, and the exchange is aborted if the deadline expires or the transaction is cancelled.
+   *
+   * @param request  the request
+   * @param deadline the deadline of the transaction
+   * @return the response
+   * @throws TransactionException
+   */
+  public ResponseIF execute(RequestIF request, Deadline deadline) throws InitializationException,
+      IOException, TransactionException {
+    return execute(request, isRoutedToFailover(), deadline);
+  }
+
+  /**
+   * Executes a transaction on the given gateway within the time remaining on a deadline
+   *
+   * @param request  the request
+   * @param endpoint the gateway (primary or failover)
+   * @param deadline the deadline of the transaction
+   * @return the response
+   * @throws TransactionException
+   */
+  public ResponseIF execute(RequestIF request, Endpoint endpoint, Deadline deadline)
+      throws InitializationException, IOException, TransactionException {
+    return execute(request, endpoint.isFailover(), deadline);
+  }
+
+  protected ResponseIF execute(RequestIF request, boolean failover, Deadline deadline)
+      throws InitializationException, IOException, TransactionException {
     PostMethod method = null;
-    Response response = null;
+    ResponseIF response = null;
     MimeHeader mimeHeader = null;
     HttpClient httpclient = null;
 
@@ -148,11 +177,9 @@ public class HttpEngine implements EngineIF {
       //Create the Mime Headers
       mimeHeader = new MimeHeader(this.configurator);
 
-      //Create the PostMethod object
-      httpclient = getHttpClient(determineHost(), determinePort(),
-          connectionTimeoutSeconds, readTimeoutSeconds);
-
-      setProxyHostAndPort(httpclient);
+      //Get the pooled client and the host configuration of the gateway we are talking to
+      httpclient = getHttpClient();
+      HostConfiguration hostConfig = getHostConfiguration(failover);
 
       engineLogger.debug("just before posting the request...");
 
@@ -162,47 +189,44 @@ public class HttpEngine implements EngineIF {
       }
 
       //authorizationURI is the path where the server will look for the xml dtd
-      String authorizationURI = (String) configurations.get(HttpEngineConstants.AUTHORIZATION_URI_KEY);
-      if (StringUtils.isEmpty(authorizationURI)) {
-        authorizationURI = "/authorize";
-      }
+      String authorizationURI = snapshot.getAuthorizationURI();
 
-      method = getPostMethod(determineHost());
+      method = getPostMethod(hostConfig.getHost());
 
       method.setPath(authorizationURI);
 
+      // render the payload once, its bytes are written to the connection as they are
+      RequestPayload payload = getPayload(request);
+
       // populate the mime headers
-      mimeHeader.populateMimeHeaders(method, request);
+      mimeHeader.populateMimeHeaders(method, request, payload.getLength());
 
       // set the payload
-      method.setRequestBody(request.getXML());
+      method.setRequestEntity(new PayloadRequestEntity(payload));
+
+      // don't wait for the response past the deadline
+      method.getParams().setSoTimeout((int) deadline.bound(readTimeoutSeconds * 1000L));
 
-      httpclient.executeMethod(method);
+      executeMethod(httpclient, hostConfig, method, deadline);
 
       engineLogger.debug("just after posting the request...");
 
       engineLogger.debug("building the response...");
 
+      // read the body from the connection into the buffer of this engine
+      ResponseBody body = getResponseBody();
+      body.readFrom(method.getResponseBodyAsStream(), method.getResponseContentLength());
+
       // create the response object (since we have one)
-      response = new Response();
-      // add the mime header data to the payload
-      StringBuffer xmlData = new StringBuffer(removeDoctype(method.getResponseBodyAsString()));
       Header resendCnt = method.getResponseHeader("retry-count");
-      if (resendCnt != null) {
-        int pos = xmlData.indexOf(">");
-        if (pos > 0)
-          xmlData = xmlData.insert(pos + 1, "<RetryCount>" + resendCnt.getValue() + "</RetryCount>");
-      }
       Header lastResend = method.getResponseHeader("last-retry-attempt");
-      if (lastResend != null) {
-        int pos = xmlData.indexOf(">");
-        if (pos > 0)
-          xmlData = xmlData.insert(pos + 1, "<LastRetryAttempt>" + lastResend.getValue() + "</LastRetryAttempt>");
-      }
-      response.setRawMessage(xmlData.toString());
-
-      if (eCommerceLogger.isDebugEnabled()) {
-        eCommerceLogger.debug("response " + request.getLogTransactionID() + " ==> " + response.toMaskedXmlString());
+      try {
+        response = buildResponse(request, body, getCharset(method.getResponseCharSet()),
+            (resendCnt == null) ? null : resendCnt.getValue(),
+            (lastResend == null) ? null : lastResend.getValue());
+      } finally {
+        // the response has its own copy of the message
+        body.trim();
       }
 
     } catch (InitializationException ie) {
@@ -222,6 +246,95 @@ public class HttpEngine implements EngineIF {
           ;
         }
       }
+      // a raced connection the exchange did not use goes back to the pool
+      PooledConnectionManager.releaseClaimedConnection();
+    }
+
+    return response;
+  }
+
+  /**
+   * Get the body the response of the current transaction is read into
+   *
+   * @return the body of this engine, reused by every transaction
+   */
+  protected ResponseBody getResponseBody() {
+    return responseBody;
+  }
+
+  /**
+   * Get the payload of a request: the payload of a rendered request, or else the request rendered now
+   *
+   * @param request the request
+   * @return the payload
+   */
+  protected RequestPayload getPayload(RequestIF request)
+      throws InitializationException, RequestConstructionException {
+    if (request instanceof RenderedRequest) {
+      return ((RenderedRequest) request).getPayload();
+    }
+
+    RequestPayload payload = new RequestPayload();
+    request.writePayload(payload);
+    return payload;
+  }
+
+  /**
+   * Builds the response object from the response body and the gateway retry headers
+   *
+   * @param request          the request the response belongs to
+   * @param body             the response body
+   * @param retryCount       the value of the retry-count header (or null)
+   * @param lastRetryAttempt the value of the last-retry-attempt header (or null)
+   * @return the response
+   * @throws InitializationException if the response object can not be created
+   * @deprecated the engine reads the body into a {@link ResponseBody}; use
+   *             {@link #buildResponse(RequestIF, ResponseBody, Charset, String, String)}
+   */
+  @Deprecated
+  protected Response buildResponse(RequestIF request, String body, String retryCount, String lastRetryAttempt)
+      throws InitializationException {
+    return newResponse(request, removeDoctype(body), retryCount, lastRetryAttempt);
+  }
+
+  /**
+   * Builds the response object from the bytes of the response body and the gateway retry headers
+   *
+   * @param request          the request the response belongs to
+   * @param body             the response body (its doctype is removed)
+   * @param charset          the charset of the body
+   * @param retryCount       the value of the retry-count header (or null)
+   * @param lastRetryAttempt the value of the last-retry-attempt header (or null)
+   * @return the response (a LeanResponse in lean mode)
+   * @throws InitializationException if the response object can not be created
+   */
+  protected ResponseIF buildResponse(RequestIF request, ResponseBody body, Charset charset, String retryCount,
+                                     String lastRetryAttempt) throws InitializationException {
+    body.removeDoctype();
+    if (!snapshot.isLeanResponses()) {
+      return newResponse(request, body.toString(charset), retryCount, lastRetryAttempt);
+    }
+
+    // the body is reused by the next response of this engine, so the response keeps a copy of its bytes
+    LeanResponse response = new LeanResponse(body.toByteArray(), charset, snapshot.getResponseType(), retryCount,
+        lastRetryAttempt);
+
+    if (eCommerceLogger.isDebugEnabled()) {
+      eCommerceLogger.debug("response " + request.getLogTransactionID() + " ==> " + response.toMaskedXmlString());
+    }
+
+    return response;
+  }
+
+  private Response newResponse(RequestIF request, String message, String retryCount, String lastRetryAttempt)
+      throws InitializationException {
+    Response response = new Response();
+    // the retry headers are kept apart from the message
+    response.setRetryHeaders(retryCount, lastRetryAttempt);
+    response.setRawMessage(message);
+
+    if (eCommerceLogger.isDebugEnabled()) {
+      eCommerceLogger.debug("response " + request.getLogTransactionID() + " ==> " + response.toMaskedXmlString());
     }
 
     return response;
@@ -243,69 +356,132 @@ public class HttpEngine implements EngineIF {
   }
 
   /**
-   * Configures a connection object (Note: the TCP/IP connection is not actually established by this method)
-   *
-   * @param hostname       the hostname
-   * @param port           the port
-   * @param timeoutSeconds the number of seconds to wait for a connection
-   * @return the connection object
-   * @throws IllegalStateException
-   * @throws SocketException
-   * @throws ProtocolNotSuppException if the requested protocol (http or https) is not supported by the underlying
-   *                                  http connection classes
+   * Race the connections to the preferred and alternate gateways (see {@link ConnectionRacer}).  The winning
+   * connection is claimed by the calling thread, and the next execute of the transaction is sent on it.
+   * Connections through a proxy are not raced.
    */
-  protected HttpClient getHttpClient(String hostname, int port, int connectionTimeoutSeconds,
-                                     int readTimeoutSeconds) throws SocketException, IllegalStateException {
+  public Endpoint connect(Endpoint preferred, Endpoint alternate, long staggerMillis, Deadline deadline)
+      throws IOException {
+    if (getProxyAddress() != null) {
+      alternate.getCircuitBreaker().onIgnored();
+      return preferred;
+    }
 
-    HttpClient httpClient = new HttpClient();
+    HttpConnectionManager connectionManager = getHttpClient().getHttpConnectionManager();
+    ConnectionRacer racer = new ConnectionRacer(connectionManager, engineLogger);
+    ConnectionRacer.Winner winner = racer.race(preferred, getHostConfiguration(preferred.isFailover()), alternate,
+        getHostConfiguration(alternate.isFailover()), staggerMillis, connectionTimeoutSeconds * 1000L, deadline);
 
-    // set the configuration information
-    HostConfiguration config = new HostConfiguration();
-    config.setHost(hostname, port);
+    if (connectionManager instanceof PooledConnectionManager) {
+      // the transaction is sent on the winning connection (see execute)
+      PooledConnectionManager.claimConnection(winner.getConnection());
+    } else {
+      winner.getConnection().releaseConnection();
+    }
+    return winner.getEndpoint();
+  }
 
-    httpClient.setHostConfiguration(config);
+  protected HttpClient getHttpClient() {
+    return this.httpClient;
+  }
 
-    // set the connection time out
-    httpClient.setConnectionTimeout(connectionTimeoutSeconds * 1000);
+  /**
+   * Get the host configuration (host, port, protocol and proxy) for the normal or failover gateway. Host
+   * configurations are kept by the engine until the Configurator replaces its snapshot; the connection pool keeps
+   * a separate host pool for each of them.
+   *
+   * @param failover true for the failover gateway
+   * @return the host configuration
+   */
+  protected HostConfiguration getHostConfiguration(boolean failover) {
+    if (failover) {
+      if (failoverHostConfiguration == null) {
+        failoverHostConfiguration = createHostConfiguration(failoverHostName, failoverPort);
+      }
+      return failoverHostConfiguration;
+    } else {
+      if (normalHostConfiguration == null) {
+        normalHostConfiguration = createHostConfiguration(normalHostName, normalPort);
+      }
+      return normalHostConfiguration;
+    }
+  }
 
-    // set the read time out
-    httpClient.setTimeout(readTimeoutSeconds * 1000);
+  /**
+   * Configures a host configuration object (Note: the TCP/IP connection is not actually established by this method)
+   *
+   * @param hostname the hostname
+   * @param port     the port
+   * @return the host configuration
+   */
+  protected HostConfiguration createHostConfiguration(String hostname, int port) {
+    HostConfiguration config = new HostConfiguration();
+    config.setHost(hostname, port, getProtocol(port));
+    setProxyHostAndPort(config);
+    return config;
+  }
 
-    return httpClient;
+  /**
+   * The protocol used to talk to the gateway
+   *
+   * @param port the gateway port
+   * @return the protocol
+   */
+  protected Protocol getProtocol(int port) {
+    return Protocol.getProtocol("http");
   }
 
-  protected void setProxyHostAndPort(HttpClient httpClient) {
+  protected void setProxyHostAndPort(HostConfiguration hostConfiguration) {
 
-    String proxyHost = (String) configurations.get(HttpEngineConstants.PROXY_HOSTNAME);
-    int proxyPort = 0;
-    if (proxyHost != null) {
-      try {
-        proxyPort = Integer.parseInt((String) configurations.get(HttpEngineConstants.PROXY_PORT));
-      } catch (Exception ex) {
+    InetSocketAddress proxy = getProxyAddress();
+    if (proxy != null) {
+      hostConfiguration.setProxy(proxy.getHostName(), proxy.getPort());
+    }
+  }
 
-        proxyPort = 0;
-        engineLogger.warn("Missing or non numeric proxy port no is specified");
-        engineLogger.warn("Disabling the proxy functionality from the linehandler.properties file");
+  /**
+   * The proxy to use, either from linehandler.properties or from the JVM properties (determined when the
+   * configuration snapshot is compiled)
+   *
+   * @return the (unresolved) proxy address, or null if no proxy is configured
+   */
+  protected InetSocketAddress getProxyAddress() {
+    return snapshot.getProxyAddress();
+  }
 
+  /**
+   * Executes the method on the pooled client; waiting for a connection and connecting are bounded by the
+   * deadline, and the method is aborted when the deadline expires or the transaction is cancelled
+   */
+  protected void executeMethod(HttpClient httpclient, HostConfiguration hostConfig, final PostMethod method,
+                               Deadline deadline) throws IOException, TransactionException {
+    deadline.check("sending the request");
+
+    PooledConnectionManager.setExchange(deadline, connectionTimeoutSeconds * 1000);
+    deadline.setAbortAction(new Runnable() {
+      public void run() {
+        engineLogger.debug("aborting the exchange with the gateway...");
+        method.abort();
       }
-    }
+    });
 
-    if ((proxyHost == null)) {
-      proxyHost = System.getProperty("http.proxyHost");
-      try {
-        proxyPort = Integer.parseInt(System.getProperty("http.proxyPort", "80"));
-      } catch (Exception ex) {
-        engineLogger.warn("Missing or non numeric proxy port no is specified");
-        engineLogger.warn("Disabling the proxy functionality from the JVM property");
-        proxyPort = 0;
-      }
+    try {
+      httpclient.executeMethod(hostConfig, method);
+    } finally {
+      deadline.clearAbortAction();
+      PooledConnectionManager.clearExchange();
     }
+  }
 
-    if ((proxyHost != null) && (proxyHost.length() > 0)
-        && (proxyPort > 0)) {
-      engineLogger.debug("Setting proxy host to [" + proxyHost + "] " +
-          " and proxy port to [" + Integer.toString(proxyPort) + "]");
-      httpClient.getHostConfiguration().setProxy(proxyHost, proxyPort);
+  /**
+   * @return the charset of a response body, ISO-8859-1 (the http default) if it is not supported
+   */
+  protected Charset getCharset(String charsetName) {
+    try {
+      return Charset.forName(charsetName);
+    } catch (Exception e) {
+      engineLogger.warn("unsupported response charset [" + charsetName + "]... using ISO-8859-1");
+      return StandardCharsets.ISO_8859_1;
     }
   }
 
@@ -319,36 +495,37 @@ public class HttpEngine implements EngineIF {
    *
    * @param input the xml message with doc type
    * @return the xml message with doc type stripped away
+   * @deprecated use {@link ResponseBody#removeDoctype()}, which works on the bytes of the body
    */
+  @Deprecated
   protected String removeDoctype(String input) {
-    String pattern = "<!DOCTYPE Response";
-
-    // locate where the doc type starts
-    int beginIndex = input.indexOf(pattern);
-
-    // this is needed in the case where the response
-    // doesn't have a doctype
-    if (beginIndex < 0) {
-      return input;
-    }
-
-    int endIndex = input.indexOf(">", beginIndex);
-
-    // grab the first part
-    String filteredInput = input.substring(0, beginIndex - 1);
+    ResponseBody body = new ResponseBody(input.getBytes(StandardCharsets.UTF_8));
+    body.removeDoctype();
+    return body.toString(StandardCharsets.UTF_8);
+  }
 
-    // add the second part
-    filteredInput += input.substring(endIndex);
+  /**
+   * Set the router that decides which gateway a transaction is sent to (called by the EnginePool)
+   *
+   * @param endpointRouter the router of the pool
+   */
+  public void setEndpointRouter(EndpointRouter endpointRouter) {
+    this.endpointRouter = endpointRouter;
+  }
 
-    // return the input stripped of its doctype
-    return filteredInput;
+  /**
+   * @return true if the router sends transactions away from the primary gateway (false without a router)
+   */
+  protected boolean isRoutedToFailover() {
+    EndpointRouter router = endpointRouter;
+    return router != null && router.isFailover();
   }
 
   /**
    * Helper method to determine the correct host to use
    */
   protected String determineHost() {
-    if (EnginePool.isFailover()) {
+    if (isRoutedToFailover()) {
       return this.failoverHostName;
     } else {
       return this.normalHostName;
@@ -359,7 +536,7 @@ public class HttpEngine implements EngineIF {
    * Helper method to determine the correct port to use
    */
   protected int determinePort() {
-    if (EnginePool.isFailover()) {
+    if (isRoutedToFailover()) {
       return this.failoverPort;
     } else {
       return this.normalPort;
@@ -69,5 +69,31 @@ public interface HttpEngineConstants {
 
   String PROXY_PORT = "engine.proxyport";
 
+  /**
+   * Maximum number of pooled keep-alive connections to each gateway host
+   */
+  String POOL_MAX_CONNECTIONS_PER_HOST_KEY = "engine.pool.max_connections_per_host";
+
+  /**
+   * Maximum number of pooled keep-alive connections across all gateway hosts
+   */
+  String POOL_MAX_TOTAL_CONNECTIONS_KEY = "engine.pool.max_total_connections";
+
+  /**
+   * Number of seconds a pooled connection may stay idle before it is closed
+   */
+  String POOL_IDLE_TIMEOUT_KEY = "engine.pool.idle_timeout_seconds";
+
+  /**
+   * Maximum age in seconds of a pooled connection before it is retired (0 means no limit)
+   */
+  String POOL_MAX_LIFETIME_KEY = "engine.pool.max_lifetime_seconds";
+
+  /**
+   * Head start in milliseconds of the connection to the primary gateway before a connection to the failover
+   * gateway is raced against it (0 means connections are not raced)
+   */
+  String CONNECTION_RACE_STAGGER_KEY = "engine.connection_race_stagger_millis";
+
 
 }
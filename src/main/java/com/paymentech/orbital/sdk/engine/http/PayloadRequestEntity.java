@@ -0,0 +1,42 @@
+package com.paymentech.orbital.sdk.engine.http;
+
+import com.paymentech.orbital.sdk.request.RequestPayload;
+import org.apache.commons.httpclient.methods.RequestEntity;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * <p><b>Title:</b> PayloadRequestEntity</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Sends a rendered request payload as the body of a post: its bytes are written
+ * to the connection as they are, and its length is the content length of the post.  The content type is left
+ * to the mime headers. </p>
+ */
+public class PayloadRequestEntity implements RequestEntity {
+
+  private final RequestPayload payload;
+
+  public PayloadRequestEntity(RequestPayload payload) {
+    this.payload = payload;
+  }
+
+  public boolean isRepeatable() {
+    return true;
+  }
+
+  public void writeRequest(OutputStream out) throws IOException {
+    payload.writeTo(out);
+  }
+
+  public long getContentLength() {
+    return payload.getLength();
+  }
+
+  public String getContentType() {
+    return null;
+  }
+}
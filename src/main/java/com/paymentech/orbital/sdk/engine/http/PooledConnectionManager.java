@@ -0,0 +1,150 @@
+package com.paymentech.orbital.sdk.engine.http;
+
+import com.paymentech.orbital.sdk.transactionProcessor.Deadline;
+import org.apache.commons.httpclient.ConnectionPoolTimeoutException;
+import org.apache.commons.httpclient.HostConfiguration;
+import org.apache.commons.httpclient.HttpConnection;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.params.HttpConnectionParams;
+
+/**
+ * <p><b>Title:</b> PooledConnectionManager</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Keep-alive connection manager that retires pooled connections once they
+ * are older than a maximum lifetime. Connections are kept in a separate pool per gateway host.
+ * <br><br> Waiting for a pooled connection and opening a new one are bounded by the connect timeout of the engine
+ * executing the exchange of the calling thread, and by the deadline of its transaction.  The connect timeout
+ * of the manager parameters is only used for connections opened outside of an engine exchange.
+ * <br><br> A connection raced by the engine before the exchange is claimed by the thread of the transaction, and
+ * handed to its exchange instead of a connection from the pool. </p>
+ */
+public class PooledConnectionManager extends MultiThreadedHttpConnectionManager {
+
+  // connection parameter holding the time the underlying socket was opened
+  private static final String CREATED_MILLIS = "orbital.connection.created";
+
+  // exchange being executed by the current thread (set by the engine around each exchange)
+  private static final ThreadLocal currentExchange = new ThreadLocal();
+
+  // connection checked out for the next exchange of the current thread (the winner of a connection race)
+  private static final ThreadLocal claimedConnection = new ThreadLocal();
+
+  // maximum age of a pooled connection (0 means connections never expire)
+  private volatile long maxLifetimeMillis;
+
+  public PooledConnectionManager() {
+    this(0);
+  }
+
+  public PooledConnectionManager(long maxLifetimeMillis) {
+    super();
+    this.maxLifetimeMillis = maxLifetimeMillis;
+  }
+
+  /**
+   * Hands out a pooled connection, closing it first if it has outlived the maximum lifetime. A closed
+   * connection is re-opened by the method director, so the caller always gets a usable connection.
+   */
+  public HttpConnection getConnectionWithTimeout(HostConfiguration hostConfiguration, long timeout)
+      throws ConnectionPoolTimeoutException {
+    Exchange exchange = (Exchange) currentExchange.get();
+    int connectTimeout = getParams().getConnectionTimeout();
+    if (exchange != null) {
+      // don't wait for a pooled connection longer than the engine would wait to connect
+      connectTimeout = exchange.connectTimeoutMillis;
+      timeout = exchange.deadline.bound(connectTimeout);
+    }
+
+    HttpConnection connection = (HttpConnection) claimedConnection.get();
+    if (connection != null) {
+      claimedConnection.remove();
+      if (!hostConfiguration.hostEquals(connection) || !hostConfiguration.proxyEquals(connection)) {
+        // claimed for another gateway
+        connection.releaseConnection();
+        connection = null;
+      }
+    }
+    if (connection == null) {
+      connection = super.getConnectionWithTimeout(hostConfiguration, timeout);
+    }
+    HttpConnectionParams params = connection.getParams();
+    long now = System.currentTimeMillis();
+    long maxLifetime = maxLifetimeMillis;
+
+    // the connect timeout applies to this exchange only (the connection may be re-opened if it is stale)
+    params.setConnectionTimeout((exchange == null) ? connectTimeout : (int) exchange.deadline.bound(connectTimeout));
+
+    if (!connection.isOpen()) {
+      // a new socket is about to be opened for this connection
+      params.setLongParameter(CREATED_MILLIS, now);
+    } else if (maxLifetime > 0) {
+      long created = params.getLongParameter(CREATED_MILLIS, now);
+      if (now - created > maxLifetime) {
+        connection.close();
+        params.setLongParameter(CREATED_MILLIS, now);
+      }
+    }
+
+    return connection;
+  }
+
+  /**
+   * Set the exchange executed by the current thread
+   *
+   * @param deadline             the deadline of the transaction
+   * @param connectTimeoutMillis the connect timeout of the engine
+   */
+  static void setExchange(Deadline deadline, int connectTimeoutMillis) {
+    currentExchange.set(new Exchange(deadline, connectTimeoutMillis));
+  }
+
+  /**
+   * Clear the exchange of the current thread once it has completed
+   */
+  static void clearExchange() {
+    currentExchange.remove();
+  }
+
+  /**
+   * Claim a connection checked out of this manager for the next exchange of the current thread, so no other
+   * thread can take it from the pool first
+   *
+   * @param connection the open connection
+   */
+  static void claimConnection(HttpConnection connection) {
+    releaseClaimedConnection();
+    claimedConnection.set(connection);
+  }
+
+  /**
+   * Return the connection claimed by the current thread to the pool, if no exchange has used it
+   */
+  static void releaseClaimedConnection() {
+    HttpConnection connection = (HttpConnection) claimedConnection.get();
+    if (connection != null) {
+      claimedConnection.remove();
+      connection.releaseConnection();
+    }
+  }
+
+  public long getMaxLifetimeMillis() {
+    return maxLifetimeMillis;
+  }
+
+  public void setMaxLifetimeMillis(long maxLifetimeMillis) {
+    this.maxLifetimeMillis = maxLifetimeMillis;
+  }
+
+  private static final class Exchange {
+    private final Deadline deadline;
+    private final int connectTimeoutMillis;
+
+    private Exchange(Deadline deadline, int connectTimeoutMillis) {
+      this.deadline = deadline;
+      this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+  }
+}
@@ -6,16 +6,9 @@ import com.paymentech.orbital.sdk.engine.http.HttpEngineConstants;
 import com.paymentech.orbital.sdk.util.exceptions.InitializationException;
 import com.paymentech.orbital.sdk.util.ssl.EasySSLProtocolSocketFactory;
 import com.paymentech.orbital.sdk.util.ssl.StrictSSLProtocolSocketFactory;
-import org.apache.commons.httpclient.DefaultHttpMethodRetryHandler;
-import org.apache.commons.httpclient.HttpClient;
-import org.apache.commons.httpclient.methods.PostMethod;
-import org.apache.commons.httpclient.params.HttpClientParams;
-import org.apache.commons.httpclient.params.HttpMethodParams;
 import org.apache.commons.httpclient.protocol.Protocol;
 import org.apache.commons.httpclient.protocol.SecureProtocolSocketFactory;
 
-import java.net.SocketException;
-
 /**
  * <p><b>Title:</b> HttpsEngine</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
  * <p/>
@@ -60,43 +53,13 @@ public class HttpsEngine extends HttpEngine {
   }
 
   /**
-   * Return a secure (SSL) connection
+   * Return the secure (SSL) protocol used to talk to the gateway. The protocol is attached to the engine's
+   * host configurations, so it is no longer registered globally on every transaction.
    *
-   * @param hostname       the Orbital Gateway hostname
-   * @param port           the Orbital Gateway SSL port
-   * @param timeoutSeconds the number of seconds to timeout waiting for a connection
-   * @return the HTTPConnection object
-   * @throws IllegalStateException
-   * @throws SocketException
-   * @throws ProtocolNotSuppException if the underlying http connection classes do not support https
+   * @param port the Orbital Gateway SSL port
+   * @return the https protocol backed by the SSL socket factory
    */
-  protected HttpClient getHttpClient(String hostname, int port, int connectionTimeoutSeconds,
-                                     int readTimeoutSeconds) throws SocketException, IllegalStateException {
-
-    Protocol https = new Protocol("https", socketFactory, port);
-
-    Protocol.registerProtocol("https", https);
-
-    HttpClient httpClient = new HttpClient();
-
-    // set the connection time out
-    httpClient.setConnectionTimeout(connectionTimeoutSeconds * 1000);
-
-    // set the read time out
-    httpClient.setTimeout(readTimeoutSeconds * 1000);
-
-    // turn off the internal retry handler
-    HttpClientParams clientParams = httpClient.getParams();
-
-    clientParams.setParameter(HttpMethodParams.RETRY_HANDLER,
-        new DefaultHttpMethodRetryHandler(0, false));
-
-    httpClient.setParams(clientParams);
-
-    return httpClient;
-  }
-
-  protected PostMethod getPostMethod(String hostname) {
-    return new PostMethod("https://" + hostname);
+  protected Protocol getProtocol(int port) {
+    return new Protocol("https", socketFactory, port);
   }
 }
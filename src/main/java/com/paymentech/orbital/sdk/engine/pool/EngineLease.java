@@ -0,0 +1,76 @@
+package com.paymentech.orbital.sdk.engine.pool;
+
+import com.paymentech.orbital.sdk.engine.EngineIF;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p><b>Title:</b> EngineLease</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> A handle on an engine taken from the EnginePool.  The engine belongs to the
+ * holder of the lease (not to the thread that acquired it) until the lease is closed, so a lease may be used
+ * from any thread, including virtual threads.  Closing a lease more than once has no effect.
+ * <br><br> The lease of a pool that only implements acquire() and release() (see EnginePoolIF.lease(long)) is
+ * bound to the thread that acquired the engine, and must be closed by that thread.
+ * <p/>
+ * <pre>
+ * try (EngineLease lease = enginePool.lease()) {
+ *   response = lease.getEngine().execute(request);
+ * }
+ * </pre></p>
+ */
+public class EngineLease implements AutoCloseable {
+
+  private final EnginePoolIF pool;
+  private final PooledEngine pooled;
+  private final EngineIF engine;
+  private final AtomicBoolean closed = new AtomicBoolean(false);
+
+  EngineLease(EnginePool pool, PooledEngine pooled) {
+    this.pool = pool;
+    this.pooled = pooled;
+    this.engine = null;
+  }
+
+  /**
+   * Lease of an engine acquired from a pool that releases the engine of the calling thread
+   */
+  EngineLease(EnginePoolIF pool, EngineIF engine) {
+    this.pool = pool;
+    this.pooled = null;
+    this.engine = engine;
+  }
+
+  /**
+   * The leased engine
+   *
+   * @return EngineIF
+   * @throws IllegalStateException if the lease has been closed
+   */
+  public EngineIF getEngine() {
+    if (closed.get()) {
+      throw new IllegalStateException("engine lease has already been released");
+    }
+    return (pooled != null) ? pooled.getEngine() : engine;
+  }
+
+  /**
+   * Return the engine to the pool
+   */
+  public void close() {
+    if (closed.compareAndSet(false, true)) {
+      if (pooled != null) {
+        ((EnginePool) pool).release(pooled);
+      } else {
+        pool.release();
+      }
+    }
+  }
+
+  public boolean isClosed() {
+    return closed.get();
+  }
+}
@@ -3,14 +3,24 @@ package com.paymentech.orbital.sdk.engine.pool;
 import com.paymentech.eis.tools.StringUtils;
 import com.paymentech.orbital.sdk.configurator.Configurator;
 import com.paymentech.orbital.sdk.configurator.ConfiguratorIF;
+import com.paymentech.orbital.sdk.engine.AsyncEngineIF;
 import com.paymentech.orbital.sdk.engine.EngineIF;
+import com.paymentech.orbital.sdk.engine.failover.EndpointRouter;
+import com.paymentech.orbital.sdk.engine.failover.HealthChecker;
+import com.paymentech.orbital.sdk.engine.http.HttpEngine;
 import com.paymentech.orbital.sdk.transactionProcessor.TpConstants;
 import com.paymentech.orbital.sdk.util.exceptions.InitializationException;
 import org.apache.log4j.Logger;
 
-import java.util.Hashtable;
 import java.util.Map;
-import java.util.Stack;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * <p><b>Title:</b> EnginePool</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
@@ -19,7 +29,12 @@ import java.util.Stack;
  * publication of such source code.
  * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
  * <p><b>Author:</b> Scott Monahan</p><p><b>Description:</b><br><br> Resource manager for the engine resource.  Governs access to
- * the Orbital Gateway.</p>
+ * the Orbital Gateway.  Engines are handed out as {@link EngineLease}s; the legacy acquire/release pair keeps a
+ * lease per calling thread.  Available engines sit in a non-blocking queue guarded by a fair semaphore: taking
+ * and returning an engine does not lock when engines are free, and waiting callers are handed engines one at a
+ * time in the order they arrived (optionally giving up after a timeout).
+ * <br><br> The pool is elastic: it grows (up to its maximum size) when no engine is idle, and engines idle for
+ * longer than the keep-alive time are retired (down to its minimum size).</p>
  */
 public class EnginePool
     implements EnginePoolIF {
@@ -28,11 +43,25 @@ public class EnginePool
   private static Map configurations;
   private static Logger engineLogger;
   private static int poolSize = 10;
-  private static Object[] engines = new Object[100];
-  private static Hashtable enginesInUse = new Hashtable();
-  private static Stack enginesAvailable = new Stack();
-  private static boolean failover = false;
-  private static long failoverStartMillis = 0;
+  private static int minPoolSize = 10;
+  private static int maxPoolSize = 10;
+  private static long keepAliveMillis = 60 * 1000;
+  private static Class engineClass = null;
+  // number of engines in the pool (busy and idle)
+  private static final AtomicInteger size = new AtomicInteger();
+  // leases taken by the legacy acquire(), keyed by the acquiring thread
+  private static Map enginesInUse = new ConcurrentHashMap();
+  // idle engines (most recently used first), and one permit per idle engine (fair, so waiters are served FIFO)
+  private static ConcurrentLinkedDeque enginesAvailable = new ConcurrentLinkedDeque();
+  private static Semaphore enginePermits = new Semaphore(0, true);
+  private static EnginePoolStatistics statistics = null;
+  private static Timer idleEngineReaper = null;
+  private static final ReentrantLock asyncEngineLock = new ReentrantLock();
+  // routes transactions between the primary and failover gateways
+  private static volatile EndpointRouter endpointRouter = null;
+  // probes the gateways in the background
+  private static HealthChecker healthChecker = null;
+  private static volatile AsyncEngineIF asyncEngine = null;
 
 
   /**
@@ -44,15 +73,13 @@ public class EnginePool
   /**
    * Initialize the engine pool *
    */
-  public static EnginePoolIF getInstance() throws ClassNotFoundException,
+  public static synchronized EnginePoolIF getInstance() throws ClassNotFoundException,
       InitializationException {
 
     if (instance == null) {
 
-      instance = new EnginePool();
       configurator = Configurator.getInstance();
       if (configurator == null) {
-        EnginePool.engineLogger.error("configurator is null");
         throw new InitializationException("configurator is null");
       }
 
@@ -67,47 +94,81 @@ public class EnginePool
       try {
         EnginePool.poolSize = Integer.parseInt((String) EnginePool.configurations.get(TpConstants.
             POOL_SIZE_KEY));
-        if (EnginePool.poolSize > 100) {
-          EnginePool.engineLogger.warn("Engine pool size value[ " + EnginePool.poolSize + "] from linehandler.properties is greater than allowed limit of 100");
-          EnginePool.engineLogger.warn("Resetting the value to 100");
-          EnginePool.poolSize = 100;
-        }
-
       } catch (Throwable th) {
         EnginePool.engineLogger.info(
-            "engine pool size not configured... using default value of " +
-                TpConstants.DEFAULT_POOL_SIZE);
+            "engine pool size not configured... using default value of " + EnginePool.poolSize);
       }
 
+      //Determine the bounds of the pool (the pool does not grow or shrink unless they are configured)
+      EnginePool.minPoolSize = getInt(TpConstants.MIN_POOL_SIZE_KEY, EnginePool.poolSize);
+      EnginePool.maxPoolSize = getInt(TpConstants.MAX_POOL_SIZE_KEY,
+          Math.max(EnginePool.poolSize, EnginePool.minPoolSize));
+      if (EnginePool.maxPoolSize < 1) {
+        EnginePool.engineLogger.warn("Maximum engine pool size [" + EnginePool.maxPoolSize + "] is less than 1... using 1");
+        EnginePool.maxPoolSize = 1;
+      }
+      if (EnginePool.minPoolSize > EnginePool.maxPoolSize) {
+        EnginePool.engineLogger.warn("Minimum engine pool size [" + EnginePool.minPoolSize + "] is greater than " +
+            "the maximum [" + EnginePool.maxPoolSize + "]... using the maximum");
+        EnginePool.minPoolSize = EnginePool.maxPoolSize;
+      }
+      EnginePool.poolSize = Math.max(EnginePool.minPoolSize, Math.min(EnginePool.poolSize, EnginePool.maxPoolSize));
+      EnginePool.keepAliveMillis = getInt(TpConstants.ENGINE_KEEP_ALIVE_KEY, 60) * 1000L;
+
       //Determine which engine to use
-      String engineClass = (String) EnginePool.configurations.get(EngineIF.
+      String engineClassName = (String) EnginePool.configurations.get(EngineIF.
           ENGINE_CLASS_KEY);
 
-      if (StringUtils.isEmpty(engineClass)) {
+      if (StringUtils.isEmpty(engineClassName)) {
         //Default to the HttpsEngine
         EnginePool.engineLogger.info("engine class not configured... defaulting to HttpsEngine");
-        engineClass = "com.paymentech.orbital.sdk.engine.https.HttpsEngine";
+        engineClassName = "com.paymentech.orbital.sdk.engine.https.HttpsEngine";
       }
 
-      fillEnginePool(engineClass);
-
-      //Container for available engines
-      EnginePool.enginesAvailable = new Stack();
-
-      // Container for mapping engine users to the engines
-      EnginePool.engineLogger.debug("creating engines-in-use hash table for " +
-          EnginePool.poolSize + " engines...");
+      try {
+        EnginePool.engineClass = Class.forName(engineClassName);
+      } catch (ClassNotFoundException cnfe) {
+        EnginePool.engineLogger.error("could not find engine class " + engineClassName, cnfe);
+        throw new InitializationException(cnfe.getMessage());
+      }
 
-      EnginePool.enginesInUse = new Hashtable(EnginePool.poolSize);
+      // Circuit breakers of the primary and failover gateways
+      EnginePool.endpointRouter = new EndpointRouter(EnginePool.configurations, EnginePool.engineLogger);
+      EnginePool.healthChecker = new HealthChecker(EnginePool.endpointRouter, EnginePool.configurations,
+          EnginePool.engineLogger, !"com.paymentech.orbital.sdk.engine.http.HttpEngine".equals(engineClassName));
+      EnginePool.healthChecker.start();
 
-      // All of the engines are initially available
-      EnginePool.engineLogger.debug("creating engines available stack for " +
-          EnginePool.poolSize + " engines...");
+      instance = new EnginePool();
+      EnginePool.statistics = new EnginePoolStatistics(instance);
 
-      for (short i = 0; i < EnginePool.poolSize; i++) {
-        EnginePool.enginesAvailable.push(new Short(i));
+      // Container for mapping engine users to the engines
+      EnginePool.enginesInUse = new ConcurrentHashMap(EnginePool.poolSize);
+
+      //Container for available engines; all of the engines are initially available
+      EnginePool.enginesAvailable = new ConcurrentLinkedDeque();
+      EnginePool.size.set(0);
+
+      fillEnginePool();
+
+      EnginePool.enginePermits = new Semaphore(EnginePool.enginesAvailable.size(), true);
+
+      // Retire idle engines when the pool is allowed to shrink
+      if (EnginePool.maxPoolSize > EnginePool.minPoolSize && EnginePool.keepAliveMillis > 0) {
+        long period = Math.max(1000L, Math.min(EnginePool.keepAliveMillis / 2, 30 * 1000L));
+        EnginePool.idleEngineReaper = new Timer("OrbitalIdleEngineReaper", true);
+        EnginePool.idleEngineReaper.schedule(new TimerTask() {
+          public void run() {
+            try {
+              retireIdleEngines();
+            } catch (Throwable th) {
+              EnginePool.engineLogger.error("failed to retire idle engines", th);
+            }
+          }
+        }, period, period);
       }
 
+      EnginePool.engineLogger.debug("engine pool size = " + EnginePool.poolSize + ", min = " + EnginePool.minPoolSize +
+          ", max = " + EnginePool.maxPoolSize + ", keepAliveMillis = " + EnginePool.keepAliveMillis);
       EnginePool.engineLogger.debug(
           "********** End Engine Pool Initialization **********");
     }
@@ -115,168 +176,412 @@ public class EnginePool
     return instance;
   }
 
+  /**
+   * Get the router that decides which gateway a transaction is sent to
+   *
+   * @return EndpointRouter
+   */
+  public EndpointRouter getEndpointRouter() {
+    return endpointRouter;
+  }
+
+  /**
+   * @return true if transactions are being routed away from the primary gateway (its circuit is not closed)
+   * @deprecated the failover state is kept per gateway by the circuit breakers of the {@link EndpointRouter}
+   */
+  @Deprecated
   public static boolean isFailover() {
-    return failover;
+    EndpointRouter router = endpointRouter;
+    return router != null && router.isFailover();
   }
 
+  /**
+   * Opens (true) or closes (false) the circuit of the primary gateway
+   *
+   * @deprecated use the circuit breakers of the {@link EndpointRouter}
+   */
+  @Deprecated
   public static void setFailover(boolean failover) {
-    EnginePool.failover = failover;
+    EndpointRouter router = endpointRouter;
+    if (router != null) {
+      if (failover) {
+        router.getPrimary().getCircuitBreaker().trip("failover mode was set");
+      } else {
+        router.getPrimary().getCircuitBreaker().reset("failover mode was turned off");
+      }
+    }
   }
 
+  /**
+   * @return the time the circuit of the primary gateway left the closed state (0 while it is closed)
+   * @deprecated use the circuit breakers of the {@link EndpointRouter}
+   */
+  @Deprecated
   public static long getFailoverStartMillis() {
-    return EnginePool.failoverStartMillis;
+    EndpointRouter router = endpointRouter;
+    if (router == null || router.getPrimary().getCircuitBreaker().isClosed()) {
+      return 0;
+    }
+    return router.getPrimary().getCircuitBreaker().getStateSinceMillis();
   }
 
+  /**
+   * Has no effect: the circuit breakers keep track of when they opened
+   *
+   * @deprecated use the circuit breakers of the {@link EndpointRouter}
+   */
+  @Deprecated
   public static void setFailoverStartMillis(long failoverStartMillis) {
-    EnginePool.failoverStartMillis = failoverStartMillis;
   }
 
   // for testing only
-  public static void resetPool() {
+  public static synchronized void resetPool() {
+    if (idleEngineReaper != null) {
+      idleEngineReaper.cancel();
+      idleEngineReaper = null;
+    }
     instance = null;
+    asyncEngine = null;
+    if (healthChecker != null) {
+      healthChecker.stop();
+      healthChecker = null;
+    }
+    endpointRouter = null;
   }
 
   // for testing only
   public static int getAvailableEngineCount() {
-    return enginesAvailable.size();
+    return enginePermits.availablePermits();
   }
 
-  private static void fillEnginePool(String engineClass) throws InitializationException {
-    EngineIF engine = null;
+  /**
+   * The utilization of the engine pool
+   *
+   * @return EnginePoolStatistics
+   */
+  public EnginePoolStatistics getStatistics() {
+    return statistics;
+  }
+
+  int getSize() {
+    return size.get();
+  }
+
+  int getIdleSize() {
+    return enginePermits.availablePermits();
+  }
+
+  int getMinSize() {
+    return minPoolSize;
+  }
+
+  int getMaxSize() {
+    return maxPoolSize;
+  }
+
+  int getQueueLength() {
+    return enginePermits.getQueueLength();
+  }
+
+  private static int getInt(String key, int defaultValue) {
+    String value = (String) EnginePool.configurations.get(key);
+    if (StringUtils.isEmpty(value)) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException nfe) {
+      EnginePool.engineLogger.warn("Invalid value [" + value + "] for " + key + " in linehandler.properties... " +
+          "using default value of " + defaultValue);
+      return defaultValue;
+    }
+  }
+
+  private static void fillEnginePool() throws InitializationException {
     EnginePool.engineLogger.debug("creating pool of " + EnginePool.poolSize + " engines...");
 
+    for (int i = 0; i < EnginePool.poolSize; i++) {
+      EnginePool.enginesAvailable.offerLast(new PooledEngine(newEngine()));
+      EnginePool.size.incrementAndGet();
+      EnginePool.statistics.recordCreated();
+    }
+  }
+
+  private static EngineIF newEngine() throws InitializationException {
     try {
-      //Create an array of engines
-      for (int i = 0; i < EnginePool.poolSize; i++) {
-        engine = (EngineIF) (((Class.forName(engineClass)).newInstance()));
-        EnginePool.engines[i] = engine;
-      }
-    } catch (ClassNotFoundException cnfe) {
-      EnginePool.engineLogger.error("could not find engine class " + engineClass, cnfe);
-      throw new InitializationException(cnfe.getMessage());
+      return withRouter((EngineIF) EnginePool.engineClass.newInstance());
     } catch (InstantiationException ie) {
-      EnginePool.engineLogger.error("could not instantiate engine class" + engineClass, ie);
+      EnginePool.engineLogger.error("could not instantiate engine class" + EnginePool.engineClass, ie);
       throw new InitializationException(ie.getMessage());
     } catch (IllegalAccessException iae) {
-      EnginePool.engineLogger.error("could not instantiate engine class" + engineClass, iae);
+      EnginePool.engineLogger.error("could not instantiate engine class" + EnginePool.engineClass, iae);
       throw new InitializationException(iae.getMessage());
     }
   }
 
   /**
-   * Acquire an engine from the pool *
+   * Give an engine the router of the pool, so that it sends transactions to the gateway chosen by the router
+   */
+  private static EngineIF withRouter(Object engine) {
+    if (engine instanceof HttpEngine) {
+      ((HttpEngine) engine).setEndpointRouter(EnginePool.endpointRouter);
+    }
+    return (EngineIF) engine;
+  }
+
+  /**
+   * Lease an engine from the pool; blocks until an engine is available *
+   */
+  public EngineLease lease() throws EngineNotAvailableException {
+    return lease(-1);
+  }
+
+  /**
+   * Lease an engine from the pool; waits at most timeoutMillis for an engine to become available (a negative
+   * timeout waits indefinitely) *
+   */
+  public EngineLease lease(long timeoutMillis) throws EngineNotAvailableException {
+    PooledEngine pooled = take(timeoutMillis);
+    EngineIF engine = pooled.getEngine();
+
+    try {
+      //The engine is leased... initialize it before returning it
+      EnginePool.engineLogger.debug("initializing engine...");
+      engine.init();
+    } catch (InitializationException ie) {
+      EnginePool.engineLogger.error("engine failed to initialize", ie);
+      release(pooled);
+      throw new EngineNotAvailableException(ie.getMessage());
+    }
+
+    return new EngineLease(this, pooled);
+  }
+
+  /**
+   * Acquire an engine from the pool for the calling thread (the engine is returned by {@link #release()}) *
    */
   public EngineIF acquire() throws EngineNotAvailableException {
-    EngineIF engine = null;
-    String threadId = Thread.currentThread().getName();
-    String message = "";
-    boolean reuseEngine = false;
+    return acquire(-1);
+  }
+
+  /**
+   * Acquire an engine from the pool for the calling thread, waiting at most timeoutMillis (a negative timeout
+   * waits indefinitely) *
+   */
+  public EngineIF acquire(long timeoutMillis) throws EngineNotAvailableException {
+    Thread owner = Thread.currentThread();
 
     EnginePool.engineLogger.debug("inside EnginePool.acquire");
 
-    EnginePool.engineLogger.debug("threadId = " + threadId);
+    EngineLease lease = (EngineLease) EnginePool.enginesInUse.get(owner);
 
-    synchronized (this) { // Begin Synchronized block
+    if (lease != null) {
+      EnginePool.engineLogger.debug("Thread [" + owner.getName() + "] has already " +
+          "acquired an engine from the enginePool.  Will reuse previously allocated thread.");
+      try {
+        //Re-initialize the engine this thread previously acquired
+        lease.getEngine().init();
+      } catch (InitializationException ie) {
+        EnginePool.engineLogger.error("engine failed to initialize", ie);
+        throw new EngineNotAvailableException(ie.getMessage());
+      }
+    } else {
+      lease = lease(timeoutMillis);
+      EnginePool.enginesInUse.put(owner, lease);
+    }
 
-      EnginePool.engineLogger.debug("inside synchronized code");
-      EnginePool.engineLogger.debug("checking if this thread already has an engine acquired...");
+    return lease.getEngine();
+  }
 
-      if (EnginePool.enginesInUse.containsKey(threadId)) {
-        reuseEngine = true;
-        EnginePool.engineLogger.debug("Thread [" + threadId + "] has already " +
-            "acquired an engine from the enginePool.  Will reuse previously allocated thread.");
-      } else {
-        EnginePool.engineLogger.debug("Thread [" + threadId +
-            "] has no engine acquired... will now attempt to acquire one");
-      }
+  /**
+   * Release the engine acquired by the calling thread back to the pool
+   */
+  public void release() {
+    Thread owner = Thread.currentThread();
 
-      if (reuseEngine) {
-        //Return the engine that this thread previously acquired
-        Short reuseEngineIndex = (Short) (EnginePool.enginesInUse.get(threadId));
-        engine = (EngineIF) engines[reuseEngineIndex.intValue()];
-      } else {
+    EnginePool.engineLogger.debug("inside release...");
 
-        // Get an engine; block until one is available
-        EnginePool.engineLogger.debug("checking if there are any engines available...");
-
-        while (enginesAvailable.empty()) {
-          try {
-            EnginePool.engineLogger.debug("blocking - awaiting an available engine");
-            wait();
-          } catch (InterruptedException ie) {
-            EnginePool.engineLogger.error("Thread [" + threadId +
-                "] could not obtain an engine.");
-            throw new EngineNotAvailableException("Thread [" + threadId +
-                "] could not obtain an engine.");
-          }
-        }
+    EngineLease lease = (EngineLease) EnginePool.enginesInUse.remove(owner);
+
+    if (lease != null) {
+      EnginePool.engineLogger.debug("releasing engine allocated to thread [" +
+          owner.getName() + "] ...");
+      lease.close();
+    } else {
+      EnginePool.engineLogger.error("this thread released an engine that it did not previously acquire.");
+    }
+  }
 
-        // now we should be able to an engine
-        Short availableIndex = (Short) enginesAvailable.pop();
-        EnginePool.engineLogger.debug("getting engine for availableIndex = " + availableIndex);
+  /**
+   * Take an idle engine, or grow the pool when none is idle; otherwise waits (in FIFO order) until one is
+   * available or the timeout expires
+   */
+  private PooledEngine take(long timeoutMillis) throws EngineNotAvailableException {
+    String threadId = Thread.currentThread().getName();
+    long start = System.nanoTime();
+    boolean acquired = false;
 
-        engine = (EngineIF) engines[availableIndex.intValue()];
-        if (engine == null) {
-          EnginePool.engineLogger.error("available engine is null");
-          throw new EngineNotAvailableException("available engine is null");
+    try {
+      // a timed tryAcquire honours the fairness of the semaphore (the untimed one barges)
+      acquired = enginePermits.tryAcquire(0, TimeUnit.MILLISECONDS);
+
+      if (!acquired) {
+        // no engine is idle (or callers are already waiting): grow the pool if we are allowed to
+        PooledEngine grown = grow();
+        if (grown != null) {
+          statistics.recordLease(System.nanoTime() - start);
+          return grown;
         }
 
+        EnginePool.engineLogger.debug("blocking - awaiting an available engine");
+        if (timeoutMillis < 0) {
+          enginePermits.acquire();
+          acquired = true;
+        } else {
+          acquired = enginePermits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+      }
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      EnginePool.engineLogger.error("Thread [" + threadId + "] could not obtain an engine.");
+      throw new EngineNotAvailableException("Thread [" + threadId + "] could not obtain an engine.");
+    }
 
-        EnginePool.engineLogger.debug("marking availableIndex " + availableIndex +
-            " as in-use by thread [" + threadId + "]");
+    if (!acquired) {
+      statistics.recordTimeout();
+      EnginePool.engineLogger.error("Thread [" + threadId + "] could not obtain an engine within " +
+          timeoutMillis + " milliseconds.");
+      throw new EngineNotAvailableException("No engine became available within " + timeoutMillis +
+          " milliseconds.");
+    }
 
-        // Associate the threadId to the engine index.
-        EnginePool.enginesInUse.put(threadId, availableIndex);
-      }
+    // holding a permit guarantees that an engine is in the queue
+    PooledEngine pooled = (PooledEngine) enginesAvailable.pollFirst();
 
-    } // End Synchronized block
+    if (pooled == null) {
+      enginePermits.release();
+      EnginePool.engineLogger.error("available engine is null");
+      throw new EngineNotAvailableException("available engine is null");
+    }
+
+    statistics.recordLease(System.nanoTime() - start);
+    return pooled;
+  }
+
+  /**
+   * Add an engine to the pool, unless the pool has reached its maximum size
+   *
+   * @return the new engine (leased to the caller), or null if the pool may not grow
+   */
+  private PooledEngine grow() throws EngineNotAvailableException {
+    int current;
+    do {
+      current = size.get();
+      if (current >= maxPoolSize) {
+        return null;
+      }
+    } while (!size.compareAndSet(current, current + 1));
 
     try {
-      //The engine is acquired... initialize it before returning it
-      EnginePool.engineLogger.debug("initializing engine...");
-      engine.init();
+      PooledEngine pooled = new PooledEngine(newEngine());
+      statistics.recordCreated();
+      EnginePool.engineLogger.debug("engine pool grown to " + (current + 1) + " engines");
+      return pooled;
     } catch (InitializationException ie) {
-      EnginePool.engineLogger.error("engine failed to initialize", ie);
+      size.decrementAndGet();
       throw new EngineNotAvailableException(ie.getMessage());
     }
-
-    return engine;
   }
 
   /**
-   * Release an engine back to the pool
+   * Retire the engines that have been idle for longer than the keep-alive time, down to the minimum pool size
    */
-  public void release() {
-    String threadId = Thread.currentThread().getName();
+  static void retireIdleEngines() {
+    long now = System.currentTimeMillis();
 
-    EnginePool.engineLogger.debug("inside release...");
+    // an engine may only be taken out of the queue while holding its permit
+    while (size.get() > minPoolSize && enginePermits.tryAcquire()) {
+      PooledEngine oldest = (PooledEngine) enginesAvailable.pollLast();
 
-    synchronized (this) { // Begin Synchronized block
+      if (oldest == null) {
+        enginePermits.release();
+        break;
+      }
 
-      if (EnginePool.enginesInUse.containsKey(threadId)) {
+      if (now - oldest.getLastReleasedMillis() < keepAliveMillis) {
+        // the least recently used engine is still warm, so are all the others
+        enginesAvailable.offerLast(oldest);
+        enginePermits.release();
+        break;
+      }
 
-        EnginePool.engineLogger.debug("releasing engine allocated to thread [" +
-            threadId + "] ...");
+      int remaining = size.decrementAndGet();
+      statistics.recordRetired();
+      EnginePool.engineLogger.debug("retired idle engine... engine pool shrunk to " + remaining + " engines");
+    }
+  }
 
-        //Remove engine from the "in use" table
-        Short engineIndex = (Short) EnginePool.enginesInUse.remove(threadId);
+  /**
+   * Return an engine to the pool (called when its lease is closed)
+   */
+  void release(PooledEngine pooled) {
 
-        //Make it available
-        enginesAvailable.push(engineIndex);
+    //Give the engine an opportunity to clean up before being returned to the pool
+    pooled.getEngine().release();
+    pooled.released();
 
-        //Give the engine an opportunity to clean up before being returned to the pool
-        ((EngineIF) engines[engineIndex.intValue()]).release();
+    //Make it available (most recently used engines are reused first, so idle ones can be retired)
+    enginesAvailable.offerFirst(pooled);
 
-        // Tell the waiting threads an engine is available
-        EnginePool.engineLogger.debug("notifying waiting threads that an engine is available...");
+    // Hand the engine to the longest waiting thread (if any)
+    enginePermits.release();
+  }
 
-        notifyAll();
+  /**
+   * Get the shared asynchronous engine *
+   */
+  public AsyncEngineIF getAsyncEngine() throws EngineNotAvailableException {
+    AsyncEngineIF engine = asyncEngine;
+    if (engine != null) {
+      return engine;
+    }
 
-      } else {
-        EnginePool.engineLogger.error("this thread released an engine that it did not previously acquire.");
+    asyncEngineLock.lock();
+    try {
+      if (asyncEngine != null) {
+        return asyncEngine;
       }
 
-    } // End Synchronized block
+      //Determine which asynchronous engine to use
+      String engineClass = (String) EnginePool.configurations.get(AsyncEngineIF.ASYNC_ENGINE_CLASS_KEY);
 
+      if (StringUtils.isEmpty(engineClass)) {
+        //Default to the asynchronous counterpart of the configured engine
+        String syncEngineClass = (String) EnginePool.configurations.get(EngineIF.ENGINE_CLASS_KEY);
+        if ("com.paymentech.orbital.sdk.engine.http.HttpEngine".equals(syncEngineClass)) {
+          engineClass = "com.paymentech.orbital.sdk.engine.async.AsyncHttpEngine";
+        } else {
+          engineClass = "com.paymentech.orbital.sdk.engine.async.AsyncHttpsEngine";
+        }
+        EnginePool.engineLogger.info("async engine class not configured... defaulting to " + engineClass);
+      }
+
+      try {
+        engine = (AsyncEngineIF) withRouter(Class.forName(engineClass).newInstance());
+        EnginePool.engineLogger.debug("initializing async engine...");
+        engine.init();
+        asyncEngine = engine;
+      } catch (InitializationException ie) {
+        EnginePool.engineLogger.error("async engine failed to initialize", ie);
+        throw new EngineNotAvailableException(ie.getMessage());
+      } catch (Exception ex) {
+        EnginePool.engineLogger.error("could not instantiate async engine class " + engineClass, ex);
+        throw new EngineNotAvailableException(ex.getMessage());
+      }
+
+      return engine;
+    } finally {
+      asyncEngineLock.unlock();
+    }
   }
 }
@@ -1,6 +1,8 @@
 package com.paymentech.orbital.sdk.engine.pool;
 
+import com.paymentech.orbital.sdk.engine.AsyncEngineIF;
 import com.paymentech.orbital.sdk.engine.EngineIF;
+import com.paymentech.orbital.sdk.engine.failover.EndpointRouter;
 
 /**
  * <p><b>Title:</b> EnginePoolIF</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
@@ -11,7 +13,87 @@ import com.paymentech.orbital.sdk.engine.EngineIF;
  * <p><b>Author:</b> Scott Monahan</p><p><b>Description:</b><br><br> Interface contract implemented by the engine pool. </p>
  */
 public interface EnginePoolIF {
+  /**
+   * Lease an engine from the pool; blocks until an engine is available.  The engine is returned to the pool when
+   * the lease is closed, whichever thread closes it.
+   * <br><br> The default implementation leases with no timeout.
+   *
+   * @return EngineLease
+   * @throws EngineNotAvailableException if no engine could be obtained
+   */
+  default EngineLease lease() throws EngineNotAvailableException {
+    return lease(-1);
+  }
+
+  /**
+   * Lease an engine from the pool, waiting at most timeoutMillis for one to become available.  Waiting callers
+   * are served in the order they arrived.
+   *
+   * <br><br> The default implementation wraps {@link #acquire(long)}; its lease calls {@link #release()} when it
+   * is closed, so it must be closed by the thread that took it.
+   *
+   * @param timeoutMillis the maximum time to wait (a negative value waits indefinitely)
+   * @return EngineLease
+   * @throws EngineNotAvailableException if no engine became available in time
+   */
+  default EngineLease lease(long timeoutMillis) throws EngineNotAvailableException {
+    return new EngineLease(this, acquire(timeoutMillis));
+  }
+
+  /**
+   * Acquire an engine for the calling thread; the engine is returned by calling {@link #release()} from the same
+   * thread.
+   *
+   * @return EngineIF
+   * @throws EngineNotAvailableException if no engine could be obtained
+   */
   EngineIF acquire() throws EngineNotAvailableException;
 
+  /**
+   * Acquire an engine for the calling thread, waiting at most timeoutMillis for one to become available.
+   * <br><br> The default implementation calls {@link #acquire()}, which waits as long as the pool makes it wait.
+   *
+   * @param timeoutMillis the maximum time to wait (a negative value waits indefinitely)
+   * @return EngineIF
+   * @throws EngineNotAvailableException if no engine became available in time
+   */
+  default EngineIF acquire(long timeoutMillis) throws EngineNotAvailableException {
+    return acquire();
+  }
+
   void release();
+
+  /**
+   * Get the shared asynchronous engine (created and initialized on first use).  The asynchronous engine is
+   * thread safe and is not taken from the pool.
+   * <br><br> The default implementation has no asynchronous engine.
+   *
+   * @return AsyncEngineIF
+   * @throws EngineNotAvailableException if the engine can not be created or initialized, or the pool has no
+   *                                     asynchronous engine
+   */
+  default AsyncEngineIF getAsyncEngine() throws EngineNotAvailableException {
+    throw new EngineNotAvailableException("the engine pool has no asynchronous engine");
+  }
+
+  /**
+   * The utilization of the pool: its size, how many engines are busy, how many callers are waiting for an
+   * engine and how long they waited.
+   *
+   * @return EnginePoolStatistics, or null if the pool does not keep statistics (the default)
+   */
+  default EnginePoolStatistics getStatistics() {
+    return null;
+  }
+
+  /**
+   * Get the router that decides which gateway (primary or failover) a transaction is sent to.  The router is
+   * shared by all engines.
+   *
+   * @return EndpointRouter, or null if the pool does not route transactions (the default); the
+   *         TransactionProcessor then uses a router of its own
+   */
+  default EndpointRouter getEndpointRouter() {
+    return null;
+  }
 }
@@ -0,0 +1,130 @@
+package com.paymentech.orbital.sdk.engine.pool;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p><b>Title:</b> EnginePoolStatistics</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Utilization of the EnginePool: how many engines exist and are busy, how many
+ * callers are waiting, how long callers waited for an engine, and how often the pool grew and shrank. </p>
+ */
+public class EnginePoolStatistics {
+
+  private final EnginePool pool;
+  private final AtomicLong leases = new AtomicLong();
+  private final AtomicLong totalWaitNanos = new AtomicLong();
+  private final AtomicLong maxWaitNanos = new AtomicLong();
+  private final AtomicLong timeouts = new AtomicLong();
+  private final AtomicLong enginesCreated = new AtomicLong();
+  private final AtomicLong enginesRetired = new AtomicLong();
+
+  EnginePoolStatistics(EnginePool pool) {
+    this.pool = pool;
+  }
+
+  void recordLease(long waitNanos) {
+    leases.incrementAndGet();
+    totalWaitNanos.addAndGet(waitNanos);
+    long max = maxWaitNanos.get();
+    while (waitNanos > max && !maxWaitNanos.compareAndSet(max, waitNanos)) {
+      max = maxWaitNanos.get();
+    }
+  }
+
+  void recordTimeout() {
+    timeouts.incrementAndGet();
+  }
+
+  void recordCreated() {
+    enginesCreated.incrementAndGet();
+  }
+
+  void recordRetired() {
+    enginesRetired.incrementAndGet();
+  }
+
+  /**
+   * @return the number of engines in the pool (busy and idle)
+   */
+  public int getPoolSize() {
+    return pool.getSize();
+  }
+
+  public int getMinPoolSize() {
+    return pool.getMinSize();
+  }
+
+  public int getMaxPoolSize() {
+    return pool.getMaxSize();
+  }
+
+  /**
+   * @return the number of engines currently leased
+   */
+  public int getBusyEngines() {
+    return Math.max(0, pool.getSize() - pool.getIdleSize());
+  }
+
+  /**
+   * @return the fraction (0 to 1) of the maximum pool size that is currently leased
+   */
+  public double getBusyFraction() {
+    int max = pool.getMaxSize();
+    return (max == 0) ? 0 : (double) getBusyEngines() / max;
+  }
+
+  /**
+   * @return the (estimated) number of callers waiting for an engine
+   */
+  public int getQueueDepth() {
+    return pool.getQueueLength();
+  }
+
+  public long getLeases() {
+    return leases.get();
+  }
+
+  /**
+   * @return the average time (in milliseconds) callers waited for an engine
+   */
+  public double getAverageWaitMillis() {
+    long count = leases.get();
+    return (count == 0) ? 0 : totalWaitNanos.get() / 1000000.0 / count;
+  }
+
+  /**
+   * @return the longest time (in milliseconds) a caller waited for an engine
+   */
+  public double getMaxWaitMillis() {
+    return maxWaitNanos.get() / 1000000.0;
+  }
+
+  public long getTimeouts() {
+    return timeouts.get();
+  }
+
+  public long getEnginesCreated() {
+    return enginesCreated.get();
+  }
+
+  public long getEnginesRetired() {
+    return enginesRetired.get();
+  }
+
+  public String toString() {
+    return "EnginePoolStatistics[size=" + getPoolSize()
+        + ", min=" + getMinPoolSize()
+        + ", max=" + getMaxPoolSize()
+        + ", busy=" + getBusyEngines()
+        + ", queueDepth=" + getQueueDepth()
+        + ", leases=" + getLeases()
+        + ", avgWaitMillis=" + getAverageWaitMillis()
+        + ", maxWaitMillis=" + getMaxWaitMillis()
+        + ", timeouts=" + getTimeouts()
+        + ", created=" + getEnginesCreated()
+        + ", retired=" + getEnginesRetired() + "]";
+  }
+}
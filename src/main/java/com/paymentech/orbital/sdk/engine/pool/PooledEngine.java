@@ -0,0 +1,35 @@
+package com.paymentech.orbital.sdk.engine.pool;
+
+import com.paymentech.orbital.sdk.engine.EngineIF;
+
+/**
+ * <p><b>Title:</b> PooledEngine</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> An engine held by the EnginePool, together with the time it was last returned
+ * (used to retire engines that have been idle longer than the keep-alive time).</p>
+ */
+class PooledEngine {
+
+  private final EngineIF engine;
+  private volatile long lastReleasedMillis;
+
+  PooledEngine(EngineIF engine) {
+    this.engine = engine;
+    this.lastReleasedMillis = System.currentTimeMillis();
+  }
+
+  EngineIF getEngine() {
+    return engine;
+  }
+
+  long getLastReleasedMillis() {
+    return lastReleasedMillis;
+  }
+
+  void released() {
+    this.lastReleasedMillis = System.currentTimeMillis();
+  }
+}
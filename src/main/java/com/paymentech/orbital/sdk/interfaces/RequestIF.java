@@ -1,7 +1,10 @@
 package com.paymentech.orbital.sdk.interfaces;
 
+import com.paymentech.orbital.sdk.request.Digits;
+import com.paymentech.orbital.sdk.request.FieldKey;
 import com.paymentech.orbital.sdk.request.FieldNotFoundException;
 import com.paymentech.orbital.sdk.request.RequestConstructionException;
+import com.paymentech.orbital.sdk.request.RequestPayload;
 import com.paymentech.orbital.sdk.request.XMLTemplateNotFoundException;
 import com.paymentech.orbital.sdk.util.exceptions.InitializationException;
 import org.apache.regexp.RESyntaxException;
@@ -171,6 +174,92 @@ public interface RequestIF {
    */
   void setFieldValue(String fieldName, String value) throws FieldNotFoundException;
 
+  /**
+   * Set the value of a field resolved once with FieldKey.forField (no lookup by name)
+   *
+   * @param key
+   * @param value
+   */
+  default void setFieldValue(FieldKey key, String value) throws FieldNotFoundException {
+    setFieldValue(key.getName(), value);
+  }
+
+  /**
+   * Get the value of a field resolved once with FieldKey.forField
+   *
+   * @param key
+   * @return
+   */
+  default String getField(FieldKey key) {
+    return getField(key.getName());
+  }
+
+  /**
+   * Sets a numeric field (an amount in minor units, a count) without formatting it first
+   *
+   * @param fieldName
+   * @param value  the value (not negative)
+   */
+  default void setFieldValue(String fieldName, long value) throws FieldNotFoundException {
+    setFieldValue(fieldName, value, 1);
+  }
+
+  /**
+   * Sets a numeric field, padded with leading zeros to a minimum number of digits
+   *
+   * @param fieldName
+   * @param value  the value (not negative)
+   * @param digits the minimum number of digits
+   */
+  default void setFieldValue(String fieldName, long value, int digits) throws FieldNotFoundException {
+    Digits.check(fieldName, value, digits);
+    setFieldValue(fieldName, Digits.toString(value, digits));
+  }
+
+  /**
+   * Sets a month and year field (MMYY), such as the expiration date of a card
+   *
+   * @param fieldName
+   * @param month  the month (1 to 12)
+   * @param year   the year (2 or 4 digits)
+   */
+  default void setMonthYearValue(String fieldName, int month, int year) throws FieldNotFoundException {
+    setFieldValue(fieldName, Digits.monthYear(month, year), 4);
+  }
+
+  /**
+   * Same as {@link #setFieldValue(String, long)}, for a field resolved once with FieldKey.forField
+   *
+   * @param key
+   * @param value
+   */
+  default void setFieldValue(FieldKey key, long value) throws FieldNotFoundException {
+    setFieldValue(key, value, 1);
+  }
+
+  /**
+   * Same as {@link #setFieldValue(String, long, int)}, for a field resolved once with FieldKey.forField
+   *
+   * @param key
+   * @param value
+   * @param digits
+   */
+  default void setFieldValue(FieldKey key, long value, int digits) throws FieldNotFoundException {
+    Digits.check(key.getName(), value, digits);
+    setFieldValue(key, Digits.toString(value, digits));
+  }
+
+  /**
+   * Same as {@link #setMonthYearValue(String, int, int)}, for a field resolved once with FieldKey.forField
+   *
+   * @param key
+   * @param month
+   * @param year
+   */
+  default void setMonthYearValue(FieldKey key, int month, int year) throws FieldNotFoundException {
+    setFieldValue(key, Digits.monthYear(month, year), 4);
+  }
+
   /**
    * Get  of the transaction type
    *
@@ -208,6 +297,17 @@ public interface RequestIF {
   String getXML()
       throws InitializationException, RequestConstructionException;
 
+  /**
+   * Writes the UTF-8 bytes of the request into a payload (emptied first), as they are sent to the gateway
+   *
+   * @param payload
+   */
+  default void writePayload(RequestPayload payload)
+      throws InitializationException, RequestConstructionException {
+    payload.reset();
+    payload.append(getXML());
+  }
+
   /**
    * Gets xml string of the request object, with AccountNum and CardSecVal masked out with "X's".  Original
    * message length is preserved.
@@ -16,6 +16,11 @@ public interface ResponseIF {
    */
   String RESPONSE_TYPE_KEY = "Response.response_type";
 
+  /**
+   * Configuration setting indicating whether responses are decided from the bytes of the message ("true" or "false")
+   */
+  String LEAN_MODE_KEY = "Response.lean_mode";
+
   /**
    * Indicates whether the xml returned by the Orbital Gateway is a QuickResponse
    *
@@ -109,6 +114,29 @@ public interface ResponseIF {
    */
   String getValue(String xmlElementName);
 
+  /**
+   * Number of times the gateway retried the transaction (sent in the retry-count response header)
+   *
+   * @return the retry count, 0 if the gateway did not send one
+   */
+  default int getRetryCount() {
+    String count = getValue("RetryCount");
+    try {
+      return (count == null) ? 0 : Integer.parseInt(count.trim());
+    } catch (NumberFormatException nfe) {
+      return 0;
+    }
+  }
+
+  /**
+   * Last retry attempt of the gateway (sent in the last-retry-attempt response header)
+   *
+   * @return the last retry attempt, null if the gateway did not send one
+   */
+  default String getLastRetryAttempt() {
+    return getValue("LastRetryAttempt");
+  }
+
   /**
    * Return the xml message returned by the Orbital Gateway
    *
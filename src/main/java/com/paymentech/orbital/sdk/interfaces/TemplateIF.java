@@ -1,5 +1,7 @@
 package com.paymentech.orbital.sdk.interfaces;
 
+import com.paymentech.orbital.sdk.request.Digits;
+import com.paymentech.orbital.sdk.request.FieldKey;
 import com.paymentech.orbital.sdk.request.FieldNotFoundException;
 import com.paymentech.orbital.sdk.request.RequestConstructionException;
 
@@ -68,6 +70,92 @@ public interface TemplateIF {
    */
   String getField(String name);
 
+  /**
+   * Sets data in XML request transaction through a field resolved with FieldKey.forField
+   *
+   * @param key
+   * @param value
+   */
+  default void setFieldValue(FieldKey key, String value) throws FieldNotFoundException {
+    setFieldValue(key.getName(), value);
+  }
+
+  /**
+   * Gets data from XML request transaction through a field resolved with FieldKey.forField
+   *
+   * @param key
+   * @return String
+   */
+  default String getField(FieldKey key) {
+    return getField(key.getName());
+  }
+
+  /**
+   * Sets numeric data in XML request transaction (see {@link RequestIF#setFieldValue(String, long)})
+   *
+   * @param name
+   * @param value
+   */
+  default void setFieldValue(String name, long value) throws FieldNotFoundException {
+    setFieldValue(name, value, 1);
+  }
+
+  /**
+   * Sets numeric data in XML request transaction (see {@link RequestIF#setFieldValue(String, long, int)})
+   *
+   * @param name
+   * @param value
+   * @param digits
+   */
+  default void setFieldValue(String name, long value, int digits) throws FieldNotFoundException {
+    Digits.check(name, value, digits);
+    setFieldValue(name, Digits.toString(value, digits));
+  }
+
+  /**
+   * Sets month and year data in XML request transaction (see {@link RequestIF#setMonthYearValue(String, int, int)})
+   *
+   * @param name
+   * @param month
+   * @param year
+   */
+  default void setMonthYearValue(String name, int month, int year) throws FieldNotFoundException {
+    setFieldValue(name, Digits.monthYear(month, year), 4);
+  }
+
+  /**
+   * Sets numeric data through a field resolved with FieldKey.forField
+   *
+   * @param key
+   * @param value
+   */
+  default void setFieldValue(FieldKey key, long value) throws FieldNotFoundException {
+    setFieldValue(key, value, 1);
+  }
+
+  /**
+   * Sets numeric data through a field resolved with FieldKey.forField
+   *
+   * @param key
+   * @param value
+   * @param digits
+   */
+  default void setFieldValue(FieldKey key, long value, int digits) throws FieldNotFoundException {
+    Digits.check(key.getName(), value, digits);
+    setFieldValue(key, Digits.toString(value, digits));
+  }
+
+  /**
+   * Sets month and year data through a field resolved with FieldKey.forField
+   *
+   * @param key
+   * @param month
+   * @param year
+   */
+  default void setMonthYearValue(FieldKey key, int month, int year) throws FieldNotFoundException {
+    setFieldValue(key, Digits.monthYear(month, year), 4);
+  }
+
   /**
    * Clear data from XML request transaction (sets to null)
    *
@@ -1,7 +1,10 @@
 package com.paymentech.orbital.sdk.interfaces;
 
+import com.paymentech.orbital.sdk.transactionProcessor.Deadline;
 import com.paymentech.orbital.sdk.transactionProcessor.TransactionException;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * <p><b>Title:</b> TransactionProcessorIF</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
  * <p/>
@@ -19,4 +22,70 @@ public interface TransactionProcessorIF {
    * @return ResponseIF The response object
    */
   ResponseIF process(RequestIF myRequest) throws TransactionException;
+
+  /**
+   * Process an Orbital Gateway Transaction within timeoutMillis.  Waiting for an engine, every retry and the
+   * switch to the failover site all count against the timeout.
+   *
+   * @param myRequest
+   * @param timeoutMillis the time budget of the transaction
+   * @return ResponseIF The response object
+   * @throws com.paymentech.orbital.sdk.transactionProcessor.DeadlineExceededException if the time runs out
+   */
+  default ResponseIF process(RequestIF myRequest, long timeoutMillis) throws TransactionException {
+    return process(myRequest, new Deadline(timeoutMillis));
+  }
+
+  /**
+   * Process an Orbital Gateway Transaction before a deadline.  The transaction may be cancelled from another
+   * thread through {@link Deadline#cancel()}.  Implementations that can't bound a transaction only check the
+   * deadline before processing it.
+   *
+   * @param myRequest
+   * @param deadline the deadline of the transaction
+   * @return ResponseIF The response object
+   * @throws com.paymentech.orbital.sdk.transactionProcessor.DeadlineExceededException if the deadline expires or
+   *                                                                                   the transaction is cancelled
+   */
+  default ResponseIF process(RequestIF myRequest, Deadline deadline) throws TransactionException {
+    deadline.check("processing the transaction");
+    return process(myRequest);
+  }
+
+  /**
+   * Process an Orbital Gateway Transaction without blocking the calling thread.  The future completes with the
+   * response, or exceptionally with a TransactionException.  Implementations that have no non-blocking engine
+   * process the transaction on the calling thread.
+   *
+   * @param myRequest
+   * @return CompletableFuture A future for the response object
+   */
+  default CompletableFuture<ResponseIF> processAsync(RequestIF myRequest) {
+    CompletableFuture<ResponseIF> future = new CompletableFuture<ResponseIF>();
+    try {
+      future.complete(process(myRequest));
+    } catch (TransactionException te) {
+      future.completeExceptionally(te);
+    }
+    return future;
+  }
+
+  /**
+   * Process an Orbital Gateway Transaction without blocking the calling thread, before a deadline.  The future
+   * completes exceptionally with a DeadlineExceededException if the deadline expires or the transaction is
+   * cancelled.
+   *
+   * @param myRequest
+   * @param deadline the deadline of the transaction
+   * @return CompletableFuture A future for the response object
+   */
+  default CompletableFuture<ResponseIF> processAsync(RequestIF myRequest, Deadline deadline) {
+    CompletableFuture<ResponseIF> future = new CompletableFuture<ResponseIF>();
+    try {
+      future.complete(process(myRequest, deadline));
+    } catch (TransactionException te) {
+      future.completeExceptionally(te);
+    }
+    return future;
+  }
 }
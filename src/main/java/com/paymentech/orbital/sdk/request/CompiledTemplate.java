@@ -0,0 +1,401 @@
+package com.paymentech.orbital.sdk.request;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p><b>Title:</b> CompiledTemplate</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> The XML of a template split once into a sequence of segments: literal text,
+ * field slots ([% name %] or [% name=default %]) and include slots ([# name #]).  The RequestBuilder fills the
+ * slots into a single output buffer in one pass, so no regular expression is run while a request is built.
+ * <br><br> A template compiled in compact mode has no whitespace between its elements, and the element around
+ * an optional field slot (&lt;Name&gt;[% Name= %]&lt;/Name&gt;) is kept with the slot, so it is left out of
+ * the request when the field has no value.  The elements the DTD requires are kept even when they are empty.
+ * <br><br> A compiled template is immutable and is shared by every copy of the template. </p>
+ */
+public class CompiledTemplate {
+
+  // kinds of segments
+  static final int LITERAL = 0;
+  static final int FIELD = 1;
+  static final int INCLUDE = 2;
+
+  private static final String FIELD_START = "[%";
+  private static final String FIELD_END = "%]";
+  private static final String INCLUDE_START = "[#";
+  private static final String INCLUDE_END = "#]";
+  private static final byte[] NO_BYTES = new byte[0];
+
+  // kind of each segment
+  private final int[] kinds;
+  // literal text, or the field/include name of a slot
+  private final String[] texts;
+  // raw text of each slot (null for literals)
+  private final String[] tags;
+  // UTF-8 bytes of each literal (null for slots)
+  private final byte[][] literalBytes;
+  // start and end tags of the element around an optional field slot ("" if the slot has none)
+  private final String[] elementStarts;
+  private final String[] elementEnds;
+  private final byte[][] elementStartBytes;
+  private final byte[][] elementEndBytes;
+  // content of the field slots (name or name=default), in template order
+  private final List fieldTags;
+  // names of the include slots, in template order
+  private final List includeNames;
+  // length of all the literal text, in UTF-8 bytes
+  private final int literalByteLength;
+
+  private CompiledTemplate(List kindList, List textList, List tagList, List startList, List endList,
+                           List fieldTags, List includeNames) {
+    this.kinds = new int[kindList.size()];
+    for (int i = 0; i < kinds.length; i++) {
+      kinds[i] = ((Integer) kindList.get(i)).intValue();
+    }
+    this.texts = (String[]) textList.toArray(new String[textList.size()]);
+    this.tags = (String[]) tagList.toArray(new String[tagList.size()]);
+    this.elementStarts = (String[]) startList.toArray(new String[startList.size()]);
+    this.elementEnds = (String[]) endList.toArray(new String[endList.size()]);
+    this.fieldTags = Collections.unmodifiableList(fieldTags);
+    this.includeNames = Collections.unmodifiableList(includeNames);
+
+    int byteLength = 0;
+    this.literalBytes = new byte[kinds.length][];
+    this.elementStartBytes = new byte[kinds.length][];
+    this.elementEndBytes = new byte[kinds.length][];
+    for (int i = 0; i < kinds.length; i++) {
+      if (kinds[i] == LITERAL) {
+        literalBytes[i] = texts[i].getBytes(StandardCharsets.UTF_8);
+        byteLength += literalBytes[i].length;
+      }
+      elementStartBytes[i] = (elementStarts[i].length() == 0)
+          ? NO_BYTES : elementStarts[i].getBytes(StandardCharsets.UTF_8);
+      elementEndBytes[i] = (elementEnds[i].length() == 0)
+          ? NO_BYTES : elementEnds[i].getBytes(StandardCharsets.UTF_8);
+    }
+    this.literalByteLength = byteLength;
+  }
+
+  /**
+   * Split the XML of a template into its segments
+   *
+   * @param xml the raw XML of the template
+   * @return CompiledTemplate
+   */
+  public static CompiledTemplate compile(String xml) {
+    return compile(xml, false, Collections.EMPTY_SET);
+  }
+
+  /**
+   * Split the XML of a template into its segments
+   *
+   * @param xml              the raw XML of the template
+   * @param compact          true to leave out the whitespace between elements, and the elements of the optional
+   *                         fields that have no value
+   * @param requiredElements the names of the elements that are never left out, even when they are empty
+   * @return CompiledTemplate
+   */
+  public static CompiledTemplate compile(String xml, boolean compact, Set requiredElements) {
+    List kindList = new ArrayList();
+    List textList = new ArrayList();
+    List tagList = new ArrayList();
+    List fieldTags = new ArrayList();
+    List includeNames = new ArrayList();
+    int position = 0;
+    int literalStart = 0;
+
+    while (position < xml.length()) {
+      int fieldStart = xml.indexOf(FIELD_START, position);
+      int includeStart = xml.indexOf(INCLUDE_START, position);
+
+      boolean field = fieldStart >= 0 && (includeStart < 0 || fieldStart < includeStart);
+      int slotStart = field ? fieldStart : includeStart;
+      if (slotStart < 0) {
+        break;
+      }
+
+      int slotEnd = xml.indexOf(field ? FIELD_END : INCLUDE_END, slotStart + 2);
+      String content = (slotEnd < 0) ? "" : xml.substring(slotStart + 2, slotEnd).trim();
+      if (content.length() == 0) {
+        // not a slot, keep it as text
+        position = slotStart + 2;
+        continue;
+      }
+
+      if (slotStart > literalStart) {
+        kindList.add(Integer.valueOf(LITERAL));
+        textList.add(xml.substring(literalStart, slotStart));
+        tagList.add(null);
+      }
+
+      if (field) {
+        int equals = content.indexOf('=');
+        kindList.add(Integer.valueOf(FIELD));
+        textList.add((equals < 0) ? content : content.substring(0, equals).trim());
+        fieldTags.add(content);
+      } else {
+        kindList.add(Integer.valueOf(INCLUDE));
+        textList.add(content);
+        includeNames.add(content);
+      }
+      tagList.add(xml.substring(slotStart, slotEnd + 2));
+
+      position = slotEnd + 2;
+      literalStart = position;
+    }
+
+    if (literalStart < xml.length()) {
+      kindList.add(Integer.valueOf(LITERAL));
+      textList.add(xml.substring(literalStart));
+      tagList.add(null);
+    }
+
+    List startList = new ArrayList();
+    List endList = new ArrayList();
+    for (int i = 0; i < kindList.size(); i++) {
+      startList.add("");
+      endList.add("");
+    }
+
+    if (compact) {
+      compact(kindList, textList, tagList, startList, endList, requiredElements);
+    }
+
+    return new CompiledTemplate(kindList, textList, tagList, startList, endList, fieldTags, includeNames);
+  }
+
+  /**
+   * Remove the whitespace between elements, and move the element around each optional field slot into the slot
+   * (unless the element is required)
+   */
+  private static void compact(List kindList, List textList, List tagList, List startList, List endList,
+                              Set requiredElements) {
+    int count = kindList.size();
+
+    for (int i = 0; i < count; i++) {
+      if (kindOf(kindList, i) == LITERAL) {
+        // the text of an include starts and ends with an element
+        boolean trimStart = i == 0 || kindOf(kindList, i - 1) == INCLUDE;
+        boolean trimEnd = i == count - 1 || kindOf(kindList, i + 1) == INCLUDE;
+        textList.set(i, stripWhitespace((String) textList.get(i), trimStart, trimEnd));
+      }
+    }
+
+    for (int i = 1; i < count - 1; i++) {
+      if (kindOf(kindList, i) != FIELD || ((String) tagList.get(i)).indexOf('=') < 0
+          || kindOf(kindList, i - 1) != LITERAL || kindOf(kindList, i + 1) != LITERAL) {
+        continue;
+      }
+
+      String before = (String) textList.get(i - 1);
+      String after = (String) textList.get(i + 1);
+      int start = before.lastIndexOf('<');
+      if (start < 0 || !before.endsWith(">")) {
+        continue;
+      }
+
+      String elementName = before.substring(start + 1, before.length() - 1);
+      String end = "</" + elementName + ">";
+      if (isElementName(elementName) && after.startsWith(end) && !requiredElements.contains(elementName)) {
+        textList.set(i - 1, before.substring(0, start));
+        textList.set(i + 1, after.substring(end.length()));
+        startList.set(i, "<" + elementName + ">");
+        endList.set(i, end);
+      }
+    }
+
+    // drop the literals that are left empty
+    for (int i = count - 1; i >= 0; i--) {
+      if (kindOf(kindList, i) == LITERAL && ((String) textList.get(i)).length() == 0) {
+        kindList.remove(i);
+        textList.remove(i);
+        tagList.remove(i);
+        startList.remove(i);
+        endList.remove(i);
+      }
+    }
+  }
+
+  /**
+   * Remove the runs of whitespace that separate two tags
+   *
+   * @param trimStart true if the text is preceded by a tag (or nothing)
+   * @param trimEnd   true if the text is followed by a tag (or nothing)
+   */
+  private static String stripWhitespace(String text, boolean trimStart, boolean trimEnd) {
+    StringBuilder stripped = new StringBuilder(text.length());
+    int length = text.length();
+    int i = 0;
+
+    while (i < length) {
+      if (!Character.isWhitespace(text.charAt(i))) {
+        stripped.append(text.charAt(i++));
+        continue;
+      }
+
+      int runEnd = i;
+      while (runEnd < length && Character.isWhitespace(text.charAt(runEnd))) {
+        runEnd++;
+      }
+
+      boolean afterTag = (i == 0) ? trimStart : text.charAt(i - 1) == '>';
+      boolean beforeTag = (runEnd == length) ? trimEnd : text.charAt(runEnd) == '<';
+      if (!(afterTag && beforeTag)) {
+        stripped.append(text, i, runEnd);
+      }
+      i = runEnd;
+    }
+
+    return stripped.toString();
+  }
+
+  private static boolean isElementName(String name) {
+    if (name.length() == 0) {
+      return false;
+    }
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (!(Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.' || c == ':')) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int kindOf(List kindList, int index) {
+    return ((Integer) kindList.get(index)).intValue();
+  }
+
+  /**
+   * Write constant values into a copy of this compiled template: the field slots that have a constant and the
+   * include slots that have a rendered include become literal text, merged with the text around them
+   *
+   * @param layout    the layout of the template
+   * @param constants the constant value of each field of the layout (null if the field is not constant)
+   * @param includes  the rendered text of the constant includes (include name to text)
+   * @return CompiledTemplate
+   */
+  CompiledTemplate specialize(TemplateLayout layout, String[] constants, Map includes) {
+    List kindList = new ArrayList();
+    List textList = new ArrayList();
+    List tagList = new ArrayList();
+    List startList = new ArrayList();
+    List endList = new ArrayList();
+    StringBuilder literal = new StringBuilder();
+
+    for (int i = 0; i < kinds.length; i++) {
+      String constant = null;
+      if (kinds[i] == LITERAL) {
+        constant = texts[i];
+      } else if (kinds[i] == FIELD) {
+        int index = layout.indexOf(texts[i]);
+        if (index >= 0 && constants[index] != null) {
+          constant = elementStarts[i] + constants[index] + elementEnds[i];
+        }
+      } else {
+        constant = (String) includes.get(texts[i]);
+      }
+
+      if (constant != null) {
+        literal.append(constant);
+        continue;
+      }
+
+      if (literal.length() > 0) {
+        kindList.add(Integer.valueOf(LITERAL));
+        textList.add(literal.toString());
+        tagList.add(null);
+        startList.add("");
+        endList.add("");
+        literal.setLength(0);
+      }
+      kindList.add(Integer.valueOf(kinds[i]));
+      textList.add(texts[i]);
+      tagList.add(tags[i]);
+      startList.add(elementStarts[i]);
+      endList.add(elementEnds[i]);
+    }
+
+    if (literal.length() > 0) {
+      kindList.add(Integer.valueOf(LITERAL));
+      textList.add(literal.toString());
+      tagList.add(null);
+      startList.add("");
+      endList.add("");
+    }
+
+    return new CompiledTemplate(kindList, textList, tagList, startList, endList, fieldTags, includeNames);
+  }
+
+  int getSegmentCount() {
+    return kinds.length;
+  }
+
+  int getKind(int segment) {
+    return kinds[segment];
+  }
+
+  /**
+   * @return the literal text of the segment, or the name of its field or include
+   */
+  String getText(int segment) {
+    return texts[segment];
+  }
+
+  /**
+   * @return the UTF-8 bytes of a literal segment
+   */
+  byte[] getLiteralBytes(int segment) {
+    return literalBytes[segment];
+  }
+
+  /**
+   * @return the raw text of a slot, as it appears in the template
+   */
+  String getTag(int segment) {
+    return tags[segment];
+  }
+
+  /**
+   * @return the UTF-8 bytes of the start tag of the element around a field slot (empty if it has none)
+   */
+  byte[] getElementStartBytes(int segment) {
+    return elementStartBytes[segment];
+  }
+
+  /**
+   * @return the UTF-8 bytes of the end tag of the element around a field slot (empty if it has none)
+   */
+  byte[] getElementEndBytes(int segment) {
+    return elementEndBytes[segment];
+  }
+
+  /**
+   * @return the content of the field slots (name or name=default), in template order
+   */
+  public List getFieldTags() {
+    return fieldTags;
+  }
+
+  /**
+   * @return the names of the include slots, in template order
+   */
+  public List getIncludeNames() {
+    return includeNames;
+  }
+
+  /**
+   * @return the length of the literal text in UTF-8 bytes, a lower bound for the size of a rendered payload
+   */
+  public int getLiteralByteLength() {
+    return literalByteLength;
+  }
+}
@@ -0,0 +1,75 @@
+package com.paymentech.orbital.sdk.request;
+
+/**
+ * <p><b>Title:</b> Digits</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Writes the numeric field values (amounts in minor units, counts, expiration
+ * dates) as zero padded digits, straight into the buffer a request is rendered into. </p>
+ */
+public final class Digits {
+
+  // most digits of a long
+  static final int MAX_DIGITS = 19;
+
+  private Digits() {
+    ;
+  }
+
+  /**
+   * Append a value, padded with leading zeros to a minimum number of digits
+   *
+   * @param buffer the buffer to write to
+   * @param value  the value (not negative)
+   * @param digits the minimum number of digits
+   */
+  public static void append(StringBuilder buffer, long value, int digits) {
+    for (int i = length(value); i < digits; i++) {
+      buffer.append('0');
+    }
+    buffer.append(value);
+  }
+
+  /**
+   * @return the value, padded with leading zeros to a minimum number of digits
+   */
+  public static String toString(long value, int digits) {
+    StringBuilder buffer = new StringBuilder(Math.max(digits, 1) + 1);
+    append(buffer, value, digits);
+    return buffer.toString();
+  }
+
+  /**
+   * @return the value of a month and year field (MMYY)
+   * @throws IllegalArgumentException if the month or year is not valid
+   */
+  public static long monthYear(int month, int year) {
+    if (month < 1 || month > 12 || year < 0) {
+      throw new IllegalArgumentException("Invalid month/year: " + month + "/" + year);
+    }
+    return month * 100 + (year % 100);
+  }
+
+  /**
+   * @throws IllegalArgumentException if a value can not be written as digits
+   */
+  public static void check(String fieldName, long value, int digits) {
+    if (value < 0) {
+      throw new IllegalArgumentException("Negative value for field [" + fieldName + "]: " + value);
+    }
+    if (digits > MAX_DIGITS) {
+      throw new IllegalArgumentException("Too many digits for field [" + fieldName + "]: " + digits);
+    }
+  }
+
+  private static int length(long value) {
+    int length = 1;
+    while (value >= 10) {
+      value /= 10;
+      length++;
+    }
+    return length;
+  }
+}
@@ -0,0 +1,142 @@
+package com.paymentech.orbital.sdk.request;
+
+import com.paymentech.orbital.sdk.configurator.Configurator;
+import com.paymentech.orbital.sdk.util.exceptions.InitializationException;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * <p><b>Title:</b> FieldKey</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> A field of a transaction template, resolved once.  Setting a value through a
+ * key is a direct store into the request (no lookup by name), and a field the template doesn't have is
+ * reported when the key is resolved instead of on every request.  Keys are immutable and can be kept in static
+ * fields and shared by all threads:
+ * <pre>
+ *   static final FieldKey ACCOUNT_NUM = FieldKey.forField(RequestIF.NEW_ORDER_TRANSACTION, "AccountNum");
+ *   ...
+ *   request.setFieldValue(ACCOUNT_NUM, accountNumber);
+ * </pre>
+ * A key used with a template it was not resolved for falls back to setting the field by name. </p>
+ */
+public final class FieldKey {
+
+  private final String templateName;
+  private final String name;
+  private final TemplateLayout layout;
+  private final int index;
+
+  private FieldKey(String templateName, String name, TemplateLayout layout, int index) {
+    this.templateName = templateName;
+    this.name = name;
+    this.layout = layout;
+    this.index = index;
+  }
+
+  /**
+   * Resolve a field of a transaction template
+   *
+   * @param transType the transaction type (as for new Request(transType))
+   * @param fieldName the name of the field
+   * @return FieldKey
+   * @throws InitializationException if the template can't be loaded
+   * @throws FieldNotFoundException  if the template has no such field
+   */
+  public static FieldKey forField(String transType, String fieldName) throws InitializationException,
+      FieldNotFoundException {
+    return forField(loadTemplate(transType), fieldName);
+  }
+
+  /**
+   * Resolve a field of a complex root (or recursive element) of a transaction template
+   *
+   * @param transType   the transaction type (as for new Request(transType))
+   * @param complexRoot the name of the complex root, at any depth
+   * @param fieldName   the name of the field
+   * @return FieldKey
+   * @throws InitializationException      if the template can't be loaded
+   * @throws RequestConstructionException if the template has no such complex root
+   * @throws FieldNotFoundException       if the complex root has no such field
+   */
+  public static FieldKey forField(String transType, String complexRoot, String fieldName)
+      throws InitializationException, RequestConstructionException, FieldNotFoundException {
+    Template template = findComplexRoot(loadTemplate(transType), complexRoot);
+
+    if (template == null) {
+      throw new RequestConstructionException("Failed to find the complex root: [" + complexRoot + "]");
+    }
+
+    return forField(template, fieldName);
+  }
+
+  private static FieldKey forField(Template template, String fieldName) throws FieldNotFoundException {
+    TemplateLayout layout = template.getLayout();
+    int index = layout.indexOf(fieldName);
+
+    if (index < 0) {
+      throw new FieldNotFoundException("Failed to find field: [" + fieldName + "] in template [" +
+          template.getName() + "]");
+    }
+
+    return new FieldKey(template.getName(), layout.getName(index), layout, index);
+  }
+
+  private static Template loadTemplate(String transType) throws InitializationException {
+    Template template = null;
+
+    try {
+      template = TemplateParser.getInstance(Configurator.getInstance()).loadTemplate(transType);
+    } catch (XMLTemplateNotFoundException xmle) {
+      throw new InitializationException(xmle.getMessage());
+    }
+
+    if (template == null) {
+      throw new InitializationException("XML Template could not be found: [" + transType + "]");
+    }
+    return template;
+  }
+
+  private static Template findComplexRoot(Template template, String complexRoot) {
+    Map complexRoots = template.getComplexRoots();
+
+    if (complexRoots.containsKey(complexRoot)) {
+      return (Template) complexRoots.get(complexRoot);
+    }
+
+    Iterator itr = complexRoots.values().iterator();
+    while (itr.hasNext()) {
+      Template found = findComplexRoot((Template) itr.next(), complexRoot);
+      if (found != null) {
+        return found;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the name of the template the field belongs to
+   */
+  public String getTemplateName() {
+    return templateName;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  TemplateLayout getLayout() {
+    return layout;
+  }
+
+  int getIndex() {
+    return index;
+  }
+
+  public String toString() {
+    return templateName + "." + name;
+  }
+}
@@ -0,0 +1,161 @@
+package com.paymentech.orbital.sdk.request;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p><b>Title:</b> MerchantProfile</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> The fields that never change for a merchant (BIN, MerchantID, TerminalID,
+ * connection credentials, soft descriptors...).  A request created for a profile starts from a template with
+ * these values already written into its XML, so they are neither set nor rendered per request:
+ * <pre>
+ *   MerchantProfile profile = new MerchantProfile("700000000000");
+ *   profile.setFieldValue("BIN", "000001");
+ *   profile.setFieldValue("MerchantID", "700000000000");
+ *   profile.setFieldValue("TerminalID", "001");
+ *   profile.setComplexRootFieldValue("SoftMerchantDescriptors", "SMDDBA", "ACME*STORE");
+ *   ...
+ *   Request request = new Request(RequestIF.NEW_ORDER_TRANSACTION, profile);
+ * </pre>
+ * Fields that are not in a transaction template are left out of it.  A complex root of the profile is added to
+ * every request of a template that has it.  Setting a field of the profile on a request overrides the profile
+ * value for that request.
+ * <br><br> A profile can't be changed once a request has been created for it; the templates specialized for
+ * it are cached (see TemplateParser).  Profiles with the same merchant id and the same values are equal, so they
+ * share their specialized templates. </p>
+ */
+public final class MerchantProfile {
+
+  private final String merchantId;
+  private final Map fields = new LinkedHashMap();
+  private final Map complexRoots = new LinkedHashMap();
+  private volatile boolean frozen = false;
+  // hash code of a frozen profile
+  private int hash = 0;
+
+  /**
+   * @param merchantId identifies the profile (in the logs and the template cache)
+   */
+  public MerchantProfile(String merchantId) {
+    if (merchantId == null || merchantId.length() == 0) {
+      throw new IllegalArgumentException("A merchant profile requires a merchant id");
+    }
+    this.merchantId = merchantId;
+  }
+
+  public String getMerchantId() {
+    return merchantId;
+  }
+
+  /**
+   * Set a field of the transaction templates
+   *
+   * @param name  the name of the field
+   * @param value the value
+   */
+  public synchronized void setFieldValue(String name, String value) {
+    checkNotFrozen();
+    if (value == null || value.length() == 0) {
+      fields.remove(name);
+    } else {
+      fields.put(name, value);
+    }
+  }
+
+  /**
+   * Set a field of a complex root (the complex root is added to the requests of the templates that have it)
+   *
+   * @param complexRoot the name of the complex root
+   * @param name        the name of the field
+   * @param value       the value
+   */
+  public synchronized void setComplexRootFieldValue(String complexRoot, String name, String value) {
+    checkNotFrozen();
+    Map complexRootFields = (Map) complexRoots.get(complexRoot);
+    if (complexRootFields == null) {
+      complexRootFields = new LinkedHashMap();
+      complexRoots.put(complexRoot, complexRootFields);
+    }
+    if (value == null || value.length() == 0) {
+      complexRootFields.remove(name);
+    } else {
+      complexRootFields.put(name, value);
+    }
+  }
+
+  /**
+   * @return the fields of the profile (name to value)
+   */
+  public synchronized Map getFields() {
+    return Collections.unmodifiableMap(new LinkedHashMap(fields));
+  }
+
+  /**
+   * @return the fields of the complex roots of the profile (complex root name to a map of name to value)
+   */
+  public synchronized Map getComplexRoots() {
+    Map copy = new LinkedHashMap();
+    Iterator itr = complexRoots.entrySet().iterator();
+    while (itr.hasNext()) {
+      Map.Entry entry = (Map.Entry) itr.next();
+      copy.put(entry.getKey(), Collections.unmodifiableMap(new HashMap((Map) entry.getValue())));
+    }
+    return Collections.unmodifiableMap(copy);
+  }
+
+  /**
+   * Stop the profile from changing (done when a template is first specialized for it)
+   */
+  synchronized void freeze() {
+    if (!frozen) {
+      hash = computeHashCode(fields, complexRoots);
+      frozen = true;
+    }
+  }
+
+  private void checkNotFrozen() {
+    if (frozen) {
+      throw new IllegalStateException("Merchant profile [" + merchantId + "] is in use and can't be changed");
+    }
+  }
+
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    }
+    if (!(o instanceof MerchantProfile)) {
+      return false;
+    }
+    MerchantProfile other = (MerchantProfile) o;
+    if (!merchantId.equals(other.merchantId)) {
+      return false;
+    }
+    if (frozen && other.frozen) {
+      // frozen profiles don't change, their values are compared as they are
+      return hash == other.hash && fields.equals(other.fields) && complexRoots.equals(other.complexRoots);
+    }
+    return getFields().equals(other.getFields()) && getComplexRoots().equals(other.getComplexRoots());
+  }
+
+  public int hashCode() {
+    if (frozen) {
+      return hash;
+    }
+    return computeHashCode(getFields(), getComplexRoots());
+  }
+
+  private int computeHashCode(Map fields, Map complexRoots) {
+    return (merchantId.hashCode() * 31 + fields.hashCode()) * 31 + complexRoots.hashCode();
+  }
+
+  public String toString() {
+    return "MerchantProfile[" + merchantId + "]";
+  }
+}
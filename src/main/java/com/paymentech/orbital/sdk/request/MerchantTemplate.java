@@ -0,0 +1,70 @@
+package com.paymentech.orbital.sdk.request;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p><b>Title:</b> MerchantTemplate</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> What a template specialized for a merchant profile was made from: the compiled
+ * template and layout of the transaction, the constant value of each field, and the complex roots of the
+ * profile written into the template.  A request that changes a constant goes back to the base template with
+ * the profile values set as ordinary values. </p>
+ */
+final class MerchantTemplate {
+
+  private final MerchantProfile profile;
+  private final CompiledTemplate baseCompiledTemplate;
+  private final TemplateLayout baseLayout;
+  // the constant value of each field of the layout (null if the field is not constant)
+  private final String[] constants;
+  // names of the complex roots written into the template
+  private final Set inlinedComplexRoots;
+
+  MerchantTemplate(MerchantProfile profile, CompiledTemplate baseCompiledTemplate, TemplateLayout baseLayout,
+                   String[] constants, Set inlinedComplexRoots) {
+    this.profile = profile;
+    this.baseCompiledTemplate = baseCompiledTemplate;
+    this.baseLayout = baseLayout;
+    this.constants = constants;
+    this.inlinedComplexRoots = inlinedComplexRoots;
+  }
+
+  MerchantProfile getProfile() {
+    return profile;
+  }
+
+  CompiledTemplate getBaseCompiledTemplate() {
+    return baseCompiledTemplate;
+  }
+
+  TemplateLayout getBaseLayout() {
+    return baseLayout;
+  }
+
+  boolean isConstant(int index) {
+    return constants[index] != null;
+  }
+
+  String getConstant(int index) {
+    return constants[index];
+  }
+
+  Set getInlinedComplexRoots() {
+    return inlinedComplexRoots;
+  }
+
+  boolean isInlined(String complexRoot) {
+    return inlinedComplexRoots.contains(complexRoot);
+  }
+
+  /**
+   * @return the profile values of a complex root (name to value)
+   */
+  Map getComplexRootFields(String complexRoot) {
+    return (Map) profile.getComplexRoots().get(complexRoot);
+  }
+}
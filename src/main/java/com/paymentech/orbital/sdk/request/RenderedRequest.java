@@ -0,0 +1,206 @@
+package com.paymentech.orbital.sdk.request;
+
+import com.paymentech.orbital.sdk.configurator.Configurator;
+import com.paymentech.orbital.sdk.interfaces.RequestIF;
+import com.paymentech.orbital.sdk.interfaces.TemplateIF;
+import com.paymentech.orbital.sdk.response.ResponseIndex;
+import com.paymentech.orbital.sdk.util.exceptions.InitializationException;
+import com.paymentech.orbital.sdk.util.masking.XmlMasker;
+import org.apache.commons.httpclient.Header;
+import org.apache.regexp.RESyntaxException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p><b>Title:</b> RenderedRequest</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> A request rendered once, when the TransactionProcessor starts processing it.
+ * Every attempt of the transaction (retries and the failover included) sends the same payload, and the XML, the
+ * masked XML and the mime headers are built at most once for all the attempts and log lines.
+ * <br><br> The snapshot is used by the TransactionProcessor and the engines only.  It does not read the original
+ * request after it is rendered: the type, the trace number and the log transaction id are copied, and the field
+ * values are read from the rendered XML, so a change made to the original request while the transaction is
+ * being processed is not seen.  The snapshot can't be changed: setFieldValue throws a FieldNotFoundException,
+ * getComplexRoot a RequestConstructionException, and the other setters log an error and do nothing. </p>
+ */
+public final class RenderedRequest implements RequestIF {
+
+  private final RequestPayload payload;
+  private final String type;
+  private final String traceNumber;
+  private final long logTransactionID;
+  private final String description;
+  private final List fieldErrors;
+  // built when they are first needed
+  private volatile String xml = null;
+  private volatile String maskedXml = null;
+  private volatile ResponseIndex fields = null;
+  private volatile Header[] mimeHeaders = null;
+
+  private RenderedRequest(RequestIF request, RequestPayload payload) {
+    this.payload = payload;
+    this.type = request.getType();
+    this.traceNumber = request.getTraceNumber();
+    this.logTransactionID = request.getLogTransactionID();
+    this.description = request.toString();
+    this.fieldErrors = Collections.unmodifiableList(new ArrayList(request.getFieldErrors()));
+  }
+
+  /**
+   * Render a request
+   *
+   * @param request the request
+   * @return RenderedRequest the snapshot of the request (the request itself if it is a snapshot already)
+   * @throws InitializationException      if the request can't be built
+   * @throws RequestConstructionException if the request is not valid
+   */
+  public static RenderedRequest render(RequestIF request)
+      throws InitializationException, RequestConstructionException {
+    if (request instanceof RenderedRequest) {
+      return (RenderedRequest) request;
+    }
+
+    RequestPayload payload = new RequestPayload();
+    request.writePayload(payload);
+    return new RenderedRequest(request, payload);
+  }
+
+  /**
+   * @return the rendered payload, which must not be changed
+   */
+  public RequestPayload getPayload() {
+    return payload;
+  }
+
+  /**
+   * @return the mime headers built for the request, or null if they have not been built yet
+   */
+  public Header[] getMimeHeaders() {
+    return mimeHeaders;
+  }
+
+  public void setMimeHeaders(Header[] mimeHeaders) {
+    this.mimeHeaders = mimeHeaders;
+  }
+
+  public String getXML() {
+    if (xml == null) {
+      xml = payload.toString();
+    }
+    return xml;
+  }
+
+  public void writePayload(RequestPayload target) {
+    target.reset();
+    target.append(payload.getBuffer(), payload.getLength());
+  }
+
+  public String getMaskedXML() throws RESyntaxException {
+    if (maskedXml == null) {
+      maskedXml = XmlMasker.forRequests().mask(getXML());
+    }
+    return maskedXml;
+  }
+
+  public String toXmlString() {
+    return getXML();
+  }
+
+  public String toMaskedXmlString() {
+    try {
+      return getMaskedXML();
+    } catch (RESyntaxException e) {
+      logError(e.getMessage());
+      return null;
+    }
+  }
+
+  public long getLogTransactionID() {
+    return logTransactionID;
+  }
+
+  /**
+   * The value of a field, as it was rendered
+   *
+   * @param fieldName the name of the field
+   * @return the value of the first element of that name in the request, or null if the request does not have it
+   */
+  public String getField(String fieldName) {
+    if (fields == null) {
+      fields = ResponseIndex.parse(getXML());
+    }
+    return fields.getValue(fieldName);
+  }
+
+  public String getField(FieldKey key) {
+    return getField(key.getName());
+  }
+
+  public String getType() {
+    return type;
+  }
+
+  public String getTraceNumber() {
+    return traceNumber;
+  }
+
+  public boolean hasFieldErrors() {
+    return !fieldErrors.isEmpty();
+  }
+
+  public List getFieldErrors() {
+    return fieldErrors;
+  }
+
+  /**
+   * The request was valid when it was rendered
+   */
+  public void validate() {
+    ;
+  }
+
+  public String toString() {
+    return description;
+  }
+
+  public void setFieldValue(String fieldName, String value) throws FieldNotFoundException {
+    throw new FieldNotFoundException("The request has been rendered, field " + fieldName + " can't be changed");
+  }
+
+  public TemplateIF getComplexRoot(String rootName) throws RequestConstructionException {
+    throw new RequestConstructionException("The request has been rendered, " + rootName + " can't be changed");
+  }
+
+  public void setLogTransactionID(long transactionID) {
+    logError("The request has been rendered, its log transaction id can't be changed");
+  }
+
+  public void setTraceNumber(String traceNumber) {
+    logError("The request has been rendered, its trace number can't be changed");
+  }
+
+  public void clearField(String fieldName) {
+    logError("The request has been rendered, field " + fieldName + " can't be cleared");
+  }
+
+  public void clearAllFields() {
+    logError("The request has been rendered, its fields can't be cleared");
+  }
+
+  public void setField(String fieldName, String value) {
+    logError("The request has been rendered, field " + fieldName + " can't be changed");
+  }
+
+  private static void logError(String message) {
+    try {
+      Configurator.getInstance().getCommonEngineLogger().error(message);
+    } catch (Exception ex) {
+      ;
+    }
+  }
+}
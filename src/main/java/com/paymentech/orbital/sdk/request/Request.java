@@ -1,15 +1,13 @@
 package com.paymentech.orbital.sdk.request;
 
-import com.paymentech.eis.tools.StringUtils;
 import com.paymentech.orbital.sdk.configurator.Configurator;
 import com.paymentech.orbital.sdk.interfaces.RequestIF;
 import com.paymentech.orbital.sdk.interfaces.TemplateIF;
 import com.paymentech.orbital.sdk.util.exceptions.InitializationException;
-import org.apache.regexp.RE;
+import com.paymentech.orbital.sdk.util.masking.XmlMasker;
 import org.apache.regexp.RESyntaxException;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -22,32 +20,9 @@ import java.util.List;
  */
 public class Request implements RequestIF {
 
-  /**
-   * Xml Field Element name for Account Number (credit card account number)
-   */
-  private static final String ACCOUNT_NUM = "AccountNum";
-  /**
-   * Xml Field Element name for Card Security Value
-   */
-  private static final String CARD_SEC_VALUE = "CardSecVal";
   private static Object syncLogID = new Object();
   // value used by all transaction to create logTransactionID
   private static long logTransactionIdentifier = 0;
-  // List of fields that require masking before being displayed.
-  // Note: there is an identical list in Response.java
-  final List<String> maskedFieldNames = Arrays.asList(
-      "AccountNum",
-      "CardSecVal",
-      "CheckDDA",
-      "BMLCustomerSSN",
-      "CCAccountNum",
-      "ECPAccountDDA",
-      "OrbitalConnectionPassword",
-      "CAVV",
-      "AAV",
-      "StartAccountNum",
-      "EUDDIBAN"
-  );
   // indicate whether or not to skip FieldNotFoundExceptions
   private boolean skipFieldNotFoundException = false;
   // reference to the Template object
@@ -60,6 +35,18 @@ public class Request implements RequestIF {
   private long logTransactionID = 0;
 
   public Request(String transType) throws InitializationException {
+    this(transType, null);
+  }
+
+  /**
+   * Create a request for a merchant profile: the profile values are already set, and are written into the
+   * template of the transaction once for all the requests of the profile
+   *
+   * @param transType the transaction type
+   * @param profile   the merchant profile (null for none)
+   * @throws InitializationException if the template can't be loaded
+   */
+  public Request(String transType, MerchantProfile profile) throws InitializationException {
     this.transType = transType;
     this.setLogTransactionID(this.getNewLogTransactionIdentifier());
 
@@ -76,7 +63,7 @@ public class Request implements RequestIF {
 
     // use the TemplateParser to build the Template object
     try {
-      template = parser.loadTemplate(transType);
+      template = parser.loadTemplate(transType, profile);
 
       if (template != null) {
         template.setSkipFieldNotFoundException(skipFieldNotFoundException);
@@ -101,6 +88,38 @@ public class Request implements RequestIF {
     return template.getField(fieldName);
   }
 
+  public void setFieldValue(FieldKey key, String value) throws FieldNotFoundException {
+    template.setFieldValue(key, value);
+  }
+
+  public String getField(FieldKey key) {
+    return template.getField(key);
+  }
+
+  public void setFieldValue(String fieldName, long value) throws FieldNotFoundException {
+    template.setFieldValue(fieldName, value);
+  }
+
+  public void setFieldValue(String fieldName, long value, int digits) throws FieldNotFoundException {
+    template.setFieldValue(fieldName, value, digits);
+  }
+
+  public void setFieldValue(FieldKey key, long value) throws FieldNotFoundException {
+    template.setFieldValue(key, value);
+  }
+
+  public void setFieldValue(FieldKey key, long value, int digits) throws FieldNotFoundException {
+    template.setFieldValue(key, value, digits);
+  }
+
+  public void setMonthYearValue(String fieldName, int month, int year) throws FieldNotFoundException {
+    template.setMonthYearValue(fieldName, month, year);
+  }
+
+  public void setMonthYearValue(FieldKey key, int month, int year) throws FieldNotFoundException {
+    template.setMonthYearValue(key, month, year);
+  }
+
   public String getType() {
     return transType;
   }
@@ -118,6 +137,11 @@ public class Request implements RequestIF {
     return RequestBuilder.buildRequest(Configurator.getInstance().getCommonEngineLogger(), (Template) template);
   }
 
+  public void writePayload(RequestPayload payload)
+      throws InitializationException, RequestConstructionException {
+    RequestBuilder.buildRequest(Configurator.getInstance().getCommonEngineLogger(), (Template) template, payload);
+  }
+
   public String getMaskedXML()
       throws RESyntaxException, InitializationException, RequestConstructionException {
     return this.maskXmlMessage(getXML());
@@ -306,69 +330,8 @@ public class Request implements RequestIF {
   }
 
   protected String maskXmlMessage(String messageToMask) throws RESyntaxException {
-
-    // Mask predefined fields
-    for (String fieldName : maskedFieldNames) {
-      messageToMask = maskField(messageToMask, fieldName);
-    }
-
-    String maskField = null;
-    try {
-      maskField = (String) Configurator.getInstance().getConfigurations().get("MaskFieldList");
-    } catch (Exception e) {
-      ;
-    }
-    // mask merchant specific field list
-    if (maskField != null) {
-      String[] maskFieldArray = maskField.split(",");
-      for (int ctr = 0; ctr < maskFieldArray.length; ctr++) {
-        messageToMask = maskField(messageToMask, maskFieldArray[ctr]);
-      }
-    }
-    //return the result
-    return messageToMask;
-  }
-
-  private String maskField(String messageToMask, String tag) throws RESyntaxException {
-    String returnVal = messageToMask;
-    String value = null;
-    StringBuffer maskedVal = new StringBuffer();
-
-    // build regx
-    RE re = new RE("<" + tag + ">(.*?)</" + tag + ">");
-
-    if (re.match(messageToMask)) {
-
-      // get the value of the tag out
-      value = re.getParen(1);
-
-      if (!StringUtils.isEmpty(value)) {
-
-        // determine masking try based on the field type
-        if (tag.equalsIgnoreCase(ACCOUNT_NUM)) {
-          // mask all but last 4 digits
-          if (value.length() > 4) {
-            maskedVal.append("XXXXXXXXXXXX" + value.substring(value.length() - 4));
-          }
-        } else if (tag.equalsIgnoreCase(CARD_SEC_VALUE)) {
-          // just mask everything out
-          maskedVal.append("XXX");
-        } else {
-          // asking to mask a field that this function doesn't know about
-          // just mask it anyway (just can't be too careful)
-          for (int i = 0; i < value.length(); i++) {
-            maskedVal.append("X");
-          }
-        }
-
-        re = new RE("<" + tag + ">\\s*" + value + "\\s*</" + tag + ">");
-
-        returnVal = re.subst(messageToMask, "<" + tag + ">" + maskedVal.toString() + "</" + tag + ">");
-
-      }
-    }
-
-    return returnVal;
+    // the predefined fields and the merchant specific field list, in a single pass
+    return XmlMasker.forRequests().mask(messageToMask);
   }
 
   private long getNewLogTransactionIdentifier() {
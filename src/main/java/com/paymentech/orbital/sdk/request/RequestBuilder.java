@@ -1,12 +1,10 @@
 package com.paymentech.orbital.sdk.request;
 
 import org.apache.log4j.Logger;
-import org.apache.regexp.RE;
-import org.apache.regexp.RESyntaxException;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Map.Entry;
 
 /**
@@ -15,31 +13,54 @@ import java.util.Map.Entry;
  * The copyright notice above does not evidence any actual or intended
  * publication of such source code.
  * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
- * <p><b>Author:</b> Scott Monahan</p><p><b>Description:</b><br><br> Takes a fully populated Template and creates the constructed XML transaction </p>
+ * <p><b>Author:</b> Scott Monahan</p><p><b>Description:</b><br><br> Takes a fully populated Template and creates the constructed XML transaction.
+ * <br><br> A request is built in two passes: the first validates the fields and sets the count and index fields of
+ * the recursive elements, the second walks the compiled segments of the templates and writes the literal text,
+ * the field values and the includes into a single buffer.  The buffer is a RequestPayload holding the UTF-8
+ * bytes that are sent to the gateway, so the request is encoded as it is written. </p>
  */
 public class RequestBuilder {
 
+  // payload the requests built as a String are rendered into, kept by each thread
+  private static final ThreadLocal payloads = new ThreadLocal() {
+    protected Object initialValue() {
+      return new RequestPayload();
+    }
+  };
+
   private RequestBuilder() {
     ;
   }
 
   public static String buildRequest(Logger log, Template template) throws RequestConstructionException {
-    String response = null;
+    RequestPayload payload = (RequestPayload) payloads.get();
+    buildRequest(log, template, payload);
+    return payload.toString();
+  }
 
+  /**
+   * Build a request into a payload (emptied first), reusing its buffer
+   *
+   * @param log      the logger
+   * @param template the populated template
+   * @param payload  the payload the request is written to
+   * @throws RequestConstructionException if the request is not valid
+   */
+  public static void buildRequest(Logger log, Template template, RequestPayload payload)
+      throws RequestConstructionException {
     try {
 
       // start by making sure that all the required fields for the top most template are populated
-      validateRequiredFields(template.getRequiredFields());
+      validateRequiredFields(template);
 
-      // now we can start filling in the complex roots
-      response = setComplexRoots(template);
+      // now we can validate the complex roots (and fill in their count and index fields)
+      prepareComplexRoots(template);
 
-      // replace the field values (required and optional)
-      response = replaceFields(response, template.getRequiredFields());
-      response = replaceFields(response, template.getOptionalFields());
-
-      // remove all the unused complex root elements that we find
-      response = blankOutInclude(response, ".*?");
+      // write the template, its field values and its complex roots in a single pass
+      // (complex root elements that are not used are left out)
+      payload.reset();
+      payload.ensureCapacity(template.getCompiledTemplate().getLiteralByteLength() + 512);
+      render(template, payload);
 
     } catch (RequestConstructionException rce) {
       throw rce;
@@ -47,59 +68,63 @@ public class RequestBuilder {
       log.error(th.getMessage(), th);
       throw new RequestConstructionException(th.getMessage());
     }
-
-    return response;
   }
 
-  private static String setComplexRoots(Template template) throws RESyntaxException,
-      RequestConstructionException, FieldNotFoundException {
-    String filledComplexRootsXML = template.getXml();
-    Template crTemplate = null;
+  /**
+   * Build a complex root on its own: the text it adds to a request that uses it
+   *
+   * @param log         the logger
+   * @param complexRoot the populated complex root
+   * @param payload     the payload the complex root is written to
+   * @throws RequestConstructionException if the complex root is not valid
+   */
+  static void buildComplexRoot(Logger log, Template complexRoot, RequestPayload payload)
+      throws RequestConstructionException {
+    try {
 
-    if (template.getUsedComplexRoots().size() > 0) {
+      prepareComplexRoots(complexRoot);
+      prepareRecursiveElements(complexRoot);
+      validateRequiredFields(complexRoot);
 
-      for (int i = 0; i < template.getUsedComplexRoots().size(); i++) {
-        if (template.getRecursiveElements().containsKey(template.getUsedComplexRoots().get(i))) {
-          template.getUsedComplexRoots().remove(i);
-        }
-      }
+      payload.reset();
+      render(complexRoot, payload);
 
-      for (int i = 0; i < template.getUsedComplexRoots().size(); i++) {
-
-        crTemplate = (Template) template.getComplexRoots().get(template.getUsedComplexRoots().get(i));
+    } catch (RequestConstructionException rce) {
+      throw rce;
+    } catch (Throwable th) {
+      log.error(th.getMessage(), th);
+      throw new RequestConstructionException(th.getMessage());
+    }
+  }
 
-        // call this method again to set the childern complex roots (if any)
-        String childComplexRootsXML = setComplexRoots(crTemplate);
+  private static void prepareComplexRoots(Template template) throws RequestConstructionException,
+      FieldNotFoundException {
+    List usedComplexRoots = template.getUsedComplexRoots();
 
-        // try to fill the recursive elements if any
-        childComplexRootsXML = setRecursiveElements(crTemplate);
+    for (int i = 0; i < usedComplexRoots.size(); i++) {
 
-        // now we fill the complex root template
-        // first, make sure all the required fields are there
-        validateRequiredFields(crTemplate.getRequiredFields());
+      // recursive elements are filled in by their complex root
+      if (template.getRecursiveElements().containsKey(usedComplexRoots.get(i))) {
+        continue;
+      }
 
-        // replace the required and optional fields for this complex root
-        childComplexRootsXML = replaceFields(childComplexRootsXML, crTemplate.getRequiredFields());
-        childComplexRootsXML = replaceFields(childComplexRootsXML, crTemplate.getOptionalFields());
+      Template crTemplate = template.getComplexRootTemplate((String) usedComplexRoots.get(i));
 
-        // add the complex root to the main template
-        filledComplexRootsXML = replaceInclude(filledComplexRootsXML, crTemplate.getName(), childComplexRootsXML);
+      // call this method again to prepare the childern complex roots (if any)
+      prepareComplexRoots(crTemplate);
 
-      }
+      // check the recursive elements (if any)
+      prepareRecursiveElements(crTemplate);
 
+      // make sure all the required fields of the complex root are there
+      validateRequiredFields(crTemplate);
     }
-
-    return filledComplexRootsXML;
   }
 
-  private static String setRecursiveElements(Template template) throws RESyntaxException,
-      RequestConstructionException, FieldNotFoundException {
-    String parentXML = template.getXml();
-    StringBuffer reBuffer = null;
-    String recursiveElementXML = null;
+  private static void prepareRecursiveElements(Template template) throws RequestConstructionException,
+      FieldNotFoundException {
     RecursiveElement recusiveElement = null;
 
-    // begin with the recursive elements
     if (template.getRecursiveElements().size() > 0) {
 
       Iterator recursiveItr = template.getRecursiveElements().entrySet().iterator();
@@ -108,13 +133,12 @@ public class RequestBuilder {
 
         recusiveElement = (RecursiveElement) ((Entry) recursiveItr.next()).getValue();
 
-        List recursiveElementData
-            = (List) template.getUserDefinedRecursiveElementsMap().get(recusiveElement.getName());
+        List recursiveElementData = getRecursiveElementData(template, recusiveElement.getName());
 
         // we know that we are going to add the core content for this recursive
         if (recusiveElement.isEnforceGreaterThanZero()) {
           // make sure that we have more then one user added recursive templates
-          if (recursiveElementData == null || recursiveElementData.size() == 0) {
+          if (recursiveElementData.size() == 0) {
             throw new RequestConstructionException("Complex root [" + template.getName() +
                 " must have 1 or more recursive elements defined");
           }
@@ -130,14 +154,9 @@ public class RequestBuilder {
         // check if the core element has an element that will contain the count of the recursive elements
         if (recusiveElement.getCountElement() != null
             && recusiveElement.getCountElement().trim().length() > 0) {
-          template.setField(recusiveElement.getCountElement(), Integer.toString(recursiveElementData.size()));
+          template.setFieldValue(recusiveElement.getCountElement(), recursiveElementData.size());
         }
 
-        // this template object has its own data to fill it in,
-        // so lets create a new StringBuffer and get to fill'in
-        reBuffer = new StringBuffer();
-
-        // start filling in the data for each individual
         for (int ii = 0; ii < recursiveElementData.size(); ii++) {
           // each item in this list is a template
           Template recursiveTemplate = (Template) recursiveElementData.get(ii);
@@ -145,86 +164,101 @@ public class RequestBuilder {
           // set the index element (if there is one)
           if (recursiveTemplate.getChildIndexElement() != null
               && recursiveTemplate.getChildIndexElement().trim().length() > 0) {
-            recursiveTemplate.setField(recursiveTemplate.getChildIndexElement(), Integer.toString(ii + 1));
+            recursiveTemplate.setFieldValue(recursiveTemplate.getChildIndexElement(), ii + 1);
           }
 
           // make sure all the required fields are present
-          validateRequiredFields(recursiveTemplate.getRequiredFields());
-
-          // replace the required and optional fields
-          recursiveElementXML = replaceFields(recursiveTemplate.getXml(), recursiveTemplate.getRequiredFields());
-          recursiveElementXML = replaceFields(recursiveElementXML, recursiveTemplate.getOptionalFields());
-
-          // add to the result string
-          reBuffer.append(recursiveElementXML);
+          validateRequiredFields(recursiveTemplate);
         }
-
-        // this set of recursive elements is complete so we can add it to it's associated complex root
-        if (reBuffer != null) {
-          parentXML = replaceInclude(parentXML, recusiveElement.getName(), reBuffer.toString());
-        } else {
-          parentXML = blankOutInclude(parentXML, recusiveElement.getName());
-        }
-
       }
 
     }
-
-    return parentXML;
   }
 
-  private static String blankOutInclude(String xml, String includeName) throws RESyntaxException {
-    return replaceInclude(xml, includeName, "");
+  private static List getRecursiveElementData(Template template, String name) {
+    List recursiveElementData = (List) template.getUserDefinedRecursiveElementsMap().get(name);
+    return (recursiveElementData == null) ? Collections.EMPTY_LIST : recursiveElementData;
   }
 
-  private static String replaceInclude(String xml, String includeName, String replaceWith) throws RESyntaxException {
-    RE re = new RE("\\[#\\s*(" + includeName + ")\\s*#\\]");
-    if (re.match(xml)) {
-      xml = re.subst(xml, replaceWith);
+  private static void render(Template template, RequestPayload payload) {
+    CompiledTemplate compiledTemplate = template.getCompiledTemplate();
+
+    for (int i = 0; i < compiledTemplate.getSegmentCount(); i++) {
+      switch (compiledTemplate.getKind(i)) {
+        case CompiledTemplate.FIELD:
+          renderField(template, compiledTemplate, i, payload);
+          break;
+        case CompiledTemplate.INCLUDE:
+          renderInclude(template, compiledTemplate.getText(i), payload);
+          break;
+        default:
+          payload.append(compiledTemplate.getLiteralBytes(i));
+      }
     }
-    return xml;
   }
 
-  private static String replaceFields(String xml, Map fields) throws RESyntaxException {
-    Field field = null;
-    String value = null;
-    String returnXml = xml;
+  private static void renderField(Template template, CompiledTemplate compiledTemplate, int segment,
+                                  RequestPayload payload) {
+    TemplateLayout layout = template.getLayout();
+    int index = layout.getSegmentField(segment);
+
+    if (index < 0) {
+      // not a field of this template, leave the slot as it is
+      payload.append(compiledTemplate.getElementStartBytes(segment));
+      payload.append(compiledTemplate.getTag(segment));
+      payload.append(compiledTemplate.getElementEndBytes(segment));
+      return;
+    }
 
-    if ((xml != null) && (fields != null)) {
-      Iterator itr = fields.entrySet().iterator();
-      while (itr.hasNext()) {
-        field = (Field) ((Entry) itr.next()).getValue();
+    if (template.isNumber(index)) {
+      // digits go straight into the payload
+      payload.append(compiledTemplate.getElementStartBytes(segment));
+      template.appendNumber(index, payload);
+      payload.append(compiledTemplate.getElementEndBytes(segment));
+      return;
+    }
 
-        if (field.getValue() == null || field.getValue().trim().length() == 0) {
-          value = field.getDefaultValue();
-        } else {
-          value = field.getValue();
-        }
+    String value = template.getValue(index);
+    if (value == null || value.trim().length() == 0) {
+      value = layout.getDefaultValue(index);
+    }
 
-        if (value == null) {
-          value = "";
-        }
+    if (value == null || value.length() == 0) {
+      // nothing to write (in a compact template the element of the field is left out too)
+      return;
+    }
 
-        RE re = new RE("\\[%\\s*(" + field.getName() + "=.*? | " + field.getName() + ")\\s*%\\]");
-        if (re.match(returnXml)) {
-          returnXml = re.subst(returnXml, value);
-        }
+    payload.append(compiledTemplate.getElementStartBytes(segment));
+    payload.append(value);
+    payload.append(compiledTemplate.getElementEndBytes(segment));
+  }
+
+  private static void renderInclude(Template template, String includeName, RequestPayload payload) {
+    if (template.getRecursiveElements().containsKey(includeName)) {
+
+      // the user added recursive elements, one after the other
+      List recursiveElementData = getRecursiveElementData(template, includeName);
+      for (int i = 0; i < recursiveElementData.size(); i++) {
+        render((Template) recursiveElementData.get(i), payload);
       }
 
+    } else if (template.getUsedComplexRoots().contains(includeName)) {
+
+      // the user filled in this complex root
+      render(template.getComplexRootTemplate(includeName), payload);
+
     }
-    return returnXml;
+    // complex roots that are not used are left out
   }
 
-  private static void validateRequiredFields(Map requiredFieldsMap) throws FieldNotFoundException {
-    if (requiredFieldsMap != null && requiredFieldsMap.size() > 0) {
-      Iterator requiredItr = requiredFieldsMap.entrySet().iterator();
-      while (requiredItr.hasNext()) {
-        Field field = (Field) ((Entry) requiredItr.next()).getValue();
-        if (field.getValue() == null || field.getValue().trim().length() == 0) {
-          throw new FieldNotFoundException("Required field has not been set: [" + field.getName() + "]");
+  private static void validateRequiredFields(Template template) throws FieldNotFoundException {
+    TemplateLayout layout = template.getLayout();
+    for (int i = 0; i < layout.getFieldCount(); i++) {
+      if (layout.isRequired(i)) {
+        if (!template.hasValue(i)) {
+          throw new FieldNotFoundException("Required field has not been set: [" + layout.getName(i) + "]");
         }
       }
-
     }
   }
 
@@ -0,0 +1,168 @@
+package com.paymentech.orbital.sdk.request;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p><b>Title:</b> RequestPayload</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> The UTF-8 bytes of a rendered request (the encoding declared by the templates).
+ * The RequestBuilder writes the literal text, field values and numbers of the templates straight into the
+ * buffer, which is then written to the connection as it is.  A payload is reset before every request and its
+ * buffer only grows, so an engine can keep one per thread and render every request without allocating.
+ * <br><br> A payload is not thread safe. </p>
+ */
+public final class RequestPayload {
+
+  private static final int DEFAULT_CAPACITY = 2048;
+
+  private byte[] buffer;
+  private int length = 0;
+
+  public RequestPayload() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param capacity the initial size of the buffer
+   */
+  public RequestPayload(int capacity) {
+    buffer = new byte[Math.max(capacity, 16)];
+  }
+
+  /**
+   * Empty the payload (the buffer is kept)
+   */
+  public void reset() {
+    length = 0;
+  }
+
+  /**
+   * @return the number of bytes in the payload
+   */
+  public int getLength() {
+    return length;
+  }
+
+  /**
+   * @return the buffer, holding the payload in its first getLength() bytes.  It is overwritten when the payload
+   *         is reset.
+   */
+  public byte[] getBuffer() {
+    return buffer;
+  }
+
+  /**
+   * Append text, encoded as UTF-8
+   */
+  public void append(String text) {
+    int count = text.length();
+    ensureCapacity(length + count * 3);
+
+    byte[] bytes = buffer;
+    int position = length;
+    for (int i = 0; i < count; i++) {
+      char c = text.charAt(i);
+      if (c < 0x80) {
+        bytes[position++] = (byte) c;
+      } else if (c < 0x800) {
+        bytes[position++] = (byte) (0xc0 | (c >> 6));
+        bytes[position++] = (byte) (0x80 | (c & 0x3f));
+      } else if (Character.isHighSurrogate(c) && i + 1 < count && Character.isLowSurrogate(text.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, text.charAt(++i));
+        bytes[position++] = (byte) (0xf0 | (codePoint >> 18));
+        bytes[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+        bytes[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+        bytes[position++] = (byte) (0x80 | (codePoint & 0x3f));
+      } else if (Character.isSurrogate(c)) {
+        // unpaired surrogate, replaced like String.getBytes does
+        bytes[position++] = (byte) '?';
+      } else {
+        bytes[position++] = (byte) (0xe0 | (c >> 12));
+        bytes[position++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+        bytes[position++] = (byte) (0x80 | (c & 0x3f));
+      }
+    }
+    length = position;
+  }
+
+  /**
+   * Append bytes that are already encoded
+   */
+  void append(byte[] bytes) {
+    append(bytes, bytes.length);
+  }
+
+  /**
+   * Append the first bytes of an array, already encoded
+   */
+  void append(byte[] bytes, int count) {
+    ensureCapacity(length + count);
+    System.arraycopy(bytes, 0, buffer, length, count);
+    length += count;
+  }
+
+  /**
+   * Append a value, padded with leading zeros to a minimum number of digits
+   *
+   * @param value  the value (not negative)
+   * @param digits the minimum number of digits
+   */
+  void appendNumber(long value, int digits) {
+    int valueLength = 1;
+    for (long rest = value; rest >= 10; rest /= 10) {
+      valueLength++;
+    }
+
+    int count = Math.max(valueLength, digits);
+    ensureCapacity(length + count);
+
+    int end = length + count;
+    for (int position = length; position < end - valueLength; position++) {
+      buffer[position] = '0';
+    }
+    for (int position = end - 1; position >= end - valueLength; position--) {
+      buffer[position] = (byte) ('0' + (value % 10));
+      value /= 10;
+    }
+    length = end;
+  }
+
+  /**
+   * Make sure the buffer can hold a number of bytes without growing
+   */
+  void ensureCapacity(int capacity) {
+    if (capacity > buffer.length) {
+      byte[] grown = new byte[Math.max(capacity, buffer.length * 2)];
+      System.arraycopy(buffer, 0, grown, 0, length);
+      buffer = grown;
+    }
+  }
+
+  /**
+   * Write the payload to a stream
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    out.write(buffer, 0, length);
+  }
+
+  /**
+   * @return a copy of the payload
+   */
+  public byte[] toByteArray() {
+    byte[] bytes = new byte[length];
+    System.arraycopy(buffer, 0, bytes, 0, length);
+    return bytes;
+  }
+
+  /**
+   * @return the payload, decoded
+   */
+  public String toString() {
+    return new String(buffer, 0, length, StandardCharsets.UTF_8);
+  }
+}
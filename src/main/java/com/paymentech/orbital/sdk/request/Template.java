@@ -4,7 +4,6 @@ import com.paymentech.orbital.sdk.configurator.Configurator;
 import com.paymentech.orbital.sdk.interfaces.TemplateIF;
 
 import java.util.*;
-import java.util.Map.Entry;
 
 /**
  * <p><b>Title:</b> Template</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
@@ -12,33 +11,106 @@ import java.util.Map.Entry;
  * The copyright notice above does not evidence any actual or intended
  * publication of such source code.
  * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
- * <p><b>Author:</b> Scott Monahan</p><p><b>Description:</b><br><br> Concrete implementation of the TemplateIF interface. Java container for XML template file. </p>
+ * <p><b>Author:</b> Scott Monahan</p><p><b>Description:</b><br><br> Concrete implementation of the TemplateIF interface. Java container for XML template file.
+ * <br><br> The TemplateParser parses each transaction template once into a prototype, and every request gets a
+ * copy of it.  A copy shares the shape of its prototype (xml, field layout, complex roots and recursive
+ * elements, which are never changed once parsed) and only allocates what the user sets: an array of field
+ * values indexed like the {@link TemplateLayout}, and copies of the complex roots and recursive elements that
+ * are used.
+ * <br><br> A template loaded for a merchant profile has the profile values written into its compiled template.
+ * If a request changes one of them, it goes back to the compiled template of the transaction with the profile
+ * values set as ordinary values. </p>
  */
 public class Template implements TemplateIF {
 
+  // the parsed template this one is a copy of (itself if it is not a copy)
+  private Template prototype = null;
   private Template parent = null;
   private boolean skipFieldNotFoundException = false;
   private String name = null;
   private String xml = null;
+  private CompiledTemplate compiledTemplate = null;
   private String ChildIndexElement = null;
-  private Map userDefinedRecursiveElementsMap = new HashMap();
-  private Map requiredFields = new HashMap();
-  private Map optionalFields = new HashMap();
-  private Map complexRoots = new HashMap();
-  private Map recursiveElements = new HashMap();
-  private List usedComplexRoots = new ArrayList();
+  // field definitions, complex roots and recursive elements (shared by the copies)
+  private Map requiredFields = null;
+  private Map optionalFields = null;
+  private Map complexRoots = null;
+  private Map recursiveElements = null;
+  private TemplateLayout layout = null;
+  // the merchant profile the template was specialized for (null if it was not)
+  private MerchantTemplate merchantTemplate = null;
+  // true while the profile values are written into the compiled template
+  private boolean specialized = false;
+  // user data (allocated when it is first set)
+  private String[] values = null;
+  // numeric values, and their minimum number of digits (0 if the value is not numeric)
+  private long[] numbers = null;
+  private byte[] digits = null;
+  private Map complexRootCopies = null;
+  private Map userDefinedRecursiveElementsMap = null;
+  private List usedComplexRoots = null;
 
   public Template() {
-    ;
+    this.prototype = this;
+    this.requiredFields = new HashMap();
+    this.optionalFields = new HashMap();
+    this.complexRoots = new HashMap();
+    this.recursiveElements = new HashMap();
   }
 
   public Template(String name) {
+    this();
     this.name = name;
   }
 
   public Template(String name, Template parent) {
-    this.name = name;
+    this(name);
+    this.parent = parent;
+  }
+
+  /**
+   * Create a copy of a template that shares its shape and has no user data
+   */
+  private Template(Template template, Template parent) {
+    this.prototype = template.prototype;
     this.parent = parent;
+    this.name = prototype.name;
+    this.xml = prototype.xml;
+    this.compiledTemplate = prototype.compiledTemplate;
+    this.ChildIndexElement = prototype.ChildIndexElement;
+    this.requiredFields = prototype.requiredFields;
+    this.optionalFields = prototype.optionalFields;
+    this.complexRoots = prototype.complexRoots;
+    this.recursiveElements = prototype.recursiveElements;
+    this.layout = prototype.getLayout();
+    this.merchantTemplate = prototype.merchantTemplate;
+    this.specialized = prototype.specialized;
+  }
+
+  /**
+   * Create the prototype of a template specialized for a merchant profile
+   */
+  Template(Template base, MerchantTemplate merchantTemplate, CompiledTemplate compiledTemplate,
+           TemplateLayout layout) {
+    this.prototype = this;
+    this.name = base.name;
+    this.xml = base.xml;
+    this.compiledTemplate = compiledTemplate;
+    this.ChildIndexElement = base.ChildIndexElement;
+    this.requiredFields = base.requiredFields;
+    this.optionalFields = base.optionalFields;
+    this.complexRoots = base.complexRoots;
+    this.recursiveElements = base.recursiveElements;
+    this.layout = layout;
+    this.merchantTemplate = merchantTemplate;
+    this.specialized = true;
+  }
+
+  /**
+   * @return a copy of this template, without user data
+   */
+  protected Template copy() {
+    return new Template(this, null);
   }
 
   public TemplateIF getComplexRoot(String name) throws RequestConstructionException {
@@ -50,29 +122,57 @@ public class Template implements TemplateIF {
     // this ensures that all complex root objects will
     // be controlled here and can be contained in a single map
     if (complexRoots.containsKey(name)) {
+      if (specialized && merchantTemplate.isInlined(name)) {
+        // the complex root of the profile becomes one the user can change
+        despecialize();
+        return getComplexRootTemplate(name);
+      }
       if (!recursiveElement) {
-        if (usedComplexRoots.contains(name)) {
+        if (getUsedComplexRoots().contains(name)) {
           throw new RequestConstructionException("Muliple complex roots cannot be added: [" + name + "]");
         } else {
-          usedComplexRoots.add(name);
+          getUsedComplexRoots().add(name);
         }
       }
-      TemplateIF tp = (TemplateIF) complexRoots.get(name);
-      return tp;
+      return getComplexRootTemplate(name);
     } else {
       throw new RequestConstructionException("Failed to find the complex root: [" + name + "]");
     }
   }
 
+  /**
+   * Get the complex root that holds the user data of this template (a copy of the parsed complex root is made
+   * the first time it is asked for)
+   */
+  protected Template getComplexRootTemplate(String name) {
+    if (prototype == this) {
+      return (Template) complexRoots.get(name);
+    }
+
+    if (complexRootCopies == null) {
+      complexRootCopies = new HashMap(4);
+    }
+
+    Template complexRoot = (Template) complexRootCopies.get(name);
+    if (complexRoot == null) {
+      complexRoot = new Template((Template) complexRoots.get(name), this);
+      complexRootCopies.put(name, complexRoot);
+    }
+    return complexRoot;
+  }
+
   public TemplateIF getRecursiveElement(String name) throws RequestConstructionException {
     List recursiveElementList = null;
 
     if (recursiveElements.containsKey(name)) {
       // a recursive element is also a complex root
-      TemplateIF recursiveElement = (TemplateIF) getComplexRoot(name, true).clone();
+      if (!complexRoots.containsKey(name)) {
+        throw new RequestConstructionException("Failed to find the complex root: [" + name + "]");
+      }
+      Template recursiveElement = new Template((Template) complexRoots.get(name), this);
 
-      if (userDefinedRecursiveElementsMap.containsKey(name)) {
-        recursiveElementList = (List) userDefinedRecursiveElementsMap.get(name);
+      if (getUserDefinedRecursiveElementsMap().containsKey(name)) {
+        recursiveElementList = (List) getUserDefinedRecursiveElementsMap().get(name);
       } else {
         recursiveElementList = new ArrayList();
       }
@@ -80,7 +180,7 @@ public class Template implements TemplateIF {
       // add the new element and restore
       recursiveElementList.add(recursiveElement);
 
-      userDefinedRecursiveElementsMap.put(name, recursiveElementList);
+      getUserDefinedRecursiveElementsMap().put(name, recursiveElementList);
 
       return recursiveElement;
     } else {
@@ -89,71 +189,194 @@ public class Template implements TemplateIF {
   }
 
   public void setField(String name, String value) throws FieldNotFoundException {
-    Field field = null;
     if ((name != null && name.length() > 0)
         && (value != null && value.length() > 0)) {
 
       // the name of the field being set must be in the required list
       // or the optional list
-      if (this.optionalFields.containsKey(name)) {
-        field = (Field) this.optionalFields.get(name);
-      } else if (this.requiredFields.containsKey(name)) {
-        field = (Field) this.requiredFields.get(name);
-      } else {
-        if (skipFieldNotFoundException) {
-          try {
-            Configurator.getInstance().getCommonEngineLogger()
-                .warn("Failed to find field: [" + name + "]");
-          } catch (Exception e) {
-            ;
-          }
-          return;
-        } else {
-          throw new FieldNotFoundException("Failed to find field: [" + name + "]");
+      int index = indexOf(name);
+
+      if (index >= 0) {
+        setString(index, value);
+      }
+    }
+  }
+
+  public void setFieldValue(String name, String value) throws FieldNotFoundException {
+    setField(name, value);
+  }
+
+  public void setFieldValue(FieldKey key, String value) throws FieldNotFoundException {
+    if (!getLayout().hasSameFields(key.getLayout())) {
+      // resolved for another template
+      setField(key.getName(), value);
+      return;
+    }
+
+    if (value != null && value.length() > 0) {
+      setString(key.getIndex(), value);
+    }
+  }
+
+  public void setFieldValue(String name, long value) throws FieldNotFoundException {
+    setFieldValue(name, value, 1);
+  }
+
+  public void setFieldValue(String name, long value, int digits) throws FieldNotFoundException {
+    if (name != null && name.length() > 0) {
+      int index = indexOf(name);
+
+      if (index >= 0) {
+        setNumber(index, value, digits);
+      }
+    }
+  }
+
+  public void setFieldValue(FieldKey key, long value) throws FieldNotFoundException {
+    setFieldValue(key, value, 1);
+  }
+
+  public void setFieldValue(FieldKey key, long value, int digits) throws FieldNotFoundException {
+    if (!getLayout().hasSameFields(key.getLayout())) {
+      // resolved for another template
+      setFieldValue(key.getName(), value, digits);
+      return;
+    }
+
+    setNumber(key.getIndex(), value, digits);
+  }
+
+  public void setMonthYearValue(String name, int month, int year) throws FieldNotFoundException {
+    setFieldValue(name, Digits.monthYear(month, year), 4);
+  }
+
+  public void setMonthYearValue(FieldKey key, int month, int year) throws FieldNotFoundException {
+    setFieldValue(key, Digits.monthYear(month, year), 4);
+  }
+
+  /**
+   * Find a field of this template
+   *
+   * @return the index of the field in the layout, or -1 if it is not found and FieldNotFoundExceptions are
+   *         skipped
+   * @throws FieldNotFoundException if the field is not found
+   */
+  private int indexOf(String name) throws FieldNotFoundException {
+    int index = getLayout().indexOf(name);
+
+    if (index < 0) {
+      if (skipFieldNotFoundException) {
+        try {
+          Configurator.getInstance().getCommonEngineLogger()
+              .warn("Failed to find field: [" + name + "]");
+        } catch (Exception e) {
+          ;
         }
+      } else {
+        throw new FieldNotFoundException("Failed to find field: [" + name + "]");
       }
+    }
 
-      // field shouldn't be null, but let's just check
-      if (field == null) {
-        if (skipFieldNotFoundException) {
-          try {
-            Configurator.getInstance().getCommonEngineLogger()
-                .warn("Failed to find field: [" + name + "]");
-          } catch (Exception e) {
-            ;
-          }
-          return;
-        } else {
-          throw new FieldNotFoundException("Failed to find field: [" + name + "]");
+    return index;
+  }
+
+  /**
+   * Go back to the compiled template of the transaction: the profile values become ordinary values
+   */
+  private void despecialize() {
+    specialized = false;
+    compiledTemplate = merchantTemplate.getBaseCompiledTemplate();
+    layout = merchantTemplate.getBaseLayout();
+    setProfileValues();
+
+    Iterator itr = merchantTemplate.getInlinedComplexRoots().iterator();
+    while (itr.hasNext()) {
+      String complexRootName = (String) itr.next();
+      getUsedComplexRoots().add(complexRootName);
+
+      Template complexRoot = getComplexRootTemplate(complexRootName);
+      Iterator fields = merchantTemplate.getComplexRootFields(complexRootName).entrySet().iterator();
+      while (fields.hasNext()) {
+        Map.Entry field = (Map.Entry) fields.next();
+        int index = complexRoot.getLayout().indexOf((String) field.getKey());
+        if (index >= 0) {
+          complexRoot.setString(index, (String) field.getValue());
         }
       }
+    }
+  }
 
-      field.setValue(value);
+  /**
+   * Set the constant fields of the profile that have no value
+   */
+  private void setProfileValues() {
+    for (int i = 0; i < layout.getFieldCount(); i++) {
+      if (merchantTemplate.isConstant(i) && !hasValue(i)) {
+        setString(i, merchantTemplate.getConstant(i));
+      }
     }
   }
 
-  public void setFieldValue(String name, String value) throws FieldNotFoundException {
-    setField(name, value);
+  private void setString(int index, String value) {
+    if (specialized && merchantTemplate.isConstant(index)) {
+      despecialize();
+    }
+    if (values == null) {
+      values = new String[layout.getFieldCount()];
+    }
+    values[index] = value;
+
+    if (digits != null) {
+      digits[index] = 0;
+    }
+  }
+
+  private void setNumber(int index, long value, int minimumDigits) {
+    Digits.check(layout.getName(index), value, minimumDigits);
+    if (specialized && merchantTemplate.isConstant(index)) {
+      despecialize();
+    }
+
+    if (numbers == null) {
+      numbers = new long[layout.getFieldCount()];
+      digits = new byte[layout.getFieldCount()];
+    }
+    numbers[index] = value;
+    digits[index] = (byte) Math.max(minimumDigits, 1);
+
+    if (values != null) {
+      values[index] = null;
+    }
+  }
+
+  public String getField(FieldKey key) {
+    if (!getLayout().hasSameFields(key.getLayout())) {
+      // resolved for another template
+      return getField(key.getName());
+    }
+
+    String value = getValue(key.getIndex());
+    if (value == null || value.trim().length() == 0) {
+      return layout.getDefaultValue(key.getIndex());
+    }
+    return value;
   }
 
   public String getField(String name) {
-    Field field = null;
     String returnValue = null;
 
     if (name != null && name.length() > 0) {
 
       // the name of the field being set must be in the required list
       // or the optional list
-      if (this.optionalFields.containsKey(name)) {
-        field = (Field) this.optionalFields.get(name);
-      } else if (this.requiredFields.containsKey(name)) {
-        field = (Field) this.requiredFields.get(name);
-      }
-      if (field != null) {
-        if (field.getValue() == null || field.getValue().trim().length() == 0) {
-          returnValue = field.getDefaultValue();
+      int index = getLayout().indexOf(name);
+
+      if (index >= 0) {
+        String value = getValue(index);
+        if (value == null || value.trim().length() == 0) {
+          returnValue = layout.getDefaultValue(index);
         } else {
-          returnValue = field.getValue();
+          returnValue = value;
         }
       }
     }
@@ -161,44 +384,76 @@ public class Template implements TemplateIF {
     return returnValue;
   }
 
-  public void removeField(String name) {
-    Field field = null;
-
-    if (name != null && name.length() > 0) {
-
-      // the name of the field being set must be in the required list
-      // or the optional list
-      if (this.optionalFields.containsKey(name)) {
-        field = (Field) this.optionalFields.get(name);
-      } else if (this.requiredFields.containsKey(name)) {
-        field = (Field) this.requiredFields.get(name);
-      }
+  /**
+   * @return the value the user set for a field (null if it is not set)
+   */
+  protected String getValue(String name) {
+    int index = getLayout().indexOf(name);
+    return (index < 0) ? null : getValue(index);
+  }
 
-      if (field != null) {
-        field.setValue(null);
-      }
+  /**
+   * @return the value the user set for the field at an index of the layout (null if it is not set); numeric
+   *         values are formatted
+   */
+  protected String getValue(int index) {
+    if (isNumber(index)) {
+      return Digits.toString(numbers[index], digits[index]);
+    }
+    return (values == null) ? null : values[index];
+  }
 
+  /**
+   * @return true if the user set a value for the field at an index of the layout
+   */
+  protected boolean hasValue(int index) {
+    if (isNumber(index)) {
+      return true;
     }
+    String value = (values == null) ? null : values[index];
+    return value != null && value.trim().length() > 0;
   }
 
-  public void clearFields() {
-    Iterator itr = null;
-    Field field = null;
+  /**
+   * @return true if the value of the field at an index of the layout was set as a number
+   */
+  protected boolean isNumber(int index) {
+    return digits != null && digits[index] > 0;
+  }
 
-    itr = this.optionalFields.entrySet().iterator();
+  /**
+   * Write the numeric value of the field at an index of the layout
+   */
+  protected void appendNumber(int index, RequestPayload payload) {
+    payload.appendNumber(numbers[index], digits[index]);
+  }
 
-    while (itr.hasNext()) {
-      field = (Field) ((Entry) itr.next()).getValue();
-      field.setValue(null);
+  public void removeField(String name) {
+    if (name != null && name.length() > 0) {
+      int index = getLayout().indexOf(name);
+      if (index >= 0) {
+        if (specialized && merchantTemplate.isConstant(index)) {
+          despecialize();
+        }
+        if (values != null) {
+          values[index] = null;
+        }
+        if (digits != null) {
+          digits[index] = 0;
+        }
+      }
     }
+  }
 
-    itr = this.requiredFields.entrySet().iterator();
+  public void clearFields() {
+    values = null;
+    numbers = null;
+    digits = null;
 
-    while (itr.hasNext()) {
-      field = (Field) ((Entry) itr.next()).getValue();
-      field.setValue(null);
+    if (merchantTemplate != null && !specialized) {
+      // the profile values are kept
+      setProfileValues();
     }
-
   }
 
   public String getName() {
@@ -217,6 +472,29 @@ public class Template implements TemplateIF {
     this.xml = xml;
   }
 
+  protected CompiledTemplate getCompiledTemplate() {
+    return compiledTemplate;
+  }
+
+  protected void setCompiledTemplate(CompiledTemplate compiledTemplate) {
+    this.compiledTemplate = compiledTemplate;
+  }
+
+  /**
+   * Get the layout of the fields (made from the field maps the first time it is asked for, unless the
+   * TemplateParser has set it)
+   */
+  protected TemplateLayout getLayout() {
+    if (layout == null) {
+      layout = new TemplateLayout(compiledTemplate, requiredFields, optionalFields);
+    }
+    return layout;
+  }
+
+  protected void setLayout(TemplateLayout layout) {
+    this.layout = layout;
+  }
+
   public Map getRecursiveElements() {
     return recursiveElements;
   }
@@ -226,6 +504,9 @@ public class Template implements TemplateIF {
   }
 
   public List getUsedComplexRoots() {
+    if (usedComplexRoots == null) {
+      usedComplexRoots = new ArrayList(2);
+    }
     return usedComplexRoots;
   }
 
@@ -234,31 +515,59 @@ public class Template implements TemplateIF {
   }
 
   public Object clone() {
-    Template newTemplate = new Template(this.name);
+    return deepCopy(null);
+  }
 
-    newTemplate.setXml(this.xml);
-    newTemplate.setChildIndexElement(this.ChildIndexElement);
+  /**
+   * @return a copy of this template with copies of its user data: the field values, the complex roots and the
+   *         recursive elements
+   */
+  private Template deepCopy(Template parent) {
+    Template copy = new Template(this, parent);
+    copy.skipFieldNotFoundException = skipFieldNotFoundException;
+    // a copy of a template that went back to the compiled template of the transaction does too
+    copy.compiledTemplate = compiledTemplate;
+    copy.layout = getLayout();
+    copy.specialized = specialized;
+
+    if (values != null) {
+      copy.values = (String[]) values.clone();
+    }
+    if (numbers != null) {
+      copy.numbers = (long[]) numbers.clone();
+      copy.digits = (byte[]) digits.clone();
+    }
 
-    // even though the following are lists and maps we don't
-    // need to do a deep copy. a reference is good enough
-    newTemplate.setComplexRoots(this.complexRoots);
-    newTemplate.setRecursiveElements(this.recursiveElements);
+    // the complex roots of a prototype hold its own user data
+    Map roots = (prototype == this) ? complexRoots : complexRootCopies;
+    if (roots != null && !roots.isEmpty()) {
+      copy.complexRootCopies = new HashMap(Math.max(4, roots.size() * 2));
+      Iterator itr = roots.entrySet().iterator();
+      while (itr.hasNext()) {
+        Map.Entry entry = (Map.Entry) itr.next();
+        copy.complexRootCopies.put(entry.getKey(), ((Template) entry.getValue()).deepCopy(copy));
+      }
+    }
 
-    // we do need to do a deep copy on these maps since they hold
-    // the user data
-    Iterator optionalFieldItr = optionalFields.entrySet().iterator();
-    while (optionalFieldItr.hasNext()) {
-      Entry entry = (Entry) optionalFieldItr.next();
-      newTemplate.getOptionalFields().put(entry.getKey(), ((Field) entry.getValue()).clone());
+    if (usedComplexRoots != null) {
+      copy.usedComplexRoots = new ArrayList(usedComplexRoots);
     }
 
-    Iterator requiredFieldItr = requiredFields.entrySet().iterator();
-    while (requiredFieldItr.hasNext()) {
-      Entry entry = (Entry) requiredFieldItr.next();
-      newTemplate.getRequiredFields().put(entry.getKey(), ((Field) entry.getValue()).clone());
+    if (userDefinedRecursiveElementsMap != null) {
+      copy.userDefinedRecursiveElementsMap = new HashMap(Math.max(2, userDefinedRecursiveElementsMap.size() * 2));
+      Iterator itr = userDefinedRecursiveElementsMap.entrySet().iterator();
+      while (itr.hasNext()) {
+        Map.Entry entry = (Map.Entry) itr.next();
+        List elements = (List) entry.getValue();
+        List elementCopies = new ArrayList(elements.size());
+        for (int i = 0; i < elements.size(); i++) {
+          elementCopies.add(((Template) elements.get(i)).deepCopy(copy));
+        }
+        copy.userDefinedRecursiveElementsMap.put(entry.getKey(), elementCopies);
+      }
     }
 
-    return newTemplate;
+    return copy;
   }
 
   public void setSkipFieldNotFoundException(boolean bool) {
@@ -274,6 +583,9 @@ public class Template implements TemplateIF {
   }
 
   protected Map getUserDefinedRecursiveElementsMap() {
+    if (userDefinedRecursiveElementsMap == null) {
+      userDefinedRecursiveElementsMap = new HashMap(2);
+    }
     return userDefinedRecursiveElementsMap;
   }
 
@@ -0,0 +1,153 @@
+package com.paymentech.orbital.sdk.request;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * <p><b>Title:</b> TemplateLayout</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> The fields of a parsed template, numbered once: their (interned) names,
+ * default values and whether they are required, and the field written by each field slot of the compiled
+ * template.  The layout is immutable and shared by every copy of the template; a copy only keeps an array of
+ * the values the user set, indexed like the layout. </p>
+ */
+public class TemplateLayout {
+
+  // names and indexes are shared by the layouts specialized for a merchant profile
+  private final String[] names;
+  private final String[] defaultValues;
+  private final boolean[] required;
+  // field index of each name
+  private final Map indexes;
+  // field index written by each segment of the compiled template (-1 if none)
+  private final int[] segmentFields;
+
+  /**
+   * @param compiledTemplate the compiled template (null if the template has no xml)
+   * @param requiredFields   the required fields of the template
+   * @param optionalFields   the optional fields of the template
+   */
+  public TemplateLayout(CompiledTemplate compiledTemplate, Map requiredFields, Map optionalFields) {
+    int count = requiredFields.size();
+    Iterator itr = optionalFields.keySet().iterator();
+    while (itr.hasNext()) {
+      if (!requiredFields.containsKey(itr.next())) {
+        count++;
+      }
+    }
+
+    names = new String[count];
+    defaultValues = new String[count];
+    required = new boolean[count];
+    indexes = new HashMap(count * 2);
+
+    // required fields first, in the order they are validated
+    int index = 0;
+    itr = requiredFields.values().iterator();
+    while (itr.hasNext()) {
+      Field field = (Field) itr.next();
+      Field optional = (Field) optionalFields.get(field.getName());
+      names[index] = field.getName().intern();
+      // a field that is also optional takes its default value from there
+      defaultValues[index] = (optional == null) ? field.getDefaultValue() : optional.getDefaultValue();
+      required[index] = true;
+      indexes.put(names[index], Integer.valueOf(index));
+      index++;
+    }
+
+    itr = optionalFields.values().iterator();
+    while (itr.hasNext()) {
+      Field field = (Field) itr.next();
+      if (!indexes.containsKey(field.getName())) {
+        names[index] = field.getName().intern();
+        defaultValues[index] = field.getDefaultValue();
+        indexes.put(names[index], Integer.valueOf(index));
+        index++;
+      }
+    }
+
+    if (compiledTemplate == null) {
+      segmentFields = new int[0];
+    } else {
+      segmentFields = new int[compiledTemplate.getSegmentCount()];
+      for (int i = 0; i < segmentFields.length; i++) {
+        segmentFields[i] = (compiledTemplate.getKind(i) == CompiledTemplate.FIELD)
+            ? indexOf(compiledTemplate.getText(i)) : -1;
+      }
+    }
+  }
+
+  /**
+   * Create the layout of a template specialized for a merchant profile: the fields are numbered like the base
+   * layout, and the constant fields are neither required nor written by a segment
+   */
+  private TemplateLayout(TemplateLayout base, CompiledTemplate compiledTemplate, String[] constants) {
+    names = base.names;
+    indexes = base.indexes;
+    defaultValues = new String[names.length];
+    required = new boolean[names.length];
+
+    for (int i = 0; i < names.length; i++) {
+      // the value of a constant field is its default, so it can still be read
+      defaultValues[i] = (constants[i] == null) ? base.defaultValues[i] : constants[i];
+      required[i] = base.required[i] && constants[i] == null;
+    }
+
+    segmentFields = new int[compiledTemplate.getSegmentCount()];
+    for (int i = 0; i < segmentFields.length; i++) {
+      segmentFields[i] = (compiledTemplate.getKind(i) == CompiledTemplate.FIELD)
+          ? indexOf(compiledTemplate.getText(i)) : -1;
+    }
+  }
+
+  /**
+   * @return the layout of this template specialized for constant field values
+   */
+  TemplateLayout specialize(CompiledTemplate compiledTemplate, String[] constants) {
+    return new TemplateLayout(this, compiledTemplate, constants);
+  }
+
+  /**
+   * @return true if a layout numbers the fields like this one (it is this layout, or one specialized from the
+   *         same template)
+   */
+  boolean hasSameFields(TemplateLayout other) {
+    return other != null && other.names == names;
+  }
+
+  /**
+   * @return the index of a field, or -1 if the template has no such field
+   */
+  public int indexOf(String name) {
+    Integer index = (Integer) indexes.get(name);
+    return (index == null) ? -1 : index.intValue();
+  }
+
+  public int getFieldCount() {
+    return names.length;
+  }
+
+  public String getName(int index) {
+    return names[index];
+  }
+
+  public String getDefaultValue(int index) {
+    return defaultValues[index];
+  }
+
+  public boolean isRequired(int index) {
+    return required[index];
+  }
+
+  /**
+   * @return the index of the field written by a segment of the compiled template, or -1 if the segment is not a
+   *         field of this template
+   */
+  int getSegmentField(int segment) {
+    return segmentFields[segment];
+  }
+}
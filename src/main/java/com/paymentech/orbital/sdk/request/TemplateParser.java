@@ -4,6 +4,7 @@ import com.paymentech.eis.tools.StringUtils;
 import com.paymentech.orbital.sdk.configurator.ConfiguratorIF;
 import com.paymentech.orbital.sdk.engine.http.HttpEngineConstants;
 import com.paymentech.orbital.sdk.interfaces.RequestIF;
+import com.paymentech.orbital.sdk.interfaces.TemplateIF;
 import com.paymentech.orbital.sdk.pre40.TransactionMapper;
 import com.paymentech.orbital.sdk.util.exceptions.InitializationException;
 import org.apache.log4j.Logger;
@@ -11,8 +12,14 @@ import org.apache.regexp.RE;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * <p><b>Title:</b> Template</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
@@ -48,8 +55,19 @@ public class TemplateParser {
   private static final String ENFORCE_GREATER_THEN_ZERO = ".EnforceGreaterThanZero";
   private static final String CHILD_INDEX_ELEMENT = ".ChildIndexElement";
   private static final String MAX_COUNT = ".MaxCount";
+  // compile the templates without the whitespace between elements and the empty optional elements
+  private static final String COMPACT_REQUESTS = "XMLTemplates.CompactRequests";
+  // elements that are sent even when they are empty, in addition to DTD_REQUIRED_ELEMENTS (comma separated)
+  private static final String COMPACT_REQUIRED_ELEMENTS = "XMLTemplates.CompactRequests.RequiredElements";
+  // elements the DTD requires that the templates give an empty default value
+  private static final String[] DTD_REQUIRED_ELEMENTS = {
+      "OrderID", "Amount", "TxRefNum", "TxRefIdx", "CustomerProfileAction", "CustomerProfileOrderOverrideInd",
+      "CustomerProfileFromOrderInd", "CustomerAccountType"};
+  // number of templates specialized for merchant profiles that are kept
+  private static final String MERCHANT_TEMPLATE_CACHE_SIZE = "TemplateParser.MerchantTemplateCacheSize";
+  private static final int DEFAULT_MERCHANT_TEMPLATE_CACHE_SIZE = 4096;
   // instance to this singleton
-  private static TemplateParser singleton = null;
+  private static volatile TemplateParser singleton = null;
   // keep a reference to the Configurations (linehandler.properties)
   private static ConfiguratorIF localConfig = null;
   // map of include template's raw xml content
@@ -60,14 +78,26 @@ public class TemplateParser {
   private static String ptiVersion = null;
   // exact version as number
   private static int versionNumber = 0;
-  // regx to parse out the field names and the include files (using
-  private static String FIELDS_REGX = "\\[%\\s*([^\\s].*?[^\\s])\\s*%\\]";
-  private static String COMPLEX_TYPES_REGX = "\\[#\\s*([^\\s].*?[^\\s])\\s*#\\]";
+  // regx to split the default value from an optional field name
   private static String DEFAULT_VALUES_REGX = "=";
   // regex objects
-  private static RE fieldsRegx = null;
-  private static RE complexTypesRegx = null;
   private static RE defaultValuesRegx = null;
+  // compiled templates keyed by their raw xml content (the field and include
+  // slots are found once, when the template is first loaded)
+  private static Map compiledTemplates = new HashMap();
+  // true if the templates are compiled in compact mode
+  private static boolean compactRequests = false;
+  // elements that compact templates keep even when they are empty
+  private static Set requiredElements = new HashSet(Arrays.asList(DTD_REQUIRED_ELEMENTS));
+  // parsed templates keyed by transaction type; they are never handed out,
+  // every request gets a copy (see Template)
+  private static Map prototypes = new ConcurrentHashMap();
+  // templates specialized for a merchant profile, keyed by profile (its values) and
+  // transaction type; when the cache is full the least recently used tenth is dropped
+  private static final Map merchantPrototypes = new ConcurrentHashMap();
+  private static int merchantTemplateCacheSize = DEFAULT_MERCHANT_TEMPLATE_CACHE_SIZE;
+  // set while a thread drops templates from the cache
+  private static final AtomicBoolean evicting = new AtomicBoolean(false);
   // List of PTI40 templates
   // this will be used to determine if a template needs to be converted from
   // a pre-PTI40 version
@@ -80,7 +110,15 @@ public class TemplateParser {
     ;
   }
 
-  public synchronized static TemplateParser getInstance(ConfiguratorIF config) throws InitializationException {
+  public static TemplateParser getInstance(ConfiguratorIF config) throws InitializationException {
+    TemplateParser parser = singleton;
+    if (parser != null) {
+      return parser;
+    }
+    return createInstance(config);
+  }
+
+  private synchronized static TemplateParser createInstance(ConfiguratorIF config) throws InitializationException {
 
     try {
       if (singleton == null) {
@@ -97,10 +135,21 @@ public class TemplateParser {
 
         // create the regex objects now since there can be
         // some overhead to creating these obects
-        fieldsRegx = new RE(FIELDS_REGX);
-        complexTypesRegx = new RE(COMPLEX_TYPES_REGX);
         defaultValuesRegx = new RE(DEFAULT_VALUES_REGX);
 
+        compactRequests = "true".equalsIgnoreCase((String) config.getConfigurations().get(COMPACT_REQUESTS));
+        String required = (String) config.getConfigurations().get(COMPACT_REQUIRED_ELEMENTS);
+        if (!StringUtils.isEmpty(required)) {
+          String[] names = required.split(",");
+          for (int i = 0; i < names.length; i++) {
+            if (names[i].trim().length() > 0) {
+              requiredElements.add(names[i].trim());
+            }
+          }
+        }
+
+        merchantTemplateCacheSize = getMerchantTemplateCacheSize(config);
+
         // fill the PTI40
         pti40List.add(RequestIF.NEW_ORDER_TRANSACTION);
         pti40List.add(RequestIF.END_OF_DAY_TRANSACTION);
@@ -122,6 +171,21 @@ public class TemplateParser {
     return singleton;
   }
 
+  private static int getMerchantTemplateCacheSize(ConfiguratorIF config) {
+    String cacheSize = (String) config.getConfigurations().get(MERCHANT_TEMPLATE_CACHE_SIZE);
+
+    if (StringUtils.isEmpty(cacheSize)) {
+      return DEFAULT_MERCHANT_TEMPLATE_CACHE_SIZE;
+    }
+    try {
+      return Math.max(Integer.parseInt(cacheSize.trim()), 1);
+    } catch (NumberFormatException nfe) {
+      log.warn("Invalid " + MERCHANT_TEMPLATE_CACHE_SIZE + " [" + cacheSize + "], using "
+          + DEFAULT_MERCHANT_TEMPLATE_CACHE_SIZE);
+      return DEFAULT_MERCHANT_TEMPLATE_CACHE_SIZE;
+    }
+  }
+
   // used for testing only to manually set the PTIVersion
   protected static void setPTIVersion(String ptiVer) throws InitializationException {
     ptiVersion = ptiVer;
@@ -136,24 +200,243 @@ public class TemplateParser {
     }
   }
 
-  public synchronized Template loadTemplate(String templateName) throws XMLTemplateNotFoundException,
+  public Template loadTemplate(String templateName) throws XMLTemplateNotFoundException,
       InitializationException {
     return loadTemplate(templateName, !(pti40List.contains(templateName)));
   }
 
-  public synchronized Template loadTemplate(String templateName, boolean checkForPriorVersion) throws XMLTemplateNotFoundException,
+  public Template loadTemplate(String templateName, boolean checkForPriorVersion) throws XMLTemplateNotFoundException,
+      InitializationException {
+
+    if (checkForPriorVersion) {
+      try {
+        return TransactionMapper.getMappedTemplate(this, templateName);
+      } catch (XMLTemplateNotFoundException xmle) {
+        throw xmle;
+      } catch (InitializationException ie) {
+        throw ie;
+      } catch (Throwable th) {
+        log.error(th.getMessage(), th);
+        throw new InitializationException(th.getMessage());
+      }
+    }
+
+    // the template is parsed the first time it is used, after that
+    // a request only costs a copy of the parsed template
+    Template prototype = (Template) prototypes.get(templateName);
+    if (prototype == null) {
+      prototype = parseTemplate(templateName);
+    }
+
+    return prototype.copy();
+  }
+
+  /**
+   * Load a template for a merchant profile.  The constant fields and complex roots of the profile are written
+   * into the template the first time it is loaded for the profile, and every request gets a copy of that
+   * specialized template.  Pre-PTI40 transactions get the profile values set as ordinary values.
+   *
+   * @param templateName the transaction type
+   * @param profile      the merchant profile (if null the template is loaded as it is)
+   * @return Template
+   * @throws XMLTemplateNotFoundException if the template does not exist
+   * @throws InitializationException      if the template can't be loaded or specialized for the profile
+   */
+  public Template loadTemplate(String templateName, MerchantProfile profile) throws XMLTemplateNotFoundException,
       InitializationException {
-    Template topLevelTemplate = null;
+
+    if (profile == null) {
+      return loadTemplate(templateName);
+    }
+
+    if (!pti40List.contains(templateName)) {
+      Template template = loadTemplate(templateName);
+      setProfileValues(template, profile);
+      return template;
+    }
+
+    // the profile can't change from now on, so it can be a key of the cache
+    profile.freeze();
+    MerchantKey key = new MerchantKey(profile, templateName);
+    CachedPrototype cached = (CachedPrototype) merchantPrototypes.get(key);
+
+    if (cached == null) {
+      // two threads may specialize the same template, the last one is kept
+      cached = new CachedPrototype(specialize(templateName, profile));
+      merchantPrototypes.put(key, cached);
+      if (merchantPrototypes.size() > merchantTemplateCacheSize) {
+        evictMerchantPrototypes();
+      }
+    } else {
+      cached.lastUsed = System.nanoTime();
+    }
+
+    return cached.prototype.copy();
+  }
+
+  /**
+   * Drop the least recently used tenth of the specialized templates (only one thread at a time does it, the
+   * others go on without waiting)
+   */
+  private static void evictMerchantPrototypes() {
+    if (!evicting.compareAndSet(false, true)) {
+      return;
+    }
 
     try {
+      Map.Entry[] entries = (Map.Entry[]) merchantPrototypes.entrySet().toArray(new Map.Entry[0]);
+      int keep = merchantTemplateCacheSize - merchantTemplateCacheSize / 10;
+      if (entries.length <= keep) {
+        return;
+      }
+
+      long[] lastUsed = new long[entries.length];
+      for (int i = 0; i < entries.length; i++) {
+        lastUsed[i] = ((CachedPrototype) entries[i].getValue()).lastUsed;
+      }
+      Arrays.sort(lastUsed);
+      long cutoff = lastUsed[entries.length - keep - 1];
 
-      if (checkForPriorVersion) {
-        topLevelTemplate = TransactionMapper.getMappedTemplate(this, templateName);
-        return topLevelTemplate;
-      } else {
-        // create a new Template class
-        topLevelTemplate = new Template(templateName);
+      for (int i = 0; i < entries.length; i++) {
+        CachedPrototype cached = (CachedPrototype) entries[i].getValue();
+        if (cached.lastUsed - cutoff <= 0) {
+          merchantPrototypes.remove(entries[i].getKey(), cached);
+        }
       }
+    } finally {
+      evicting.set(false);
+    }
+  }
+
+  // for testing only
+  static int getMerchantTemplateCount() {
+    return merchantPrototypes.size();
+  }
+
+  // for testing only
+  static int getMerchantTemplateCacheSize() {
+    return merchantTemplateCacheSize;
+  }
+
+  // for testing only
+  static void setMerchantTemplateCacheSize(int cacheSize) {
+    merchantTemplateCacheSize = cacheSize;
+  }
+
+  private Template specialize(String templateName, MerchantProfile profile) throws XMLTemplateNotFoundException,
+      InitializationException {
+    Template base = (Template) prototypes.get(templateName);
+    if (base == null) {
+      base = parseTemplate(templateName);
+    }
+
+    // the fields of the profile that the template has
+    TemplateLayout layout = base.getLayout();
+    String[] constants = new String[layout.getFieldCount()];
+    boolean specialized = false;
+
+    Iterator itr = profile.getFields().entrySet().iterator();
+    while (itr.hasNext()) {
+      Map.Entry entry = (Map.Entry) itr.next();
+      int index = layout.indexOf((String) entry.getKey());
+      if (index >= 0) {
+        constants[index] = (String) entry.getValue();
+        specialized = true;
+      }
+    }
+
+    // the complex roots of the profile that the template includes
+    Map includes = new HashMap();
+    itr = profile.getComplexRoots().entrySet().iterator();
+    while (itr.hasNext()) {
+      Map.Entry entry = (Map.Entry) itr.next();
+      String complexRoot = (String) entry.getKey();
+      if (base.getComplexRoots().containsKey(complexRoot)
+          && !base.getRecursiveElements().containsKey(complexRoot)) {
+        includes.put(complexRoot, renderComplexRoot(base, complexRoot, (Map) entry.getValue(), profile));
+        specialized = true;
+      }
+    }
+
+    if (!specialized) {
+      return base;
+    }
+
+    CompiledTemplate compiledTemplate = base.getCompiledTemplate().specialize(layout, constants, includes);
+    MerchantTemplate merchantTemplate = new MerchantTemplate(profile, base.getCompiledTemplate(), layout,
+        constants, includes.keySet());
+
+    log.debug("Specialized template [" + templateName + "] for " + profile);
+
+    return new Template(base, merchantTemplate, compiledTemplate, layout.specialize(compiledTemplate, constants));
+  }
+
+  private String renderComplexRoot(Template base, String complexRootName, Map fields, MerchantProfile profile)
+      throws InitializationException {
+    Template complexRoot = base.copy().getComplexRootTemplate(complexRootName);
+
+    try {
+      Iterator itr = fields.entrySet().iterator();
+      while (itr.hasNext()) {
+        Map.Entry entry = (Map.Entry) itr.next();
+        complexRoot.setField((String) entry.getKey(), (String) entry.getValue());
+      }
+
+      RequestPayload payload = new RequestPayload(complexRoot.getCompiledTemplate().getLiteralByteLength() + 256);
+      RequestBuilder.buildComplexRoot(log, complexRoot, payload);
+      return payload.toString();
+    } catch (Exception e) {
+      throw new InitializationException("Invalid complex root [" + complexRootName + "] in " + profile + ": "
+          + e.getMessage());
+    }
+  }
+
+  private void setProfileValues(Template template, MerchantProfile profile) throws InitializationException {
+    TemplateLayout layout = template.getLayout();
+
+    try {
+      // the values set by the transaction mapper are kept
+      Iterator itr = profile.getFields().entrySet().iterator();
+      while (itr.hasNext()) {
+        Map.Entry entry = (Map.Entry) itr.next();
+        int index = layout.indexOf((String) entry.getKey());
+        if (index >= 0 && !template.hasValue(index)) {
+          template.setField((String) entry.getKey(), (String) entry.getValue());
+        }
+      }
+
+      itr = profile.getComplexRoots().entrySet().iterator();
+      while (itr.hasNext()) {
+        Map.Entry entry = (Map.Entry) itr.next();
+        String complexRootName = (String) entry.getKey();
+        if (template.getComplexRoots().containsKey(complexRootName)
+            && !template.getRecursiveElements().containsKey(complexRootName)) {
+          TemplateIF complexRoot = template.getComplexRoot(complexRootName);
+          Iterator fields = ((Map) entry.getValue()).entrySet().iterator();
+          while (fields.hasNext()) {
+            Map.Entry field = (Map.Entry) fields.next();
+            complexRoot.setField((String) field.getKey(), (String) field.getValue());
+          }
+        }
+      }
+    } catch (Exception e) {
+      throw new InitializationException("Failed to set the values of " + profile + ": " + e.getMessage());
+    }
+  }
+
+  private synchronized Template parseTemplate(String templateName) throws XMLTemplateNotFoundException,
+      InitializationException {
+    Template topLevelTemplate = (Template) prototypes.get(templateName);
+
+    if (topLevelTemplate != null) {
+      // parsed by another thread while this one was waiting
+      return topLevelTemplate;
+    }
+
+    try {
+
+      // create a new Template class
+      topLevelTemplate = new Template(templateName);
 
       // get the template from the rawXMLTemplate map
       String rawXML = (String) localConfig.getXmlTemplates().get(templateName);
@@ -165,16 +448,21 @@ public class TemplateParser {
       }
 
       topLevelTemplate.setXml(rawXML);
+      topLevelTemplate.setCompiledTemplate(compile(rawXML));
 
       // first, parse out the fields
-      List fieldsList = parseOnExpression(fieldsRegx, rawXML);
+      List fieldsList = topLevelTemplate.getCompiledTemplate().getFieldTags();
 
       // seperate the fields into complex and optional fields
       parseFields(topLevelTemplate, fieldsList);
+      topLevelTemplate.setLayout(new TemplateLayout(topLevelTemplate.getCompiledTemplate(),
+          topLevelTemplate.getRequiredFields(), topLevelTemplate.getOptionalFields()));
 
       // set the complex roots if any
       setComplexRoots(topLevelTemplate);
 
+      prototypes.put(templateName, topLevelTemplate);
+
     } catch (XMLTemplateNotFoundException xmle) {
       throw xmle;
     } catch (Throwable th) {
@@ -188,7 +476,7 @@ public class TemplateParser {
   private void setComplexRoots(Template parent) throws InitializationException {
 
     // see if this template has any complex roots
-    List complexTypesList = parseOnExpression(complexTypesRegx, parent.getXml());
+    List complexTypesList = parent.getCompiledTemplate().getIncludeNames();
 
     if (complexTypesList.size() > 0) {
 
@@ -211,6 +499,7 @@ public class TemplateParser {
           childTemplate.setXml(localConfig.getTemplateLoader().loadTemplate(filePath));
           rawIncludeXMLContent.put(childTemplateName, childTemplate.getXml());
         }
+        childTemplate.setCompiledTemplate(compile(childTemplate.getXml()));
 
         // call this function again so we can continue down the rabbit hole
         setComplexRoots(childTemplate);
@@ -220,9 +509,12 @@ public class TemplateParser {
         // passed in (confused yet?)
 
         // now that we have the content, we can strip out the fields
-        List fieldsList = parseOnExpression(fieldsRegx, childTemplate.getXml());
+        List fieldsList = childTemplate.getCompiledTemplate().getFieldTags();
         parseFields(childTemplate, fieldsList);
 
+        childTemplate.setLayout(new TemplateLayout(childTemplate.getCompiledTemplate(),
+            childTemplate.getRequiredFields(), childTemplate.getOptionalFields()));
+
         // set up the recursive elements (if any)
         setRecursiveElements(childTemplate);
 
@@ -311,38 +603,78 @@ public class TemplateParser {
               new Field(optionalSplit[0].trim()));
         }
       }
-      // Check the username & password is in the template
-      String userName = (String) localConfig.getConfigurations().get("OrbitalConnectionUsername");
-      String password = (String) localConfig.getConfigurations().get("OrbitalConnectionPassword");
-      if (template.getOptionalFields().containsKey("OrbitalConnectionUsername") && userName != null) {
-        template.getOptionalFields().put("OrbitalConnectionUsername",
-            new Field("OrbitalConnectionUsername", userName));
-      }
-      if (template.getRequiredFields().containsKey("OrbitalConnectionUsername") && userName != null) {
-        template.getOptionalFields().put("OrbitalConnectionUsername",
-            new Field("OrbitalConnectionUsername", userName));
-      }
-      if (template.getOptionalFields().containsKey("OrbitalConnectionPassword") && password != null) {
-        template.getOptionalFields().put("OrbitalConnectionPassword",
-            new Field("OrbitalConnectionPassword", password));
-      }
-      if (template.getRequiredFields().containsKey("OrbitalConnectionPassword") && password != null) {
-        template.getOptionalFields().put("OrbitalConnectionPassword",
-            new Field("OrbitalConnectionPassword", password));
-      }
+    }
+
+    // Check the username & password is in the template (once all the fields are known)
+    String userName = (String) localConfig.getConfigurations().get("OrbitalConnectionUsername");
+    String password = (String) localConfig.getConfigurations().get("OrbitalConnectionPassword");
+    if (template.getOptionalFields().containsKey("OrbitalConnectionUsername") && userName != null) {
+      template.getOptionalFields().put("OrbitalConnectionUsername",
+          new Field("OrbitalConnectionUsername", userName));
+    }
+    if (template.getRequiredFields().containsKey("OrbitalConnectionUsername") && userName != null) {
+      template.getOptionalFields().put("OrbitalConnectionUsername",
+          new Field("OrbitalConnectionUsername", userName));
+    }
+    if (template.getOptionalFields().containsKey("OrbitalConnectionPassword") && password != null) {
+      template.getOptionalFields().put("OrbitalConnectionPassword",
+          new Field("OrbitalConnectionPassword", password));
+    }
+    if (template.getRequiredFields().containsKey("OrbitalConnectionPassword") && password != null) {
+      template.getOptionalFields().put("OrbitalConnectionPassword",
+          new Field("OrbitalConnectionPassword", password));
     }
   }
 
-  private List parseOnExpression(RE r, String rawXML) {
-    List list = new ArrayList();
-    int position = 0;
+  private CompiledTemplate compile(String rawXML) {
+    CompiledTemplate compiledTemplate = (CompiledTemplate) compiledTemplates.get(rawXML);
 
-    while (r.match(rawXML, position)) {
-      list.add(r.getParen(1));
-      position = r.getParenEnd(1);
+    if (compiledTemplate == null) {
+      compiledTemplate = CompiledTemplate.compile(rawXML, compactRequests, requiredElements);
+      compiledTemplates.put(rawXML, compiledTemplate);
     }
 
-    return list;
+    return compiledTemplate;
+  }
+
+  /**
+   * Key of a template specialized for a merchant profile (profiles are compared by value, so equal profiles share
+   * their specialized templates)
+   */
+  private static final class MerchantKey {
+
+    private final MerchantProfile profile;
+    private final String templateName;
+
+    MerchantKey(MerchantProfile profile, String templateName) {
+      this.profile = profile;
+      this.templateName = templateName;
+    }
+
+    public boolean equals(Object o) {
+      if (!(o instanceof MerchantKey)) {
+        return false;
+      }
+      MerchantKey other = (MerchantKey) o;
+      return templateName.equals(other.templateName) && profile.equals(other.profile);
+    }
+
+    public int hashCode() {
+      return profile.hashCode() * 31 + templateName.hashCode();
+    }
+  }
+
+  /**
+   * A specialized template and the time it was last used
+   */
+  private static final class CachedPrototype {
+
+    private final Template prototype;
+    private volatile long lastUsed = System.nanoTime();
+
+    CachedPrototype(Template prototype) {
+      this.prototype = prototype;
+    }
   }
 
 }
@@ -0,0 +1,97 @@
+package com.paymentech.orbital.sdk.response;
+
+/**
+ * <p><b>Title:</b> AccountUpdaterResponseView</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights
+ * reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> The typed values of an account updater response (AccountUpdaterResp).  The
+ * process status and its message are the profile ones (ProfileProcStatus and CustomerProfileMessage). </p>
+ */
+public final class AccountUpdaterResponseView extends ResponseView {
+
+  private static final int FIRST = ResponseView.FIELDS.size();
+  private static final int PROFILE_PROC_STATUS = 0;
+  private static final int PROFILE_MESSAGE = 1;
+  private static final int CUSTOMER_BIN = 2;
+  private static final int CUSTOMER_MERCHANT_ID = 3;
+  private static final int CUSTOMER_REF_NUM = 4;
+  private static final int PROFILE_ACTION = 5;
+  private static final int SCHEDULED_DATE = 6;
+  private static final FieldTable FIELDS = new FieldTable(ResponseView.FIELDS, new String[]{
+      Response.PROFILE_PROC_STATUS, Response.PROFILE_STATUS_MESSAGE, "CustomerBin", "CustomerMerchantID",
+      "CustomerRefNum", "CustomerProfileAction", "ScheduledDate"});
+
+  private String customerBin;
+  private String customerMerchantId;
+  private String customerRefNum;
+  private int profileAction = NONE;
+  private String scheduledDate;
+
+  AccountUpdaterResponseView(String rootElement) {
+    super(rootElement);
+  }
+
+  FieldTable getFields() {
+    return FIELDS;
+  }
+
+  void setField(int field, ResponseIndex index, int entry) {
+    switch (field - FIRST) {
+      case PROFILE_PROC_STATUS:
+        procStatus = toInt(index, entry);
+        break;
+      case PROFILE_MESSAGE:
+        statusMessage = index.getValue(entry);
+        break;
+      case CUSTOMER_BIN:
+        customerBin = index.getValue(entry);
+        break;
+      case CUSTOMER_MERCHANT_ID:
+        customerMerchantId = index.getValue(entry);
+        break;
+      case CUSTOMER_REF_NUM:
+        customerRefNum = index.getValue(entry);
+        break;
+      case PROFILE_ACTION:
+        profileAction = toCode(index, entry, ProfileResponseView.PROFILE_ACTIONS);
+        break;
+      case SCHEDULED_DATE:
+        scheduledDate = index.getValue(entry);
+        break;
+      default:
+        // the ProcStatus and StatusMsg of an account updater response are not its status
+        if (field == RESP_TIME) {
+          super.setField(field, index, entry);
+        }
+    }
+  }
+
+  public String getCustomerBin() {
+    return customerBin;
+  }
+
+  public String getCustomerMerchantId() {
+    return customerMerchantId;
+  }
+
+  public String getCustomerRefNum() {
+    return customerRefNum;
+  }
+
+  /**
+   * @return the profile action (ProfileResponseView.CREATE, READ, UPDATE, DELETE, or NONE)
+   */
+  public int getProfileAction() {
+    return profileAction;
+  }
+
+  /**
+   * @return the date the account update is scheduled for
+   */
+  public String getScheduledDate() {
+    return scheduledDate;
+  }
+}
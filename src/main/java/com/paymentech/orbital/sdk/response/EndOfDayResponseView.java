@@ -0,0 +1,72 @@
+package com.paymentech.orbital.sdk.response;
+
+/**
+ * <p><b>Title:</b> EndOfDayResponseView</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> The typed values of an end of day (batch settlement) response
+ * (EndOfDayResp). </p>
+ */
+public final class EndOfDayResponseView extends ResponseView {
+
+  private static final int FIRST = ResponseView.FIELDS.size();
+  private static final int BIN = 0;
+  private static final int MERCHANT_ID = 1;
+  private static final int TERMINAL_ID = 2;
+  private static final int BATCH_SEQ_NUM = 3;
+  private static final FieldTable FIELDS = new FieldTable(ResponseView.FIELDS, new String[]{
+      "BIN", "MerchantID", "TerminalID", "BatchSeqNum"});
+
+  private String bin;
+  private String merchantId;
+  private String terminalId;
+  private int batchSeqNum = NONE;
+
+  EndOfDayResponseView(String rootElement) {
+    super(rootElement);
+  }
+
+  FieldTable getFields() {
+    return FIELDS;
+  }
+
+  void setField(int field, ResponseIndex index, int entry) {
+    switch (field - FIRST) {
+      case BIN:
+        bin = index.getValue(entry);
+        break;
+      case MERCHANT_ID:
+        merchantId = index.getValue(entry);
+        break;
+      case TERMINAL_ID:
+        terminalId = index.getValue(entry);
+        break;
+      case BATCH_SEQ_NUM:
+        batchSeqNum = toInt(index, entry);
+        break;
+      default:
+        super.setField(field, index, entry);
+    }
+  }
+
+  public String getBin() {
+    return bin;
+  }
+
+  public String getMerchantId() {
+    return merchantId;
+  }
+
+  public String getTerminalId() {
+    return terminalId;
+  }
+
+  /**
+   * @return the sequence number of the settled batch (NONE if the message does not have one)
+   */
+  public int getBatchSeqNum() {
+    return batchSeqNum;
+  }
+}
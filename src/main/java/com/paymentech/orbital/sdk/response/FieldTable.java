@@ -0,0 +1,69 @@
+package com.paymentech.orbital.sdk.response;
+
+/**
+ * <p><b>Title:</b> FieldTable</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> The element names read by a response view, hashed so that the field of an
+ * element of the index is found without taking its name out of the message.  A table extends the table of the
+ * view it is built on: its fields are numbered after the fields of that table. </p>
+ */
+final class FieldTable {
+
+  private final String[] names;
+  private final int[] hashes;
+  // open addressing table of the fields (field + 1, 0 if the slot is empty)
+  private final int[] slots;
+
+  /**
+   * @param parent the table of the fields this one extends (or null)
+   * @param names  the element names of the new fields
+   */
+  FieldTable(FieldTable parent, String[] names) {
+    int first = (parent == null) ? 0 : parent.size();
+    this.names = new String[first + names.length];
+    if (parent != null) {
+      System.arraycopy(parent.names, 0, this.names, 0, first);
+    }
+    System.arraycopy(names, 0, this.names, first, names.length);
+
+    int size = 16;
+    while (size < this.names.length * 2) {
+      size *= 2;
+    }
+    hashes = new int[this.names.length];
+    slots = new int[size];
+    for (int field = 0; field < this.names.length; field++) {
+      hashes[field] = this.names[field].hashCode();
+      int slot = hashes[field] & (size - 1);
+      while (slots[slot] != 0) {
+        slot = (slot + 1) & (size - 1);
+      }
+      slots[slot] = field + 1;
+    }
+  }
+
+  /**
+   * @return the number of fields
+   */
+  int size() {
+    return names.length;
+  }
+
+  /**
+   * @return the field of an element of an index, or -1 if the element is not read
+   */
+  int find(ResponseIndex index, int entry) {
+    int hash = index.getHash(entry);
+    int mask = slots.length - 1;
+    for (int slot = hash & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+      int field = slots[slot] - 1;
+      if (hashes[field] == hash && index.nameEquals(entry, names[field])) {
+        return field;
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,211 @@
+package com.paymentech.orbital.sdk.response;
+
+/**
+ * <p><b>Title:</b> FlexCacheResponseView</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights
+ * reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> The typed values of a gift card (FlexCache) response (FlexCacheResp). </p>
+ */
+public final class FlexCacheResponseView extends ResponseView {
+
+  /**
+   * Approval statuses (any status above APPROVED is an error)
+   */
+  public static final int DECLINED = 0;
+  public static final int APPROVED = 1;
+
+  private static final int FIRST = ResponseView.FIELDS.size();
+  private static final int MERCHANT_ID = 0;
+  private static final int TERMINAL_ID = 1;
+  private static final int ORDER_ID = 2;
+  private static final int ACCOUNT_NUM = 3;
+  private static final int START_ACCOUNT_NUM = 4;
+  private static final int FLEX_ACTION = 5;
+  private static final int TXREF_NUM = 6;
+  private static final int TXREF_IDX = 7;
+  private static final int APPROVAL_STATUS = 8;
+  private static final int RESP_CODE = 9;
+  private static final int AUTH_CODE = 10;
+  private static final int BALANCE = 11;
+  private static final int PRIOR_BALANCE = 12;
+  private static final int REQUESTED_AMOUNT = 13;
+  private static final int REDEEMED_AMOUNT = 14;
+  private static final int BATCH_FAILED_ACCOUNT_NUM = 15;
+  private static final FieldTable FIELDS = new FieldTable(ResponseView.FIELDS, new String[]{
+      "MerchantID", "TerminalID", "OrderID", "AccountNum", "StartAccountNum", "FlexAction", Response.TXREF_NUM,
+      "TxRefIdx", Response.APPROVAL_STATUS, Response.RESP_CODE, Response.AUTH_CODE, "FlexAcctBalance",
+      "FlexAcctPriorBalance", "FlexRequestedAmount", "FlexRedeemedAmt", "BatchFailedAcctNum"});
+
+  private String merchantId;
+  private String terminalId;
+  private String orderId;
+  private String accountNum;
+  private String startAccountNum;
+  private String flexAction;
+  private String txRefNum;
+  private int txRefIdx = NONE;
+  private int approvalStatus = NONE;
+  private String respCode;
+  private String authCode;
+  private long balance = NONE;
+  private long priorBalance = NONE;
+  private long requestedAmount = NONE;
+  private long redeemedAmount = NONE;
+  private String batchFailedAccountNum;
+
+  FlexCacheResponseView(String rootElement) {
+    super(rootElement);
+  }
+
+  FieldTable getFields() {
+    return FIELDS;
+  }
+
+  void setField(int field, ResponseIndex index, int entry) {
+    switch (field - FIRST) {
+      case MERCHANT_ID:
+        merchantId = index.getValue(entry);
+        break;
+      case TERMINAL_ID:
+        terminalId = index.getValue(entry);
+        break;
+      case ORDER_ID:
+        orderId = index.getValue(entry);
+        break;
+      case ACCOUNT_NUM:
+        accountNum = index.getValue(entry);
+        break;
+      case START_ACCOUNT_NUM:
+        startAccountNum = index.getValue(entry);
+        break;
+      case FLEX_ACTION:
+        flexAction = index.getValue(entry);
+        break;
+      case TXREF_NUM:
+        txRefNum = index.getValue(entry);
+        break;
+      case TXREF_IDX:
+        txRefIdx = toInt(index, entry);
+        break;
+      case APPROVAL_STATUS:
+        approvalStatus = toInt(index, entry);
+        break;
+      case RESP_CODE:
+        respCode = index.getValue(entry);
+        break;
+      case AUTH_CODE:
+        authCode = index.getValue(entry);
+        break;
+      case BALANCE:
+        balance = toAmount(index, entry);
+        break;
+      case PRIOR_BALANCE:
+        priorBalance = toAmount(index, entry);
+        break;
+      case REQUESTED_AMOUNT:
+        requestedAmount = toAmount(index, entry);
+        break;
+      case REDEEMED_AMOUNT:
+        redeemedAmount = toAmount(index, entry);
+        break;
+      case BATCH_FAILED_ACCOUNT_NUM:
+        batchFailedAccountNum = index.getValue(entry);
+        break;
+      default:
+        super.setField(field, index, entry);
+    }
+  }
+
+  /**
+   * @return the approval status (DECLINED, APPROVED, above APPROVED for an error, NONE if the message does not
+   *         have one)
+   */
+  public int getApprovalStatus() {
+    return approvalStatus;
+  }
+
+  public boolean isApproved() {
+    return approvalStatus == APPROVED;
+  }
+
+  public String getMerchantId() {
+    return merchantId;
+  }
+
+  public String getTerminalId() {
+    return terminalId;
+  }
+
+  public String getOrderId() {
+    return orderId;
+  }
+
+  public String getAccountNum() {
+    return accountNum;
+  }
+
+  public String getStartAccountNum() {
+    return startAccountNum;
+  }
+
+  /**
+   * @return the action performed on the card (AUTH, REDEMPTION, ACTIVATE, BALANCEINQUIRY...)
+   */
+  public String getFlexAction() {
+    return flexAction;
+  }
+
+  public String getTxRefNum() {
+    return txRefNum;
+  }
+
+  public int getTxRefIdx() {
+    return txRefIdx;
+  }
+
+  public String getRespCode() {
+    return respCode;
+  }
+
+  public String getAuthCode() {
+    return authCode;
+  }
+
+  /**
+   * @return the balance of the card after the action, in minor units (NONE if the message does not have one)
+   */
+  public long getBalance() {
+    return balance;
+  }
+
+  /**
+   * @return the balance of the card before the action, in minor units (NONE if the message does not have one)
+   */
+  public long getPriorBalance() {
+    return priorBalance;
+  }
+
+  /**
+   * @return the amount requested, in minor units (NONE if the message does not have one)
+   */
+  public long getRequestedAmount() {
+    return requestedAmount;
+  }
+
+  /**
+   * @return the amount redeemed, in minor units (NONE if the message does not have one)
+   */
+  public long getRedeemedAmount() {
+    return redeemedAmount;
+  }
+
+  /**
+   * @return the first card of a block activation that failed (null if the message does not have one)
+   */
+  public String getBatchFailedAccountNum() {
+    return batchFailedAccountNum;
+  }
+}
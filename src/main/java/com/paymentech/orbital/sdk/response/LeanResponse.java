@@ -0,0 +1,500 @@
+package com.paymentech.orbital.sdk.response;
+
+import com.paymentech.orbital.sdk.interfaces.ResponseIF;
+import com.paymentech.orbital.sdk.util.exceptions.InitializationException;
+
+import java.nio.charset.Charset;
+
+/**
+ * <p><b>Title:</b> LeanResponse</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> A response decided from the bytes of the message (see Response.lean_mode in
+ * linehandler.properties).  The bytes are scanned once for the elements that decide a transaction: the approval
+ * and process status are parsed as numbers, the short codes (AVS, CVV2, response codes) are shared constants,
+ * and the other values are decoded when they are first asked for.  The message is not decoded, and no Response
+ * is built, unless the caller asks for the whole message or for another element.
+ * <br><br> A message that the Response would read differently (a comment, an attribute, an element that is not
+ * closed where expected) is handed to a Response as soon as it is scanned, so both give the same results.  A
+ * status the Response fails to parse (a zero padded "000", or a status that is not a number) does not fail the
+ * response: its values are read from the index of the Response, and the status is decided here, a status that is
+ * not a number being an error. </p>
+ */
+public final class LeanResponse implements ResponseIF {
+
+  // elements read from the bytes
+  private static final int APPROVAL_STATUS = 0;
+  private static final int PROC_STATUS = 1;
+  private static final int PROFILE_PROC_STATUS = 2;
+  private static final int AUTH_CODE = 3;
+  private static final int TXREF_NUM = 4;
+  private static final int RESP_CODE = 5;
+  private static final int HOST_RESP_CODE = 6;
+  private static final int AVS_RESP_CODE = 7;
+  private static final int HOST_AVS_RESP_CODE = 8;
+  private static final int CVV2_RESP_CODE = 9;
+  private static final int STATUS_MESSAGE = 10;
+  private static final int PROFILE_STATUS_MESSAGE = 11;
+  private static final int QUICK_RESPONSE = 12;
+  private static final int PROFILE_RESPONSE = 13;
+  private static final int ACUPDT_RESPONSE = 14;
+
+  private static final byte[][] NAMES = {
+      ascii(Response.APPROVAL_STATUS),
+      ascii(Response.PROC_STATUS),
+      ascii(Response.PROFILE_PROC_STATUS),
+      ascii(Response.AUTH_CODE),
+      ascii(Response.TXREF_NUM),
+      ascii(Response.RESP_CODE),
+      ascii(Response.HOST_RESP_CODE),
+      ascii(Response.AVS_RESP_CODE),
+      ascii(Response.HOST_AVS_RESP_CODE),
+      ascii(Response.CVV2_RESP_CODE),
+      ascii(Response.STATUS_MESSAGE),
+      ascii(Response.PROFILE_STATUS_MESSAGE),
+      ascii("QuickResp"),
+      ascii("ProfileResp"),
+      ascii("AccountUpdaterResp")
+  };
+
+  // shared Strings of the codes of one or two printable ASCII characters
+  private static final int PRINTABLE = 95;
+  private static final String[] CODES = new String[PRINTABLE + PRINTABLE * PRINTABLE];
+
+  private final byte[] bytes;
+  private final Charset charset;
+  private final boolean hostResponseType;
+  private final String retryCount;
+  private final String lastRetryAttempt;
+  // value offsets of the elements (-1 if the message does not have the element)
+  private final int[] valueStarts = new int[NAMES.length];
+  private final int[] valueEnds = new int[NAMES.length];
+
+  private boolean quickResponse;
+  private boolean approved = false;
+  private boolean declined = false;
+  private boolean error = false;
+  private int approvalStatus = -1;
+  private int procStatus = -1;
+  private int statusElement;
+  private int messageElement;
+  private int respElement;
+  private int avsElement;
+  // true once a Response has decided the status (false if it could not parse one)
+  private boolean responseDecided = false;
+  // built when they are first needed
+  private String xml = null;
+  private Response response = null;
+
+  /**
+   * @param bytes            the message (owned by the response from now on)
+   * @param charset          the charset of the message
+   * @param responseType     the configured Response.response_type ("host" or "gateway")
+   * @param retryCount       the value of the retry-count header (or null)
+   * @param lastRetryAttempt the value of the last-retry-attempt header (or null)
+   * @throws InitializationException if the message has to be read by a Response, which can't be created
+   */
+  public LeanResponse(byte[] bytes, Charset charset, String responseType, String retryCount,
+                      String lastRetryAttempt) throws InitializationException {
+    this.bytes = bytes;
+    this.charset = charset;
+    this.hostResponseType = Response.HOST_TYPE.equalsIgnoreCase(responseType);
+    this.retryCount = retryCount;
+    this.lastRetryAttempt = lastRetryAttempt;
+
+    if (!scan() || !decide()) {
+      // read the same way as a Response would
+      getResponse();
+    }
+  }
+
+  /**
+   * Find the first occurrence of each element
+   *
+   * @return false if an element is not a simple value
+   */
+  private boolean scan() {
+    for (int i = 0; i < NAMES.length; i++) {
+      valueStarts[i] = -1;
+      valueEnds[i] = -1;
+    }
+
+    int length = bytes.length;
+    for (int position = 0; position < length - 1; position++) {
+      if (bytes[position] != '<') {
+        continue;
+      }
+      byte next = bytes[position + 1];
+      if (next == '!') {
+        // comments and CDATA sections are read by the index
+        return false;
+      }
+      if (next == '/' || next == '?') {
+        continue;
+      }
+
+      int nameStart = position + 1;
+      int nameEnd = nameStart;
+      while (nameEnd < length && isNameByte(bytes[nameEnd])) {
+        nameEnd++;
+      }
+
+      int element = find(nameStart, nameEnd - nameStart);
+      if (element < 0 || valueStarts[element] >= 0) {
+        continue;
+      }
+
+      int tagEnd = nameEnd;
+      while (tagEnd < length && bytes[tagEnd] != '>') {
+        if (bytes[tagEnd] == '"' || bytes[tagEnd] == '\'') {
+          // attribute values are not read
+          return false;
+        }
+        tagEnd++;
+      }
+      if (tagEnd == length) {
+        return false;
+      }
+
+      if (bytes[tagEnd - 1] == '/') {
+        valueStarts[element] = tagEnd + 1;
+        valueEnds[element] = tagEnd + 1;
+      } else if (element >= QUICK_RESPONSE) {
+        // root elements are only looked for
+        valueStarts[element] = tagEnd + 1;
+      } else {
+        // the value runs to the end tag of the element
+        int valueEnd = tagEnd + 1;
+        while (valueEnd < length && bytes[valueEnd] != '<') {
+          valueEnd++;
+        }
+        if (!isEndTag(valueEnd, nameStart, nameEnd - nameStart)) {
+          return false;
+        }
+        valueStarts[element] = tagEnd + 1;
+        valueEnds[element] = valueEnd;
+      }
+      position = tagEnd;
+    }
+    return true;
+  }
+
+  /**
+   * Work out the status of the transaction, like Response.setRawMessage
+   *
+   * @return false if a status is not a number
+   */
+  private boolean decide() {
+    chooseElements(valueStarts[QUICK_RESPONSE] >= 0,
+        valueStarts[PROFILE_RESPONSE] >= 0 || valueStarts[ACUPDT_RESPONSE] >= 0);
+
+    if (hasValue(statusElement)) {
+      procStatus = parseStatus(statusElement);
+      if (procStatus < 0) {
+        return false;
+      }
+    }
+
+    if (hasValue(APPROVAL_STATUS)) {
+      approvalStatus = parseStatus(APPROVAL_STATUS);
+      if (approvalStatus < 0) {
+        return false;
+      }
+      approved = approvalStatus == 1;
+      declined = approvalStatus == 0;
+      error = approvalStatus > 1;
+    } else if (hasValue(statusElement)) {
+      error = procStatus != 0;
+    }
+    return true;
+  }
+
+  /**
+   * Choose the elements that hold the status, the message and the codes
+   */
+  private void chooseElements(boolean quick, boolean profile) {
+    quickResponse = quick;
+    statusElement = profile ? PROFILE_PROC_STATUS : PROC_STATUS;
+    messageElement = profile ? PROFILE_STATUS_MESSAGE : STATUS_MESSAGE;
+    boolean host = hostResponseType && !quickResponse;
+    respElement = host ? HOST_RESP_CODE : RESP_CODE;
+    avsElement = host ? HOST_AVS_RESP_CODE : AVS_RESP_CODE;
+  }
+
+  /**
+   * Work out the status of the transaction from the values of a Response that could not parse it
+   *
+   * @param full the Response (its index is built, its status is not)
+   */
+  private void decide(Response full) {
+    ResponseIndex index = full.getIndex();
+    chooseElements(index.contains("QuickResp"),
+        index.contains("ProfileResp") || index.contains("AccountUpdaterResp"));
+
+    String approval = full.getValue(Response.APPROVAL_STATUS);
+    String status = full.getValue(new String(NAMES[statusElement], charset));
+    approvalStatus = parse(approval);
+    procStatus = parse(status);
+    approved = false;
+    declined = false;
+    if (approval != null && approval.length() > 0) {
+      approved = approvalStatus == 1;
+      declined = approvalStatus == 0;
+      error = !approved && !declined;
+    } else {
+      error = status != null && status.length() > 0 && procStatus != 0;
+    }
+  }
+
+  /**
+   * @return the value of a status element, or -1 if it is not a number
+   */
+  private int parseStatus(int element) {
+    int start = valueStarts[element];
+    int end = valueEnds[element];
+    if (end - start > 9) {
+      return -1;
+    }
+
+    int value = 0;
+    for (int i = start; i < end; i++) {
+      if (bytes[i] < '0' || bytes[i] > '9') {
+        return -1;
+      }
+      value = value * 10 + (bytes[i] - '0');
+    }
+    return value;
+  }
+
+  private boolean hasValue(int element) {
+    return valueStarts[element] >= 0 && valueEnds[element] > valueStarts[element];
+  }
+
+  private int find(int nameStart, int nameLength) {
+    for (int element = 0; element < NAMES.length; element++) {
+      byte[] name = NAMES[element];
+      if (name.length == nameLength && regionMatches(nameStart, name)) {
+        return element;
+      }
+    }
+    return -1;
+  }
+
+  private boolean isEndTag(int position, int nameStart, int nameLength) {
+    if (position + nameLength + 3 > bytes.length || bytes[position + 1] != '/'
+        || bytes[position + nameLength + 2] != '>') {
+      return false;
+    }
+    for (int i = 0; i < nameLength; i++) {
+      if (bytes[position + 2 + i] != bytes[nameStart + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean regionMatches(int position, byte[] name) {
+    for (int i = 0; i < name.length; i++) {
+      if (bytes[position + i] != name[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isNameByte(byte b) {
+    return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9')
+        || b == '_' || b == '-' || b == '.' || b == ':' || b < 0;
+  }
+
+  private static byte[] ascii(String name) {
+    byte[] bytes = new byte[name.length()];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) name.charAt(i);
+    }
+    return bytes;
+  }
+
+  /**
+   * @return the value of an element (null if the message does not have it)
+   */
+  private String value(int element) {
+    if (response != null) {
+      return response.getValue(new String(NAMES[element], charset));
+    }
+    int start = valueStarts[element];
+    if (start < 0) {
+      return null;
+    }
+    return new String(bytes, start, valueEnds[element] - start, charset);
+  }
+
+  /**
+   * @return the value of a code element, shared if it is one or two printable ASCII characters
+   */
+  private String code(int element) {
+    if (response != null) {
+      return value(element);
+    }
+    int start = valueStarts[element];
+    if (start < 0) {
+      return null;
+    }
+
+    int length = valueEnds[element] - start;
+    int index;
+    if (length == 1 && isPrintable(bytes[start])) {
+      index = bytes[start] - ' ';
+    } else if (length == 2 && isPrintable(bytes[start]) && isPrintable(bytes[start + 1])) {
+      index = PRINTABLE + (bytes[start] - ' ') * PRINTABLE + (bytes[start + 1] - ' ');
+    } else {
+      return value(element);
+    }
+
+    // a race only creates the same String twice
+    String code = CODES[index];
+    if (code == null) {
+      code = new String(bytes, start, length, charset);
+      CODES[index] = code;
+    }
+    return code;
+  }
+
+  private static boolean isPrintable(byte b) {
+    return b >= ' ' && b < 127;
+  }
+
+  /**
+   * @return the Response built from the message (built the first time it is asked for)
+   * @throws IllegalStateException if the Response can't be created
+   */
+  public Response getResponse() {
+    if (response == null) {
+      try {
+        Response full = new Response();
+        full.setRetryHeaders(retryCount, lastRetryAttempt);
+        try {
+          full.setRawMessage(toXmlString());
+          responseDecided = true;
+        } catch (NumberFormatException nfe) {
+          // the message is indexed, but the Response could not parse a status
+          decide(full);
+        }
+        response = full;
+      } catch (InitializationException ie) {
+        throw new IllegalStateException("Unable to create a response object: " + ie.getMessage());
+      }
+    }
+    return response;
+  }
+
+  /**
+   * @return the typed values of the message (see ResponseView)
+   */
+  public ResponseView getView() {
+    return getResponse().getView();
+  }
+
+  /**
+   * Approval status, as a number
+   *
+   * @return int The ApprovalStatus, -1 if the message does not have one
+   */
+  public int getApprovalStatus() {
+    return responseDecided ? parse(response.getValue(Response.APPROVAL_STATUS)) : approvalStatus;
+  }
+
+  /**
+   * Process status, as a number
+   *
+   * @return int The ProcStatus (ProfileProcStatus for profile responses), -1 if the message does not have one
+   */
+  public int getProcStatus() {
+    return responseDecided ? parse(response.getStatus()) : procStatus;
+  }
+
+  private static int parse(String status) {
+    try {
+      return (status == null || status.length() == 0) ? -1 : Integer.parseInt(status);
+    } catch (NumberFormatException nfe) {
+      return -1;
+    }
+  }
+
+  public boolean isQuickResponse() {
+    return responseDecided ? response.isQuickResponse() : quickResponse;
+  }
+
+  public boolean isError() {
+    return responseDecided ? response.isError() : error;
+  }
+
+  public boolean isGood() {
+    return responseDecided ? response.isGood() : !error;
+  }
+
+  public boolean isApproved() {
+    return responseDecided ? response.isApproved() : approved;
+  }
+
+  public boolean isDeclined() {
+    return responseDecided ? response.isDeclined() : declined;
+  }
+
+  public String getAuthCode() {
+    return responseDecided ? response.getAuthCode() : value(AUTH_CODE);
+  }
+
+  public String getAVSResponseCode() {
+    return responseDecided ? response.getAVSResponseCode() : code(avsElement);
+  }
+
+  public String getCVV2RespCode() {
+    return responseDecided ? response.getCVV2RespCode() : code(CVV2_RESP_CODE);
+  }
+
+  public String getMessage() {
+    return responseDecided ? response.getMessage() : value(messageElement);
+  }
+
+  public String getStatus() {
+    return responseDecided ? response.getStatus() : value(statusElement);
+  }
+
+  public String getResponseCode() {
+    return responseDecided ? response.getResponseCode() : code(respElement);
+  }
+
+  public String getTxRefNum() {
+    return responseDecided ? response.getTxRefNum() : value(TXREF_NUM);
+  }
+
+  public String getValue(String xmlElementName) {
+    return getResponse().getValue(xmlElementName);
+  }
+
+  public int getRetryCount() {
+    try {
+      return (retryCount == null) ? 0 : Integer.parseInt(retryCount.trim());
+    } catch (NumberFormatException nfe) {
+      return 0;
+    }
+  }
+
+  public String getLastRetryAttempt() {
+    return lastRetryAttempt;
+  }
+
+  public String toXmlString() {
+    if (xml == null) {
+      xml = new String(bytes, charset);
+    }
+    return xml;
+  }
+
+  public String toMaskedXmlString() {
+    return getResponse().toMaskedXmlString();
+  }
+}
@@ -0,0 +1,135 @@
+package com.paymentech.orbital.sdk.response;
+
+/**
+ * <p><b>Title:</b> MarkForCaptureResponseView</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights
+ * reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> The typed values of a mark for capture response (MarkForCaptureResp).  A capture
+ * of part of an authorization splits the order: the new part has its own index (SplitTxRefIdx). </p>
+ */
+public final class MarkForCaptureResponseView extends ResponseView {
+
+  private static final int FIRST = ResponseView.FIELDS.size();
+  private static final int MERCHANT_ID = 0;
+  private static final int TERMINAL_ID = 1;
+  private static final int ORDER_ID = 2;
+  private static final int TXREF_NUM = 3;
+  private static final int TXREF_IDX = 4;
+  private static final int SPLIT_TXREF_IDX = 5;
+  private static final int AMOUNT = 6;
+  private static final int APPROVAL_STATUS = 7;
+  private static final int RESP_CODE = 8;
+  private static final int AUTH_CODE = 9;
+  private static final FieldTable FIELDS = new FieldTable(ResponseView.FIELDS, new String[]{
+      "MerchantID", "TerminalID", "OrderID", Response.TXREF_NUM, "TxRefIdx", "SplitTxRefIdx", "Amount",
+      Response.APPROVAL_STATUS, Response.RESP_CODE, Response.AUTH_CODE});
+
+  private String merchantId;
+  private String terminalId;
+  private String orderId;
+  private String txRefNum;
+  private int txRefIdx = NONE;
+  private int splitTxRefIdx = NONE;
+  private long amount = NONE;
+  private int approvalStatus = NONE;
+  private String respCode;
+  private String authCode;
+
+  MarkForCaptureResponseView(String rootElement) {
+    super(rootElement);
+  }
+
+  FieldTable getFields() {
+    return FIELDS;
+  }
+
+  void setField(int field, ResponseIndex index, int entry) {
+    switch (field - FIRST) {
+      case MERCHANT_ID:
+        merchantId = index.getValue(entry);
+        break;
+      case TERMINAL_ID:
+        terminalId = index.getValue(entry);
+        break;
+      case ORDER_ID:
+        orderId = index.getValue(entry);
+        break;
+      case TXREF_NUM:
+        txRefNum = index.getValue(entry);
+        break;
+      case TXREF_IDX:
+        txRefIdx = toInt(index, entry);
+        break;
+      case SPLIT_TXREF_IDX:
+        splitTxRefIdx = toInt(index, entry);
+        break;
+      case AMOUNT:
+        amount = toAmount(index, entry);
+        break;
+      case APPROVAL_STATUS:
+        approvalStatus = toInt(index, entry);
+        break;
+      case RESP_CODE:
+        respCode = index.getValue(entry);
+        break;
+      case AUTH_CODE:
+        authCode = index.getValue(entry);
+        break;
+      default:
+        super.setField(field, index, entry);
+    }
+  }
+
+  /**
+   * @return the approval status of the authorization made with the capture (NONE if the message does not have
+   *         one, as when the order was already authorized)
+   */
+  public int getApprovalStatus() {
+    return approvalStatus;
+  }
+
+  public String getMerchantId() {
+    return merchantId;
+  }
+
+  public String getTerminalId() {
+    return terminalId;
+  }
+
+  public String getOrderId() {
+    return orderId;
+  }
+
+  public String getTxRefNum() {
+    return txRefNum;
+  }
+
+  public int getTxRefIdx() {
+    return txRefIdx;
+  }
+
+  /**
+   * @return the index of the part of a split order that was captured (NONE if the order was not split)
+   */
+  public int getSplitTxRefIdx() {
+    return splitTxRefIdx;
+  }
+
+  /**
+   * @return the amount captured, in minor units (NONE if the message does not have one)
+   */
+  public long getAmount() {
+    return amount;
+  }
+
+  public String getRespCode() {
+    return respCode;
+  }
+
+  public String getAuthCode() {
+    return authCode;
+  }
+}
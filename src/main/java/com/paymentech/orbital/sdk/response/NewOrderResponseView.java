@@ -0,0 +1,278 @@
+package com.paymentech.orbital.sdk.response;
+
+/**
+ * <p><b>Title:</b> NewOrderResponseView</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> The typed values of a new order response (NewOrderResp), or of the response to
+ * an inquiry (InquiryResp), which returns the result of the order it asks about. </p>
+ */
+public final class NewOrderResponseView extends ResponseView {
+
+  /**
+   * Approval statuses (any status above APPROVED is an error)
+   */
+  public static final int DECLINED = 0;
+  public static final int APPROVED = 1;
+
+  /**
+   * Message types (the codes of MESSAGE_TYPES)
+   */
+  public static final int AUTHORIZATION = 0;
+  public static final int AUTHORIZATION_CAPTURE = 1;
+  public static final int FORCE_CAPTURE = 2;
+  public static final int REFUND = 3;
+
+  private static final String[] MESSAGE_TYPES = {"A", "AC", "FC", "R"};
+
+  private static final int FIRST = ResponseView.FIELDS.size();
+  private static final int INDUSTRY_TYPE = 0;
+  private static final int MESSAGE_TYPE = 1;
+  private static final int MERCHANT_ID = 2;
+  private static final int TERMINAL_ID = 3;
+  private static final int CARD_BRAND = 4;
+  private static final int ORDER_ID = 5;
+  private static final int TXREF_NUM = 6;
+  private static final int TXREF_IDX = 7;
+  private static final int APPROVAL_STATUS = 8;
+  private static final int RESP_CODE = 9;
+  private static final int AVS_RESP_CODE = 10;
+  private static final int CVV2_RESP_CODE = 11;
+  private static final int AUTH_CODE = 12;
+  private static final int HOST_RESP_CODE = 13;
+  private static final int HOST_AVS_RESP_CODE = 14;
+  private static final int HOST_CVV2_RESP_CODE = 15;
+  private static final int CUSTOMER_REF_NUM = 16;
+  private static final int PARTIAL_AUTH_OCCURRED = 17;
+  private static final int REQUESTED_AMOUNT = 18;
+  private static final int REDEEMED_AMOUNT = 19;
+  private static final int REMAINING_BALANCE = 20;
+  private static final FieldTable FIELDS = new FieldTable(ResponseView.FIELDS, new String[]{
+      "IndustryType", "MessageType", "MerchantID", "TerminalID", "CardBrand", "OrderID",
+      Response.TXREF_NUM, "TxRefIdx", Response.APPROVAL_STATUS, Response.RESP_CODE, Response.AVS_RESP_CODE,
+      Response.CVV2_RESP_CODE, Response.AUTH_CODE, Response.HOST_RESP_CODE, Response.HOST_AVS_RESP_CODE,
+      "HostCVV2RespCode", "CustomerRefNum", "PartialAuthOccurred", "RequestedAmount", "RedeemedAmount",
+      "RemainingBalance"});
+
+  private String industryType;
+  private int messageType = NONE;
+  private String merchantId;
+  private String terminalId;
+  private String cardBrand;
+  private String orderId;
+  private String txRefNum;
+  private int txRefIdx = NONE;
+  private int approvalStatus = NONE;
+  private String respCode;
+  private String avsRespCode;
+  private String cvv2RespCode;
+  private String authCode;
+  private String hostRespCode;
+  private String hostAvsRespCode;
+  private String hostCvv2RespCode;
+  private String customerRefNum;
+  private boolean partialAuthOccurred = false;
+  private long requestedAmount = NONE;
+  private long redeemedAmount = NONE;
+  private long remainingBalance = NONE;
+
+  NewOrderResponseView(String rootElement) {
+    super(rootElement);
+  }
+
+  FieldTable getFields() {
+    return FIELDS;
+  }
+
+  void setField(int field, ResponseIndex index, int entry) {
+    switch (field - FIRST) {
+      case INDUSTRY_TYPE:
+        industryType = index.getValue(entry);
+        break;
+      case MESSAGE_TYPE:
+        messageType = toCode(index, entry, MESSAGE_TYPES);
+        break;
+      case MERCHANT_ID:
+        merchantId = index.getValue(entry);
+        break;
+      case TERMINAL_ID:
+        terminalId = index.getValue(entry);
+        break;
+      case CARD_BRAND:
+        cardBrand = index.getValue(entry);
+        break;
+      case ORDER_ID:
+        orderId = index.getValue(entry);
+        break;
+      case TXREF_NUM:
+        txRefNum = index.getValue(entry);
+        break;
+      case TXREF_IDX:
+        txRefIdx = toInt(index, entry);
+        break;
+      case APPROVAL_STATUS:
+        approvalStatus = toInt(index, entry);
+        break;
+      case RESP_CODE:
+        respCode = index.getValue(entry);
+        break;
+      case AVS_RESP_CODE:
+        avsRespCode = index.getValue(entry);
+        break;
+      case CVV2_RESP_CODE:
+        cvv2RespCode = index.getValue(entry);
+        break;
+      case AUTH_CODE:
+        authCode = index.getValue(entry);
+        break;
+      case HOST_RESP_CODE:
+        hostRespCode = index.getValue(entry);
+        break;
+      case HOST_AVS_RESP_CODE:
+        hostAvsRespCode = index.getValue(entry);
+        break;
+      case HOST_CVV2_RESP_CODE:
+        hostCvv2RespCode = index.getValue(entry);
+        break;
+      case CUSTOMER_REF_NUM:
+        customerRefNum = index.getValue(entry);
+        break;
+      case PARTIAL_AUTH_OCCURRED:
+        partialAuthOccurred = toBoolean(index, entry);
+        break;
+      case REQUESTED_AMOUNT:
+        requestedAmount = toAmount(index, entry);
+        break;
+      case REDEEMED_AMOUNT:
+        redeemedAmount = toAmount(index, entry);
+        break;
+      case REMAINING_BALANCE:
+        remainingBalance = toAmount(index, entry);
+        break;
+      default:
+        super.setField(field, index, entry);
+    }
+  }
+
+  /**
+   * @return the approval status (DECLINED, APPROVED, above APPROVED for an error, NONE if the message does not
+   *         have one)
+   */
+  public int getApprovalStatus() {
+    return approvalStatus;
+  }
+
+  public boolean isApproved() {
+    return approvalStatus == APPROVED;
+  }
+
+  public boolean isDeclined() {
+    return approvalStatus == DECLINED;
+  }
+
+  /**
+   * @return true if the approval status is an error or, without an approval status, the process status is not 0
+   */
+  public boolean isError() {
+    if (approvalStatus != NONE) {
+      return approvalStatus > APPROVED;
+    }
+    return procStatus != NONE && procStatus != 0;
+  }
+
+  public String getIndustryType() {
+    return industryType;
+  }
+
+  /**
+   * @return the message type (AUTHORIZATION, AUTHORIZATION_CAPTURE, FORCE_CAPTURE, REFUND, or NONE)
+   */
+  public int getMessageType() {
+    return messageType;
+  }
+
+  public String getMerchantId() {
+    return merchantId;
+  }
+
+  public String getTerminalId() {
+    return terminalId;
+  }
+
+  public String getCardBrand() {
+    return cardBrand;
+  }
+
+  public String getOrderId() {
+    return orderId;
+  }
+
+  public String getTxRefNum() {
+    return txRefNum;
+  }
+
+  public int getTxRefIdx() {
+    return txRefIdx;
+  }
+
+  public String getRespCode() {
+    return respCode;
+  }
+
+  public String getAVSRespCode() {
+    return avsRespCode;
+  }
+
+  public String getCVV2RespCode() {
+    return cvv2RespCode;
+  }
+
+  public String getAuthCode() {
+    return authCode;
+  }
+
+  public String getHostRespCode() {
+    return hostRespCode;
+  }
+
+  public String getHostAVSRespCode() {
+    return hostAvsRespCode;
+  }
+
+  public String getHostCVV2RespCode() {
+    return hostCvv2RespCode;
+  }
+
+  public String getCustomerRefNum() {
+    return customerRefNum;
+  }
+
+  public boolean isPartialAuthOccurred() {
+    return partialAuthOccurred;
+  }
+
+  /**
+   * @return the amount requested by a partial authorization, in minor units (NONE if the message does not have
+   *         one)
+   */
+  public long getRequestedAmount() {
+    return requestedAmount;
+  }
+
+  /**
+   * @return the amount authorized by a partial authorization, in minor units (NONE if the message does not have
+   *         one)
+   */
+  public long getRedeemedAmount() {
+    return redeemedAmount;
+  }
+
+  /**
+   * @return the balance left on the card, in minor units (NONE if the message does not have one)
+   */
+  public long getRemainingBalance() {
+    return remainingBalance;
+  }
+}
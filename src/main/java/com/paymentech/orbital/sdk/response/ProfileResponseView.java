@@ -0,0 +1,153 @@
+package com.paymentech.orbital.sdk.response;
+
+/**
+ * <p><b>Title:</b> ProfileResponseView</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> The typed values of a customer profile response (ProfileResp).  The process
+ * status and its message are the profile ones (ProfileProcStatus and CustomerProfileMessage). </p>
+ */
+public final class ProfileResponseView extends ResponseView {
+
+  /**
+   * Profile actions (the codes of PROFILE_ACTIONS)
+   */
+  public static final int CREATE = 0;
+  public static final int READ = 1;
+  public static final int UPDATE = 2;
+  public static final int DELETE = 3;
+
+  static final String[] PROFILE_ACTIONS = {"C", "R", "U", "D"};
+
+  private static final int FIRST = ResponseView.FIELDS.size();
+  private static final int PROFILE_PROC_STATUS = 0;
+  private static final int PROFILE_MESSAGE = 1;
+  private static final int CUSTOMER_BIN = 2;
+  private static final int CUSTOMER_MERCHANT_ID = 3;
+  private static final int CUSTOMER_NAME = 4;
+  private static final int CUSTOMER_REF_NUM = 5;
+  private static final int PROFILE_ACTION = 6;
+  private static final int ACCOUNT_TYPE = 7;
+  private static final int EXPIRE_DATE = 8;
+  private static final int ORDER_DEFAULT_AMOUNT = 9;
+  private static final int STATUS = 10;
+  private static final FieldTable FIELDS = new FieldTable(ResponseView.FIELDS, new String[]{
+      Response.PROFILE_PROC_STATUS, Response.PROFILE_STATUS_MESSAGE, "CustomerBin", "CustomerMerchantID",
+      "CustomerName", "CustomerRefNum", "CustomerProfileAction", "CustomerAccountType", "CCExpireDate",
+      "OrderDefaultAmount", "Status"});
+
+  private String customerBin;
+  private String customerMerchantId;
+  private String customerName;
+  private String customerRefNum;
+  private int profileAction = NONE;
+  private String accountType;
+  private int expireDate = NONE;
+  private long orderDefaultAmount = NONE;
+  private String status;
+
+  ProfileResponseView(String rootElement) {
+    super(rootElement);
+  }
+
+  FieldTable getFields() {
+    return FIELDS;
+  }
+
+  void setField(int field, ResponseIndex index, int entry) {
+    switch (field - FIRST) {
+      case PROFILE_PROC_STATUS:
+        procStatus = toInt(index, entry);
+        break;
+      case PROFILE_MESSAGE:
+        statusMessage = index.getValue(entry);
+        break;
+      case CUSTOMER_BIN:
+        customerBin = index.getValue(entry);
+        break;
+      case CUSTOMER_MERCHANT_ID:
+        customerMerchantId = index.getValue(entry);
+        break;
+      case CUSTOMER_NAME:
+        customerName = index.getValue(entry);
+        break;
+      case CUSTOMER_REF_NUM:
+        customerRefNum = index.getValue(entry);
+        break;
+      case PROFILE_ACTION:
+        profileAction = toCode(index, entry, PROFILE_ACTIONS);
+        break;
+      case ACCOUNT_TYPE:
+        accountType = index.getValue(entry);
+        break;
+      case EXPIRE_DATE:
+        expireDate = toInt(index, entry);
+        break;
+      case ORDER_DEFAULT_AMOUNT:
+        orderDefaultAmount = toAmount(index, entry);
+        break;
+      case STATUS:
+        status = index.getValue(entry);
+        break;
+      default:
+        // the ProcStatus and StatusMsg of a profile response are not its status
+        if (field == RESP_TIME) {
+          super.setField(field, index, entry);
+        }
+    }
+  }
+
+  public String getCustomerBin() {
+    return customerBin;
+  }
+
+  public String getCustomerMerchantId() {
+    return customerMerchantId;
+  }
+
+  public String getCustomerName() {
+    return customerName;
+  }
+
+  public String getCustomerRefNum() {
+    return customerRefNum;
+  }
+
+  /**
+   * @return the profile action (CREATE, READ, UPDATE, DELETE, or NONE)
+   */
+  public int getProfileAction() {
+    return profileAction;
+  }
+
+  /**
+   * @return the account type of the profile ("CC", "EC"...)
+   */
+  public String getAccountType() {
+    return accountType;
+  }
+
+  /**
+   * @return the expiration date of the card (MMYY, NONE if the profile does not have a card)
+   */
+  public int getExpireDate() {
+    return expireDate;
+  }
+
+  /**
+   * @return the default amount of the orders of the profile, in minor units (NONE if the profile does not have
+   *         one)
+   */
+  public long getOrderDefaultAmount() {
+    return orderDefaultAmount;
+  }
+
+  /**
+   * @return the status of the profile ("A" for active...)
+   */
+  public String getStatus() {
+    return status;
+  }
+}
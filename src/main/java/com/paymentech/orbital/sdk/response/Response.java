@@ -1,14 +1,14 @@
 package com.paymentech.orbital.sdk.response;
 
 import com.paymentech.eis.tools.StringUtils;
+import com.paymentech.orbital.sdk.configurator.ConfigurationSnapshot;
 import com.paymentech.orbital.sdk.configurator.Configurator;
 import com.paymentech.orbital.sdk.configurator.ConfiguratorIF;
 import com.paymentech.orbital.sdk.interfaces.ResponseIF;
 import com.paymentech.orbital.sdk.util.exceptions.InitializationException;
+import com.paymentech.orbital.sdk.util.masking.XmlMasker;
 import org.apache.log4j.Logger;
 
-import java.util.Arrays;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -99,21 +99,18 @@ public class Response implements ResponseIF {
    * Used for String not found
    */
   public static final int NOT_FOUND = -1;
-  // List of fields that require masking before being displayed.
-  // Note: there is an identical list in Request.java
-  final List<String> maskedFieldNames = Arrays.asList(
-      "AccountNum",
-      "CardSecVal",
-      "CheckDDA",
-      "BMLCustomerSSN",
-      "CCAccountNum",
-      "ECPAccountDDA",
-      "OrbitalConnectionPassword",
-      "CAVV",
-      "AAV",
-      "StartAccountNum",
-      "EUDDIBAN"
-  );
+  /**
+   * Number of times the gateway retried the transaction (retry-count header)
+   */
+  public static final String RETRY_COUNT = "RetryCount";
+  /**
+   * Last retry attempt of the gateway (last-retry-attempt header)
+   */
+  public static final String LAST_RETRY_ATTEMPT = "LastRetryAttempt";
+  // root elements of the quick, profile and account updater responses
+  private static final String QUICK_RESPONSE_ELEMENT = "QuickResp";
+  private static final String PROFILE_RESPONSE_ELEMENT = "ProfileResp";
+  private static final String ACUPDT_RESPONSE_ELEMENT = "AccountUpdaterResp";
   //message is the Stringified result
   protected String rawMessage = "";
   protected String approval;
@@ -132,8 +129,16 @@ public class Response implements ResponseIF {
   protected String avsTag;
   protected String responseCode;
   protected String avs;
+  // the elements of the raw message
+  private ResponseIndex index = null;
+  // the typed values of the raw message (made when first asked for)
+  private ResponseView view = null;
+  // the retry headers of the gateway (null if they were not sent)
+  private String retryCount = null;
+  private String lastRetryAttempt = null;
   private ConfiguratorIF configurator = null;
   private Map configurations = null;
+  private ConfigurationSnapshot snapshot = null;
   private Logger engineLogger;
   /**
    * Default constructor.
@@ -160,7 +165,29 @@ public class Response implements ResponseIF {
    * @return The value contained by the xml element
    */
   public String getValue(String xmlElementName) {
-    return extractValue(this.rawMessage, xmlElementName);
+    String value = getIndex().getValue(xmlElementName);
+
+    if (value == null) {
+      // the retry headers used to be added to the message as elements
+      if (RETRY_COUNT.equals(xmlElementName)) {
+        return retryCount;
+      }
+      if (LAST_RETRY_ATTEMPT.equals(xmlElementName)) {
+        return lastRetryAttempt;
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Set the retry information the gateway sent in the response headers
+   *
+   * @param retryCount       the value of the retry-count header (or null)
+   * @param lastRetryAttempt the value of the last-retry-attempt header (or null)
+   */
+  public void setRetryHeaders(String retryCount, String lastRetryAttempt) {
+    this.retryCount = retryCount;
+    this.lastRetryAttempt = lastRetryAttempt;
   }
 
   /**
@@ -193,6 +220,7 @@ public class Response implements ResponseIF {
   public void setConfigurator(ConfiguratorIF configurator) {
     this.configurator = configurator;
     this.configurations = configurator.getConfigurations();
+    this.snapshot = configurator.getSnapshot();
     this.engineLogger = configurator.getCommonEngineLogger();
   }
 
@@ -335,6 +363,26 @@ public class Response implements ResponseIF {
     return rawMessage;
   }
 
+  /**
+   * @return the elements of the raw message, found when the message was set
+   */
+  protected ResponseIndex getIndex() {
+    if (index == null) {
+      index = ResponseIndex.parse(rawMessage);
+    }
+    return index;
+  }
+
+  /**
+   * @return the typed values of the raw message (see ResponseView)
+   */
+  public ResponseView getView() {
+    if (view == null) {
+      view = ResponseView.parse(getIndex());
+    }
+    return view;
+  }
+
   /**
    * Raw XML Message
    *
@@ -345,19 +393,19 @@ public class Response implements ResponseIF {
     boolean isAcUpdt = false;
 
     this.rawMessage = rawMessage;
+    // the message is scanned once, the values are then read from the index
+    this.index = ResponseIndex.parse(rawMessage);
+    this.view = null;
+
     //Determine if the returned raw message is a Quick Response
-    if (rawMessage.indexOf(QUICK_RESPONSE_IDENTIFIER) == NOT_FOUND) {
-      this.quickResponse = false;
-    } else {
-      this.quickResponse = true;
-    }
+    this.quickResponse = index.contains(QUICK_RESPONSE_ELEMENT);
 
     // check if this is a profile response
-    if (rawMessage.indexOf(PROFILE_RESPONSE_IDENTIFIER) != NOT_FOUND) {
+    if (index.contains(PROFILE_RESPONSE_ELEMENT)) {
       isProfile = true;
     }
     // check if this is a account updater response
-    if (rawMessage.indexOf(ACUPDT_RESPONSE_IDENTIFIER) != NOT_FOUND) {
+    if (index.contains(ACUPDT_RESPONSE_ELEMENT)) {
       isAcUpdt = true;
     }
 
@@ -437,17 +485,8 @@ public class Response implements ResponseIF {
    * @return String The Response Type
    */
   protected String getResponseType() {
-    String responseType = (String) configurations.get(ResponseIF.RESPONSE_TYPE_KEY);
-    if (this.isQuickResponse()) {
-      responseType = GATEWAY_TYPE;
-    } else {
-      if ((StringUtils.isEmpty(responseType)) ||
-          ((!responseType.equalsIgnoreCase(GATEWAY_TYPE)) && (!responseType.equalsIgnoreCase(HOST_TYPE)))) {
-        engineLogger.warn(responseType + " is an invalid Response.response_type. Defaulting to [gateway]");
-        responseType = GATEWAY_TYPE;
-      }
-    }
-    return responseType;
+    // an invalid response type is logged, and replaced by gateway, when the snapshot is compiled
+    return this.isQuickResponse() ? GATEWAY_TYPE : snapshot.getResponseType();
   }
 
   /**
@@ -458,6 +497,11 @@ public class Response implements ResponseIF {
    * @return String The xml element's value
    */
   protected String extractValue(String rawMessage, String xmlElementName) {
+    if (rawMessage == this.rawMessage) {
+      // the raw message of this response has been indexed
+      return getIndex().getValue(xmlElementName);
+    }
+
     //This method assumes the incoming xmlElementName is to be wrapped with xml style delimiters
     //Must initially include the possibility of attributes in the xml start tag,
     //so we need to search using 2 different patterns for the start tag.
@@ -534,55 +578,17 @@ public class Response implements ResponseIF {
   }
 
   protected String maskXmlMessage(String messageToMask) {
-
-    // Mask predefined fields
-    for (String fieldName : maskedFieldNames) {
-      messageToMask = maskField(messageToMask, fieldName);
-    }
-
-    String maskField = null;
-    try {
-      maskField = (String) Configurator.getInstance().getConfigurations().get("MaskFieldList");
-    } catch (Exception e) {
-      ;
-    }
-    // mask merchant specific field list
-    if (maskField != null) {
-      String[] maskFieldArray = maskField.split(",");
-      for (int ctr = 0; ctr < maskFieldArray.length; ctr++) {
-        messageToMask = maskField(messageToMask, maskFieldArray[ctr]);
-      }
-    }
-    return messageToMask;
+    // the predefined fields and the merchant specific field list, in a single pass
+    return XmlMasker.forResponses().mask(messageToMask);
   }
 
+  /**
+   * Mask every occurrence of a field of a message
+   *
+   * @deprecated use {@link XmlMasker}, which masks all the sensitive fields in a single pass
+   */
+  @Deprecated
   protected String maskField(String messageToMask, String fieldToMask) {
-    String fieldValue = this.extractValue(messageToMask, fieldToMask);
-    if (StringUtils.isEmpty(fieldValue)) {
-      //The field is not present in the message, simply return the message
-      return messageToMask;
-    } else {
-      //Create a string of X's, the same length of the field value
-      // (in order to preserve the original xml message length)
-      StringBuffer sbFieldMask = new StringBuffer();
-      for (int i = 0; i < fieldValue.length(); i++) {
-        sbFieldMask.append("X");
-      }
-      String fieldMask = sbFieldMask.toString();
-      //Define the ending field delimiter
-      String endingDelimiter = "</" + fieldToMask + ">";
-      //Get the first part of the response - must account for possible field attributes
-      int firstPartPlusFieldValueIndex = messageToMask.indexOf(endingDelimiter);
-      String firstPartPlusFieldValue = messageToMask.substring(0, firstPartPlusFieldValueIndex);
-      //Remove the field value by backing up to the last ">")
-      int firstIndex = firstPartPlusFieldValue.lastIndexOf(">") + 1;
-      String firstPart = messageToMask.substring(0, firstIndex);
-      int secondIndex = messageToMask.indexOf(endingDelimiter);
-      //Get the second part of the response
-      String secondPart = messageToMask.substring(secondIndex);
-      //Create the masked version of the message
-      String maskedMessage = firstPart + fieldMask + secondPart;
-      return maskedMessage;
-    }
+    return XmlMasker.forField(fieldToMask).mask(messageToMask);
   }
 }
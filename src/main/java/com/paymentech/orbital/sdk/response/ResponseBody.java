@@ -0,0 +1,176 @@
+package com.paymentech.orbital.sdk.response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * <p><b>Title:</b> ResponseBody</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> The bytes of a response body, read from the connection straight into a buffer
+ * that grows as needed and is reused for the next response.  A Content-Length only pre-sizes the buffer up to
+ * MAX_PRESIZE (the body grows from there if it is really longer), and a buffer grown past MAX_RETAINED is
+ * dropped by trim() once its response has been built, so one large body does not stay pinned to the engine
+ * that read it.  The doctype is cut out of the bytes in place, and
+ * the message is decoded once, into the String the Response indexes.
+ * <br><br> A body is not thread safe. </p>
+ */
+public final class ResponseBody {
+
+  private static final int DEFAULT_CAPACITY = 4096;
+  // largest buffer allocated up front from a Content-Length
+  private static final int MAX_PRESIZE = 256 * 1024;
+  // largest buffer kept for the next response
+  private static final int MAX_RETAINED = 64 * 1024;
+  private static final String DOCTYPE = "<!DOCTYPE";
+
+  private byte[] buffer;
+  private int length = 0;
+
+  public ResponseBody() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param capacity the initial size of the buffer
+   */
+  public ResponseBody(int capacity) {
+    buffer = new byte[Math.max(capacity, 16)];
+  }
+
+  /**
+   * Use bytes that have already been read as the body (they are not copied, and may be changed)
+   *
+   * @param bytes the body
+   */
+  public ResponseBody(byte[] bytes) {
+    buffer = bytes;
+    length = bytes.length;
+  }
+
+  /**
+   * Read a whole stream into the body (its previous content is dropped)
+   *
+   * @param in             the stream (nothing is read if it is null)
+   * @param expectedLength the length of the body if it is known (-1 if not)
+   */
+  public void readFrom(InputStream in, long expectedLength) throws IOException {
+    length = 0;
+    if (in == null) {
+      return;
+    }
+    if (expectedLength >= buffer.length) {
+      // room for the end of the stream to be read without growing (the length is not trusted past MAX_PRESIZE)
+      buffer = new byte[(int) Math.min(expectedLength, MAX_PRESIZE - 1) + 1];
+    }
+
+    int count;
+    while ((count = in.read(buffer, length, buffer.length - length)) != -1) {
+      length += count;
+      if (length == buffer.length) {
+        grow();
+      }
+    }
+  }
+
+  private void grow() throws IOException {
+    if (buffer.length >= Integer.MAX_VALUE - 8) {
+      throw new IOException("The response body is too large");
+    }
+    byte[] grown = new byte[(int) Math.min((long) buffer.length * 2, Integer.MAX_VALUE - 8)];
+    System.arraycopy(buffer, 0, grown, 0, length);
+    buffer = grown;
+  }
+
+  /**
+   * Drop the content of the body, and its buffer if it has grown past MAX_RETAINED (call it once the response
+   * has been built from the body)
+   */
+  public void trim() {
+    length = 0;
+    if (buffer.length > MAX_RETAINED) {
+      buffer = new byte[DEFAULT_CAPACITY];
+    }
+  }
+
+  /**
+   * @return the number of bytes in the body
+   */
+  public int getLength() {
+    return length;
+  }
+
+  /**
+   * Remove the doctype (and the whitespace before it), which causes some xml viewers to fail
+   */
+  public void removeDoctype() {
+    int start = indexOf(DOCTYPE);
+    if (start < 0) {
+      return;
+    }
+
+    int end = start + DOCTYPE.length();
+    while (end < length && buffer[end] != '>') {
+      end++;
+    }
+    if (end == length) {
+      return;
+    }
+    end++;
+
+    while (start > 0 && isWhitespace(buffer[start - 1])) {
+      start--;
+    }
+
+    System.arraycopy(buffer, end, buffer, start, length - end);
+    length -= end - start;
+  }
+
+  /**
+   * @return a copy of the bytes of the body
+   */
+  public byte[] toByteArray() {
+    byte[] bytes = new byte[length];
+    System.arraycopy(buffer, 0, bytes, 0, length);
+    return bytes;
+  }
+
+  /**
+   * @return the body, decoded
+   */
+  public String toString(Charset charset) {
+    return new String(buffer, 0, length, charset);
+  }
+
+  private int indexOf(String text) {
+    // the doctype comes before the root element
+    int last = length - text.length();
+    for (int i = 0; i <= last; i++) {
+      if (buffer[i] == '<') {
+        if (matches(i, text)) {
+          return i;
+        }
+        if (i + 1 < length && buffer[i + 1] != '?' && buffer[i + 1] != '!') {
+          return -1;
+        }
+      }
+    }
+    return -1;
+  }
+
+  private boolean matches(int position, String text) {
+    for (int i = 0; i < text.length(); i++) {
+      if (buffer[position + i] != text.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+  }
+}
@@ -0,0 +1,358 @@
+package com.paymentech.orbital.sdk.response;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p><b>Title:</b> ResponseIndex</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> The elements of a response message, found in a single pass.  Each element is an
+ * entry of a table holding the offsets of its name and of its value (the text between its start and end tags);
+ * the entries are hashed by name, so the value of an element is found without scanning the message again.
+ * <br><br> Start tags may have attributes, and an element may be repeated: the first occurrence is the value of
+ * the element, the others are chained after it.  Comments, processing instructions, the doctype and CDATA
+ * sections are skipped.  Values are the raw text of the message (entities are not decoded).  The tokenizer never
+ * fails: what can't be read as a tag is left out of the index.
+ * <br><br> An index is immutable once parsed. </p>
+ */
+public final class ResponseIndex {
+
+  private static final int INITIAL_CAPACITY = 32;
+
+  private final String message;
+  // number of elements
+  private int count = 0;
+  // entries: name offsets and hash, value offsets (valueEnd is -1 if the element is not closed)
+  private int[] nameStarts = new int[INITIAL_CAPACITY];
+  private int[] nameLengths = new int[INITIAL_CAPACITY];
+  private int[] hashes = new int[INITIAL_CAPACITY];
+  private int[] valueStarts = new int[INITIAL_CAPACITY];
+  private int[] valueEnds = new int[INITIAL_CAPACITY];
+  // next occurrence of the same element (-1 if none)
+  private int[] nexts = null;
+  // open addressing table of the first occurrence of each name (entry + 1, 0 if the slot is empty)
+  private int[] slots = null;
+
+  private ResponseIndex(String message) {
+    this.message = message;
+  }
+
+  /**
+   * Index the elements of a message
+   *
+   * @param message the xml message
+   * @return ResponseIndex
+   */
+  public static ResponseIndex parse(String message) {
+    ResponseIndex index = new ResponseIndex((message == null) ? "" : message);
+    index.tokenize();
+    index.hash();
+    return index;
+  }
+
+  /**
+   * @return the message
+   */
+  public String getMessage() {
+    return message;
+  }
+
+  /**
+   * @return the number of elements in the message
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * @return the name of an element
+   */
+  public String getName(int entry) {
+    return message.substring(nameStarts[entry], nameStarts[entry] + nameLengths[entry]);
+  }
+
+  /**
+   * @return the hash of the name of an element (the String.hashCode of the name)
+   */
+  public int getHash(int entry) {
+    return hashes[entry];
+  }
+
+  /**
+   * @return true if an element has a name
+   */
+  public boolean nameEquals(int entry, String name) {
+    return nameLengths[entry] == name.length() && message.regionMatches(nameStarts[entry], name, 0, name.length());
+  }
+
+  /**
+   * @return the value of an element, or null if it is not closed
+   */
+  public String getValue(int entry) {
+    return (valueEnds[entry] < 0) ? null : message.substring(valueStarts[entry], valueEnds[entry]);
+  }
+
+  /**
+   * @return the value of the first occurrence of an element, or null if the message does not have it
+   */
+  public String getValue(String name) {
+    int entry = indexOf(name);
+    return (entry < 0) ? null : getValue(entry);
+  }
+
+  /**
+   * @return the values of every occurrence of an element, in message order
+   */
+  public List getValues(String name) {
+    List values = new ArrayList(2);
+    for (int entry = indexOf(name); entry >= 0; entry = nexts[entry]) {
+      values.add(getValue(entry));
+    }
+    return values;
+  }
+
+  /**
+   * @return true if the message has an element
+   */
+  public boolean contains(String name) {
+    return indexOf(name) >= 0;
+  }
+
+  /**
+   * @return the entry of the first occurrence of an element, or -1 if the message does not have it
+   */
+  public int indexOf(String name) {
+    if (name == null || count == 0) {
+      return -1;
+    }
+
+    int mask = slots.length - 1;
+    int hash = name.hashCode();
+    for (int slot = spread(hash) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+      int entry = slots[slot] - 1;
+      if (hashes[entry] == hash && nameLengths[entry] == name.length()
+          && message.regionMatches(nameStarts[entry], name, 0, name.length())) {
+        return entry;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the entry of the next occurrence of the element of an entry, or -1 if it is the last one
+   */
+  public int nextIndexOf(int entry) {
+    return nexts[entry];
+  }
+
+  /**
+   * @return the offset of the value of an element in the message
+   */
+  public int getValueStart(int entry) {
+    return valueStarts[entry];
+  }
+
+  /**
+   * @return the offset of the end of the value of an element in the message (-1 if it is not closed)
+   */
+  public int getValueEnd(int entry) {
+    return valueEnds[entry];
+  }
+
+  private void tokenize() {
+    int length = message.length();
+    // entries of the elements that are open
+    int[] open = new int[16];
+    int depth = 0;
+    int position = message.indexOf('<');
+
+    while (position >= 0 && position + 1 < length) {
+      char c = message.charAt(position + 1);
+
+      if (c == '/') {
+        // end tag: close the innermost open element with that name
+        int nameStart = position + 2;
+        int nameEnd = scanName(nameStart);
+        int tagEnd = message.indexOf('>', nameEnd);
+        if (tagEnd < 0) {
+          break;
+        }
+        for (int i = depth - 1; i >= 0; i--) {
+          int entry = open[i];
+          if (nameLengths[entry] == nameEnd - nameStart
+              && message.regionMatches(nameStarts[entry], message, nameStart, nameEnd - nameStart)) {
+            valueEnds[entry] = position;
+            depth = i;
+            break;
+          }
+        }
+        position = message.indexOf('<', tagEnd + 1);
+
+      } else if (c == '!' || c == '?') {
+        position = skipMarkup(position);
+
+      } else {
+        // start tag
+        int nameStart = position + 1;
+        int nameEnd = scanName(nameStart);
+        if (nameEnd == nameStart) {
+          position = message.indexOf('<', nameStart);
+          continue;
+        }
+        int tagEnd = findTagEnd(nameEnd);
+        if (tagEnd < 0) {
+          break;
+        }
+
+        int entry = add(nameStart, nameEnd - nameStart);
+        valueStarts[entry] = tagEnd + 1;
+        if (message.charAt(tagEnd - 1) == '/') {
+          // empty element
+          valueEnds[entry] = tagEnd + 1;
+        } else {
+          valueEnds[entry] = -1;
+          if (depth == open.length) {
+            int[] grown = new int[depth * 2];
+            System.arraycopy(open, 0, grown, 0, depth);
+            open = grown;
+          }
+          open[depth++] = entry;
+        }
+        position = message.indexOf('<', tagEnd + 1);
+      }
+    }
+  }
+
+  /**
+   * Skip a comment, CDATA section, doctype or processing instruction
+   *
+   * @return the position of the next tag, or -1
+   */
+  private int skipMarkup(int position) {
+    int end;
+    if (message.startsWith("<!--", position)) {
+      end = message.indexOf("-->", position + 4);
+      return (end < 0) ? -1 : message.indexOf('<', end + 3);
+    }
+    if (message.startsWith("<![CDATA[", position)) {
+      end = message.indexOf("]]>", position + 9);
+      return (end < 0) ? -1 : message.indexOf('<', end + 3);
+    }
+    if (message.charAt(position + 1) == '?') {
+      end = message.indexOf("?>", position + 2);
+      return (end < 0) ? -1 : message.indexOf('<', end + 2);
+    }
+    // doctype (an internal subset ends with "]>")
+    int bracket = message.indexOf('[', position);
+    end = message.indexOf('>', position);
+    if (bracket >= 0 && end > bracket) {
+      end = message.indexOf("]>", bracket);
+    }
+    return (end < 0) ? -1 : message.indexOf('<', end + 1);
+  }
+
+  private int scanName(int position) {
+    int length = message.length();
+    while (position < length) {
+      char c = message.charAt(position);
+      if (!(Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.' || c == ':')) {
+        break;
+      }
+      position++;
+    }
+    return position;
+  }
+
+  /**
+   * @return the position of the '>' that ends a start tag (attribute values may have a '>'), or -1
+   */
+  private int findTagEnd(int position) {
+    int length = message.length();
+    char quote = 0;
+    for (; position < length; position++) {
+      char c = message.charAt(position);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '"' || c == '\'') {
+        quote = c;
+      } else if (c == '>') {
+        return position;
+      }
+    }
+    return -1;
+  }
+
+  private int add(int nameStart, int nameLength) {
+    if (count == nameStarts.length) {
+      nameStarts = grow(nameStarts);
+      nameLengths = grow(nameLengths);
+      hashes = grow(hashes);
+      valueStarts = grow(valueStarts);
+      valueEnds = grow(valueEnds);
+    }
+
+    // same hash as String.hashCode, so a name can be looked up without a substring
+    int hash = 0;
+    for (int i = nameStart; i < nameStart + nameLength; i++) {
+      hash = 31 * hash + message.charAt(i);
+    }
+
+    nameStarts[count] = nameStart;
+    nameLengths[count] = nameLength;
+    hashes[count] = hash;
+    return count++;
+  }
+
+  private static int[] grow(int[] array) {
+    int[] grown = new int[array.length * 2];
+    System.arraycopy(array, 0, grown, 0, array.length);
+    return grown;
+  }
+
+  /**
+   * Hash the entries by name, and chain the occurrences of each element
+   */
+  private void hash() {
+    int size = 16;
+    while (size < count * 2) {
+      size *= 2;
+    }
+    slots = new int[size];
+    nexts = new int[count];
+    // last occurrence of the element of a first occurrence
+    int[] lasts = new int[count];
+    int mask = size - 1;
+
+    for (int entry = 0; entry < count; entry++) {
+      nexts[entry] = -1;
+
+      int slot = spread(hashes[entry]) & mask;
+      while (slots[slot] != 0) {
+        int first = slots[slot] - 1;
+        if (hashes[first] == hashes[entry] && nameLengths[first] == nameLengths[entry]
+            && message.regionMatches(nameStarts[first], message, nameStarts[entry], nameLengths[entry])) {
+          break;
+        }
+        slot = (slot + 1) & mask;
+      }
+
+      if (slots[slot] == 0) {
+        slots[slot] = entry + 1;
+        lasts[entry] = entry;
+      } else {
+        int first = slots[slot] - 1;
+        nexts[lasts[first]] = entry;
+        lasts[first] = entry;
+      }
+    }
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+}
@@ -0,0 +1,278 @@
+package com.paymentech.orbital.sdk.response;
+
+import com.paymentech.orbital.sdk.interfaces.ResponseIF;
+
+/**
+ * <p><b>Title:</b> ResponseView</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> The values of a response, typed: statuses and counts are ints, amounts are
+ * longs in minor units, flags are booleans and codes with a fixed set of values are int constants.  The view is
+ * chosen by the root element of the message (the element under &lt;Response&gt;):
+ * <pre>
+ *   NewOrderResp, InquiryResp    NewOrderResponseView
+ *   ProfileResp                  ProfileResponseView
+ *   EndOfDayResp                 EndOfDayResponseView
+ *   AccountUpdaterResp           AccountUpdaterResponseView
+ *   ReversalResp                 ReversalResponseView
+ *   MarkForCaptureResp           MarkForCaptureResponseView
+ *   FlexCacheResp                FlexCacheResponseView
+ *   SafetechFraudAnalysisResp    SafetechFraudAnalysisResponseView
+ *   anything else (QuickResp...) ResponseView
+ * </pre>
+ * and its fields are filled in one pass over the elements of the message (see ResponseIndex), the first
+ * occurrence of an element giving its value.  A numeric field the message does not have, or that is not a
+ * number, is NONE (-1); amounts too, so a missing amount is not taken for an amount of 0.
+ * <br><br> A view is immutable once filled. </p>
+ */
+public class ResponseView {
+
+  /**
+   * Root elements of the views
+   */
+  public static final String NEW_ORDER_ROOT = "NewOrderResp";
+  public static final String INQUIRY_ROOT = "InquiryResp";
+  public static final String PROFILE_ROOT = "ProfileResp";
+  public static final String END_OF_DAY_ROOT = "EndOfDayResp";
+  public static final String ACCOUNT_UPDATER_ROOT = "AccountUpdaterResp";
+  public static final String REVERSAL_ROOT = "ReversalResp";
+  public static final String MARK_FOR_CAPTURE_ROOT = "MarkForCaptureResp";
+  public static final String FLEX_CACHE_ROOT = "FlexCacheResp";
+  public static final String SAFETECH_FRAUD_ANALYSIS_ROOT = "SafetechFraudAnalysisResp";
+  public static final String QUICK_RESPONSE_ROOT = "QuickResp";
+
+  /**
+   * Value of a numeric field (or amount) the message does not have
+   */
+  public static final int NONE = -1;
+
+  private static final String RESPONSE_ELEMENT = "Response";
+
+  static final int PROC_STATUS = 0;
+  static final int STATUS_MESSAGE = 1;
+  static final int RESP_TIME = 2;
+  static final FieldTable FIELDS = new FieldTable(null, new String[]{
+      Response.PROC_STATUS, Response.STATUS_MESSAGE, "RespTime"});
+
+  private final String rootElement;
+  protected int procStatus = NONE;
+  protected String statusMessage;
+  protected String respTime;
+
+  protected ResponseView(String rootElement) {
+    this.rootElement = rootElement;
+  }
+
+  /**
+   * View a response
+   *
+   * @param response the response
+   * @return the view of the response
+   */
+  public static ResponseView of(ResponseIF response) {
+    if (response instanceof Response) {
+      return ((Response) response).getView();
+    }
+    if (response instanceof LeanResponse) {
+      return ((LeanResponse) response).getView();
+    }
+    return parse(ResponseIndex.parse(response.toXmlString()));
+  }
+
+  /**
+   * View the message of an index
+   *
+   * @param index the elements of the message
+   * @return the view of the message
+   */
+  public static ResponseView parse(ResponseIndex index) {
+    // the root of the transaction is the first element, or the element under <Response>
+    int root = 0;
+    if (index.getCount() > 1 && index.nameEquals(0, RESPONSE_ELEMENT)) {
+      root = 1;
+    }
+
+    ResponseView view;
+    if (index.getCount() == 0) {
+      view = new ResponseView("");
+    } else if (index.nameEquals(root, NEW_ORDER_ROOT) || index.nameEquals(root, INQUIRY_ROOT)) {
+      view = new NewOrderResponseView(index.getName(root));
+    } else if (index.nameEquals(root, PROFILE_ROOT)) {
+      view = new ProfileResponseView(index.getName(root));
+    } else if (index.nameEquals(root, END_OF_DAY_ROOT)) {
+      view = new EndOfDayResponseView(index.getName(root));
+    } else if (index.nameEquals(root, ACCOUNT_UPDATER_ROOT)) {
+      view = new AccountUpdaterResponseView(index.getName(root));
+    } else if (index.nameEquals(root, REVERSAL_ROOT)) {
+      view = new ReversalResponseView(index.getName(root));
+    } else if (index.nameEquals(root, MARK_FOR_CAPTURE_ROOT)) {
+      view = new MarkForCaptureResponseView(index.getName(root));
+    } else if (index.nameEquals(root, FLEX_CACHE_ROOT)) {
+      view = new FlexCacheResponseView(index.getName(root));
+    } else if (index.nameEquals(root, SAFETECH_FRAUD_ANALYSIS_ROOT)) {
+      view = new SafetechFraudAnalysisResponseView(index.getName(root));
+    } else {
+      view = new ResponseView(index.getName(root));
+    }
+
+    view.fill(index, root);
+    return view;
+  }
+
+  /**
+   * Fill the fields from the elements under the root, in one pass
+   */
+  private void fill(ResponseIndex index, int root) {
+    FieldTable fields = getFields();
+    boolean[] filled = new boolean[fields.size()];
+    for (int entry = root + 1; entry < index.getCount(); entry++) {
+      int field = fields.find(index, entry);
+      if (field >= 0 && !filled[field] && index.getValueEnd(entry) >= 0) {
+        filled[field] = true;
+        setField(field, index, entry);
+      }
+    }
+  }
+
+  /**
+   * @return the fields read by the view
+   */
+  FieldTable getFields() {
+    return FIELDS;
+  }
+
+  /**
+   * Set a field from its element
+   *
+   * @param field the field (numbered in the order of the field table)
+   * @param index the elements of the message
+   * @param entry the element
+   */
+  void setField(int field, ResponseIndex index, int entry) {
+    switch (field) {
+      case PROC_STATUS:
+        procStatus = toInt(index, entry);
+        break;
+      case STATUS_MESSAGE:
+        statusMessage = index.getValue(entry);
+        break;
+      case RESP_TIME:
+        respTime = index.getValue(entry);
+        break;
+    }
+  }
+
+  /**
+   * @return the name of the root element of the transaction ("NewOrderResp", "QuickResp"...)
+   */
+  public String getRootElement() {
+    return rootElement;
+  }
+
+  /**
+   * @return true if the message is a quick response (the gateway could not process the request)
+   */
+  public boolean isQuickResponse() {
+    return QUICK_RESPONSE_ROOT.equals(rootElement);
+  }
+
+  /**
+   * @return the process status (NONE if the message does not have one)
+   */
+  public int getProcStatus() {
+    return procStatus;
+  }
+
+  /**
+   * @return true if the transaction was processed (process status 0)
+   */
+  public boolean isProcessed() {
+    return procStatus == 0;
+  }
+
+  /**
+   * @return the message of the process status
+   */
+  public String getStatusMessage() {
+    return statusMessage;
+  }
+
+  /**
+   * @return the time of the response (HHMMSS)
+   */
+  public String getRespTime() {
+    return respTime;
+  }
+
+  public String toString() {
+    return getClass().getName() + "[" + rootElement + ", procStatus=" + procStatus + "]";
+  }
+
+  /**
+   * @return the value of an element as an int, or NONE if it is empty or not a number
+   */
+  static int toInt(ResponseIndex index, int entry) {
+    long value = toLong(index, entry, NONE);
+    return (value > Integer.MAX_VALUE) ? NONE : (int) value;
+  }
+
+  /**
+   * @return the value of an element as a long (an amount in minor units), or NONE if it is empty or not a number
+   */
+  static long toAmount(ResponseIndex index, int entry) {
+    return toLong(index, entry, NONE);
+  }
+
+  private static long toLong(ResponseIndex index, int entry, long none) {
+    String message = index.getMessage();
+    int start = index.getValueStart(entry);
+    int end = index.getValueEnd(entry);
+    while (start < end && message.charAt(start) == ' ') {
+      start++;
+    }
+    while (end > start && message.charAt(end - 1) == ' ') {
+      end--;
+    }
+    if (start == end || end - start > 18) {
+      return none;
+    }
+
+    long value = 0;
+    for (int i = start; i < end; i++) {
+      char c = message.charAt(i);
+      if (c < '0' || c > '9') {
+        return none;
+      }
+      value = value * 10 + (c - '0');
+    }
+    return value;
+  }
+
+  /**
+   * @return true if the value of an element is "Y" or "true"
+   */
+  static boolean toBoolean(ResponseIndex index, int entry) {
+    String message = index.getMessage();
+    int start = index.getValueStart(entry);
+    int length = index.getValueEnd(entry) - start;
+    return (length == 1 && (message.charAt(start) == 'Y' || message.charAt(start) == 'y'))
+        || (length == 4 && message.regionMatches(true, start, "true", 0, 4));
+  }
+
+  /**
+   * @return the position of the value of an element in a list of codes, or NONE
+   */
+  static int toCode(ResponseIndex index, int entry, String[] codes) {
+    String message = index.getMessage();
+    int start = index.getValueStart(entry);
+    int length = index.getValueEnd(entry) - start;
+    for (int code = 0; code < codes.length; code++) {
+      if (codes[code].length() == length && message.regionMatches(true, start, codes[code], 0, length)) {
+        return code;
+      }
+    }
+    return NONE;
+  }
+}
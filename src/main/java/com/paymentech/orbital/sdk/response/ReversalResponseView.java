@@ -0,0 +1,90 @@
+package com.paymentech.orbital.sdk.response;
+
+/**
+ * <p><b>Title:</b> ReversalResponseView</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> The typed values of a reversal (void) response (ReversalResp). </p>
+ */
+public final class ReversalResponseView extends ResponseView {
+
+  private static final int FIRST = ResponseView.FIELDS.size();
+  private static final int MERCHANT_ID = 0;
+  private static final int TERMINAL_ID = 1;
+  private static final int ORDER_ID = 2;
+  private static final int TXREF_NUM = 3;
+  private static final int TXREF_IDX = 4;
+  private static final int OUTSTANDING_AMOUNT = 5;
+  private static final FieldTable FIELDS = new FieldTable(ResponseView.FIELDS, new String[]{
+      "MerchantID", "TerminalID", "OrderID", Response.TXREF_NUM, "TxRefIdx", "OutstandingAmt"});
+
+  private String merchantId;
+  private String terminalId;
+  private String orderId;
+  private String txRefNum;
+  private int txRefIdx = NONE;
+  private long outstandingAmount = NONE;
+
+  ReversalResponseView(String rootElement) {
+    super(rootElement);
+  }
+
+  FieldTable getFields() {
+    return FIELDS;
+  }
+
+  void setField(int field, ResponseIndex index, int entry) {
+    switch (field - FIRST) {
+      case MERCHANT_ID:
+        merchantId = index.getValue(entry);
+        break;
+      case TERMINAL_ID:
+        terminalId = index.getValue(entry);
+        break;
+      case ORDER_ID:
+        orderId = index.getValue(entry);
+        break;
+      case TXREF_NUM:
+        txRefNum = index.getValue(entry);
+        break;
+      case TXREF_IDX:
+        txRefIdx = toInt(index, entry);
+        break;
+      case OUTSTANDING_AMOUNT:
+        outstandingAmount = toAmount(index, entry);
+        break;
+      default:
+        super.setField(field, index, entry);
+    }
+  }
+
+  public String getMerchantId() {
+    return merchantId;
+  }
+
+  public String getTerminalId() {
+    return terminalId;
+  }
+
+  public String getOrderId() {
+    return orderId;
+  }
+
+  public String getTxRefNum() {
+    return txRefNum;
+  }
+
+  public int getTxRefIdx() {
+    return txRefIdx;
+  }
+
+  /**
+   * @return the amount of the order left after the reversal, in minor units (NONE if the message does not have
+   *         one)
+   */
+  public long getOutstandingAmount() {
+    return outstandingAmount;
+  }
+}
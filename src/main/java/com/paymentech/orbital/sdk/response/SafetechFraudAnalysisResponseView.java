@@ -0,0 +1,150 @@
+package com.paymentech.orbital.sdk.response;
+
+/**
+ * <p><b>Title:</b> SafetechFraudAnalysisResponseView</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC.
+ * All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> The typed values of a stand-alone fraud analysis response
+ * (SafetechFraudAnalysisResp). </p>
+ */
+public final class SafetechFraudAnalysisResponseView extends ResponseView {
+
+  private static final int FIRST = ResponseView.FIELDS.size();
+  private static final int MERCHANT_ID = 0;
+  private static final int TERMINAL_ID = 1;
+  private static final int ORDER_ID = 2;
+  private static final int TXREF_NUM = 3;
+  private static final int TXREF_IDX = 4;
+  private static final int FRAUD_SCORE_PROC_STATUS = 5;
+  private static final int FRAUD_SCORE_PROC_MSG = 6;
+  private static final int FRAUD_STATUS_CODE = 7;
+  private static final int RISK_INQ_TRANS_ID = 8;
+  private static final int AUTO_DECISION_RESPONSE = 9;
+  private static final int RISK_SCORE = 10;
+  private static final FieldTable FIELDS = new FieldTable(ResponseView.FIELDS, new String[]{
+      "MerchantID", "TerminalID", "OrderID", Response.TXREF_NUM, "TxRefIdx", "FraudScoreProcStatus",
+      "FraudScoreProcMsg", "FraudStatusCode", "RiskInqTransID", "AutoDecisionResponse", "RiskScore"});
+
+  private String merchantId;
+  private String terminalId;
+  private String orderId;
+  private String txRefNum;
+  private int txRefIdx = NONE;
+  private int fraudScoreProcStatus = NONE;
+  private String fraudScoreProcMsg;
+  private String fraudStatusCode;
+  private String riskInqTransId;
+  private String autoDecisionResponse;
+  private int riskScore = NONE;
+
+  SafetechFraudAnalysisResponseView(String rootElement) {
+    super(rootElement);
+  }
+
+  FieldTable getFields() {
+    return FIELDS;
+  }
+
+  void setField(int field, ResponseIndex index, int entry) {
+    switch (field - FIRST) {
+      case MERCHANT_ID:
+        merchantId = index.getValue(entry);
+        break;
+      case TERMINAL_ID:
+        terminalId = index.getValue(entry);
+        break;
+      case ORDER_ID:
+        orderId = index.getValue(entry);
+        break;
+      case TXREF_NUM:
+        txRefNum = index.getValue(entry);
+        break;
+      case TXREF_IDX:
+        txRefIdx = toInt(index, entry);
+        break;
+      case FRAUD_SCORE_PROC_STATUS:
+        fraudScoreProcStatus = toInt(index, entry);
+        break;
+      case FRAUD_SCORE_PROC_MSG:
+        fraudScoreProcMsg = index.getValue(entry);
+        break;
+      case FRAUD_STATUS_CODE:
+        fraudStatusCode = index.getValue(entry);
+        break;
+      case RISK_INQ_TRANS_ID:
+        riskInqTransId = index.getValue(entry);
+        break;
+      case AUTO_DECISION_RESPONSE:
+        autoDecisionResponse = index.getValue(entry);
+        break;
+      case RISK_SCORE:
+        riskScore = toInt(index, entry);
+        break;
+      default:
+        super.setField(field, index, entry);
+    }
+  }
+
+  public String getMerchantId() {
+    return merchantId;
+  }
+
+  public String getTerminalId() {
+    return terminalId;
+  }
+
+  public String getOrderId() {
+    return orderId;
+  }
+
+  public String getTxRefNum() {
+    return txRefNum;
+  }
+
+  public int getTxRefIdx() {
+    return txRefIdx;
+  }
+
+  /**
+   * @return the process status of the fraud scoring (NONE if the message does not have one)
+   */
+  public int getFraudScoreProcStatus() {
+    return fraudScoreProcStatus;
+  }
+
+  /**
+   * @return true if the fraud scoring was processed (fraud score process status 0)
+   */
+  public boolean isFraudScoreProcessed() {
+    return fraudScoreProcStatus == 0;
+  }
+
+  public String getFraudScoreProcMsg() {
+    return fraudScoreProcMsg;
+  }
+
+  public String getFraudStatusCode() {
+    return fraudStatusCode;
+  }
+
+  public String getRiskInqTransId() {
+    return riskInqTransId;
+  }
+
+  /**
+   * @return the decision of the rules of the merchant (A approve, D decline, R review...)
+   */
+  public String getAutoDecisionResponse() {
+    return autoDecisionResponse;
+  }
+
+  /**
+   * @return the risk score (NONE if the message does not have one)
+   */
+  public int getRiskScore() {
+    return riskScore;
+  }
+}
@@ -0,0 +1,257 @@
+package com.paymentech.orbital.sdk.transactionProcessor;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p><b>Title:</b> Deadline</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> The time budget of a single transaction.  Waiting for an engine, every send
+ * attempt and the switch to the failover site are all bounded by the time remaining on the deadline, and the
+ * caller may cancel the transaction from another thread at any time.
+ * <br><br> While an engine is talking to the gateway it registers an abort action with the deadline; the action
+ * is run when the transaction is cancelled or when the deadline expires, so a transaction never blocks far past
+ * its deadline (even while a response is still being read).  A thread waiting for an engine is interrupted
+ * instead (see {@link #interruptOnAbort()}).
+ * <p/>
+ * <pre>
+ * Deadline deadline = new Deadline(8000);
+ * response = transactionProcessor.process(request, deadline);
+ * ...
+ * // from another thread
+ * deadline.cancel();
+ * </pre></p>
+ */
+public class Deadline {
+
+  // fires the abort action of the transactions whose deadline expires while they are talking to the gateway
+  private static ScheduledThreadPoolExecutor expiryTimer = null;
+
+  // System.nanoTime() at which the deadline expires (only meaningful when bounded)
+  private final long expiresNanos;
+  private final long timeoutMillis;
+  private final boolean bounded;
+  private volatile boolean cancelled = false;
+  // guarded by this
+  private Runnable abortAction = null;
+  private ScheduledFuture expiryTask = null;
+  // the thread interrupted by the abort action, while it waits (guarded by this)
+  private Thread interruptible = null;
+  private boolean interrupted = false;
+
+  /**
+   * A deadline that expires timeoutMillis from now
+   *
+   * @param timeoutMillis the time budget of the transaction (a negative value never expires)
+   */
+  public Deadline(long timeoutMillis) {
+    this.timeoutMillis = timeoutMillis;
+    this.bounded = timeoutMillis >= 0;
+    this.expiresNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(timeoutMillis, 0));
+  }
+
+  /**
+   * A deadline that never expires (it can still be cancelled)
+   *
+   * @return Deadline
+   */
+  public static Deadline none() {
+    return new Deadline(-1);
+  }
+
+  /**
+   * @return true if the deadline expires
+   */
+  public boolean isBounded() {
+    return bounded;
+  }
+
+  /**
+   * @return the time budget the deadline was created with (negative if it never expires)
+   */
+  public long getTimeoutMillis() {
+    return timeoutMillis;
+  }
+
+  /**
+   * The time left before the deadline expires
+   *
+   * @return the remaining milliseconds (0 once expired, Long.MAX_VALUE if the deadline never expires)
+   */
+  public long getRemainingMillis() {
+    if (!bounded) {
+      return Long.MAX_VALUE;
+    }
+    long remaining = TimeUnit.NANOSECONDS.toMillis(expiresNanos - System.nanoTime());
+    return (remaining > 0) ? remaining : 0;
+  }
+
+  public boolean isExpired() {
+    return bounded && expiresNanos - System.nanoTime() <= 0;
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * @return true if the transaction may not go on (the deadline has expired or it was cancelled)
+   */
+  public boolean isDone() {
+    return cancelled || isExpired();
+  }
+
+  /**
+   * Bound a timeout by the time remaining on the deadline
+   *
+   * @param timeoutMillis the timeout (0 or negative means no timeout)
+   * @return the smaller of the timeout and the remaining time (at least 1 millisecond, so it never means "no
+   *         timeout")
+   */
+  public long bound(long timeoutMillis) {
+    if (!bounded) {
+      return timeoutMillis;
+    }
+    long remaining = Math.max(getRemainingMillis(), 1);
+    return (timeoutMillis <= 0) ? remaining : Math.min(timeoutMillis, remaining);
+  }
+
+  /**
+   * Make sure the transaction may go on
+   *
+   * @param phase what the transaction is about to do (used in the exception message)
+   * @throws DeadlineExceededException if the deadline has expired or the transaction was cancelled
+   */
+  public void check(String phase) throws DeadlineExceededException {
+    if (cancelled) {
+      throw new DeadlineExceededException("Transaction was cancelled before " + phase + ".", true);
+    }
+    if (isExpired()) {
+      throw new DeadlineExceededException("Transaction deadline of " + timeoutMillis +
+          " milliseconds expired before " + phase + ".", false);
+    }
+  }
+
+  /**
+   * Cancel the transaction.  An engine talking to the gateway on behalf of the transaction is aborted.
+   */
+  public void cancel() {
+    cancelled = true;
+    runAbortAction();
+  }
+
+  /**
+   * Register the action that aborts the exchange currently in progress (used by the engines).  The action is run
+   * when the transaction is cancelled or the deadline expires, until {@link #clearAbortAction()} is called.
+   *
+   * @param action the abort action
+   */
+  public synchronized void setAbortAction(Runnable action) {
+    clearAbortAction();
+    this.abortAction = action;
+
+    if (cancelled || isExpired()) {
+      runAbortAction();
+    } else if (bounded) {
+      expiryTask = getExpiryTimer().schedule(new Runnable() {
+        public void run() {
+          runAbortAction();
+        }
+      }, expiresNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Forget the abort action (the exchange has completed)
+   */
+  public synchronized void clearAbortAction() {
+    if (expiryTask != null) {
+      expiryTask.cancel(false);
+      expiryTask = null;
+    }
+    abortAction = null;
+  }
+
+  /**
+   * Interrupt the calling thread when the transaction is cancelled or the deadline expires, until
+   * {@link #endInterruptibleWait()} is called.  Used around a wait that only a timeout or an interrupt ends
+   * (waiting for an engine from the pool).
+   */
+  public void interruptOnAbort() {
+    synchronized (this) {
+      interruptible = Thread.currentThread();
+      interrupted = false;
+    }
+    setAbortAction(new Runnable() {
+      public void run() {
+        synchronized (Deadline.this) {
+          if (interruptible != null) {
+            interrupted = true;
+            interruptible.interrupt();
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * End the wait started by {@link #interruptOnAbort()}: the thread is no longer interrupted by the deadline, and
+   * an interrupt the deadline did deliver is cleared.
+   *
+   * @return true if the wait was interrupted by the deadline
+   */
+  public boolean endInterruptibleWait() {
+    synchronized (this) {
+      clearAbortAction();
+      interruptible = null;
+      if (!interrupted) {
+        return false;
+      }
+      interrupted = false;
+    }
+    Thread.interrupted();
+    return true;
+  }
+
+  private void runAbortAction() {
+    Runnable action = null;
+    synchronized (this) {
+      action = abortAction;
+      abortAction = null;
+    }
+    if (action != null) {
+      try {
+        action.run();
+      } catch (Throwable th) {
+        // the exchange is being abandoned anyway
+      }
+    }
+  }
+
+  private static synchronized ScheduledThreadPoolExecutor getExpiryTimer() {
+    if (expiryTimer == null) {
+      expiryTimer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "OrbitalDeadlineTimer");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+      // don't keep the tasks of exchanges that completed in time
+      expiryTimer.setRemoveOnCancelPolicy(true);
+    }
+    return expiryTimer;
+  }
+
+  public String toString() {
+    if (cancelled) {
+      return "Deadline[cancelled]";
+    }
+    return bounded ? "Deadline[remainingMillis=" + getRemainingMillis() + "]" : "Deadline[none]";
+  }
+}
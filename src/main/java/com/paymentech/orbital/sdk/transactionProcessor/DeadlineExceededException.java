@@ -0,0 +1,36 @@
+package com.paymentech.orbital.sdk.transactionProcessor;
+
+/**
+ * <p><b>Title:</b> DeadlineExceededException</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Indicates that a transaction was abandoned because its {@link Deadline} expired
+ * or because it was cancelled.  If the request had already been sent, the outcome of the transaction at the
+ * gateway is unknown; it can be resolved by resending it with the same retry trace number. </p>
+ */
+public class DeadlineExceededException extends TransactionException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final boolean cancelled;
+
+  /**
+   * Constructor including the message
+   *
+   * @param message
+   * @param cancelled true if the transaction was cancelled (rather than timed out)
+   */
+  public DeadlineExceededException(String message, boolean cancelled) {
+    super(message);
+    this.cancelled = cancelled;
+  }
+
+  /**
+   * @return true if the transaction was cancelled, false if its deadline expired
+   */
+  public boolean isCancelled() {
+    return cancelled;
+  }
+}
@@ -0,0 +1,80 @@
+package com.paymentech.orbital.sdk.transactionProcessor;
+
+import com.paymentech.orbital.sdk.engine.failover.Endpoint;
+import com.paymentech.orbital.sdk.engine.failover.EndpointRouter;
+
+/**
+ * <p><b>Title:</b> Route</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> The gateways tried by a single transaction.  Until its retries are
+ * exhausted each attempt goes to the gateway chosen by the router (so the transaction follows the circuit
+ * breakers); after that the transaction switches to the other gateway for its remaining attempts. </p>
+ */
+class Route {
+
+  private final EndpointRouter router;
+  // gateway of the latest attempt
+  private Endpoint current = null;
+  // gateway the transaction switched to once its retries were exhausted
+  private Endpoint switchedTo = null;
+  private int retries = 0;
+
+  Route(EndpointRouter router) {
+    this.router = router;
+  }
+
+  /**
+   * Choose the gateway for the next attempt, taking permission from its circuit breaker
+   *
+   * @return the gateway, or null if its circuit (or the circuits of all the gateways) are open
+   */
+  Endpoint next() {
+    current = (switchedTo == null) ? router.select() : router.select(switchedTo);
+    return current;
+  }
+
+  /**
+   * Count a failed attempt
+   *
+   * @return the number of retries on the current gateway
+   */
+  int countRetry() {
+    return ++retries;
+  }
+
+  /**
+   * Send the remaining attempts to the other gateway
+   *
+   * @return the other gateway, or null if there is none to switch to
+   */
+  Endpoint switchOver() {
+    if (switchedTo != null) {
+      return null;
+    }
+    switchedTo = router.getAlternate(current);
+    retries = 0;
+    return switchedTo;
+  }
+
+  Endpoint getCurrent() {
+    return current;
+  }
+
+  /**
+   * Send the current attempt to the gateway whose connection won the race
+   */
+  void setCurrent(Endpoint current) {
+    this.current = current;
+  }
+
+  int getRetries() {
+    return retries;
+  }
+
+  boolean isSwitched() {
+    return switchedTo != null;
+  }
+}
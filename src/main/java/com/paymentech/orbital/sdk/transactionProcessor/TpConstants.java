@@ -19,6 +19,22 @@ public interface TpConstants {
    */
   String POOL_SIZE_KEY = "TransactionProcessor.poolSize";
 
+  /**
+   * The key for locating the minimum pool size (the pool never shrinks below it) in the configurations.
+   */
+  String MIN_POOL_SIZE_KEY = "TransactionProcessor.minPoolSize";
+
+  /**
+   * The key for locating the maximum pool size (the pool grows up to it when all engines are busy) in the
+   * configurations.
+   */
+  String MAX_POOL_SIZE_KEY = "TransactionProcessor.maxPoolSize";
+
+  /**
+   * The key for locating the number of seconds an idle engine is kept before it is retired in the configurations.
+   */
+  String ENGINE_KEEP_ALIVE_KEY = "TransactionProcessor.engineKeepAliveSeconds";
+
   /**
    * The key for locating the number of retries in the configurations.
    */
@@ -30,4 +46,30 @@ public interface TpConstants {
   String DEFAULT_POOL_SIZE = "5";
 
   String RETRY_EXCEPTION = "TransactionProcessor.retryExceptionList";
+
+  /**
+   * The key for locating the maximum time (in milliseconds) to wait for an engine from the pool in the
+   * configurations.  When not configured, callers wait until an engine is available.
+   */
+  String ACQUIRE_TIMEOUT_KEY = "TransactionProcessor.acquireTimeoutMillis";
+
+  /**
+   * The key for locating the default deadline (in milliseconds) of a transaction in the configurations.
+   */
+  String DEADLINE_KEY = "TransactionProcessor.deadlineMillis";
+
+  /**
+   * The key for locating the execution mode of processAsync in the configurations.
+   */
+  String EXECUTION_MODE_KEY = "TransactionProcessor.executionMode";
+
+  /**
+   * Execution mode: transactions are sent by the non-blocking engine (the default)
+   */
+  String EXECUTION_MODE_ASYNC = "async";
+
+  /**
+   * Execution mode: each transaction is processed by a pooled engine on its own virtual thread
+   */
+  String EXECUTION_MODE_VIRTUAL = "virtual";
 }
@@ -3,20 +3,33 @@ package com.paymentech.orbital.sdk.transactionProcessor;
 import com.paymentech.eis.tools.StringUtils;
 import com.paymentech.orbital.sdk.configurator.Configurator;
 import com.paymentech.orbital.sdk.configurator.ConfiguratorIF;
+import com.paymentech.orbital.sdk.engine.AsyncEngineIF;
 import com.paymentech.orbital.sdk.engine.EngineIF;
+import com.paymentech.orbital.sdk.engine.failover.CircuitBreaker;
+import com.paymentech.orbital.sdk.engine.failover.Endpoint;
+import com.paymentech.orbital.sdk.engine.failover.EndpointRouter;
 import com.paymentech.orbital.sdk.engine.http.HttpEngineConstants;
+import com.paymentech.orbital.sdk.engine.pool.EngineLease;
 import com.paymentech.orbital.sdk.engine.pool.EngineNotAvailableException;
 import com.paymentech.orbital.sdk.engine.pool.EnginePool;
 import com.paymentech.orbital.sdk.engine.pool.EnginePoolIF;
 import com.paymentech.orbital.sdk.interfaces.RequestIF;
 import com.paymentech.orbital.sdk.interfaces.ResponseIF;
 import com.paymentech.orbital.sdk.interfaces.TransactionProcessorIF;
+import com.paymentech.orbital.sdk.request.RenderedRequest;
 import com.paymentech.orbital.sdk.util.exceptions.InitializationException;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
 import java.net.SocketTimeoutException;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.BiConsumer;
 
 /**
  * <p><b>Title:</b> TransactionProcessor.java</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
@@ -26,7 +39,15 @@ import java.util.Map;
  * OF Paymentech. The copyright notice above does not evidence any actual or intended publication of such source code.</p>
  * <p><b>Author:</b> Scott Monahan</p><p><b>Description:</b><br><br>
  * Manages the execution of transactions; acquires and releases resources, manages retries and handles errors
- * including failover state. </p>
+ * including failover state.  Transactions can be processed either blocking or asynchronously; both follow the
+ * same retry, trace number and failover rules.  Engines are leased from the pool, so a transaction does not
+ * depend on the identity of the thread that runs it.  In the "virtual" execution mode processAsync runs each
+ * transaction on its own virtual thread.
+ * <br><br> Each attempt is sent to the gateway chosen by the {@link EndpointRouter}, whose per-gateway circuit
+ * breakers move traffic to the failover gateway (and back) as soon as the failure rate of a gateway changes; a
+ * transaction that exhausts its retries on one gateway makes its remaining attempts on the other.
+ * <br><br> A transaction may be given a {@link Deadline}: waiting for an engine, every send attempt and the
+ * switch to the failover site are bounded by the time remaining on it, and it can be cancelled by the caller. </p>
  */
 public class TransactionProcessor implements TransactionProcessorIF {
 
@@ -36,14 +57,26 @@ public class TransactionProcessor implements TransactionProcessorIF {
   private static String returnToNormalLogMessage = null;
   private static String returnToNormalLogMessageFromTimeOut = null;
   private static String[] retryException = null;
+  // executor for the virtual execution mode (created on first use)
+  private static ExecutorService virtualExecutor = null;
   // variables used for convince
   private static ConfiguratorIF configurator;
-  private int retryAttempts = 0;
+  // retry count of the last transaction that was retried (transactions keep their own count in their Route)
+  private volatile int retryAttempts = 0;
   private int maxRetryAttempts;
   private Map configurations;
   private Logger eCommerceLogger;
   private Logger engineLogger;
   private EnginePoolIF enginePool;
+  // router of the transactions when the engine pool does not have one
+  private EndpointRouter endpointRouter;
+  private boolean virtualExecution = false;
+  // maximum time to wait for an engine from the pool (negative waits indefinitely)
+  private long acquireTimeoutMillis = -1;
+  // default time budget of a transaction (negative means no deadline)
+  private long deadlineMillis = -1;
+  // head start of the primary connection before the failover connection is raced (0 means no racing)
+  private long connectionRaceStaggerMillis = 0;
 
   /**
    * Initialize the TransactionProcessor.
@@ -85,12 +118,55 @@ public class TransactionProcessor implements TransactionProcessorIF {
       maxRetryAttempts = Integer.parseInt(sMaxRetryAttempts);
     }
 
+    // Get the maximum time to wait for an engine
+    String sAcquireTimeout = (String) configurations.get(TpConstants.ACQUIRE_TIMEOUT_KEY);
+    if (!StringUtils.isEmpty(sAcquireTimeout)) {
+      try {
+        acquireTimeoutMillis = Long.parseLong(sAcquireTimeout.trim());
+      } catch (NumberFormatException nfe) {
+        engineLogger.error("Invalid engine acquire timeout [" + sAcquireTimeout + "] in the " +
+            "linehandler.properties file. Waiting indefinitely for an engine.");
+        acquireTimeoutMillis = -1;
+      }
+    }
+
+    // Get the default deadline of a transaction
+    String sDeadline = (String) configurations.get(TpConstants.DEADLINE_KEY);
+    if (!StringUtils.isEmpty(sDeadline)) {
+      try {
+        deadlineMillis = Long.parseLong(sDeadline.trim());
+      } catch (NumberFormatException nfe) {
+        engineLogger.error("Invalid transaction deadline [" + sDeadline + "] in the " +
+            "linehandler.properties file. Transactions have no deadline.");
+        deadlineMillis = -1;
+      }
+    }
+
+    // Get the head start of the preferred gateway when connections are raced
+    String sRaceStagger = (String) configurations.get(HttpEngineConstants.CONNECTION_RACE_STAGGER_KEY);
+    if (!StringUtils.isEmpty(sRaceStagger)) {
+      try {
+        connectionRaceStaggerMillis = Long.parseLong(sRaceStagger.trim());
+      } catch (NumberFormatException nfe) {
+        engineLogger.error("Invalid connection race stagger [" + sRaceStagger + "] in the " +
+            "linehandler.properties file. Connections are not raced.");
+        connectionRaceStaggerMillis = 0;
+      }
+    }
+
+    // Get the execution mode used by processAsync
+    virtualExecution = TpConstants.EXECUTION_MODE_VIRTUAL.equalsIgnoreCase(
+        (String) configurations.get(TpConstants.EXECUTION_MODE_KEY));
+
     try {
       this.enginePool = EnginePool.getInstance();
     } catch (ClassNotFoundException cnfe) {
       engineLogger.error("Engine class not found.", cnfe);
       throw new InitializationException("Engine class not found.");
     }
+    if (enginePool.getEndpointRouter() == null) {
+      endpointRouter = new EndpointRouter(configurations, engineLogger);
+    }
 
     // construct messages used in this processor
     failoverLogMessage = "automatic URL failover from " +
@@ -124,39 +200,66 @@ public class TransactionProcessor implements TransactionProcessorIF {
    * @throws TransactionException
    */
   public ResponseIF process(RequestIF request) throws TransactionException {
+    return process(request, new Deadline(deadlineMillis));
+  }
+
+  /**
+   * Process a transaction within timeoutMillis
+   *
+   * @param request       The request object
+   * @param timeoutMillis The time budget of the transaction
+   * @return ResponseIF A response object
+   * @throws TransactionException
+   */
+  public ResponseIF process(RequestIF request, long timeoutMillis) throws TransactionException {
+    return process(request, new Deadline(timeoutMillis));
+  }
+
+  /**
+   * Process a transaction before a deadline.  Waiting for an engine, every send attempt and the switch to the
+   * failover site are bounded by the time remaining on the deadline.
+   *
+   * @param request  The request object
+   * @param deadline The deadline of the transaction
+   * @return ResponseIF A response object
+   * @throws DeadlineExceededException if the deadline expires or the transaction is cancelled
+   * @throws TransactionException
+   */
+  public ResponseIF process(RequestIF request, Deadline deadline) throws TransactionException {
+    EngineLease lease = null;
     EngineIF engine = null;
     ResponseIF response = null;
-    long logTransactionID = 0;
     boolean done = false;
+    // the gateways tried by this transaction (local, so concurrent transactions on this processor don't share it)
+    Route route = null;
 
     try {
 
       retryAttempts = 0;
 
-      logTransactionID = request.getLogTransactionID();
+      logCounterReset(request);
 
-      if (logTransactionID == 0) {
-        eCommerceLogger.debug("********* request/response counter has been reset, " +
-            " due to application restart *********");
-        engineLogger.debug("********* request/response counter has been reset, " +
-            " due to application restart *********");
-      }
-
-      //Get an engine from the pool, will block until an engine is available
-      engine = getEngine();
+      // render the request once for all the attempts
+      request = RenderedRequest.render(request);
 
-      //Reset failover (if we are in failover mode and if failover interval has expired)
-      resetFailoverStateTimed();
+      //Lease an engine from the pool, will block until an engine is available (or the deadline expires)
+      deadline.check("acquiring an engine");
+      lease = getEngineLease(deadline);
+      engine = lease.getEngine();
+      route = new Route(getEndpointRouter());
 
       //Execute the transaction
       engineLogger.debug("executing transaction...");
 
       while (!done) {
 
+        // don't start another attempt (or the failover) past the deadline
+        deadline.check((route.getRetries() == 0) ? "sending the request" : "retrying the request");
+
         // try to connect and send
         // this method will throw an error for anything that
         // does not cause a retry or give a completed response
-        response = connectAndSend(engine, request);
+        response = sendAttempt(engine, request, route, deadline);
 
         if (response != null) {
 
@@ -167,47 +270,8 @@ public class TransactionProcessor implements TransactionProcessorIF {
 
         } else {
 
-
-          // increment the retry counter
-
-          // increment the retry counter
-          retryAttempts++;
-
-          if (retryAttempts > maxRetryAttempts) {
-
-            String failoverHost = engine.retFailOverHost();
-            if (failoverHost == null || failoverHost.trim().length() == 0) {
-              engineLogger.info("Retry attempts have been exhausted");
-              engineLogger.info("FailoverHost is not configured in linehandler.properties file");
-              throw new TransactionException("Transaction failed - check engine log for details.");
-            }
-            engineLogger.debug("Retry attempts have been exhausted");
-
-            // we have meet the limit for trying to connect
-            // we need to check if we need to fail over or
-            // we are already in a failed over state
-            if (!getFailoverState()) {
-
-              // since we are not in failover mode, we can swith over and try to
-              // process in the secondary site
-              engineLogger.info("Switching over to fail over site and resetting retry attempts");
-              setFailoverState(true);
-              retryAttempts = 0;
-
-            } else {
-
-              // write out the failure to the log files
-              eCommerceLogger.error("Transaction " + request.getLogTransactionID() +
-                  " has failed to connect to Paymentech gateway - check engine log for details. ");
-
-              engineLogger.error("Transaction " + request.getLogTransactionID() +
-                  " has failed to connect to Paymentech gateway - check engine log for details. ");
-
-              // throw TransactionException
-              throw new TransactionException("Transaction failed - check engine log for details.");
-
-            }
-          }
+          // increment the retry counter (switches to the other gateway once the retries are exhausted)
+          retryAttempts = countRetryAttempt(request, route);
         }
       }
     } catch (TransactionException te) {
@@ -218,14 +282,14 @@ public class TransactionProcessor implements TransactionProcessorIF {
     } finally {
       // make sure that we can't leave this method without
       // trying to relase our engine
-      if (engine != null) {
+      if (lease != null) {
 
         engineLogger.debug("releasing engine back to pool...");
 
         // make sure the release is in a try catch so we will know
         // if something goes wrong
         try {
-          enginePool.release();
+          lease.close();
         } catch (Throwable th) {
           engineLogger.error("Caught error trying to release engine resource: " + th.getMessage(), th);
         }
@@ -236,6 +300,349 @@ public class TransactionProcessor implements TransactionProcessorIF {
     return response;
   }
 
+  /**
+   * Process a transaction without blocking the calling thread.  The transaction is executed by the shared
+   * asynchronous engine, so it does not hold an engine from the pool while waiting for the gateway.  In the
+   * "virtual" execution mode the transaction is processed by a pooled engine on its own virtual thread instead.
+   *
+   * @param request The request object
+   * @return CompletableFuture A future for the response object, completed exceptionally with a
+   *         TransactionException if the transaction fails
+   */
+  public CompletableFuture<ResponseIF> processAsync(RequestIF request) {
+    return processAsync(request, new Deadline(deadlineMillis));
+  }
+
+  /**
+   * Process a transaction without blocking the calling thread, before a deadline.  Cancelling the returned future
+   * cancels the transaction.
+   *
+   * @param request  The request object
+   * @param deadline The deadline of the transaction
+   * @return CompletableFuture A future for the response object, completed exceptionally with a
+   *         TransactionException if the transaction fails (a DeadlineExceededException if the deadline expires)
+   */
+  public CompletableFuture<ResponseIF> processAsync(RequestIF request, final Deadline deadline) {
+    CompletableFuture<ResponseIF> result = null;
+
+    if (virtualExecution) {
+      result = processOnVirtualThread(request, deadline);
+    } else {
+      result = new CompletableFuture<ResponseIF>();
+      sendFirstAsync(request, deadline, result);
+    }
+
+    // a caller cancelling the future cancels the transaction
+    result.whenComplete(new BiConsumer<ResponseIF, Throwable>() {
+      public void accept(ResponseIF response, Throwable failure) {
+        if (failure instanceof CancellationException) {
+          deadline.cancel();
+        }
+      }
+    });
+
+    return result;
+  }
+
+  private void sendFirstAsync(RequestIF request, Deadline deadline, CompletableFuture<ResponseIF> result) {
+    try {
+
+      logCounterReset(request);
+
+      // render the request once for all the attempts
+      request = RenderedRequest.render(request);
+
+      //Get the shared asynchronous engine
+      AsyncEngineIF engine = getAsyncEngine();
+
+      //Execute the transaction
+      engineLogger.debug("executing transaction asynchronously...");
+
+      sendAsync(engine, request, deadline, new Route(getEndpointRouter()), result);
+
+    } catch (TransactionException te) {
+      result.completeExceptionally(te);
+    } catch (Throwable th) {
+      engineLogger.error("Caught Exception: " + th.getMessage(), th);
+      result.completeExceptionally(new TransactionException(th.getMessage()));
+    }
+  }
+
+  /**
+   * Processes a transaction on its own virtual thread (or on a cached platform thread when the JVM does not
+   * support virtual threads)
+   *
+   * @param request  The request object
+   * @param deadline The deadline of the transaction
+   * @return CompletableFuture A future for the response object
+   */
+  private CompletableFuture<ResponseIF> processOnVirtualThread(final RequestIF request, final Deadline deadline) {
+    final CompletableFuture<ResponseIF> result = new CompletableFuture<ResponseIF>();
+
+    try {
+      getVirtualExecutor(engineLogger).execute(new Runnable() {
+        public void run() {
+          try {
+            result.complete(process(request, deadline));
+          } catch (Throwable th) {
+            result.completeExceptionally(th);
+          }
+        }
+      });
+    } catch (Throwable th) {
+      engineLogger.error("Caught Exception: " + th.getMessage(), th);
+      result.completeExceptionally(new TransactionException(th.getMessage()));
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the executor for the virtual execution mode.  Virtual threads are looked up reflectively so the SDK
+   * still runs on JVMs without them; those fall back to a cached pool of daemon threads.  The executor is shared
+   * by every processor.
+   *
+   * @param engineLogger the logger of the execution mode
+   * @return ExecutorService
+   */
+  private static synchronized ExecutorService getVirtualExecutor(Logger engineLogger) {
+    if (virtualExecutor == null) {
+      try {
+        virtualExecutor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+            .invoke(null);
+        engineLogger.info("processing transactions on virtual threads");
+      } catch (Exception ex) {
+        engineLogger.warn("virtual threads are not supported by this JVM... " +
+            "processing transactions on a cached thread pool");
+        virtualExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+          public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "OrbitalTransaction");
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+      }
+    }
+    return virtualExecutor;
+  }
+
+  /**
+   * Sends a transaction asynchronously and, when the send may be retried, sends it again once it has failed
+   *
+   * @param engine   the asynchronous engine
+   * @param request  the request
+   * @param deadline the deadline of the transaction
+   * @param route    the gateways tried so far
+   * @param result   the future completed with the outcome of the transaction
+   */
+  private void sendAsync(final AsyncEngineIF engine, final RequestIF request, final Deadline deadline,
+                         final Route route, final CompletableFuture<ResponseIF> result) {
+    CompletableFuture<ResponseIF> send = null;
+    Endpoint endpoint = null;
+
+    try {
+      // don't start another attempt (or the failover) past the deadline
+      deadline.check((route.getRetries() == 0) ? "sending the request" : "retrying the request");
+      endpoint = nextEndpoint(request, route);
+      send = engine.executeAsync(request, endpoint, deadline);
+    } catch (Throwable th) {
+      if (endpoint != null) {
+        endpoint.getCircuitBreaker().onIgnored();
+      }
+      endpoint = null;
+      send = new CompletableFuture<ResponseIF>();
+      send.completeExceptionally(th);
+    }
+
+    final Endpoint sentTo = endpoint;
+    send.whenComplete(new BiConsumer<ResponseIF, Throwable>() {
+      public void accept(ResponseIF response, Throwable failure) {
+        try {
+
+          if (sentTo != null) {
+            recordOutcome(sentTo, deadline, unwrap(failure));
+          }
+
+          if (failure != null) {
+            // this method will throw an error for anything that does not cause a retry
+            response = handleSendFailure(engine, request, deadline, unwrap(failure));
+          }
+
+          if (response != null) {
+            engineLogger.debug("transaction " + request.getLogTransactionID() + " complete.");
+            result.complete(response);
+          } else {
+            countRetryAttempt(request, route);
+            sendAsync(engine, request, deadline, route, result);
+          }
+
+        } catch (TransactionException te) {
+          result.completeExceptionally(te);
+        } catch (Throwable th) {
+          engineLogger.error("Caught Exception: " + th.getMessage(), th);
+          result.completeExceptionally(new TransactionException(th.getMessage()));
+        }
+      }
+    });
+  }
+
+  private static Throwable unwrap(Throwable failure) {
+    while (failure instanceof CompletionException && failure.getCause() != null) {
+      failure = failure.getCause();
+    }
+    return failure;
+  }
+
+  private void logCounterReset(RequestIF request) {
+    if (request.getLogTransactionID() == 0) {
+      eCommerceLogger.debug("********* request/response counter has been reset, " +
+          " due to application restart *********");
+      engineLogger.debug("********* request/response counter has been reset, " +
+          " due to application restart *********");
+    }
+  }
+
+  /**
+   * Count a failed send.  Once the retries are exhausted the transaction switches over to the other gateway
+   * (and the count starts over), or gives up if it has already switched.
+   *
+   * @param request the request
+   * @param route   the gateways tried by the transaction
+   * @return int the new number of retries
+   * @throws TransactionException if the transaction can not be retried anymore
+   */
+  private int countRetryAttempt(RequestIF request, Route route) throws TransactionException {
+
+    // increment the retry counter
+    int retryAttempts = route.countRetry();
+
+    if (retryAttempts > maxRetryAttempts) {
+
+      if (getEndpointRouter().getFailover() == null) {
+        engineLogger.info("Retry attempts have been exhausted");
+        engineLogger.info("FailoverHost is not configured in linehandler.properties file");
+        throw new TransactionException("Transaction failed - check engine log for details.");
+      }
+      engineLogger.debug("Retry attempts have been exhausted");
+
+      // we have meet the limit for trying to connect
+      // we need to check if we can switch to the other gateway or
+      // we have already switched
+      Endpoint from = route.getCurrent();
+      Endpoint to = route.switchOver();
+
+      if (to != null) {
+
+        // since we have not switched yet, we can try to process on the other gateway
+        engineLogger.info("Switching over to " + (to.isFailover() ? "fail over" : "primary") +
+            " site and resetting retry attempts");
+        engineLogger.info("automatic URL failover from " + from + " to " + to);
+        retryAttempts = 0;
+
+      } else {
+
+        // write out the failure to the log files
+        eCommerceLogger.error("Transaction " + request.getLogTransactionID() +
+            " has failed to connect to Paymentech gateway - check engine log for details. ");
+
+        engineLogger.error("Transaction " + request.getLogTransactionID() +
+            " has failed to connect to Paymentech gateway - check engine log for details. ");
+
+        // throw TransactionException
+        throw new TransactionException("Transaction failed - check engine log for details.");
+
+      }
+    }
+
+    return retryAttempts;
+  }
+
+  /**
+   * Choose the gateway for the next attempt of a transaction
+   *
+   * @param request the request
+   * @param route   the gateways tried by the transaction
+   * @return Endpoint
+   * @throws TransactionException if the circuit of the gateway (or of all the gateways) is open
+   */
+  private Endpoint nextEndpoint(RequestIF request, Route route) throws TransactionException {
+    Endpoint endpoint = route.next();
+
+    if (endpoint == null) {
+      engineLogger.error("Transaction " + request.getLogTransactionID() + " was not sent: " +
+          getEndpointRouter());
+      throw new TransactionException("Transaction failed - no Paymentech gateway is available " +
+          "(circuit open) - check engine log for details.");
+    }
+
+    engineLogger.debug("sending transaction " + request.getLogTransactionID() + " to " + endpoint);
+    return endpoint;
+  }
+
+  /**
+   * Send one attempt of a transaction.  When connection racing is turned on, and the transaction has not
+   * switched gateways yet, a connection to the other gateway is raced against the connection to the chosen
+   * gateway, and the attempt is sent to the gateway that is connected first.
+   *
+   * @return ResponseIF or null when the attempt may be retried
+   * @throws TransactionException
+   */
+  private ResponseIF sendAttempt(EngineIF engine, RequestIF request, Route route, Deadline deadline)
+      throws TransactionException {
+    Endpoint endpoint = nextEndpoint(request, route);
+
+    if (connectionRaceStaggerMillis > 0 && !route.isSwitched()) {
+      EndpointRouter router = getEndpointRouter();
+      Endpoint alternate = router.select(router.getAlternate(endpoint));
+
+      if (alternate != null) {
+        try {
+          endpoint = engine.connect(endpoint, alternate, connectionRaceStaggerMillis, deadline);
+          route.setCurrent(endpoint);
+        } catch (Throwable th) {
+          // neither gateway could be connected: the engine has reported the alternate gateway
+          recordOutcome(endpoint, deadline, th);
+          return handleSendFailure(engine, request, deadline, th);
+        }
+      }
+    }
+
+    return connectAndSend(engine, request, endpoint, deadline);
+  }
+
+  /**
+   * Report the outcome of an attempt to the circuit breaker of the gateway it was sent to.  Only a failure to
+   * talk to the gateway counts against it; an attempt abandoned because of the deadline tells nothing about
+   * the gateway.
+   */
+  private void recordOutcome(Endpoint endpoint, Deadline deadline, Throwable failure) {
+    CircuitBreaker circuitBreaker = endpoint.getCircuitBreaker();
+
+    if (failure == null) {
+      circuitBreaker.onSuccess();
+    } else if (failure instanceof IOException && !deadline.isDone()) {
+      circuitBreaker.onFailure();
+    } else {
+      circuitBreaker.onIgnored();
+    }
+  }
+
+  /**
+   * Get the router that decides which gateway a transaction is sent to
+   *
+   * @return EndpointRouter (the router of the engine pool, or one of this processor if the pool has none)
+   */
+  protected EndpointRouter getEndpointRouter() {
+    EndpointRouter router = enginePool.getEndpointRouter();
+    return (router != null) ? router : endpointRouter;
+  }
+
+  /**
+   * Get the retry count of the last transaction: when transactions run concurrently on this processor, the
+   * count of whichever one was last started or retried
+   *
+   * @return the number of retries
+   */
   public int getRetryAttempts() {
     return this.retryAttempts;
   }
@@ -243,38 +650,33 @@ public class TransactionProcessor implements TransactionProcessorIF {
   /**
    * Return the failover state.
    *
-   * @return boolean, "true" implies "in failover state"
+   * @return boolean, "true" implies "in failover state" (the circuit of the primary gateway is not closed)
    */
   public boolean getFailoverState() {
-    return EnginePool.isFailover();
+    return !getEndpointRouter().getPrimary().getCircuitBreaker().isClosed();
   }
 
   /**
-   * Set the failover state
+   * Set the failover state by opening or closing the circuit of the primary gateway
    *
    * @param failoverState, "true" implies "go to failover state"
    */
   protected void setFailoverState(boolean failoverState) {
+    CircuitBreaker primary = getEndpointRouter().getPrimary().getCircuitBreaker();
 
     if (failoverState) {
 
-      EnginePool.setFailover(true);
+      primary.trip("failover mode was set");
 
       engineLogger.info(failoverLogMessage);
 
-      //Record the time that failover began
-      EnginePool.setFailoverStartMillis(System.currentTimeMillis());
-
-      engineLogger.debug("failover occurred at failoverStartMillis = " + EnginePool.getFailoverStartMillis());
+      engineLogger.debug("failover occurred at " + primary.getStateSinceMillis());
 
     } else {
 
-      EnginePool.setFailover(false);
+      primary.reset("failover mode was turned off");
 
       engineLogger.info(returnToNormalLogMessage);
-      //Report to the eCommerceLogger only if debug level logging
-      engineLogger.info(returnToNormalLogMessage);
-      EnginePool.setFailoverStartMillis(0);
 
     }
 
@@ -309,6 +711,70 @@ public class TransactionProcessor implements TransactionProcessorIF {
     return engine;
   }
 
+  /**
+   * Lease an engine from the pool
+   *
+   * @return EngineLease
+   * @throws TransactionException
+   */
+  protected EngineLease getEngineLease() throws TransactionException {
+    return getEngineLease(Deadline.none());
+  }
+
+  /**
+   * Lease an engine from the pool, waiting no longer than the time remaining on the deadline.  The wait ends
+   * as soon as the transaction is cancelled (the waiting thread is interrupted).
+   *
+   * @param deadline the deadline of the transaction
+   * @return EngineLease
+   * @throws TransactionException
+   */
+  protected EngineLease getEngineLease(Deadline deadline) throws TransactionException {
+    EngineLease lease = null;
+
+    try {
+
+      engineLogger.debug("leasing engine from pool...");
+
+      // get an engine from the pool (fails if none becomes available in time, or the transaction is cancelled)
+      deadline.interruptOnAbort();
+      try {
+        lease = enginePool.lease(deadline.bound(acquireTimeoutMillis));
+      } finally {
+        deadline.endInterruptibleWait();
+      }
+
+    } catch (EngineNotAvailableException ena) {
+      if (deadline.isDone()) {
+        deadline.check("an engine became available");
+      }
+      engineLogger.error("an engine could not be obtained from the pool or Initialization error", ena);
+      throw new TransactionException(ena.getMessage());
+    } catch (Throwable th) {
+      engineLogger.error("an exception occurred while attempting to lease an engine from the pool or Initialization error", th);
+      throw new TransactionException(th.getMessage());
+    }
+
+    engineLogger.debug("engine leased...");
+
+    return lease;
+  }
+
+  /**
+   * Get the shared asynchronous engine
+   *
+   * @return AsyncEngineIF
+   * @throws TransactionException
+   */
+  protected AsyncEngineIF getAsyncEngine() throws TransactionException {
+    try {
+      return enginePool.getAsyncEngine();
+    } catch (EngineNotAvailableException ena) {
+      engineLogger.error("the async engine could not be created or initialized", ena);
+      throw new TransactionException(ena.getMessage());
+    }
+  }
+
   /**
    * Sends transaction and returns boolean that relates to the success of the send
    * Meanings of boolean return values
@@ -319,18 +785,94 @@ public class TransactionProcessor implements TransactionProcessorIF {
    * @throws TransactionException
    */
   protected ResponseIF connectAndSend(EngineIF engine, RequestIF request) throws TransactionException, SocketTimeoutException {
+    return connectAndSend(engine, request, Deadline.none());
+  }
+
+  /**
+   * Sends the transaction within the time remaining on the deadline; returns null when the send may be retried
+   *
+   * @return ResponseIF
+   * @throws TransactionException
+   */
+  protected ResponseIF connectAndSend(EngineIF engine, RequestIF request, Deadline deadline)
+      throws TransactionException, SocketTimeoutException {
     ResponseIF response = null;
 
-    // nothing gets out of this method that we don't log and anything that is not a ConnectException is
-    // considered bad enough that we need to throw a TransactionException
     try {
 
-      response = engine.execute(request);
+      response = engine.execute(request, deadline);
 
       // indicate that the response message was successful created by sending
       // the response object back (don't know if
       // it altogether good at this point, but we do know we got something back
-    } catch (SocketTimeoutException e) {
+    } catch (Throwable th) {
+      response = handleSendFailure(engine, request, deadline, th);
+    }
+
+    return response;
+  }
+
+  /**
+   * Sends the transaction to the given gateway within the time remaining on the deadline, and reports the
+   * outcome to the circuit breaker of the gateway; returns null when the send may be retried
+   *
+   * @return ResponseIF
+   * @throws TransactionException
+   */
+  protected ResponseIF connectAndSend(EngineIF engine, RequestIF request, Endpoint endpoint, Deadline deadline)
+      throws TransactionException {
+    ResponseIF response = null;
+
+    try {
+
+      response = engine.execute(request, endpoint, deadline);
+      recordOutcome(endpoint, deadline, null);
+
+    } catch (Throwable th) {
+      recordOutcome(endpoint, deadline, th);
+      response = handleSendFailure(engine, request, deadline, th);
+    }
+
+    return response;
+  }
+
+  /**
+   * Decides whether a send that failed before the deadline may be retried; a send that failed because the
+   * deadline expired (or the transaction was cancelled) is never retried
+   *
+   * @throws DeadlineExceededException if the deadline has expired or the transaction was cancelled
+   * @throws TransactionException       if the send may not be retried
+   */
+  protected ResponseIF handleSendFailure(EngineIF engine, RequestIF request, Deadline deadline, Throwable failure)
+      throws TransactionException {
+    if (failure instanceof DeadlineExceededException) {
+      throw (DeadlineExceededException) failure;
+    }
+    if (deadline.isDone()) {
+      engineLogger.error("Transaction " + request.getLogTransactionID() + " was abandoned: " + failure.getMessage());
+      deadline.check("the gateway responded");
+    }
+    return handleSendFailure(engine, request, failure);
+  }
+
+  /**
+   * Decides whether a failed send may be retried.  Returns null when the transaction may be retried and throws
+   * a TransactionException otherwise.
+   *
+   * @param engine  the engine that failed to send the transaction
+   * @param request the request
+   * @param failure the exception thrown by the engine
+   * @return ResponseIF always null (the send may be retried)
+   * @throws TransactionException if the send may not be retried
+   */
+  protected ResponseIF handleSendFailure(EngineIF engine, RequestIF request, Throwable failure)
+      throws TransactionException {
+    ResponseIF response = null;
+
+    // nothing gets out of this method that we don't log and anything that is not a ConnectException is
+    // considered bad enough that we need to throw a TransactionException
+    if (failure instanceof SocketTimeoutException) {
+      SocketTimeoutException e = (SocketTimeoutException) failure;
       if (StringUtils.isEmpty(request.getTraceNumber())) {
         engineLogger.error("Caught SocketTimeoutException: " + e.getMessage(), e);
         throw new TransactionException(e.getMessage());
@@ -355,10 +897,11 @@ public class TransactionProcessor implements TransactionProcessorIF {
             "to 90 seconds or greater to enable auto retry");
       }
       return response;
-    } catch (InitializationException ie) {
-      engineLogger.error("Caught InitializationException: " + ie.getMessage(), ie);
-      throw new TransactionException(ie.getMessage());
-    } catch (IOException ioe) {
+    } else if (failure instanceof InitializationException) {
+      engineLogger.error("Caught InitializationException: " + failure.getMessage(), failure);
+      throw new TransactionException(failure.getMessage());
+    } else if (failure instanceof IOException) {
+      IOException ioe = (IOException) failure;
       // lets check exact type of IO exception
       // if this is a ConnectException, we can safely retry the transaction
       // if not, then we need to throw the error because we can not be
@@ -375,9 +918,9 @@ public class TransactionProcessor implements TransactionProcessorIF {
       } else {
         throw new TransactionException(ioe.getMessage());
       }
-    } catch (Throwable th) {
-      engineLogger.error("Caught Exception: " + th.getMessage(), th);
-      throw new TransactionException(th.getMessage());
+    } else {
+      engineLogger.error("Caught Exception: " + failure.getMessage(), failure);
+      throw new TransactionException(failure.getMessage());
     }
 
     return response;
@@ -385,7 +928,11 @@ public class TransactionProcessor implements TransactionProcessorIF {
 
   /**
    * Reset the failover state back to normal, only if 20 minutes has passed since we entered failover
+   *
+   * @deprecated the circuit breakers of the {@link EndpointRouter} let traffic back to the primary gateway as
+   *             soon as it recovers
    */
+  @Deprecated
   protected void resetFailoverStateTimed() {
 
     if (EnginePool.isFailover()) {
@@ -0,0 +1,268 @@
+package com.paymentech.orbital.sdk.util.masking;
+
+import com.paymentech.orbital.sdk.configurator.Configurator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p><b>Title:</b> XmlMasker</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Masks the values of the sensitive elements of a request or response message
+ * before it is logged or displayed: the predefined fields (account numbers, security codes, passwords...) and
+ * the merchant specific fields of the MaskFieldList configuration.  The message is scanned once; every
+ * occurrence of a sensitive element is masked and the masked message is written once.
+ * <br><br> Requests keep the last 4 digits of AccountNum and mask CardSecVal as "XXX"; every other value is
+ * replaced by as many X's as it has characters.  A masker is immutable; the shared request and response maskers
+ * are rebuilt only when the MaskFieldList changes. </p>
+ */
+public final class XmlMasker {
+
+  /**
+   * Key of the comma separated list of merchant specific fields to mask
+   */
+  public static final String MASK_FIELD_LIST_KEY = "MaskFieldList";
+
+  /**
+   * Fields that are always masked
+   */
+  public static final String[] MASKED_FIELD_NAMES = {
+      "AccountNum",
+      "CardSecVal",
+      "CheckDDA",
+      "BMLCustomerSSN",
+      "CCAccountNum",
+      "ECPAccountDDA",
+      "OrbitalConnectionPassword",
+      "CAVV",
+      "AAV",
+      "StartAccountNum",
+      "EUDDIBAN"
+  };
+
+  private static final String ACCOUNT_NUM = "AccountNum";
+  private static final String CARD_SEC_VALUE = "CardSecVal";
+
+  // how a value is masked
+  private static final int MASK_ALL = 0;
+  private static final int MASK_ACCOUNT_NUM = 1;
+  private static final int MASK_CARD_SEC_VALUE = 2;
+
+  private static volatile XmlMasker requestMasker = null;
+  private static volatile XmlMasker responseMasker = null;
+
+  // MaskFieldList the masker was built from
+  private final String maskFieldList;
+  private final String[] names;
+  private final String[] endTags;
+  private final int[] modes;
+  // indexes of the names of each length
+  private final int[][] namesByLength;
+
+  private XmlMasker(String[] fieldNames, String maskFieldList, boolean request) {
+    this.maskFieldList = maskFieldList;
+
+    List nameList = new ArrayList();
+    for (int i = 0; i < fieldNames.length; i++) {
+      nameList.add(fieldNames[i]);
+    }
+    if (maskFieldList != null) {
+      String[] maskFieldArray = maskFieldList.split(",");
+      for (int i = 0; i < maskFieldArray.length; i++) {
+        String name = maskFieldArray[i].trim();
+        if (name.length() > 0 && !nameList.contains(name)) {
+          nameList.add(name);
+        }
+      }
+    }
+
+    names = (String[]) nameList.toArray(new String[nameList.size()]);
+    endTags = new String[names.length];
+    modes = new int[names.length];
+
+    int longest = 0;
+    for (int i = 0; i < names.length; i++) {
+      endTags[i] = "</" + names[i] + ">";
+      if (request && names[i].equalsIgnoreCase(ACCOUNT_NUM)) {
+        modes[i] = MASK_ACCOUNT_NUM;
+      } else if (request && names[i].equalsIgnoreCase(CARD_SEC_VALUE)) {
+        modes[i] = MASK_CARD_SEC_VALUE;
+      } else {
+        modes[i] = MASK_ALL;
+      }
+      longest = Math.max(longest, names[i].length());
+    }
+
+    namesByLength = new int[longest + 1][];
+    for (int i = 0; i < names.length; i++) {
+      int[] indexes = namesByLength[names[i].length()];
+      int[] grown = new int[(indexes == null) ? 1 : indexes.length + 1];
+      if (indexes != null) {
+        System.arraycopy(indexes, 0, grown, 0, indexes.length);
+      }
+      grown[grown.length - 1] = i;
+      namesByLength[names[i].length()] = grown;
+    }
+  }
+
+  /**
+   * @return the masker for request messages, with the current MaskFieldList
+   */
+  public static XmlMasker forRequests() {
+    XmlMasker masker = requestMasker;
+    String maskFieldList = getMaskFieldList();
+
+    if (masker == null || !sameList(masker.maskFieldList, maskFieldList)) {
+      masker = new XmlMasker(MASKED_FIELD_NAMES, maskFieldList, true);
+      requestMasker = masker;
+    }
+    return masker;
+  }
+
+  /**
+   * @return the masker for response messages, with the current MaskFieldList
+   */
+  public static XmlMasker forResponses() {
+    XmlMasker masker = responseMasker;
+    String maskFieldList = getMaskFieldList();
+
+    if (masker == null || !sameList(masker.maskFieldList, maskFieldList)) {
+      masker = new XmlMasker(MASKED_FIELD_NAMES, maskFieldList, false);
+      responseMasker = masker;
+    }
+    return masker;
+  }
+
+  /**
+   * @param fieldName the field to mask
+   * @return a masker of a single field (every character of its values is replaced by an X)
+   */
+  public static XmlMasker forField(String fieldName) {
+    return new XmlMasker(new String[]{fieldName}, null, false);
+  }
+
+  private static String getMaskFieldList() {
+    try {
+      return (String) Configurator.getInstance().getConfigurations().get(MASK_FIELD_LIST_KEY);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  private static boolean sameList(String list1, String list2) {
+    return (list1 == null) ? list2 == null : list1.equals(list2);
+  }
+
+  /**
+   * Mask a message
+   *
+   * @param message the xml message
+   * @return the masked message (the message itself when there is nothing to mask)
+   */
+  public String mask(String message) {
+    if (message == null) {
+      return null;
+    }
+
+    int length = message.length();
+    StringBuilder masked = null;
+    int copied = 0;
+    int position = message.indexOf('<');
+
+    while (position >= 0) {
+      int nameStart = position + 1;
+      int nameEnd = nameStart;
+      while (nameEnd < length && isNameChar(message.charAt(nameEnd))) {
+        nameEnd++;
+      }
+
+      int field = find(message, nameStart, nameEnd - nameStart);
+      if (field < 0) {
+        position = message.indexOf('<', nameStart);
+        continue;
+      }
+
+      // the value starts after the start tag (which may have attributes)
+      int tagEnd = message.indexOf('>', nameEnd);
+      if (tagEnd < 0) {
+        break;
+      }
+      if (message.charAt(tagEnd - 1) == '/') {
+        // empty element
+        position = message.indexOf('<', tagEnd);
+        continue;
+      }
+
+      int valueStart = tagEnd + 1;
+      int valueEnd = message.indexOf(endTags[field], valueStart);
+      if (valueEnd < 0) {
+        position = message.indexOf('<', valueStart);
+        continue;
+      }
+
+      if (valueEnd > valueStart) {
+        if (masked == null) {
+          masked = new StringBuilder(length);
+        }
+        masked.append(message, copied, valueStart);
+        appendMask(masked, message, valueStart, valueEnd, modes[field]);
+        copied = valueEnd;
+      }
+
+      position = message.indexOf('<', valueEnd + endTags[field].length());
+    }
+
+    if (masked == null) {
+      return message;
+    }
+    masked.append(message, copied, length);
+    return masked.toString();
+  }
+
+  private static void appendMask(StringBuilder masked, String message, int valueStart, int valueEnd, int mode) {
+    int valueLength = valueEnd - valueStart;
+
+    switch (mode) {
+      case MASK_ACCOUNT_NUM:
+        // mask all but last 4 digits
+        if (valueLength > 4) {
+          masked.append("XXXXXXXXXXXX");
+          masked.append(message, valueEnd - 4, valueEnd);
+        }
+        break;
+      case MASK_CARD_SEC_VALUE:
+        // just mask everything out
+        masked.append("XXX");
+        break;
+      default:
+        // preserve the length of the message
+        for (int i = 0; i < valueLength; i++) {
+          masked.append('X');
+        }
+    }
+  }
+
+  /**
+   * @return the index of the sensitive field named by a region of the message, or -1
+   */
+  private int find(String message, int start, int count) {
+    if (count >= namesByLength.length || namesByLength[count] == null) {
+      return -1;
+    }
+
+    int[] indexes = namesByLength[count];
+    for (int i = 0; i < indexes.length; i++) {
+      if (message.regionMatches(start, names[indexes[i]], 0, count)) {
+        return indexes[i];
+      }
+    }
+    return -1;
+  }
+
+  private static boolean isNameChar(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.' || c == ':';
+  }
+}
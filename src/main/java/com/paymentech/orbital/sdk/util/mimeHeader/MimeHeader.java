@@ -1,16 +1,19 @@
 package com.paymentech.orbital.sdk.util.mimeHeader;
 
 import com.paymentech.eis.tools.StringUtils;
+import com.paymentech.orbital.sdk.configurator.ConfigurationSnapshot;
 import com.paymentech.orbital.sdk.configurator.ConfiguratorIF;
-import com.paymentech.orbital.sdk.engine.http.HttpEngineConstants;
 import com.paymentech.orbital.sdk.interfaces.RequestIF;
+import com.paymentech.orbital.sdk.request.RenderedRequest;
 import com.paymentech.orbital.sdk.request.RequestConstructionException;
+import com.paymentech.orbital.sdk.request.RequestPayload;
 import com.paymentech.orbital.sdk.util.exceptions.InitializationException;
 import org.apache.commons.httpclient.Header;
 import org.apache.commons.httpclient.methods.PostMethod;
 import org.apache.log4j.Logger;
 
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * <p><b>Title:</b> MimeHeader.java</p> <p>(C)opyright 2003 Paymentech THIS IS UNPUBLISHED PROPRIETARY SOURCE CODE OF Paymentech.
@@ -117,7 +120,7 @@ public class MimeHeader {
 
   /* Mime Header Properties*/
   private ConfiguratorIF configurator = null;
-  private Map configurations = null;
+  private ConfigurationSnapshot snapshot = null;
   private Logger engineLogger = null;
 
   /**
@@ -133,49 +136,95 @@ public class MimeHeader {
       throw new NullPointerException("mime header requires configurator");
     }
 
-    //Get the configurations Map from the Configurator
-    this.configurations = configurator.getConfigurations();
+    //Get the settings compiled from the configurations
+    this.snapshot = configurator.getSnapshot();
     //Get the engine logger
     this.engineLogger = configurator.getCommonEngineLogger();
   }
 
   public void populateMimeHeaders(PostMethod method, RequestIF request) throws InitializationException, RequestConstructionException {
+    populateMimeHeaders(method, request, -1);
+  }
+
+  /**
+   * Add the mime headers of a request to a post
+   *
+   * @param method        the post
+   * @param request       the request
+   * @param contentLength the length of the rendered payload (only logged), or -1 if it is not known
+   */
+  public void populateMimeHeaders(PostMethod method, RequestIF request, int contentLength)
+      throws InitializationException, RequestConstructionException {
+
+    Header[] headers = getMimeHeaders(request, contentLength);
+    for (int index = 0; index < headers.length; index++) {
+      method.addRequestHeader(headers[index]);
+    }
+  }
+
+  /**
+   * Build the mime headers for a request, independent of the http client used to send it
+   *
+   * @param request the request
+   * @return the mime headers, in the order they are to be sent
+   */
+  public Header[] getMimeHeaders(RequestIF request) throws InitializationException, RequestConstructionException {
+    return getMimeHeaders(request, -1);
+  }
+
+  /**
+   * Build the mime headers for a request whose payload has already been rendered
+   *
+   * @param request       the request
+   * @param contentLength the length of the rendered payload (only logged), or -1 if it is not known
+   * @return the mime headers, in the order they are to be sent
+   */
+  public Header[] getMimeHeaders(RequestIF request, int contentLength)
+      throws InitializationException, RequestConstructionException {
+
+    // a rendered request keeps its headers for all its attempts
+    if (request instanceof RenderedRequest) {
+      RenderedRequest rendered = (RenderedRequest) request;
+      if (rendered.getMimeHeaders() == null) {
+        rendered.setMimeHeaders(buildMimeHeaders(request, rendered.getPayload().getLength()));
+      }
+      return rendered.getMimeHeaders();
+    }
+
+    return buildMimeHeaders(request, contentLength);
+  }
+
+  private Header[] buildMimeHeaders(RequestIF request, int contentLength)
+      throws InitializationException, RequestConstructionException {
+    List headers = new ArrayList(8);
 
     // MIME Version
-    Header header = new Header(MIME_VERSION_HEADER, MIME_VERSION_DEFAULT);
-    method.addRequestHeader(header);
+    headers.add(new Header(MIME_VERSION_HEADER, MIME_VERSION_DEFAULT));
 
     // SDK Version
-    header = new Header(SDK_VERSION_HEADER,
-        (String) configurations.get(HttpEngineConstants.SDK_VERSION_KEY));
-    method.addRequestHeader(header);
+    headers.add(new Header(SDK_VERSION_HEADER,
+        snapshot.getSdkVersion()));
 
     // Content Type
-    header = new Header(CONTENT_TYPE_HEADER,
-        CONTENT_TYPE_DIRECTORY_DEFAULT + "/" + (String) configurations.get(HttpEngineConstants.DTD_VERSION_KEY));
-    method.addRequestHeader(header);
+    headers.add(new Header(CONTENT_TYPE_HEADER,
+        CONTENT_TYPE_DIRECTORY_DEFAULT + "/" + snapshot.getDtdVersion()));
 
     // Content Encoding Header
-    header = new Header(CONTENT_ENCODING_HEADER, CONTENT_ENCODING_DEFAULT);
-    method.addRequestHeader(header);
+    headers.add(new Header(CONTENT_ENCODING_HEADER, CONTENT_ENCODING_DEFAULT));
 
     // Request Number
-    header = new Header(REQUEST_NUMBER_HEADER, Long.toString(request.getLogTransactionID()));
-    method.addRequestHeader(header);
+    headers.add(new Header(REQUEST_NUMBER_HEADER, Long.toString(request.getLogTransactionID())));
 
     // Document Type
-    header = new Header(DOCUMENT_TYPE_HEADER, DOC_TYPE_REQUEST);
-    method.addRequestHeader(header);
+    headers.add(new Header(DOCUMENT_TYPE_HEADER, DOC_TYPE_REQUEST));
 
     // check if we are going to send a trace
     if (!StringUtils.isEmpty(request.getField("MerchantID"))
         && (!StringUtils.isEmpty(request.getTraceNumber()))) {
 
-      header = new Header(MERCHANT_ID_HEADER, request.getField("MerchantID"));
-      method.addRequestHeader(header);
+      headers.add(new Header(MERCHANT_ID_HEADER, request.getField("MerchantID")));
 
-      header = new Header(TRACE_NUMBER_HEADER, request.getTraceNumber());
-      method.addRequestHeader(header);
+      headers.add(new Header(TRACE_NUMBER_HEADER, request.getTraceNumber()));
 
     }
 
@@ -185,9 +234,9 @@ public class MimeHeader {
       StringBuffer sbMimeHeaders = new StringBuffer();
 
       //Transform the mimeHeaders into a String so we can log it
-      for (int index = 0; index < method.getRequestHeaders().length; index++) {
+      for (int index = 0; index < headers.size(); index++) {
 
-        header = (Header) method.getRequestHeaders()[index];
+        Header header = (Header) headers.get(index);
 
         sbMimeHeaders.append(header.getName());
         sbMimeHeaders.append(": ");
@@ -197,10 +246,18 @@ public class MimeHeader {
       }
 
       sbMimeHeaders.append("Content-length: ");
-      sbMimeHeaders.append(request.getXML().length());
+      if (contentLength < 0) {
+        // render the request just for the log
+        RequestPayload payload = new RequestPayload();
+        request.writePayload(payload);
+        contentLength = payload.getLength();
+      }
+      sbMimeHeaders.append(contentLength);
       sbMimeHeaders.append("\n");
 
       engineLogger.debug("request " + request.getLogTransactionID() + " mime header ==>\n" + sbMimeHeaders.toString());
     }
+
+    return (Header[]) headers.toArray(new Header[headers.size()]);
   }
 }
@@ -105,10 +105,9 @@ public class EasySSLProtocolSocketFactory implements SecureProtocolSocketFactory
       int clientPort,
       HttpConnectionParams params)
       throws IOException, UnknownHostException {
-    SSLSocketFactory sf = SocketFactoryFactory.getSocketFactory(configurator);
-    Socket retval = sf.createSocket(host, port, clientHost, clientPort);
-    // TODO: set socket parameters here
-    return retval;
+    // connect within the connection timeout so that the session for this gateway can be resumed
+    return SocketFactoryFactory.connect(configurator, host, port, clientHost, clientPort,
+        (params == null) ? 0 : params.getConnectionTimeout());
   }
 
 
@@ -29,4 +29,24 @@ public interface SSLConstants {
    */
   String TRUSTORE_FILENAME_KEY = "engine.ssl.trustore.filename";
 
+  /**
+   * Locates the maximum number of SSL sessions kept for resumption in the configurations
+   */
+  String SESSION_CACHE_SIZE_KEY = "engine.ssl.session_cache_size";
+
+  /**
+   * Locates the number of seconds a cached SSL session may be resumed in the configurations
+   */
+  String SESSION_TIMEOUT_KEY = "engine.ssl.session_timeout_seconds";
+
+  /**
+   * Default number of cached SSL sessions
+   */
+  int DEFAULT_SESSION_CACHE_SIZE = 100;
+
+  /**
+   * Default lifetime of a cached SSL session (in seconds)
+   */
+  int DEFAULT_SESSION_TIMEOUT_SECONDS = 3600;
+
 }
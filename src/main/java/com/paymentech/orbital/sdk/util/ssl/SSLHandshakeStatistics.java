@@ -0,0 +1,99 @@
+package com.paymentech.orbital.sdk.util.ssl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p><b>Title:</b> SSLHandshakeStatistics</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Counters for the SSL handshakes made by the SDK. A handshake is counted as
+ * resumed when the negotiated session was created before the handshake started (an abbreviated handshake
+ * reusing a cached session), otherwise it is counted as a full handshake. </p>
+ */
+public class SSLHandshakeStatistics {
+
+  private final AtomicLong fullHandshakes = new AtomicLong();
+  private final AtomicLong resumedHandshakes = new AtomicLong();
+  private final AtomicLong fullHandshakeMillis = new AtomicLong();
+  private final AtomicLong resumedHandshakeMillis = new AtomicLong();
+  private final AtomicLong verificationCacheHits = new AtomicLong();
+  private final AtomicLong verificationCacheMisses = new AtomicLong();
+
+  /**
+   * Record a completed handshake
+   *
+   * @param resumed       true if the session was resumed
+   * @param elapsedMillis the time taken by the handshake
+   */
+  public void recordHandshake(boolean resumed, long elapsedMillis) {
+    if (resumed) {
+      resumedHandshakes.incrementAndGet();
+      resumedHandshakeMillis.addAndGet(elapsedMillis);
+    } else {
+      fullHandshakes.incrementAndGet();
+      fullHandshakeMillis.addAndGet(elapsedMillis);
+    }
+  }
+
+  /**
+   * Record a lookup in the hostname verification cache
+   *
+   * @param hit true if the verification result was found in the cache
+   */
+  public void recordVerification(boolean hit) {
+    if (hit) {
+      verificationCacheHits.incrementAndGet();
+    } else {
+      verificationCacheMisses.incrementAndGet();
+    }
+  }
+
+  public long getFullHandshakes() {
+    return fullHandshakes.get();
+  }
+
+  public long getResumedHandshakes() {
+    return resumedHandshakes.get();
+  }
+
+  public long getFullHandshakeMillis() {
+    return fullHandshakeMillis.get();
+  }
+
+  public long getResumedHandshakeMillis() {
+    return resumedHandshakeMillis.get();
+  }
+
+  public long getVerificationCacheHits() {
+    return verificationCacheHits.get();
+  }
+
+  public long getVerificationCacheMisses() {
+    return verificationCacheMisses.get();
+  }
+
+  /**
+   * Reset every counter to zero
+   */
+  public void reset() {
+    fullHandshakes.set(0);
+    resumedHandshakes.set(0);
+    fullHandshakeMillis.set(0);
+    resumedHandshakeMillis.set(0);
+    verificationCacheHits.set(0);
+    verificationCacheMisses.set(0);
+  }
+
+  public String toString() {
+    long full = getFullHandshakes();
+    long resumed = getResumedHandshakes();
+    return "SSLHandshakeStatistics[full=" + full
+        + ", resumed=" + resumed
+        + ", avgFullMillis=" + (full == 0 ? 0 : getFullHandshakeMillis() / full)
+        + ", avgResumedMillis=" + (resumed == 0 ? 0 : getResumedHandshakeMillis() / resumed)
+        + ", verificationCacheHits=" + getVerificationCacheHits()
+        + ", verificationCacheMisses=" + getVerificationCacheMisses() + "]";
+  }
+}
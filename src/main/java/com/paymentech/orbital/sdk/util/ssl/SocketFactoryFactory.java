@@ -2,16 +2,23 @@ package com.paymentech.orbital.sdk.util.ssl;
 
 import com.paymentech.orbital.sdk.configurator.ConfiguratorIF;
 import com.paymentech.orbital.sdk.util.exceptions.InitializationException;
+import org.apache.commons.httpclient.ConnectTimeoutException;
 import org.apache.log4j.Logger;
 
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManagerFactory;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.security.*;
 import java.security.cert.CertificateException;
 import java.util.Map;
@@ -23,11 +30,16 @@ import java.util.Map;
  * publication of such source code.
  * Paymentech. The copyright notice above does not evidence any actual or intended publication of such source code.</p>
  * <p><b>Author:</b> Scott Monahan</p><p><b>Description:</b><br><br>
- * A factory for creating a socket factory using custom keystore and truststore files </p>
+ * A factory for creating a socket factory using custom keystore and truststore files.  The client session
+ * cache of the SSL context is sized from the configurations so that new sockets to a gateway resume a cached
+ * session with an abbreviated handshake.</p>
  */
 public class SocketFactoryFactory {
 
   private static SSLSocketFactory factory = null;
+  private static SSLContext sslContext = null;
+  private static int sessionCacheSize = SSLConstants.DEFAULT_SESSION_CACHE_SIZE;
+  private static final SSLHandshakeStatistics handshakeStatistics = new SSLHandshakeStatistics();
 
   /**
    * Get a Socket Factory
@@ -36,7 +48,7 @@ public class SocketFactoryFactory {
    * @return SSLSocketFactory The factory to be used for creating SSL connections
    * @throws InitializationException if initialization fails
    */
-  public static SSLSocketFactory getSocketFactory(ConfiguratorIF configurator) {
+  public static synchronized SSLSocketFactory getSocketFactory(ConfiguratorIF configurator) {
     KeyManagerFactory kmf = null;
     TrustManagerFactory tmf = null;
     SSLContext ctx = null;
@@ -64,6 +76,12 @@ public class SocketFactoryFactory {
         ctx = SSLContext.getInstance("TLS");
         ctx.init(((kmf == null) ? null : kmf.getKeyManagers()), (tmf == null)
             ? null : tmf.getTrustManagers(), null);
+
+        // size the session cache used to resume sessions
+        constructionStage = "SessionCache";
+        configureSessionCache(ctx.getClientSessionContext(), configurations, engineLogger);
+
+        sslContext = ctx;
         factory = ctx.getSocketFactory();
 
       }
@@ -89,6 +107,129 @@ public class SocketFactoryFactory {
     return factory;
   }
 
+  /**
+   * Get the SSL context behind the socket factory (the context is created on first use)
+   *
+   * @param configurator The global configurations including loggers
+   * @return SSLContext the context, or null if it could not be initialized
+   */
+  public static synchronized SSLContext getSSLContext(ConfiguratorIF configurator) {
+    getSocketFactory(configurator);
+    return sslContext;
+  }
+
+  /**
+   * The handshake counters of every SSL socket created by the SDK
+   *
+   * @return SSLHandshakeStatistics
+   */
+  public static SSLHandshakeStatistics getHandshakeStatistics() {
+    return handshakeStatistics;
+  }
+
+  /**
+   * The configured size of the client session cache
+   *
+   * @return the maximum number of cached sessions
+   */
+  public static int getSessionCacheSize() {
+    return sessionCacheSize;
+  }
+
+  /**
+   * Connects a new SSL socket within the given time limit and completes the handshake.  The TCP connection is
+   * made with a plain socket which is then layered with SSL using the gateway host name and port, so that the
+   * SSL context can find and resume a cached session for that gateway.  The handshake is bounded by the connect
+   * timeout too, so a gateway that accepts the connection but does not answer the handshake can't hang it.
+   *
+   * @param configurator  The global configurations including loggers
+   * @param host          the host name/IP
+   * @param port          the port on the host
+   * @param localAddress  the local host name/IP to bind the socket to
+   * @param localPort     the port on the local machine
+   * @param timeoutMillis the connect timeout (0 means no timeout)
+   * @return SSLSocket a connected socket
+   * @throws IOException if an I/O error occurs while creating the socket
+   */
+  static SSLSocket connect(ConfiguratorIF configurator, String host, int port, InetAddress localAddress,
+                           int localPort, int timeoutMillis) throws IOException {
+    SSLSocketFactory sf = getSocketFactory(configurator);
+    Socket socket = new Socket();
+    SSLSocket sslSocket = null;
+    try {
+      socket.bind(new InetSocketAddress(localAddress, localPort));
+      socket.connect(new InetSocketAddress(host, port), timeoutMillis);
+      // the read timeout of the connection is set once the socket is handed to it
+      socket.setSoTimeout(timeoutMillis);
+      sslSocket = (SSLSocket) sf.createSocket(socket, host, port, true);
+      handshake(sslSocket);
+    } catch (SocketTimeoutException ste) {
+      closeQuietly(sslSocket == null ? socket : sslSocket);
+      if (sslSocket == null) {
+        throw new ConnectTimeoutException("Connect to " + host + ":" + port + " timed out");
+      }
+      throw ste;
+    } catch (IOException ioe) {
+      closeQuietly(sslSocket == null ? socket : sslSocket);
+      throw ioe;
+    }
+    return sslSocket;
+  }
+
+  /**
+   * Performs the SSL handshake and records whether the session was resumed and how long it took.
+   *
+   * @param socket a connected <code>SSLSocket</code>
+   * @throws IOException if the handshake fails
+   */
+  static void handshake(SSLSocket socket) throws IOException {
+    long start = System.currentTimeMillis();
+    socket.startHandshake();
+    long elapsed = System.currentTimeMillis() - start;
+
+    // a resumed session was created by an earlier handshake
+    boolean resumed = socket.getSession().getCreationTime() < start;
+    handshakeStatistics.recordHandshake(resumed, elapsed);
+
+    Logger logger = Logger.getLogger(SocketFactoryFactory.class);
+    if (logger.isDebugEnabled()) {
+      logger.debug((resumed ? "Resumed" : "Full") + " SSL handshake with " + socket.getInetAddress()
+          + " took " + elapsed + " ms");
+    }
+  }
+
+  private static void closeQuietly(Socket socket) {
+    try {
+      socket.close();
+    } catch (IOException e) {
+    }
+  }
+
+  private static void configureSessionCache(SSLSessionContext sessionContext, Map configurations,
+                                            Logger engineLogger) {
+    sessionCacheSize = getInt(configurations, SSLConstants.SESSION_CACHE_SIZE_KEY,
+        SSLConstants.DEFAULT_SESSION_CACHE_SIZE);
+    int sessionTimeoutSeconds = getInt(configurations, SSLConstants.SESSION_TIMEOUT_KEY,
+        SSLConstants.DEFAULT_SESSION_TIMEOUT_SECONDS);
+
+    if (sessionContext != null) {
+      sessionContext.setSessionCacheSize(sessionCacheSize);
+      sessionContext.setSessionTimeout(sessionTimeoutSeconds);
+    }
+
+    engineLogger.debug("SSL session cache: size=" + sessionCacheSize
+        + ", timeoutSeconds=" + sessionTimeoutSeconds);
+  }
+
+  private static int getInt(Map configurations, String key, int defaultValue) {
+    try {
+      int value = Integer.parseInt(((String) configurations.get(key)).trim());
+      return (value < 0) ? defaultValue : value;
+    } catch (Exception ex) {
+      return defaultValue;
+    }
+  }
+
   private static KeyManagerFactory initializeKeyStore(Map configurations)
       throws CertificateException, FileNotFoundException, IOException, KeyStoreException,
       NoSuchAlgorithmException, UnrecoverableKeyException {
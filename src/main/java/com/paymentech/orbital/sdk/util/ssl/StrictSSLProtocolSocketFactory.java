@@ -1,7 +1,6 @@
 package com.paymentech.orbital.sdk.util.ssl;
 
 import com.paymentech.orbital.sdk.configurator.ConfiguratorIF;
-import org.apache.commons.httpclient.ConnectTimeoutException;
 import org.apache.commons.httpclient.params.HttpConnectionParams;
 import org.apache.commons.httpclient.protocol.SecureProtocolSocketFactory;
 import org.apache.log4j.Logger;
@@ -13,6 +12,9 @@ import javax.net.ssl.SSLSocketFactory;
 import javax.security.cert.X509Certificate;
 import java.io.IOException;
 import java.net.*;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * <p><b>Title:</b> StrictSSLProtocolSocketFactory</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights
@@ -30,6 +32,9 @@ import java.net.*;
  * during development.  Host name verification will make sure the SSL sessions
  * server host name matches with the the host name returned in the
  * server certificates "Common Name" field of the "SubjectDN" entry.
+ * <br><br> Sockets are created with the gateway host and port so that the SSL context can resume a cached
+ * session, and the outcome of a host name verification is cached by session ID so that a resumed session
+ * is not verified again.
  * </p>
  **/
 
@@ -48,6 +53,15 @@ public class StrictSSLProtocolSocketFactory
 
   private ConfiguratorIF configurator = null;
 
+  /**
+   * Host names already verified, keyed by SSL session ID and host name (shared by all factories).
+   */
+  private static final Map verifiedSessions = Collections.synchronizedMap(new LinkedHashMap(16, 0.75f, true) {
+    protected boolean removeEldestEntry(Map.Entry eldest) {
+      return size() > Math.max(SocketFactoryFactory.getSessionCacheSize(), 1);
+    }
+  });
+
   /**
    * Constructor for StrictSSLProtocolSocketFactory.
    *
@@ -123,6 +137,7 @@ public class StrictSSLProtocolSocketFactory
     SSLSocket sslSocket = (SSLSocket) sf.createSocket(host, port,
         clientHost,
         clientPort);
+    SocketFactoryFactory.handshake(sslSocket);
     verifyHostname(sslSocket);
 
     return sslSocket;
@@ -135,6 +150,7 @@ public class StrictSSLProtocolSocketFactory
       throws IOException, UnknownHostException {
     SSLSocketFactory sf = SocketFactoryFactory.getSocketFactory(configurator);
     SSLSocket sslSocket = (SSLSocket) sf.createSocket(host, port);
+    SocketFactoryFactory.handshake(sslSocket);
     verifyHostname(sslSocket);
 
     return sslSocket;
@@ -149,6 +165,7 @@ public class StrictSSLProtocolSocketFactory
     SSLSocketFactory sf = SocketFactoryFactory.getSocketFactory(configurator);
     SSLSocket sslSocket = (SSLSocket) sf.createSocket(socket, host,
         port, autoClose);
+    SocketFactoryFactory.handshake(sslSocket);
     verifyHostname(sslSocket);
 
     return sslSocket;
@@ -157,12 +174,9 @@ public class StrictSSLProtocolSocketFactory
   /**
    * Attempts to get a new socket connection to the given host within the given time limit.
    * <p>
-   * This method employs several techniques to circumvent the limitations of older JREs that
-   * do not support connect timeout. When running in JRE 1.4 or above reflection is used to
-   * call Socket#connect(SocketAddress endpoint, int timeout) method. When executing in older
-   * JREs a controller thread is executed. The controller thread attempts to create a new socket
-   * within the given limit of time. If socket constructor does not return until the timeout
-   * expires, the controller terminates and throws an {@link ConnectTimeoutException}
+   * The TCP connection is made with a plain socket (honouring the connect timeout) which is then
+   * layered with SSL using the gateway host name and port, so that the SSL context can find and
+   * resume a cached session for that gateway.
    * </p>
    *
    * @param host       the host name/IP
@@ -182,19 +196,17 @@ public class StrictSSLProtocolSocketFactory
     if (params == null) {
       throw new UnknownHostException("Parameters may not be null");
     }
-    int timeout = params.getConnectionTimeout();
-    SSLSocket sslSocket = null;
-    SSLSocketFactory sf = SocketFactoryFactory.getSocketFactory(configurator);
-    if (timeout == 0) {
-      sslSocket = (SSLSocket) sf.createSocket(host, port, localAddress, localPort);
-    } else {
-      sslSocket = (SSLSocket) sf.createSocket();
-      SocketAddress localaddr = new InetSocketAddress(localAddress, localPort);
-      SocketAddress remoteaddr = new InetSocketAddress(host, port);
-      sslSocket.bind(localaddr);
-      sslSocket.connect(remoteaddr, timeout);
+    SSLSocket sslSocket = SocketFactoryFactory.connect(configurator, host, port, localAddress, localPort,
+        params.getConnectionTimeout());
+    try {
+      verifyHostname(sslSocket);
+    } catch (IOException ioe) {
+      try {
+        sslSocket.close();
+      } catch (IOException e) {
+      }
+      throw ioe;
     }
-    verifyHostname(sslSocket);
     return sslSocket;
   }
 
@@ -217,6 +229,15 @@ public class StrictSSLProtocolSocketFactory
 
     SSLSession session = socket.getSession();
     String hostname = session.getPeerHost();
+
+    // a resumed session carries the certificates that were already verified for this host
+    String cacheKey = getVerificationCacheKey(session.getId(), hostname);
+    if (isVerified(cacheKey)) {
+      SocketFactoryFactory.getHandshakeStatistics().recordVerification(true);
+      return;
+    }
+    SocketFactoryFactory.getHandshakeStatistics().recordVerification(false);
+
     try {
       InetAddress addr = InetAddress.getByName(hostname);
     } catch (UnknownHostException uhe) {
@@ -245,6 +266,7 @@ public class StrictSSLProtocolSocketFactory
       if (LOG.isDebugEnabled()) {
         LOG.debug("Target hostname valid: " + cn);
       }
+      rememberVerified(cacheKey);
     } else {
       throw new SSLPeerUnverifiedException(
           "HTTPS hostname invalid: expected '" + hostname + "', received '" + cn + "'");
@@ -252,6 +274,46 @@ public class StrictSSLProtocolSocketFactory
   }
 
 
+  /**
+   * Builds the verification cache key for a session
+   *
+   * @param id       the SSL session ID
+   * @param hostname the server host name
+   * @return the key, or null if the session has no ID
+   */
+  static String getVerificationCacheKey(byte[] id, String hostname) {
+    if (id == null || id.length == 0 || hostname == null) {
+      return null;
+    }
+    StringBuffer key = new StringBuffer(id.length * 2 + hostname.length() + 1);
+    for (int i = 0; i < id.length; i++) {
+      key.append(Character.forDigit((id[i] >> 4) & 0xF, 16));
+      key.append(Character.forDigit(id[i] & 0xF, 16));
+    }
+    return key.append('@').append(hostname.toLowerCase()).toString();
+  }
+
+  /**
+   * @param cacheKey the verification cache key (may be null)
+   * @return true if the host name of the session has been verified
+   */
+  static boolean isVerified(String cacheKey) {
+    // a lookup (unlike containsKey) makes the session the most recently used
+    return cacheKey != null && verifiedSessions.get(cacheKey) != null;
+  }
+
+  /**
+   * Remember a verified session; the least recently used sessions are forgotten beyond the size of the session
+   * cache
+   *
+   * @param cacheKey the verification cache key (may be null)
+   */
+  static void rememberVerified(String cacheKey) {
+    if (cacheKey != null) {
+      verifiedSessions.put(cacheKey, Boolean.TRUE);
+    }
+  }
+
   /**
    * Parses a X.500 distinguished name for the value of the
    * "Common Name" field.
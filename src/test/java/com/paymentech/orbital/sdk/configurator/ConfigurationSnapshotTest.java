@@ -0,0 +1,103 @@
+package com.paymentech.orbital.sdk.configurator;
+
+import com.paymentech.orbital.sdk.engine.http.HttpEngineConstants;
+import com.paymentech.orbital.sdk.interfaces.ResponseIF;
+import com.paymentech.orbital.sdk.response.Response;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * <p><b>Title:</b> ConfigurationSnapshotTest</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All
+ * rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Settings compiled from the configurations, and their replacement by the
+ * Configurator. </p>
+ */
+public class ConfigurationSnapshotTest {
+
+  private static Map configurations() {
+    Map configurations = new HashMap();
+    configurations.put(HttpEngineConstants.HOSTNAME_KEY, "gateway.example.com");
+    configurations.put(HttpEngineConstants.PORT_KEY, "443");
+    configurations.put(HttpEngineConstants.CONNECTION_TIMEOUT_KEY, "15");
+    configurations.put(ResponseIF.RESPONSE_TYPE_KEY, "host");
+    configurations.put(ResponseIF.LEAN_MODE_KEY, " TRUE ");
+    return configurations;
+  }
+
+  @Test
+  public void compilesTheSettings() {
+    ConfigurationSnapshot snapshot = ConfigurationSnapshot.compile(configurations(), null);
+
+    assertEquals("gateway.example.com", snapshot.getHostName());
+    assertEquals(443, snapshot.getPort());
+    assertEquals(15, snapshot.getConnectionTimeoutSeconds());
+    assertEquals("host", snapshot.getResponseType());
+    assertTrue(snapshot.isLeanResponses());
+  }
+
+  @Test
+  public void appliesTheDefaults() {
+    Map configurations = new HashMap();
+    configurations.put(HttpEngineConstants.PORT_KEY, "not a port");
+    configurations.put(ResponseIF.RESPONSE_TYPE_KEY, "unknown");
+    ConfigurationSnapshot snapshot = ConfigurationSnapshot.compile(configurations, null);
+
+    assertNull(snapshot.getHostName());
+    assertEquals(80, snapshot.getPort());
+    assertEquals(90, snapshot.getReadTimeoutSeconds());
+    assertEquals("/authorize", snapshot.getAuthorizationURI());
+    assertEquals(Response.GATEWAY_TYPE, snapshot.getResponseType());
+    assertFalse(snapshot.isLeanResponses());
+  }
+
+  @Test
+  public void isNotChangedByItsConfigurations() {
+    Map configurations = configurations();
+    ConfigurationSnapshot snapshot = ConfigurationSnapshot.compile(configurations, null);
+    configurations.put(HttpEngineConstants.HOSTNAME_KEY, "other.example.com");
+
+    assertEquals("gateway.example.com", snapshot.getHostName());
+    assertEquals("gateway.example.com", snapshot.getConfigurations().get(HttpEngineConstants.HOSTNAME_KEY));
+    try {
+      snapshot.getConfigurations().put(HttpEngineConstants.HOSTNAME_KEY, "other.example.com");
+      fail("UnsupportedOperationException expected");
+    } catch (UnsupportedOperationException uoe) {
+      // expected
+    }
+  }
+
+  @Test
+  public void configuratorReplacesTheSnapshot() throws Exception {
+    Configurator configurator = Configurator.getInstance();
+    Map original = configurator.getConfigurations();
+    ConfigurationSnapshot before = configurator.getSnapshot();
+    assertSame(before, configurator.getSnapshot());
+
+    try {
+      Map configurations = new HashMap(original);
+      configurations.put(HttpEngineConstants.READ_TIMEOUT_KEY, "5");
+      configurator.setConfigurations(configurations);
+
+      ConfigurationSnapshot after = configurator.getSnapshot();
+      assertNotSame(before, after);
+      assertEquals(5, after.getReadTimeoutSeconds());
+      assertEquals(90, before.getReadTimeoutSeconds());
+    } finally {
+      configurator.setConfigurations(original);
+    }
+  }
+}
@@ -0,0 +1,227 @@
+package com.paymentech.orbital.sdk.engine.failover;
+
+import com.paymentech.orbital.sdk.engine.http.HttpEngineConstants;
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p><b>Title:</b> CircuitBreakerTest</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> The states of the circuit breakers, and the gateway the router chooses from
+ * them. </p>
+ */
+public class CircuitBreakerTest {
+
+  private static final Logger LOGGER = Logger.getLogger(CircuitBreakerTest.class);
+
+  private static CircuitBreaker breaker(long openMillis) {
+    // opens at 50% failures over the last 4 calls, after at least 4 calls; 2 trial requests
+    return new CircuitBreaker("test", 4, 4, 50, openMillis, 2, LOGGER);
+  }
+
+  private static void fail(CircuitBreaker breaker, int calls) {
+    for (int i = 0; i < calls; i++) {
+      assertTrue(breaker.tryAcquirePermission());
+      breaker.onFailure();
+    }
+  }
+
+  @Test
+  public void opensAtTheFailureRate() {
+    CircuitBreaker breaker = breaker(60000);
+
+    breaker.tryAcquirePermission();
+    breaker.onSuccess();
+    breaker.tryAcquirePermission();
+    breaker.onSuccess();
+    fail(breaker, 1);
+    assertTrue(breaker.isClosed());
+
+    fail(breaker, 1);
+    assertEquals(CircuitBreaker.OPEN, breaker.getState());
+    assertFalse(breaker.tryAcquirePermission());
+  }
+
+  @Test
+  public void needsMinimumCalls() {
+    CircuitBreaker breaker = breaker(60000);
+
+    fail(breaker, 3);
+    assertTrue(breaker.isClosed());
+  }
+
+  @Test
+  public void halfOpenAfterTheOpenPeriod() {
+    CircuitBreaker breaker = breaker(0);
+    fail(breaker, 4);
+    assertEquals(CircuitBreaker.OPEN, breaker.getState());
+
+    // two trial requests, no more
+    assertTrue(breaker.tryAcquirePermission());
+    assertEquals(CircuitBreaker.HALF_OPEN, breaker.getState());
+    assertTrue(breaker.tryAcquirePermission());
+    assertFalse(breaker.tryAcquirePermission());
+
+    breaker.onSuccess();
+    assertEquals(CircuitBreaker.HALF_OPEN, breaker.getState());
+    breaker.onSuccess();
+    assertTrue(breaker.isClosed());
+  }
+
+  @Test
+  public void failedTrialOpensAgain() {
+    CircuitBreaker breaker = breaker(0);
+    fail(breaker, 4);
+
+    assertTrue(breaker.tryAcquirePermission());
+    breaker.onFailure();
+    assertEquals(CircuitBreaker.OPEN, breaker.getState());
+  }
+
+  @Test
+  public void ignoredTrialReturnsItsPermit() {
+    CircuitBreaker breaker = breaker(0);
+    fail(breaker, 4);
+
+    assertTrue(breaker.tryAcquirePermission());
+    assertTrue(breaker.tryAcquirePermission());
+    breaker.onIgnored();
+    assertTrue(breaker.tryAcquirePermission());
+  }
+
+  @Test
+  public void outcomeOfAnotherStateIsNotATrial() {
+    CircuitBreaker breaker = breaker(0);
+    fail(breaker, 4);
+
+    assertTrue(breaker.tryAcquirePermission());
+    assertTrue(breaker.tryAcquirePermission());
+    breaker.onFailure();
+    assertEquals(CircuitBreaker.OPEN, breaker.getState());
+    // the second trial was granted by the half-open state that just ended
+    breaker.onSuccess();
+    assertEquals(CircuitBreaker.OPEN, breaker.getState());
+
+    // a half-open state with no trial in flight ignores outcomes
+    assertTrue(breaker.tryAcquirePermission());
+    breaker.onIgnored();
+    breaker.onFailure();
+    breaker.onSuccess();
+    assertEquals(CircuitBreaker.HALF_OPEN, breaker.getState());
+    assertTrue(breaker.tryAcquirePermission());
+    assertTrue(breaker.tryAcquirePermission());
+    assertFalse(breaker.tryAcquirePermission());
+  }
+
+  @Test
+  public void concurrentTrialsTakeThePermits() throws Exception {
+    final CircuitBreaker breaker = breaker(0);
+    fail(breaker, 4);
+    final AtomicInteger granted = new AtomicInteger();
+
+    // every thread takes a trial permit and gives it back, many times over
+    Thread[] threads = new Thread[8];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread(new Runnable() {
+        public void run() {
+          for (int j = 0; j < 1000; j++) {
+            if (breaker.tryAcquirePermission()) {
+              granted.incrementAndGet();
+              breaker.onIgnored();
+            }
+          }
+        }
+      });
+      threads[i].start();
+    }
+    for (int i = 0; i < threads.length; i++) {
+      threads[i].join();
+    }
+
+    assertTrue(granted.get() > 0);
+    assertEquals(CircuitBreaker.HALF_OPEN, breaker.getState());
+    // all the permits were given back
+    assertTrue(breaker.tryAcquirePermission());
+    assertTrue(breaker.tryAcquirePermission());
+    assertFalse(breaker.tryAcquirePermission());
+    breaker.onSuccess();
+    breaker.onSuccess();
+    assertTrue(breaker.isClosed());
+  }
+
+  @Test
+  public void forcedRequestIsTheTrial() {
+    CircuitBreaker breaker = breaker(60000);
+    fail(breaker, 4);
+    assertFalse(breaker.tryAcquirePermission());
+
+    breaker.forcePermission();
+    assertEquals(CircuitBreaker.HALF_OPEN, breaker.getState());
+    breaker.onSuccess();
+    assertTrue(breaker.isClosed());
+  }
+
+  @Test
+  public void tripAndReset() {
+    CircuitBreaker breaker = breaker(60000);
+
+    breaker.trip("test");
+    assertEquals(CircuitBreaker.OPEN, breaker.getState());
+    breaker.reset("test");
+    assertTrue(breaker.isClosed());
+  }
+
+  static Map configurations(boolean failover) {
+    Map configurations = new HashMap();
+    configurations.put(HttpEngineConstants.HOSTNAME_KEY, "primary.example.com");
+    configurations.put(HttpEngineConstants.PORT_KEY, "443");
+    if (failover) {
+      configurations.put(HttpEngineConstants.HOSTNAME_FAILOVER_KEY, "failover.example.com");
+      configurations.put(HttpEngineConstants.PORT_FAILOVER_KEY, "443");
+    }
+    configurations.put(FailoverConstants.MINIMUM_CALLS_KEY, "1");
+    configurations.put(FailoverConstants.OPEN_SECONDS_KEY, "60");
+    return configurations;
+  }
+
+  @Test
+  public void routesAwayFromAnOpenCircuit() throws Exception {
+    EndpointRouter router = new EndpointRouter(configurations(true), LOGGER);
+    assertSame(router.getPrimary(), router.select());
+    router.getPrimary().getCircuitBreaker().onSuccess();
+    assertFalse(router.isFailover());
+
+    router.getPrimary().getCircuitBreaker().trip("test");
+    assertSame(router.getFailover(), router.select());
+    assertTrue(router.isFailover());
+
+    router.getFailover().getCircuitBreaker().trip("test");
+    assertNull(router.select());
+  }
+
+  @Test
+  public void singleGatewayFailsOpen() throws Exception {
+    EndpointRouter router = new EndpointRouter(configurations(false), LOGGER);
+    CircuitBreaker breaker = router.getPrimary().getCircuitBreaker();
+    breaker.trip("test");
+
+    // without a failover gateway the request is sent anyway, as the trial of the circuit
+    assertSame(router.getPrimary(), router.select());
+    assertEquals(CircuitBreaker.HALF_OPEN, breaker.getState());
+    breaker.onSuccess();
+    assertTrue(breaker.isClosed());
+  }
+}
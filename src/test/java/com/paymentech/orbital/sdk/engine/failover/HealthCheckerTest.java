@@ -0,0 +1,202 @@
+package com.paymentech.orbital.sdk.engine.failover;
+
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * <p><b>Title:</b> HealthCheckerTest</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> The circuit breakers and latencies updated by the health probes, with a stub
+ * probe, and the connect probe against local sockets. </p>
+ */
+public class HealthCheckerTest {
+
+  private static final Logger LOGGER = Logger.getLogger(HealthCheckerTest.class);
+
+  /**
+   * Fails the gateways that are down, and takes the latency set for the others
+   */
+  public static class StubProbe implements HealthProbeIF {
+
+    private static final Set down = new HashSet();
+    private static final Map latencies = new HashMap();
+
+    public void probe(Endpoint endpoint, boolean secure, int timeoutMillis) throws Exception {
+      Long latency = null;
+      synchronized (down) {
+        if (down.contains(endpoint.getHostname())) {
+          throw new IOException(endpoint + " is down");
+        }
+        latency = (Long) latencies.get(endpoint.getHostname());
+      }
+      if (latency != null) {
+        Thread.sleep(latency.longValue());
+      }
+    }
+
+    static void setDown(String hostname, boolean isDown) {
+      synchronized (down) {
+        if (isDown) {
+          down.add(hostname);
+        } else {
+          down.remove(hostname);
+        }
+      }
+    }
+
+    static void setLatency(String hostname, long latencyMillis) {
+      synchronized (down) {
+        latencies.put(hostname, Long.valueOf(latencyMillis));
+      }
+    }
+
+    static void clear() {
+      synchronized (down) {
+        down.clear();
+        latencies.clear();
+      }
+    }
+  }
+
+  @After
+  public void tearDown() {
+    StubProbe.clear();
+  }
+
+  private static Map configurations(String[] settings) {
+    Map configurations = CircuitBreakerTest.configurations(true);
+    configurations.put(FailoverConstants.HEALTH_PROBE_CLASS_KEY, StubProbe.class.getName());
+    for (int i = 0; i < settings.length; i += 2) {
+      configurations.put(settings[i], settings[i + 1]);
+    }
+    return configurations;
+  }
+
+  private static HealthChecker checker(EndpointRouter router, Map configurations) {
+    return new HealthChecker(router, configurations, LOGGER, false);
+  }
+
+  @Test
+  public void passingProbesCloseThePrimaryCircuit() throws Exception {
+    Map configurations = configurations(new String[0]);
+    EndpointRouter router = new EndpointRouter(configurations, LOGGER);
+    HealthChecker checker = checker(router, configurations);
+    CircuitBreaker primary = router.getPrimary().getCircuitBreaker();
+    primary.trip("test");
+    assertTrue(router.isFailover());
+
+    // two probes in a row must pass
+    checker.check();
+    assertEquals(CircuitBreaker.OPEN, primary.getState());
+    checker.check();
+    assertTrue(primary.isClosed());
+    assertFalse(router.isFailover());
+    assertSame(router.getPrimary(), router.select());
+  }
+
+  @Test
+  public void failingProbesKeepThePrimaryCircuitOpen() throws Exception {
+    Map configurations = configurations(new String[0]);
+    EndpointRouter router = new EndpointRouter(configurations, LOGGER);
+    HealthChecker checker = checker(router, configurations);
+    CircuitBreaker primary = router.getPrimary().getCircuitBreaker();
+    StubProbe.setDown("primary.example.com", true);
+    primary.trip("test");
+
+    for (int i = 0; i < 3; i++) {
+      checker.check();
+      assertEquals(CircuitBreaker.OPEN, primary.getState());
+    }
+    assertEquals(3, router.getPrimary().getConsecutiveProbeFailures());
+
+    // one probe that passes is not enough, the next failure starts over
+    StubProbe.setDown("primary.example.com", false);
+    checker.check();
+    StubProbe.setDown("primary.example.com", true);
+    checker.check();
+    assertEquals(CircuitBreaker.OPEN, primary.getState());
+    assertTrue(router.getFailover().getCircuitBreaker().isClosed());
+  }
+
+  @Test
+  public void failingProbesOpenAClosedCircuit() throws Exception {
+    Map configurations = configurations(new String[0]);
+    EndpointRouter router = new EndpointRouter(configurations, LOGGER);
+    HealthChecker checker = checker(router, configurations);
+    StubProbe.setDown("failover.example.com", true);
+
+    checker.check();
+    assertTrue(router.getFailover().getCircuitBreaker().isClosed());
+    checker.check();
+    assertEquals(CircuitBreaker.OPEN, router.getFailover().getCircuitBreaker().getState());
+    assertTrue(router.getPrimary().getCircuitBreaker().isClosed());
+  }
+
+  @Test
+  public void latencyIsRecorded() throws Exception {
+    Map configurations = configurations(new String[]{FailoverConstants.HEALTH_LATENCY_THRESHOLD_KEY, "40"});
+    EndpointRouter router = new EndpointRouter(configurations, LOGGER);
+    HealthChecker checker = checker(router, configurations);
+    assertEquals(-1, router.getPrimary().getProbeLatencyMillis());
+
+    StubProbe.setLatency("primary.example.com", 100);
+    checker.check();
+
+    assertTrue(router.getPrimary().getProbeLatencyMillis() >= 100);
+    assertTrue(router.getFailover().getProbeLatencyMillis() < 40);
+    // a slow primary gateway sends the transactions to the failover gateway
+    assertTrue(router.isFailover());
+    assertSame(router.getFailover(), router.select());
+  }
+
+  @Test
+  public void probingIsOffWithoutAnInterval() throws Exception {
+    Map configurations = configurations(new String[0]);
+    HealthChecker checker = checker(new EndpointRouter(configurations, LOGGER), configurations);
+    checker.start();
+    assertFalse(checker.isRunning());
+
+    configurations.put(FailoverConstants.HEALTH_INTERVAL_KEY, "60");
+    checker = checker(new EndpointRouter(configurations, LOGGER), configurations);
+    checker.start();
+    assertTrue(checker.isRunning());
+    checker.stop();
+    assertFalse(checker.isRunning());
+  }
+
+  @Test
+  public void connectProbeNeedsAListeningGateway() throws Exception {
+    ServerSocket socket = new ServerSocket(0);
+    Endpoint endpoint = new Endpoint("localhost", socket.getLocalPort(), false,
+        new CircuitBreaker("test", 4, 4, 50, 60000, 2, LOGGER));
+    try {
+      new ConnectHealthProbe().probe(endpoint, false, 5000);
+    } finally {
+      socket.close();
+    }
+
+    try {
+      new ConnectHealthProbe().probe(endpoint, false, 5000);
+      fail("IOException expected");
+    } catch (IOException ioe) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,155 @@
+package com.paymentech.orbital.sdk.engine.http;
+
+import com.paymentech.orbital.sdk.engine.failover.CircuitBreaker;
+import com.paymentech.orbital.sdk.engine.failover.Endpoint;
+import com.paymentech.orbital.sdk.transactionProcessor.Deadline;
+import org.apache.commons.httpclient.ConnectionPoolTimeoutException;
+import org.apache.commons.httpclient.HostConfiguration;
+import org.apache.commons.httpclient.HttpConnection;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * <p><b>Title:</b> ConnectionRacerTest</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights
+ * reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Racing the connections to the primary and failover gateways, against local
+ * sockets that accept or refuse connections.  The winner's connection stays checked out until the exchange uses
+ * it. </p>
+ */
+public class ConnectionRacerTest {
+
+  private static final Logger LOGGER = Logger.getLogger(ConnectionRacerTest.class);
+
+  private PooledConnectionManager connectionManager;
+  private ConnectionRacer racer;
+  private ServerSocket primary;
+  private ServerSocket failover;
+
+  @Before
+  public void setUp() throws Exception {
+    connectionManager = new PooledConnectionManager();
+    // one connection per gateway, so a connection that is checked out can not be taken by anyone else
+    connectionManager.getParams().setDefaultMaxConnectionsPerHost(1);
+    racer = new ConnectionRacer(connectionManager, LOGGER);
+    primary = new ServerSocket(0);
+    failover = new ServerSocket(0);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    primary.close();
+    failover.close();
+    connectionManager.shutdown();
+  }
+
+  private static Endpoint endpoint(ServerSocket socket, boolean failover) {
+    return new Endpoint("localhost", socket.getLocalPort(), failover,
+        new CircuitBreaker(failover ? "failover" : "primary", 4, 4, 50, 60000, 2, LOGGER));
+  }
+
+  private static HostConfiguration host(Endpoint endpoint) {
+    HostConfiguration host = new HostConfiguration();
+    host.setHost(endpoint.getHostname(), endpoint.getPort());
+    return host;
+  }
+
+  private ConnectionRacer.Winner race(Endpoint preferred, Endpoint alternate, long staggerMillis)
+      throws IOException {
+    return racer.race(preferred, host(preferred), alternate, host(alternate), staggerMillis, 5000, Deadline.none());
+  }
+
+  private Endpoint raceAndRelease(Endpoint preferred, Endpoint alternate, long staggerMillis) throws IOException {
+    ConnectionRacer.Winner winner = race(preferred, alternate, staggerMillis);
+    winner.getConnection().releaseConnection();
+    return winner.getEndpoint();
+  }
+
+  @Test
+  public void preferredGatewayWinsWithinItsHeadStart() throws Exception {
+    Endpoint preferred = endpoint(primary, false);
+    Endpoint alternate = endpoint(failover, true);
+
+    assertSame(preferred, raceAndRelease(preferred, alternate, 5000));
+  }
+
+  @Test
+  public void alternateGatewayWinsWhenThePreferredIsDown() throws Exception {
+    Endpoint preferred = endpoint(primary, false);
+    Endpoint alternate = endpoint(failover, true);
+    // connections to a closed socket are refused
+    primary.close();
+
+    assertSame(alternate, raceAndRelease(preferred, alternate, 5000));
+  }
+
+  @Test
+  public void raceIsLostWhenBothGatewaysAreDown() throws Exception {
+    Endpoint preferred = endpoint(primary, false);
+    Endpoint alternate = endpoint(failover, true);
+    primary.close();
+    failover.close();
+
+    long start = System.currentTimeMillis();
+    try {
+      race(preferred, alternate, 5000);
+      fail("IOException expected");
+    } catch (IOException ioe) {
+      // expected
+    }
+    // a refused connection does not wait for the stagger delay
+    assertTrue(System.currentTimeMillis() - start < 5000);
+  }
+
+  @Test
+  public void winningConnectionIsNotReturnedToThePool() throws Exception {
+    Endpoint preferred = endpoint(primary, false);
+    Endpoint alternate = endpoint(failover, true);
+    ConnectionRacer.Winner winner = race(preferred, alternate, 5000);
+
+    assertTrue(winner.getConnection().isOpen());
+    try {
+      connectionManager.getConnectionWithTimeout(host(preferred), 100);
+      fail("ConnectionPoolTimeoutException expected");
+    } catch (ConnectionPoolTimeoutException cpte) {
+      // expected
+    }
+
+    // the exchange of the thread that claimed the connection gets it
+    PooledConnectionManager.claimConnection(winner.getConnection());
+    HttpConnection connection = connectionManager.getConnectionWithTimeout(host(preferred), 100);
+    assertSame(winner.getConnection(), connection);
+    connection.releaseConnection();
+    // the socket is back in the pool once the exchange has released it
+    assertTrue(connectionManager.getConnectionWithTimeout(host(preferred), 100).isOpen());
+  }
+
+  @Test
+  public void claimedConnectionOfAnotherGatewayIsReleased() throws Exception {
+    Endpoint preferred = endpoint(primary, false);
+    Endpoint alternate = endpoint(failover, true);
+    ConnectionRacer.Winner winner = race(preferred, alternate, 5000);
+
+    PooledConnectionManager.claimConnection(winner.getConnection());
+    HttpConnection connection = connectionManager.getConnectionWithTimeout(host(alternate), 100);
+    assertNotSame(winner.getConnection(), connection);
+    connection.releaseConnection();
+
+    // the claimed connection is back in the pool, and not claimed anymore
+    PooledConnectionManager.releaseClaimedConnection();
+    assertTrue(connectionManager.getConnectionWithTimeout(host(preferred), 100).isOpen());
+  }
+}
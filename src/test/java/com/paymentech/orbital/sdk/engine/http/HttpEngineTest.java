@@ -0,0 +1,166 @@
+package com.paymentech.orbital.sdk.engine.http;
+
+import com.paymentech.orbital.sdk.configurator.Configurator;
+import com.paymentech.orbital.sdk.engine.async.AsyncHttpEngine;
+import com.paymentech.orbital.sdk.interfaces.RequestIF;
+import com.paymentech.orbital.sdk.request.Request;
+import com.paymentech.orbital.sdk.response.Response;
+import com.paymentech.orbital.sdk.transactionProcessor.Deadline;
+import org.apache.commons.httpclient.HostConfiguration;
+import org.apache.commons.httpclient.HttpConnection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * <p><b>Title:</b> HttpEngineTest</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Pooled engines pick up the gateways, the proxy and the timeouts of the current
+ * configurations. </p>
+ */
+public class HttpEngineTest {
+
+  private Map original;
+
+  @Before
+  public void setUp() throws Exception {
+    original = Configurator.getInstance().getConfigurations();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    Configurator.getInstance().setConfigurations(original);
+  }
+
+  private static void reconfigure(String key, String value) throws Exception {
+    Map configurations = new HashMap(Configurator.getInstance().getConfigurations());
+    configurations.put(key, value);
+    Configurator.getInstance().setConfigurations(configurations);
+  }
+
+  @Test
+  public void hostConfigurationsAreKeptUntilReconfigured() throws Exception {
+    HttpEngine engine = new HttpEngine();
+    engine.init();
+    HostConfiguration normal = engine.getHostConfiguration(false);
+
+    engine.init();
+    assertSame(normal, engine.getHostConfiguration(false));
+    assertEquals(18082, engine.getHostConfiguration(true).getPort());
+  }
+
+  @Test
+  public void reinitializedEngineUsesTheNewGateway() throws Exception {
+    HttpEngine engine = new HttpEngine();
+    engine.init();
+    assertEquals("localhost", engine.getHostConfiguration(false).getHost());
+
+    reconfigure(HttpEngineConstants.HOSTNAME_KEY, "gateway.example.com");
+    reconfigure(HttpEngineConstants.PORT_KEY, "18443");
+    engine.init();
+
+    HostConfiguration normal = engine.getHostConfiguration(false);
+    assertEquals("gateway.example.com", normal.getHost());
+    assertEquals(18443, normal.getPort());
+  }
+
+  @Test
+  public void reinitializedEngineUsesTheNewProxy() throws Exception {
+    HttpEngine engine = new HttpEngine();
+    engine.init();
+    assertNull(engine.getHostConfiguration(false).getProxyHost());
+
+    reconfigure(HttpEngineConstants.PROXY_HOSTNAME, "proxy.example.com");
+    reconfigure(HttpEngineConstants.PROXY_PORT, "3128");
+    engine.init();
+
+    assertEquals("proxy.example.com", engine.getHostConfiguration(false).getProxyHost());
+    assertEquals(3128, engine.getHostConfiguration(true).getProxyPort());
+  }
+
+  @Test
+  public void hostConfigurationsFollowTheSnapshot() throws Exception {
+    HttpEngine engine = new HttpEngine();
+    engine.init();
+    HostConfiguration normal = engine.getHostConfiguration(false);
+
+    // the same settings in a new snapshot
+    Configurator.getInstance().setConfigurations(new HashMap(original));
+    engine.init();
+
+    assertNotSame(normal, engine.getHostConfiguration(false));
+    assertEquals(normal, engine.getHostConfiguration(false));
+  }
+
+  @Test
+  public void connectionPoolFollowsTheSnapshot() throws Exception {
+    HttpEngine engine = new HttpEngine();
+    engine.init();
+
+    reconfigure(HttpEngineConstants.POOL_MAX_CONNECTIONS_PER_HOST_KEY, "7");
+    reconfigure(HttpEngineConstants.POOL_MAX_LIFETIME_KEY, "30");
+    engine.init();
+
+    HttpConnectionPool pool = HttpConnectionPool.getInstance(Configurator.getInstance().getSnapshot(), null);
+    assertSame(pool.getHttpClient(), engine.getHttpClient());
+    assertEquals(7, pool.getConnectionManager().getParams().getDefaultMaxConnectionsPerHost());
+    assertEquals(30000L, pool.getConnectionManager().getMaxLifetimeMillis());
+  }
+
+  @Test
+  public void exchangeUsesTheConnectTimeoutOfTheEngine() throws Exception {
+    PooledConnectionManager manager = new PooledConnectionManager(0);
+    manager.getParams().setConnectionTimeout(90000);
+    HostConfiguration host = new HostConfiguration();
+    host.setHost("localhost", 18081);
+
+    PooledConnectionManager.setExchange(Deadline.none(), 5000);
+    try {
+      HttpConnection connection = manager.getConnectionWithTimeout(host, 90000);
+      assertEquals(5000, connection.getParams().getConnectionTimeout());
+      manager.releaseConnection(connection);
+    } finally {
+      PooledConnectionManager.clearExchange();
+      manager.shutdown();
+    }
+  }
+
+  @Test
+  public void stringResponsesGoThroughTheResponseBody() throws Exception {
+    HttpEngine engine = new HttpEngine();
+    engine.init();
+    String message = "<Response><QuickResp><ProcStatus>0</ProcStatus></QuickResp></Response>";
+    String declaration = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+
+    assertEquals(declaration + message,
+        engine.removeDoctype(declaration + "\n<!DOCTYPE Response SYSTEM \"response.dtd\">" + message));
+    assertEquals(message, engine.removeDoctype(message));
+
+    Response response = engine.buildResponse(new Request(RequestIF.NEW_ORDER_TRANSACTION),
+        "<!DOCTYPE Response>" + message, "1", "20071130120000");
+    assertEquals(message, response.toXmlString());
+    assertEquals("1", response.getValue(Response.RETRY_COUNT));
+  }
+
+  @Test
+  public void responseBodyIsKeptByTheEngine() throws Exception {
+    HttpEngine engine = new HttpEngine();
+    assertSame(engine.getResponseBody(), engine.getResponseBody());
+    assertNotSame(engine.getResponseBody(), new HttpEngine().getResponseBody());
+
+    // the shared async engine reads each response into its own body
+    HttpEngine shared = new AsyncHttpEngine();
+    assertNotSame(shared.getResponseBody(), shared.getResponseBody());
+  }
+}
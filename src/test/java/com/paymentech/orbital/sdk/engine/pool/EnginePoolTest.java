@@ -0,0 +1,238 @@
+package com.paymentech.orbital.sdk.engine.pool;
+
+import com.paymentech.orbital.sdk.configurator.Configurator;
+import com.paymentech.orbital.sdk.engine.EngineIF;
+import com.paymentech.orbital.sdk.transactionProcessor.TpConstants;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * <p><b>Title:</b> EnginePoolTest</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Leasing engines from the pool (with timeouts, and the hand-off of released
+ * engines to the waiting threads in FIFO order), the thread-keyed acquire and release built on the leases, and
+ * the growth and shrinking of an elastic pool. </p>
+ */
+public class EnginePoolTest {
+
+  private Map original;
+
+  @Before
+  public void setUp() throws Exception {
+    original = Configurator.getInstance().getConfigurations();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    EnginePool.resetPool();
+    Configurator.getInstance().setConfigurations(original);
+  }
+
+  /**
+   * Create a new pool with some pool settings
+   *
+   * @param settings pairs of keys and values
+   */
+  static EnginePool newPool(String[] settings) throws Exception {
+    Map configurations = new HashMap(Configurator.getInstance().getConfigurations());
+    for (int i = 0; i < settings.length; i += 2) {
+      configurations.put(settings[i], settings[i + 1]);
+    }
+    Configurator.getInstance().setConfigurations(configurations);
+    EnginePool.resetPool();
+    return (EnginePool) EnginePool.getInstance();
+  }
+
+  /**
+   * Leases an engine in another thread, waiting at most five seconds
+   */
+  private static class Waiter extends Thread {
+
+    private final EnginePool pool;
+    private volatile EngineLease lease;
+
+    Waiter(EnginePool pool) {
+      this.pool = pool;
+    }
+
+    public void run() {
+      try {
+        lease = pool.lease(5000);
+      } catch (EngineNotAvailableException enae) {
+        // no lease
+      }
+    }
+
+    void startWaiting() throws InterruptedException {
+      int queued = pool.getQueueLength();
+      start();
+      while (pool.getQueueLength() == queued && isAlive()) {
+        Thread.sleep(5);
+      }
+    }
+  }
+
+  @Test
+  public void leaseReturnsTheEngineWhenClosed() throws Exception {
+    EnginePool pool = newPool(new String[]{TpConstants.POOL_SIZE_KEY, "2"});
+    assertEquals(2, EnginePool.getAvailableEngineCount());
+
+    EngineLease lease = pool.lease();
+    assertEquals(1, EnginePool.getAvailableEngineCount());
+    assertFalse(lease.isClosed());
+
+    lease.close();
+    lease.close();
+    assertTrue(lease.isClosed());
+    assertEquals(2, EnginePool.getAvailableEngineCount());
+    try {
+      lease.getEngine();
+      fail("IllegalStateException expected");
+    } catch (IllegalStateException ise) {
+      // expected
+    }
+  }
+
+  @Test
+  public void leaseMayBeClosedByAnotherThread() throws Exception {
+    EnginePool pool = newPool(new String[]{TpConstants.POOL_SIZE_KEY, "1"});
+    final EngineLease lease = pool.lease();
+
+    Thread closer = new Thread(new Runnable() {
+      public void run() {
+        lease.close();
+      }
+    });
+    closer.start();
+    closer.join(5000);
+
+    assertEquals(1, EnginePool.getAvailableEngineCount());
+  }
+
+  @Test
+  public void leasesOfOneThreadAreDifferentEngines() throws Exception {
+    EnginePool pool = newPool(new String[]{TpConstants.POOL_SIZE_KEY, "2"});
+
+    EngineLease first = pool.lease();
+    EngineLease second = pool.lease();
+    assertNotSame(first.getEngine(), second.getEngine());
+
+    first.close();
+    second.close();
+    assertEquals(2, EnginePool.getAvailableEngineCount());
+  }
+
+  @Test
+  public void acquireReusesTheEngineOfTheThread() throws Exception {
+    EnginePool pool = newPool(new String[]{TpConstants.POOL_SIZE_KEY, "2"});
+
+    EngineIF engine = pool.acquire();
+    assertSame(engine, pool.acquire());
+    assertEquals(1, EnginePool.getAvailableEngineCount());
+
+    pool.release();
+    assertEquals(2, EnginePool.getAvailableEngineCount());
+  }
+
+  @Test
+  public void leaseTimesOut() throws Exception {
+    EnginePool pool = newPool(new String[]{TpConstants.POOL_SIZE_KEY, "1"});
+    EngineLease lease = pool.lease();
+
+    try {
+      pool.lease(50);
+      fail("EngineNotAvailableException expected");
+    } catch (EngineNotAvailableException enae) {
+      // expected
+    }
+    assertEquals(1, pool.getStatistics().getTimeouts());
+
+    lease.close();
+    pool.lease(50).close();
+  }
+
+  @Test
+  public void releasedEngineGoesToTheLongestWaitingThread() throws Exception {
+    EnginePool pool = newPool(new String[]{TpConstants.POOL_SIZE_KEY, "1"});
+    EngineLease lease = pool.lease();
+    EngineIF engine = lease.getEngine();
+
+    Waiter first = new Waiter(pool);
+    first.startWaiting();
+    Waiter second = new Waiter(pool);
+    second.startWaiting();
+
+    lease.close();
+    first.join(5000);
+    assertSame(engine, first.lease.getEngine());
+    assertTrue(second.isAlive());
+
+    first.lease.close();
+    second.join(5000);
+    assertSame(engine, second.lease.getEngine());
+    second.lease.close();
+  }
+
+  @Test
+  public void poolGrowsUpToItsMaximum() throws Exception {
+    EnginePool pool = newPool(new String[]{TpConstants.POOL_SIZE_KEY, "1", TpConstants.MIN_POOL_SIZE_KEY, "1",
+        TpConstants.MAX_POOL_SIZE_KEY, "3"});
+    EnginePoolStatistics statistics = pool.getStatistics();
+    assertEquals(1, statistics.getPoolSize());
+
+    EngineLease first = pool.lease();
+    EngineLease second = pool.lease();
+    EngineLease third = pool.lease();
+    assertEquals(3, statistics.getPoolSize());
+    assertEquals(3, statistics.getBusyEngines());
+    assertEquals(3, statistics.getEnginesCreated());
+    try {
+      pool.lease(50);
+      fail("EngineNotAvailableException expected");
+    } catch (EngineNotAvailableException enae) {
+      // expected
+    }
+
+    first.close();
+    second.close();
+    third.close();
+    assertEquals(3, statistics.getPoolSize());
+    assertEquals(0, statistics.getBusyEngines());
+  }
+
+  @Test
+  public void idleEnginesAreRetiredDownToTheMinimum() throws Exception {
+    EnginePool pool = newPool(new String[]{TpConstants.POOL_SIZE_KEY, "1", TpConstants.MIN_POOL_SIZE_KEY, "1",
+        TpConstants.MAX_POOL_SIZE_KEY, "3", TpConstants.ENGINE_KEEP_ALIVE_KEY, "1"});
+    EngineLease first = pool.lease();
+    EngineLease second = pool.lease();
+    EngineLease third = pool.lease();
+    first.close();
+    second.close();
+    third.close();
+
+    // engines released within the keep-alive time are kept
+    EnginePool.retireIdleEngines();
+    assertEquals(3, pool.getStatistics().getPoolSize());
+
+    Thread.sleep(1100);
+    EnginePool.retireIdleEngines();
+    assertEquals(1, pool.getStatistics().getPoolSize());
+    assertEquals(2, pool.getStatistics().getEnginesRetired());
+    assertEquals(1, EnginePool.getAvailableEngineCount());
+  }
+}
@@ -0,0 +1,51 @@
+package com.paymentech.orbital.sdk.request;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * <p><b>Title:</b> CompiledTemplateTest</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights
+ * reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Compiling templates, with and without compaction of the whitespace and the
+ * empty optional elements. </p>
+ */
+public class CompiledTemplateTest {
+
+  @Test
+  public void compactTemplateKeepsRequiredElements() {
+    String xml = "<Request>\n\t<Reversal>\n\t\t<TxRefNum>[% TxRefNum= %]</TxRefNum>\n"
+        + "\t\t<AdjustedAmt>[% AdjustedAmt= %]</AdjustedAmt>\n\t\t<OrderID>[% OrderID %]</OrderID>\n"
+        + "\t</Reversal>\n</Request>";
+    Set required = new HashSet();
+    required.add("TxRefNum");
+
+    CompiledTemplate compact = CompiledTemplate.compile(xml, true, required);
+    assertEquals("<Request><Reversal><TxRefNum></TxRefNum><OrderID></OrderID></Reversal></Request>",
+        renderEmpty(compact));
+
+    CompiledTemplate full = CompiledTemplate.compile(xml, false, Collections.EMPTY_SET);
+    assertEquals(xml.replaceAll("\\[% [A-Za-z]+=? %\\]", ""), renderEmpty(full));
+  }
+
+  /**
+   * @return the text of a template whose fields are all empty
+   */
+  private static String renderEmpty(CompiledTemplate template) {
+    StringBuffer text = new StringBuffer();
+    for (int segment = 0; segment < template.getSegmentCount(); segment++) {
+      if (template.getKind(segment) == CompiledTemplate.LITERAL) {
+        text.append(template.getText(segment));
+      }
+    }
+    return text.toString();
+  }
+}
@@ -0,0 +1,78 @@
+package com.paymentech.orbital.sdk.request;
+
+import com.paymentech.orbital.sdk.interfaces.RequestIF;
+import org.junit.Test;
+
+import static com.paymentech.orbital.sdk.request.TestRequests.newOrder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * <p><b>Title:</b> FieldKeyTest</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Setting request fields through keys resolved once. </p>
+ */
+public class FieldKeyTest {
+
+  private static final FieldKey ORDER_ID;
+  private static final FieldKey SMD_DBA;
+
+  static {
+    try {
+      ORDER_ID = FieldKey.forField(RequestIF.NEW_ORDER_TRANSACTION, "OrderID");
+      SMD_DBA = FieldKey.forField(RequestIF.NEW_ORDER_TRANSACTION, "SoftMerchantDescriptors", "SMDDBA");
+    } catch (Exception e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  @Test
+  public void setsLikeTheName() throws Exception {
+    Request byKey = newOrder();
+    byKey.setFieldValue(ORDER_ID, "order-2");
+    byKey.getComplexRoot("SoftMerchantDescriptors").setFieldValue(SMD_DBA, "dba");
+
+    Request byName = newOrder();
+    byName.setFieldValue("OrderID", "order-2");
+    byName.getComplexRoot("SoftMerchantDescriptors").setFieldValue("SMDDBA", "dba");
+
+    assertEquals("order-2", byKey.getField(ORDER_ID));
+    assertEquals("order-2", byKey.getField("OrderID"));
+    assertEquals(byName.getXML(), byKey.getXML());
+  }
+
+  @Test
+  public void keyOfAnotherTemplateSetsTheFieldByName() throws Exception {
+    Request request = new Request(RequestIF.MARK_FOR_CAPTURE_TRANSACTION);
+    request.setFieldValue(ORDER_ID, "order-1");
+
+    assertEquals("order-1", request.getField("OrderID"));
+    assertEquals("order-1", request.getField(ORDER_ID));
+  }
+
+  @Test
+  public void unknownFieldIsRejectedWhenResolved() throws Exception {
+    try {
+      FieldKey.forField(RequestIF.NEW_ORDER_TRANSACTION, "NoSuchField");
+      fail("FieldNotFoundException expected");
+    } catch (FieldNotFoundException fnfe) {
+      // expected
+    }
+    try {
+      FieldKey.forField(RequestIF.NEW_ORDER_TRANSACTION, "NoSuchRoot", "SMDDBA");
+      fail("RequestConstructionException expected");
+    } catch (RequestConstructionException rce) {
+      // expected
+    }
+  }
+
+  @Test
+  public void keyNamesTheField() {
+    assertEquals("OrderID", ORDER_ID.getName());
+    assertTrue(SMD_DBA.toString(), SMD_DBA.toString().endsWith(".SMDDBA"));
+  }
+}
@@ -0,0 +1,135 @@
+package com.paymentech.orbital.sdk.request;
+
+import com.paymentech.orbital.sdk.configurator.Configurator;
+import com.paymentech.orbital.sdk.interfaces.RequestIF;
+import org.junit.Test;
+
+import static com.paymentech.orbital.sdk.request.TestRequests.newOrder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p><b>Title:</b> MerchantTemplateTest</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights
+ * reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Templates specialized for merchant profiles: the profile values written into the
+ * template, requests that change them, and the cache of the specialized templates. </p>
+ */
+public class MerchantTemplateTest {
+
+  private static MerchantProfile profile(String merchantId) {
+    MerchantProfile profile = new MerchantProfile(merchantId);
+    profile.setFieldValue("BIN", "000001");
+    profile.setFieldValue("MerchantID", merchantId);
+    profile.setComplexRootFieldValue("SoftMerchantDescriptors", "SMDDBA", "ACME*STORE");
+    return profile;
+  }
+
+  private static int count(String xml, String text) {
+    int count = 0;
+    for (int i = xml.indexOf(text); i >= 0; i = xml.indexOf(text, i + 1)) {
+      count++;
+    }
+    return count;
+  }
+
+  @Test
+  public void rendersTheProfileValues() throws Exception {
+    String xml = newOrder(profile("700000000001")).getXML();
+
+    assertTrue(xml, xml.indexOf("<BIN>000001</BIN>") >= 0);
+    assertTrue(xml, xml.indexOf("<MerchantID>700000000001</MerchantID>") >= 0);
+    assertTrue(xml, xml.indexOf("<SMDDBA>ACME*STORE</SMDDBA>") >= 0);
+    assertTrue(xml, xml.indexOf("<OrderID>order-1</OrderID>") >= 0);
+  }
+
+  @Test
+  public void rendersLikeARequestWithoutProfile() throws Exception {
+    Request plain = newOrder(null);
+    plain.setFieldValue("BIN", "000001");
+    plain.setFieldValue("MerchantID", "700000000001");
+    plain.getComplexRoot("SoftMerchantDescriptors").setFieldValue("SMDDBA", "ACME*STORE");
+
+    assertEquals(plain.getXML(), newOrder(profile("700000000001")).getXML());
+  }
+
+  @Test
+  public void requestOverridesAConstant() throws Exception {
+    Request request = newOrder(profile("700000000002"));
+    request.setFieldValue("BIN", "000002");
+    String xml = request.getXML();
+
+    assertTrue(xml, xml.indexOf("<BIN>000002</BIN>") >= 0);
+    assertEquals(1, count(xml, "<BIN>"));
+    // the other profile values are kept
+    assertTrue(xml, xml.indexOf("<MerchantID>700000000002</MerchantID>") >= 0);
+    assertTrue(xml, xml.indexOf("<SMDDBA>ACME*STORE</SMDDBA>") >= 0);
+
+    // the specialized template is not changed
+    xml = newOrder(profile("700000000002")).getXML();
+    assertTrue(xml, xml.indexOf("<BIN>000001</BIN>") >= 0);
+  }
+
+  @Test
+  public void requestChangesAnInlinedComplexRoot() throws Exception {
+    Request request = newOrder(profile("700000000003"));
+    request.getComplexRoot("SoftMerchantDescriptors").setFieldValue("SMDContactInfo", "555-0100");
+    String xml = request.getXML();
+
+    assertEquals(1, count(xml, "<SoftMerchantDescriptors>"));
+    assertTrue(xml, xml.indexOf("<SMDDBA>ACME*STORE</SMDDBA>") >= 0);
+    assertTrue(xml, xml.indexOf("<SMDContactInfo>555-0100</SMDContactInfo>") >= 0);
+    assertTrue(xml, xml.indexOf("<BIN>000001</BIN>") >= 0);
+  }
+
+  @Test
+  public void clearFieldsKeepsTheProfileValues() throws Exception {
+    Request request = newOrder(profile("700000000004"));
+    request.setFieldValue("BIN", "000002");
+    request.clearAllFields();
+
+    assertEquals("000001", request.getField("BIN"));
+    assertEquals("700000000004", request.getField("MerchantID"));
+    assertNull(request.getField("OrderID"));
+
+    request.setFieldValue("MessageType", "AC");
+    request.setFieldValue("OrderID", "order-2");
+    String xml = request.getXML();
+    assertTrue(xml, xml.indexOf("<BIN>000001</BIN>") >= 0);
+    assertTrue(xml, xml.indexOf("<OrderID>order-2</OrderID>") >= 0);
+  }
+
+  @Test
+  public void equalProfilesShareTheirTemplates() throws Exception {
+    newOrder(profile("700000000005"));
+    int count = TemplateParser.getMerchantTemplateCount();
+
+    newOrder(profile("700000000005"));
+    assertEquals(count, TemplateParser.getMerchantTemplateCount());
+  }
+
+  @Test
+  public void cacheIsBounded() throws Exception {
+    TemplateParser parser = TemplateParser.getInstance(Configurator.getInstance());
+    int cacheSize = TemplateParser.getMerchantTemplateCacheSize();
+    TemplateParser.setMerchantTemplateCacheSize(10);
+    try {
+      for (int i = 0; i < 50; i++) {
+        parser.loadTemplate(RequestIF.NEW_ORDER_TRANSACTION, profile("7100000000" + i));
+      }
+      assertTrue(TemplateParser.getMerchantTemplateCount() <= 10);
+
+      // an evicted profile is specialized again
+      String xml = newOrder(profile("71000000000")).getXML();
+      assertTrue(xml, xml.indexOf("<MerchantID>71000000000</MerchantID>") >= 0);
+      assertFalse(xml, xml.indexOf("[%") >= 0);
+    } finally {
+      TemplateParser.setMerchantTemplateCacheSize(cacheSize);
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package com.paymentech.orbital.sdk.request;
+
+import org.junit.Test;
+
+import static com.paymentech.orbital.sdk.request.TestRequests.newOrder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * <p><b>Title:</b> NumericFieldTest</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights
+ * reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Numeric and month/year fields, written as digits without formatting strings. </p>
+ */
+public class NumericFieldTest {
+
+  @Test
+  public void rendersLikeAString() throws Exception {
+    Request byNumber = newOrder();
+    byNumber.setFieldValue("Amount", 2500L);
+    byNumber.setMonthYearValue("Exp", 11, 2031);
+
+    Request byString = newOrder();
+    byString.setFieldValue("Amount", "2500");
+    byString.setFieldValue("Exp", "1131");
+
+    assertEquals("2500", byNumber.getField("Amount"));
+    assertEquals("1131", byNumber.getField("Exp"));
+    assertEquals(byString.getXML(), byNumber.getXML());
+  }
+
+  @Test
+  public void padsToTheDigits() throws Exception {
+    Request request = newOrder();
+    request.setFieldValue("Amount", 5L, 3);
+    request.setMonthYearValue("Exp", 1, 2005);
+    String xml = request.getXML();
+
+    assertTrue(xml, xml.indexOf("<Amount>005</Amount>") >= 0);
+    assertTrue(xml, xml.indexOf("<Exp>0105</Exp>") >= 0);
+  }
+
+  @Test
+  public void stringReplacesANumber() throws Exception {
+    Request request = newOrder();
+    request.setFieldValue("Amount", 1000L);
+    request.setFieldValue("Amount", "2000");
+
+    assertEquals("2000", request.getField("Amount"));
+  }
+
+  @Test
+  public void invalidValuesAreRejected() {
+    try {
+      Digits.monthYear(13, 2030);
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException iae) {
+      // expected
+    }
+    try {
+      Digits.check("Amount", -1, 1);
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException iae) {
+      // expected
+    }
+    assertEquals("0042", Digits.toString(42, 4));
+  }
+}
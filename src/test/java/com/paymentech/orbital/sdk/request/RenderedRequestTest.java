@@ -0,0 +1,57 @@
+package com.paymentech.orbital.sdk.request;
+
+import org.junit.Test;
+
+import static com.paymentech.orbital.sdk.request.TestRequests.newOrder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * <p><b>Title:</b> RenderedRequestTest</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights
+ * reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> The rendered snapshot of a request, reused across retries, failover and logging. </p>
+ */
+public class RenderedRequestTest {
+
+  @Test
+  public void renderedRequestIsASnapshot() throws Exception {
+    Request request = newOrder();
+    String before = request.getXML();
+
+    RenderedRequest rendered = RenderedRequest.render(request);
+    request.setFieldValue("Amount", "2000");
+
+    assertEquals(before, rendered.getXML());
+    assertEquals(before, rendered.getPayload().toString());
+    assertEquals("1000", rendered.getField("Amount"));
+    assertEquals(request.getType(), rendered.getType());
+    assertSame(rendered, RenderedRequest.render(rendered));
+  }
+
+  @Test
+  public void renderedRequestIsReadOnly() throws Exception {
+    RenderedRequest rendered = RenderedRequest.render(newOrder());
+    try {
+      rendered.setFieldValue("Amount", "2000");
+      fail("FieldNotFoundException expected");
+    } catch (FieldNotFoundException fnfe) {
+      // expected
+    }
+    assertEquals("1000", rendered.getField("Amount"));
+  }
+
+  @Test
+  public void renderedRequestIsMasked() throws Exception {
+    String masked = RenderedRequest.render(newOrder()).getMaskedXML();
+
+    assertFalse(masked, masked.indexOf("4111111111111111") >= 0);
+    assertTrue(masked, masked.indexOf("1111</AccountNum>") >= 0);
+  }
+}
@@ -0,0 +1,95 @@
+package com.paymentech.orbital.sdk.request;
+
+import com.paymentech.orbital.sdk.interfaces.RequestIF;
+import com.paymentech.orbital.sdk.interfaces.TemplateIF;
+
+/**
+ * <p><b>Title:</b> RequestFootprint</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Measures the heap footprint of requests: builds a number of NewOrder requests
+ * filled like a typical authorization (optionally with level 3 line items), keeps them all reachable and
+ * reports the heap they take per request.
+ * <br><br> Usage: java com.paymentech.orbital.sdk.request.RequestFootprint [requests] [line items]
+ * <br> Run it from the test classes (it is not part of the SDK); the SDK configuration
+ * (linehandler.properties) must be on the classpath. </p>
+ */
+public class RequestFootprint {
+
+  private RequestFootprint() {
+    ;
+  }
+
+  public static void main(String[] args) throws Exception {
+    int count = (args.length > 0) ? Integer.parseInt(args[0]) : 10000;
+    int lineItems = (args.length > 1) ? Integer.parseInt(args[1]) : 0;
+
+    // parse the template (and load the configuration) before measuring
+    fill(new Request(RequestIF.NEW_ORDER_TRANSACTION), lineItems);
+
+    Request[] requests = new Request[count];
+    long before = usedMemory();
+
+    for (int i = 0; i < count; i++) {
+      requests[i] = fill(new Request(RequestIF.NEW_ORDER_TRANSACTION), lineItems);
+    }
+
+    long after = usedMemory();
+
+    System.out.println(count + " NewOrder requests with " + lineItems + " line items: " +
+        ((after - before) / count) + " bytes per request");
+    System.out.println("last request: " + requests[count - 1].getField(Fields.NEW_ORDER_REQUEST.ORDER_ID));
+  }
+
+  private static Request fill(Request request, int lineItems) throws Exception {
+    request.setFieldValue(Fields.NEW_ORDER_REQUEST.INDUSTRY_TYPE, "EC");
+    request.setFieldValue(Fields.NEW_ORDER_REQUEST.MESSAGE_TYPE, "AC");
+    request.setFieldValue(Fields.NEW_ORDER_REQUEST.BIN, "000001");
+    request.setFieldValue(Fields.NEW_ORDER_REQUEST.MERCHANT_ID, "700000000000");
+    request.setFieldValue(Fields.NEW_ORDER_REQUEST.TERMINAL_ID, "001");
+    request.setFieldValue(Fields.NEW_ORDER_REQUEST.ACCOUNT_NUM, "4012888888881");
+    request.setFieldValue(Fields.NEW_ORDER_REQUEST.EXP, "1212");
+    request.setFieldValue(Fields.NEW_ORDER_REQUEST.CURRENCY_CODE, "840");
+    request.setFieldValue(Fields.NEW_ORDER_REQUEST.CURRENCY_EXPONENT, "2");
+    request.setFieldValue(Fields.NEW_ORDER_REQUEST.AVS_ZIP, "33333");
+    request.setFieldValue(Fields.NEW_ORDER_REQUEST.AVS_ADDRESS_1, "4 Northeastern Blvd");
+    request.setFieldValue(Fields.NEW_ORDER_REQUEST.AVS_CITY, "Salem");
+    request.setFieldValue(Fields.NEW_ORDER_REQUEST.AVS_STATE, "NH");
+    request.setFieldValue(Fields.NEW_ORDER_REQUEST.AVS_NAME, "Joe Smith");
+    request.setFieldValue(Fields.NEW_ORDER_REQUEST.ORDER_ID, Long.toString(request.getLogTransactionID()));
+    request.setFieldValue(Fields.NEW_ORDER_REQUEST.AMOUNT, "2500");
+
+    if (lineItems > 0) {
+      TemplateIF pc3 = request.getComplexRoot("PC3Core");
+      pc3.setFieldValue("PC3FreightAmt", "100");
+      for (int i = 0; i < lineItems; i++) {
+        TemplateIF lineItem = pc3.getRecursiveElement("PC3LineItems");
+        lineItem.setFieldValue("PC3DtlDesc", "item " + i);
+        lineItem.setFieldValue("PC3DtlQty", "1");
+        lineItem.setFieldValue("PC3DtlUOM", "EA");
+      }
+    }
+
+    return request;
+  }
+
+  private static long usedMemory() throws InterruptedException {
+    Runtime runtime = Runtime.getRuntime();
+    long used = Long.MAX_VALUE;
+
+    // collect until the used heap stops shrinking
+    for (int i = 0; i < 10; i++) {
+      System.gc();
+      Thread.sleep(50);
+      long now = runtime.totalMemory() - runtime.freeMemory();
+      if (now >= used) {
+        break;
+      }
+      used = now;
+    }
+
+    return used;
+  }
+}
@@ -0,0 +1,71 @@
+package com.paymentech.orbital.sdk.request;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p><b>Title:</b> RequestPayloadTest</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights
+ * reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Rendering requests into the reused UTF-8 buffer of a payload. </p>
+ */
+public class RequestPayloadTest {
+
+  @Test
+  public void payloadIsTheXml() throws Exception {
+    Request request = TestRequests.newOrder();
+
+    RequestPayload payload = new RequestPayload();
+    request.writePayload(payload);
+    assertEquals(request.getXML(), payload.toString());
+    assertEquals(payload.toString().getBytes("UTF-8").length, payload.getLength());
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    payload.writeTo(out);
+    assertTrue(Arrays.equals(payload.toByteArray(), out.toByteArray()));
+  }
+
+  @Test
+  public void encodesLikeAString() throws Exception {
+    // two, three and four bytes, and an unpaired surrogate
+    String text = "a\u00e9\u20ac\ud83d\ude00\ud83d-";
+    RequestPayload payload = new RequestPayload(16);
+    payload.append(text);
+
+    assertTrue(Arrays.equals(text.getBytes("UTF-8"), payload.toByteArray()));
+  }
+
+  @Test
+  public void padsNumbers() {
+    RequestPayload payload = new RequestPayload();
+    payload.appendNumber(7, 3);
+    payload.append(",");
+    payload.appendNumber(12345, 2);
+    payload.append(",");
+    payload.appendNumber(0, 0);
+
+    assertEquals("007,12345,0", payload.toString());
+  }
+
+  @Test
+  public void resetKeepsTheBuffer() {
+    RequestPayload payload = new RequestPayload(16);
+    payload.append("<Request></Request>");
+    byte[] buffer = payload.getBuffer();
+
+    payload.reset();
+    assertEquals(0, payload.getLength());
+    payload.append("<Request/>");
+    assertSame(buffer, payload.getBuffer());
+    assertEquals("<Request/>", payload.toString());
+  }
+}
@@ -0,0 +1,87 @@
+package com.paymentech.orbital.sdk.request;
+
+import com.paymentech.orbital.sdk.interfaces.RequestIF;
+import com.paymentech.orbital.sdk.interfaces.TemplateIF;
+import org.junit.Test;
+
+import static com.paymentech.orbital.sdk.request.TestRequests.newOrder;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * <p><b>Title:</b> RequestRenderingTest</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights
+ * reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Rendering of requests from their compiled templates in a single pass: field
+ * values and defaults, complex roots and recursive elements. </p>
+ */
+public class RequestRenderingTest {
+
+  @Test
+  public void rendersFieldsAndDefaults() throws Exception {
+    String xml = newOrder().getXML();
+
+    assertTrue(xml, xml.indexOf("<MessageType>AC</MessageType>") >= 0);
+    assertTrue(xml, xml.indexOf("<AccountNum>4111111111111111</AccountNum>") >= 0);
+    // default values of the template
+    assertTrue(xml, xml.indexOf("<IndustryType>EC</IndustryType>") >= 0);
+    assertTrue(xml, xml.indexOf("<TerminalID>001</TerminalID>") >= 0);
+    assertTrue(xml, xml.indexOf("<CurrencyCode>840</CurrencyCode>") >= 0);
+    assertTrue(xml, xml.trim().endsWith("</Request>"));
+  }
+
+  @Test
+  public void unknownFieldIsRejected() throws Exception {
+    try {
+      newOrder().setFieldValue("NoSuchField", "x");
+      fail("FieldNotFoundException expected");
+    } catch (FieldNotFoundException fnfe) {
+      // expected
+    }
+  }
+
+  @Test
+  public void rendersComplexRootsWhereTheyAreUsed() throws Exception {
+    Request request = newOrder();
+    request.getComplexRoot("SoftMerchantDescriptors").setFieldValue("SMDDBA", "dba");
+    String xml = request.getXML();
+
+    assertTrue(xml, xml.indexOf("<SoftMerchantDescriptors>") >= 0);
+    assertTrue(xml, xml.indexOf("<SMDDBA>dba</SMDDBA>") >= 0);
+    // complex roots that are not used are left out
+    assertFalse(xml, xml.indexOf("<PC3LineItemCount>") >= 0);
+    assertFalse(xml, xml.indexOf("[#") >= 0);
+  }
+
+  @Test
+  public void rendersRecursiveElementsWithTheirCountAndIndex() throws Exception {
+    Request request = newOrder();
+    TemplateIF core = request.getComplexRoot("PC3Core");
+    core.getRecursiveElement("PC3LineItems").setFieldValue("PC3DtlDesc", "first");
+    core.getRecursiveElement("PC3LineItems").setFieldValue("PC3DtlDesc", "second");
+    String xml = request.getXML();
+
+    assertTrue(xml, xml.indexOf("<PC3LineItemCount>2</PC3LineItemCount>") >= 0);
+    int first = xml.indexOf("<PC3DtlIndex>1</PC3DtlIndex>");
+    int second = xml.indexOf("<PC3DtlIndex>2</PC3DtlIndex>");
+    assertTrue(xml, first >= 0 && second > first);
+    assertTrue(xml, xml.indexOf("<PC3DtlDesc>first</PC3DtlDesc>") > first);
+    assertTrue(xml, xml.indexOf("<PC3DtlDesc>second</PC3DtlDesc>") > second);
+  }
+
+  @Test
+  public void missingRequiredFieldIsRejected() throws Exception {
+    Request request = new Request(RequestIF.NEW_ORDER_TRANSACTION);
+    request.setFieldValue("MessageType", "AC");
+    try {
+      request.getXML();
+      fail("RequestConstructionException expected");
+    } catch (RequestConstructionException rce) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package com.paymentech.orbital.sdk.request;
+
+import com.paymentech.orbital.sdk.configurator.Configurator;
+import com.paymentech.orbital.sdk.interfaces.TemplateIF;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p><b>Title:</b> TemplateCopyTest</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights
+ * reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Copies of the parsed templates: every loaded template is a copy without user
+ * data, and a clone is a deep copy of a template and its user data. </p>
+ */
+public class TemplateCopyTest {
+
+  private static Template load() throws Exception {
+    return TemplateParser.getInstance(Configurator.getInstance()).loadTemplate("NewOrder");
+  }
+
+  @Test
+  public void loadedTemplatesDoNotShareUserData() throws Exception {
+    Template first = load();
+    first.setFieldValue("OrderID", "order-1");
+    first.getComplexRoot("SoftMerchantDescriptors").setFieldValue("SMDDBA", "dba");
+
+    Template second = load();
+    assertNull(second.getValue("OrderID"));
+    assertTrue(second.getUsedComplexRoots().isEmpty());
+    assertFalse(second.getXml().length() == 0);
+    assertEquals(first.getXml(), second.getXml());
+  }
+
+  @Test
+  public void cloneCopiesTheUserData() throws Exception {
+    Template template = load();
+    template.setFieldValue("OrderID", "order-1");
+    template.setFieldValue("Amount", 1000L);
+    template.getComplexRoot("SoftMerchantDescriptors").setFieldValue("SMDDBA", "dba");
+    template.getComplexRoot("PC3Core").getRecursiveElement("PC3LineItems").setFieldValue("PC3DtlDesc", "item");
+
+    Template clone = (Template) template.clone();
+
+    assertEquals("order-1", clone.getField("OrderID"));
+    assertEquals("1000", clone.getField("Amount"));
+    assertEquals(template.getUsedComplexRoots(), clone.getUsedComplexRoots());
+    assertEquals("dba", clone.getComplexRootTemplate("SoftMerchantDescriptors").getField("SMDDBA"));
+    List items = (List) clone.getComplexRootTemplate("PC3Core").getUserDefinedRecursiveElementsMap()
+        .get("PC3LineItems");
+    assertEquals(1, items.size());
+    assertEquals("item", ((TemplateIF) items.get(0)).getField("PC3DtlDesc"));
+  }
+
+  @Test
+  public void cloneIsIndependent() throws Exception {
+    Template template = load();
+    template.setFieldValue("OrderID", "order-1");
+    template.getComplexRoot("SoftMerchantDescriptors").setFieldValue("SMDDBA", "dba");
+    template.getComplexRoot("PC3Core").getRecursiveElement("PC3LineItems").setFieldValue("PC3DtlDesc", "item");
+
+    Template clone = (Template) template.clone();
+    clone.setFieldValue("OrderID", "order-2");
+    clone.getComplexRootTemplate("SoftMerchantDescriptors").setFieldValue("SMDDBA", "other");
+    clone.getComplexRootTemplate("PC3Core").getRecursiveElement("PC3LineItems");
+    clone.getUsedComplexRoots().add("FraudAnalysis");
+
+    assertEquals("order-1", template.getField("OrderID"));
+    assertEquals("dba", template.getComplexRootTemplate("SoftMerchantDescriptors").getField("SMDDBA"));
+    assertEquals(1, ((List) template.getComplexRootTemplate("PC3Core").getUserDefinedRecursiveElementsMap()
+        .get("PC3LineItems")).size());
+    assertFalse(template.getUsedComplexRoots().contains("FraudAnalysis"));
+    assertNotSame(template.getComplexRootTemplate("SoftMerchantDescriptors"),
+        clone.getComplexRootTemplate("SoftMerchantDescriptors"));
+  }
+
+  @Test
+  public void cloneRendersTheSameMessage() throws Exception {
+    Template template = load();
+    template.setFieldValue("MessageType", "AC");
+    template.setFieldValue("BIN", "000001");
+    template.setFieldValue("MerchantID", "123456");
+    template.setFieldValue("OrderID", "order-1");
+    template.setFieldValue("Amount", "1000");
+    template.getComplexRoot("SoftMerchantDescriptors").setFieldValue("SMDDBA", "dba");
+
+    Template clone = (Template) template.clone();
+    String xml = render(template);
+    assertTrue(xml, xml.indexOf("<SMDDBA>dba</SMDDBA>") >= 0);
+    assertEquals(xml, render(clone));
+  }
+
+  private static String render(Template template) throws Exception {
+    return RequestBuilder.buildRequest(Configurator.getInstance().getCommonEngineLogger(), template);
+  }
+}
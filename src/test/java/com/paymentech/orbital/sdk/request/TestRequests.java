@@ -0,0 +1,49 @@
+package com.paymentech.orbital.sdk.request;
+
+import com.paymentech.orbital.sdk.interfaces.RequestIF;
+
+/**
+ * <p><b>Title:</b> TestRequests</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Requests shared by the tests. </p>
+ */
+public final class TestRequests {
+
+  public static final String BIN = "000001";
+  public static final String MERCHANT_ID = "123456";
+  public static final String ACCOUNT_NUM = "4111111111111111";
+
+  private TestRequests() {
+    ;
+  }
+
+  /**
+   * @return a NewOrder authorization with the required fields and a card
+   */
+  public static Request newOrder() throws Exception {
+    return newOrder(null);
+  }
+
+  /**
+   * A NewOrder authorization for a merchant profile; the BIN and merchant id are only set without a profile
+   *
+   * @param profile the merchant profile (or null)
+   * @return the request
+   */
+  public static Request newOrder(MerchantProfile profile) throws Exception {
+    Request request = new Request(RequestIF.NEW_ORDER_TRANSACTION, profile);
+    request.setFieldValue("MessageType", "AC");
+    if (profile == null) {
+      request.setFieldValue("BIN", BIN);
+      request.setFieldValue("MerchantID", MERCHANT_ID);
+    }
+    request.setFieldValue("AccountNum", ACCOUNT_NUM);
+    request.setFieldValue("Exp", "1230");
+    request.setFieldValue("OrderID", "order-1");
+    request.setFieldValue("Amount", "1000");
+    return request;
+  }
+}
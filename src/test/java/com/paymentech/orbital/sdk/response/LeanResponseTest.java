@@ -0,0 +1,179 @@
+package com.paymentech.orbital.sdk.response;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p><b>Title:</b> LeanResponseTest</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> A lean response decides a message the way a Response does. </p>
+ */
+public class LeanResponseTest {
+
+  private static final Charset UTF_8 = StandardCharsets.UTF_8;
+
+  private static final String APPROVED = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+      + "<Response><NewOrderResp><ProcStatus>0</ProcStatus><ApprovalStatus>1</ApprovalStatus>"
+      + "<RespCode>00</RespCode><AVSRespCode>H </AVSRespCode><CVV2RespCode>M</CVV2RespCode>"
+      + "<AuthCode>tst123</AuthCode><TxRefNum>ABC123</TxRefNum><StatusMsg>Approved</StatusMsg>"
+      + "<HostRespCode>100</HostRespCode><HostAVSRespCode>I3</HostAVSRespCode>"
+      + "<AccountNum>4111111111111111</AccountNum></NewOrderResp></Response>";
+
+  private static final String DECLINED = "<Response><NewOrderResp><ProcStatus>0</ProcStatus>"
+      + "<ApprovalStatus>0</ApprovalStatus><RespCode>05</RespCode><StatusMsg>Do Not Honor</StatusMsg>"
+      + "</NewOrderResp></Response>";
+
+  private static final String ERROR = "<Response><NewOrderResp><ProcStatus>0</ProcStatus>"
+      + "<ApprovalStatus>2</ApprovalStatus></NewOrderResp></Response>";
+
+  private static final String QUICK = "<Response><QuickResp><ProcStatus>841</ProcStatus>"
+      + "<StatusMsg>Error validating card/account number range</StatusMsg></QuickResp></Response>";
+
+  private static final String PROFILE = "<Response><ProfileResp><CustomerRefNum>123</CustomerRefNum>"
+      + "<ProfileProcStatus>0</ProfileProcStatus><CustomerProfileMessage>Profile Created</CustomerProfileMessage>"
+      + "</ProfileResp></Response>";
+
+  private static LeanResponse lean(String message, String responseType) throws Exception {
+    return new LeanResponse(message.getBytes(UTF_8), UTF_8, responseType, null, null);
+  }
+
+  /**
+   * Compare with a Response (the response type of the test configuration is gateway)
+   */
+  private static void assertSameDecision(String message) throws Exception {
+    LeanResponse lean = lean(message, Response.GATEWAY_TYPE);
+    Response full = new Response();
+    full.setRawMessage(message);
+
+    assertEquals(full.isApproved(), lean.isApproved());
+    assertEquals(full.isDeclined(), lean.isDeclined());
+    assertEquals(full.isError(), lean.isError());
+    assertEquals(full.isGood(), lean.isGood());
+    assertEquals(full.isQuickResponse(), lean.isQuickResponse());
+    assertEquals(full.getStatus(), lean.getStatus());
+    assertEquals(full.getMessage(), lean.getMessage());
+    assertEquals(full.getAuthCode(), lean.getAuthCode());
+    assertEquals(full.getResponseCode(), lean.getResponseCode());
+    assertEquals(full.getAVSResponseCode(), lean.getAVSResponseCode());
+    assertEquals(full.getCVV2RespCode(), lean.getCVV2RespCode());
+    assertEquals(full.getTxRefNum(), lean.getTxRefNum());
+  }
+
+  @Test
+  public void decidesLikeAResponse() throws Exception {
+    String[] messages = {APPROVED, DECLINED, ERROR, QUICK, PROFILE};
+    for (int i = 0; i < messages.length; i++) {
+      assertSameDecision(messages[i]);
+    }
+  }
+
+  @Test
+  public void approvedIsDecidedFromTheBytes() throws Exception {
+    LeanResponse response = lean(APPROVED, Response.GATEWAY_TYPE);
+
+    assertTrue(response.isApproved());
+    assertEquals(1, response.getApprovalStatus());
+    assertEquals(0, response.getProcStatus());
+    assertEquals("00", response.getResponseCode());
+    assertEquals("tst123", response.getAuthCode());
+  }
+
+  @Test
+  public void shortCodesAreShared() throws Exception {
+    assertSame(lean(APPROVED, Response.GATEWAY_TYPE).getResponseCode(),
+        lean(APPROVED, Response.GATEWAY_TYPE).getResponseCode());
+  }
+
+  @Test
+  public void hostResponseType() throws Exception {
+    LeanResponse response = lean(APPROVED, Response.HOST_TYPE);
+
+    assertEquals("100", response.getResponseCode());
+    assertEquals("I3", response.getAVSResponseCode());
+  }
+
+  @Test
+  public void profileStatus() throws Exception {
+    LeanResponse response = lean(PROFILE, Response.GATEWAY_TYPE);
+
+    assertFalse(response.isError());
+    assertEquals("Profile Created", response.getMessage());
+    assertEquals("123", response.getValue("CustomerRefNum"));
+  }
+
+  @Test
+  public void unusualMessagesAreReadByAResponse() throws Exception {
+    // a comment and an attribute: the message is handed to a Response
+    String message = "<Response><!-- x --><NewOrderResp><ProcStatus>0</ProcStatus>"
+        + "<ApprovalStatus a=\"1\">1</ApprovalStatus><AuthCode>tst123</AuthCode></NewOrderResp></Response>";
+    assertSameDecision(message);
+    assertTrue(lean(message, Response.GATEWAY_TYPE).isApproved());
+  }
+
+  @Test
+  public void zeroPaddedStatus() throws Exception {
+    // the Response fails to parse "000"; the lean response reads it as 0
+    String message = "<Response><NewOrderResp><ProcStatus>000</ProcStatus><ApprovalStatus>1</ApprovalStatus>"
+        + "<RespCode>00</RespCode><AuthCode>tst123</AuthCode></NewOrderResp></Response>";
+    LeanResponse response = lean(message, Response.GATEWAY_TYPE);
+
+    assertTrue(response.isApproved());
+    assertEquals(0, response.getProcStatus());
+    assertEquals("tst123", response.getValue(Response.AUTH_CODE));
+    // still decided once the values are read from a Response
+    assertTrue(response.isApproved());
+    assertEquals("000", response.getStatus());
+    assertEquals("00", response.getResponseCode());
+  }
+
+  @Test
+  public void zeroPaddedStatusReadByAResponse() throws Exception {
+    // the comment hands the message to a Response, which fails to parse "000"
+    String message = "<Response><!-- x --><NewOrderResp><ProcStatus>000</ProcStatus>"
+        + "<ApprovalStatus>000</ApprovalStatus><AuthCode>tst123</AuthCode></NewOrderResp></Response>";
+    LeanResponse response = lean(message, Response.GATEWAY_TYPE);
+
+    assertTrue(response.isDeclined());
+    assertFalse(response.isError());
+    assertEquals(0, response.getApprovalStatus());
+    assertEquals("tst123", response.getAuthCode());
+  }
+
+  @Test
+  public void statusThatIsNotANumberIsAnError() throws Exception {
+    String message = "<Response><NewOrderResp><ProcStatus>E</ProcStatus><AuthCode>tst123</AuthCode>"
+        + "</NewOrderResp></Response>";
+    LeanResponse response = lean(message, Response.GATEWAY_TYPE);
+
+    assertTrue(response.isError());
+    assertEquals(-1, response.getProcStatus());
+    assertEquals("E", response.getStatus());
+  }
+
+  @Test
+  public void masksLikeAResponse() throws Exception {
+    Response full = new Response();
+    full.setRawMessage(APPROVED);
+
+    assertEquals(full.toMaskedXmlString(), lean(APPROVED, Response.GATEWAY_TYPE).toMaskedXmlString());
+  }
+
+  @Test
+  public void retryHeaders() throws Exception {
+    LeanResponse response = new LeanResponse(APPROVED.getBytes(UTF_8), UTF_8, Response.GATEWAY_TYPE, " 2",
+        "20071130120000");
+
+    assertEquals(2, response.getRetryCount());
+    assertEquals("20071130120000", response.getLastRetryAttempt());
+  }
+}
@@ -0,0 +1,75 @@
+package com.paymentech.orbital.sdk.response;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * <p><b>Title:</b> ResponseBodyTest</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Reading response bodies into the reused buffer, and removing their doctype. </p>
+ */
+public class ResponseBodyTest {
+
+  private static final String MESSAGE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+      + "<!DOCTYPE Response SYSTEM \"response.dtd\">\n<Response><QuickResp><ProcStatus>0</ProcStatus>"
+      + "</QuickResp></Response>";
+
+  private static ResponseBody read(String message, long expectedLength) throws Exception {
+    ResponseBody body = new ResponseBody(16);
+    body.readFrom(new ByteArrayInputStream(message.getBytes(StandardCharsets.UTF_8)), expectedLength);
+    return body;
+  }
+
+  private static String repeat(char c, int count) {
+    StringBuffer buffer = new StringBuffer(count);
+    for (int i = 0; i < count; i++) {
+      buffer.append(c);
+    }
+    return buffer.toString();
+  }
+
+  @Test
+  public void readsTheWholeStream() throws Exception {
+    String message = repeat('x', 10000);
+
+    assertEquals(message, read(message, -1).toString(StandardCharsets.UTF_8));
+    // a Content-Length that is too short or too long does not change the body
+    assertEquals(message, read(message, 100).toString(StandardCharsets.UTF_8));
+    assertEquals(message, read(message, Long.MAX_VALUE).toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void removesTheDoctype() throws Exception {
+    ResponseBody body = read(MESSAGE, MESSAGE.length());
+    body.removeDoctype();
+
+    assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<Response><QuickResp><ProcStatus>0</ProcStatus>"
+        + "</QuickResp></Response>", body.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void keepsAMessageWithoutDoctype() throws Exception {
+    String message = "<Response><QuickResp><ProcStatus>0</ProcStatus></QuickResp></Response>";
+    ResponseBody body = read(message, -1);
+    body.removeDoctype();
+
+    assertEquals(message, body.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void trimDropsTheContent() throws Exception {
+    ResponseBody body = read(repeat('x', 100000), -1);
+    body.trim();
+    assertEquals(0, body.getLength());
+
+    body.readFrom(new ByteArrayInputStream(MESSAGE.getBytes(StandardCharsets.UTF_8)), -1);
+    assertEquals(MESSAGE, body.toString(StandardCharsets.UTF_8));
+  }
+}
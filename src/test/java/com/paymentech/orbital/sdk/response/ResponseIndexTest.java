@@ -0,0 +1,85 @@
+package com.paymentech.orbital.sdk.response;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p><b>Title:</b> ResponseIndexTest</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Indexing of the elements of response messages. </p>
+ */
+public class ResponseIndexTest {
+
+  private static final String MESSAGE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+      + "<!DOCTYPE Response SYSTEM \"PTI62.dtd\">\n"
+      + "<Response><NewOrderResp><!-- <ProcStatus>9</ProcStatus> -->"
+      + "<IndustryType></IndustryType><MessageType>AC</MessageType><ProcStatus>0</ProcStatus>"
+      + "<StatusMsg type=\"text\">Approved</StatusMsg><AuthCode/><Note><![CDATA[<x>]]></Note>"
+      + "<Item>1</Item><Item>2</Item><Item>3</Item></NewOrderResp></Response>";
+
+  @Test
+  public void indexesElementsInOrder() {
+    ResponseIndex index = ResponseIndex.parse(MESSAGE);
+
+    assertEquals("Response", index.getName(0));
+    assertEquals("NewOrderResp", index.getName(1));
+    assertEquals("IndustryType", index.getName(2));
+    assertEquals(11, index.getCount());
+  }
+
+  @Test
+  public void findsValues() {
+    ResponseIndex index = ResponseIndex.parse(MESSAGE);
+
+    assertEquals("AC", index.getValue("MessageType"));
+    assertEquals("", index.getValue("IndustryType"));
+    assertEquals("", index.getValue("AuthCode"));
+    assertEquals("Approved", index.getValue("StatusMsg"));
+    assertNull(index.getValue("ApprovalStatus"));
+    assertFalse(index.contains("ApprovalStatus"));
+  }
+
+  @Test
+  public void skipsComments() {
+    assertEquals("0", ResponseIndex.parse(MESSAGE).getValue("ProcStatus"));
+  }
+
+  @Test
+  public void keepsCdataRaw() {
+    assertEquals("<![CDATA[<x>]]>", ResponseIndex.parse(MESSAGE).getValue("Note"));
+  }
+
+  @Test
+  public void chainsRepeatedElements() {
+    ResponseIndex index = ResponseIndex.parse(MESSAGE);
+
+    assertEquals("1", index.getValue("Item"));
+    assertEquals(Arrays.asList(new String[]{"1", "2", "3"}), index.getValues("Item"));
+    int second = index.nextIndexOf(index.indexOf("Item"));
+    assertEquals("2", index.getValue(second));
+  }
+
+  @Test
+  public void unclosedElementHasNoValue() {
+    ResponseIndex index = ResponseIndex.parse("<Response><ProcStatus>0</Response>");
+
+    assertTrue(index.contains("ProcStatus"));
+    assertNull(index.getValue("ProcStatus"));
+  }
+
+  @Test
+  public void emptyMessage() {
+    assertEquals(0, ResponseIndex.parse(null).getCount());
+    assertEquals(0, ResponseIndex.parse("not xml").getCount());
+    assertNull(ResponseIndex.parse("").getValue("ProcStatus"));
+  }
+}
@@ -0,0 +1,58 @@
+package com.paymentech.orbital.sdk.response;
+
+import com.paymentech.orbital.sdk.util.masking.XmlMasker;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p><b>Title:</b> ResponseTest</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Reading and masking of response messages. </p>
+ */
+public class ResponseTest {
+
+  private static final String APPROVED = "<Response><NewOrderResp><ProcStatus>0</ProcStatus>"
+      + "<ApprovalStatus>1</ApprovalStatus><AuthCode>tst123</AuthCode><TxRefNum>ABC123</TxRefNum>"
+      + "<AccountNum>4111111111111111</AccountNum></NewOrderResp></Response>";
+
+  @Test
+  public void readsTheStatus() throws Exception {
+    Response response = new Response(APPROVED);
+
+    assertTrue(response.isApproved());
+    assertFalse(response.isError());
+    assertEquals("tst123", response.getAuthCode());
+    assertEquals("ABC123", response.getValue(Response.TXREF_NUM));
+  }
+
+  @Test
+  public void retryHeadersAreValues() throws Exception {
+    Response response = new Response(APPROVED);
+    response.setRetryHeaders("1", "20071130120000");
+
+    assertEquals("1", response.getValue(Response.RETRY_COUNT));
+    assertEquals("20071130120000", response.getValue(Response.LAST_RETRY_ATTEMPT));
+  }
+
+  @Test
+  public void masksTheMessage() throws Exception {
+    String masked = new Response(APPROVED).toMaskedXmlString();
+
+    assertFalse(masked, masked.indexOf("4111111111111111") >= 0);
+    assertEquals(XmlMasker.forResponses().mask(APPROVED), masked);
+  }
+
+  @Test
+  public void maskFieldDelegatesToTheMasker() throws Exception {
+    String message = "<a><OrderID>1234</OrderID><AccountNum>41</AccountNum></a>";
+
+    assertEquals("<a><OrderID>XXXX</OrderID><AccountNum>41</AccountNum></a>",
+        new Response().maskField(message, "OrderID"));
+  }
+}
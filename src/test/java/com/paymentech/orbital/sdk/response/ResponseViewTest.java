@@ -0,0 +1,120 @@
+package com.paymentech.orbital.sdk.response;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p><b>Title:</b> ResponseViewTest</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Typed views of the responses of each transaction. </p>
+ */
+public class ResponseViewTest {
+
+  private static ResponseView view(String message) {
+    return ResponseView.parse(ResponseIndex.parse(message));
+  }
+
+  @Test
+  public void newOrderView() {
+    ResponseView view = view(
+        "<Response><NewOrderResp><ProcStatus>0</ProcStatus><ApprovalStatus>1</ApprovalStatus>"
+            + "<TxRefIdx>2</TxRefIdx><RequestedAmount>1500</RequestedAmount><RedeemedAmount></RedeemedAmount>"
+            + "<RemainingBalance>0</RemainingBalance></NewOrderResp></Response>");
+
+    assertTrue(view instanceof NewOrderResponseView);
+    NewOrderResponseView newOrder = (NewOrderResponseView) view;
+    assertTrue(newOrder.isApproved());
+    assertEquals(2, newOrder.getTxRefIdx());
+    assertEquals(1500, newOrder.getRequestedAmount());
+    // a missing amount is not an amount of 0
+    assertEquals(ResponseView.NONE, newOrder.getRedeemedAmount());
+    assertEquals(0, newOrder.getRemainingBalance());
+    assertEquals(ResponseView.NONE, newOrder.getMessageType());
+  }
+
+  @Test
+  public void quickResponseView() {
+    ResponseView view = view("<Response><QuickResp><ProcStatus>841</ProcStatus></QuickResp></Response>");
+
+    assertSame(ResponseView.class, view.getClass());
+    assertTrue(view.isQuickResponse());
+    assertEquals(841, view.getProcStatus());
+    assertFalse(view.isProcessed());
+  }
+
+  @Test
+  public void reversalView() {
+    ResponseView view = view("<Response><ReversalResp><MerchantID>123456</MerchantID><OrderID>order-1</OrderID>"
+        + "<TxRefNum>ABC123</TxRefNum><TxRefIdx>1</TxRefIdx><OutstandingAmt>250</OutstandingAmt>"
+        + "<ProcStatus>0</ProcStatus></ReversalResp></Response>");
+
+    assertTrue(view instanceof ReversalResponseView);
+    ReversalResponseView reversal = (ReversalResponseView) view;
+    assertTrue(reversal.isProcessed());
+    assertEquals("order-1", reversal.getOrderId());
+    assertEquals("ABC123", reversal.getTxRefNum());
+    assertEquals(1, reversal.getTxRefIdx());
+    assertEquals(250, reversal.getOutstandingAmount());
+  }
+
+  @Test
+  public void markForCaptureView() {
+    ResponseView view = view("<Response><MarkForCaptureResp><MerchantID>123456</MerchantID>"
+        + "<OrderID>order-1</OrderID><TxRefNum>ABC123</TxRefNum><TxRefIdx>1</TxRefIdx>"
+        + "<SplitTxRefIdx></SplitTxRefIdx><Amount>1000</Amount><ProcStatus>0</ProcStatus>"
+        + "</MarkForCaptureResp></Response>");
+
+    assertTrue(view instanceof MarkForCaptureResponseView);
+    MarkForCaptureResponseView capture = (MarkForCaptureResponseView) view;
+    assertEquals(1000, capture.getAmount());
+    assertEquals(ResponseView.NONE, capture.getSplitTxRefIdx());
+    assertEquals(ResponseView.NONE, capture.getApprovalStatus());
+    assertNull(capture.getAuthCode());
+  }
+
+  @Test
+  public void flexCacheView() {
+    ResponseView view = view("<Response><FlexCacheResp><OrderID>order-1</OrderID><FlexAction>REDEMPTION</FlexAction>"
+        + "<ApprovalStatus>1</ApprovalStatus><FlexAcctBalance>500</FlexAcctBalance>"
+        + "<FlexAcctPriorBalance>1500</FlexAcctPriorBalance><FlexRequestedAmount>1000</FlexRequestedAmount>"
+        + "<FlexRedeemedAmt>1000</FlexRedeemedAmt><ProcStatus>0</ProcStatus></FlexCacheResp></Response>");
+
+    assertTrue(view instanceof FlexCacheResponseView);
+    FlexCacheResponseView flexCache = (FlexCacheResponseView) view;
+    assertTrue(flexCache.isApproved());
+    assertEquals("REDEMPTION", flexCache.getFlexAction());
+    assertEquals(500, flexCache.getBalance());
+    assertEquals(1500, flexCache.getPriorBalance());
+    assertEquals(1000, flexCache.getRedeemedAmount());
+  }
+
+  @Test
+  public void safetechFraudAnalysisView() {
+    ResponseView view = view("<Response><SafetechFraudAnalysisResp><OrderID>order-1</OrderID>"
+        + "<ProcStatus>0</ProcStatus><FraudAnalysisResponse><FraudScoreProcStatus>0</FraudScoreProcStatus>"
+        + "<FraudStatusCode>A</FraudStatusCode><AutoDecisionResponse>A</AutoDecisionResponse>"
+        + "<RiskScore>12</RiskScore></FraudAnalysisResponse></SafetechFraudAnalysisResp></Response>");
+
+    assertTrue(view instanceof SafetechFraudAnalysisResponseView);
+    SafetechFraudAnalysisResponseView fraud = (SafetechFraudAnalysisResponseView) view;
+    assertTrue(fraud.isFraudScoreProcessed());
+    assertEquals("A", fraud.getAutoDecisionResponse());
+    assertEquals(12, fraud.getRiskScore());
+  }
+
+  @Test
+  public void viewIsKeptByTheResponse() throws Exception {
+    Response response = new Response("<Response><NewOrderResp><ProcStatus>0</ProcStatus>"
+        + "<ApprovalStatus>1</ApprovalStatus></NewOrderResp></Response>");
+
+    assertSame(response.getView(), ResponseView.of(response));
+  }
+}
@@ -0,0 +1,305 @@
+package com.paymentech.orbital.sdk.transactionProcessor;
+
+import com.paymentech.orbital.sdk.configurator.Configurator;
+import com.paymentech.orbital.sdk.engine.AsyncEngineIF;
+import com.paymentech.orbital.sdk.engine.async.AsyncHttpEngine;
+import com.paymentech.orbital.sdk.engine.failover.FailoverConstants;
+import com.paymentech.orbital.sdk.engine.http.HttpEngineConstants;
+import com.paymentech.orbital.sdk.engine.pool.EnginePool;
+import com.paymentech.orbital.sdk.interfaces.RequestIF;
+import com.paymentech.orbital.sdk.interfaces.ResponseIF;
+import com.paymentech.orbital.sdk.request.Request;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.paymentech.orbital.sdk.request.TestRequests.newOrder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * <p><b>Title:</b> AsyncTransactionTest</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights
+ * reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Transactions processed asynchronously against local gateways: the retries and
+ * the switch to the failover gateway, the trace number header, the failover state, and the gateway of a reconfigured engine. </p>
+ */
+public class AsyncTransactionTest {
+
+  private static final String APPROVED = "<Response><NewOrderResp><ProcStatus>0</ProcStatus>"
+      + "<ApprovalStatus>1</ApprovalStatus></NewOrderResp></Response>";
+
+  private Map original;
+  private Gateway primary;
+  private Gateway failover;
+
+  /**
+   * A local gateway that approves every transaction, and remembers the trace numbers it was sent
+   */
+  private static class Gateway implements HttpHandler {
+
+    private final HttpServer server;
+    private final List traceNumbers = new ArrayList();
+
+    Gateway() throws IOException {
+      server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      server.createContext("/", this);
+      server.start();
+    }
+
+    public void handle(HttpExchange exchange) throws IOException {
+      InputStream in = exchange.getRequestBody();
+      while (in.read() >= 0) {
+        ;
+      }
+      synchronized (traceNumbers) {
+        traceNumbers.add(exchange.getRequestHeaders().getFirst("Trace-number"));
+      }
+      byte[] body = APPROVED.getBytes("UTF-8");
+      exchange.getResponseHeaders().set("Content-Type", "text/xml; charset=UTF-8");
+      exchange.sendResponseHeaders(200, body.length);
+      OutputStream out = exchange.getResponseBody();
+      out.write(body);
+      out.close();
+    }
+
+    int getPort() {
+      return server.getAddress().getPort();
+    }
+
+    int getRequestCount() {
+      synchronized (traceNumbers) {
+        return traceNumbers.size();
+      }
+    }
+
+    String getTraceNumber(int index) {
+      synchronized (traceNumbers) {
+        return (String) traceNumbers.get(index);
+      }
+    }
+
+    void stop() {
+      server.stop(0);
+    }
+  }
+
+  /**
+   * Records the gateway of every attempt, and fails the next attempts with the queued exceptions
+   */
+  private static class CountingEngine extends AsyncHttpEngine {
+
+    private final List attempts = new ArrayList();
+    private final LinkedList failures = new LinkedList();
+
+    protected CompletableFuture<ResponseIF> executeAsync(RequestIF request, boolean failover, Deadline deadline) {
+      Throwable failure = null;
+      synchronized (attempts) {
+        attempts.add(Boolean.valueOf(failover));
+        if (!failures.isEmpty()) {
+          failure = (Throwable) failures.removeFirst();
+        }
+      }
+      if (failure != null) {
+        CompletableFuture<ResponseIF> result = new CompletableFuture<ResponseIF>();
+        result.completeExceptionally(failure);
+        return result;
+      }
+      return super.executeAsync(request, failover, deadline);
+    }
+
+    void failNext(Throwable failure) {
+      synchronized (attempts) {
+        failures.add(failure);
+      }
+    }
+
+    /**
+     * @return the gateways of the attempts, "P" for the primary and "F" for the failover gateway
+     */
+    String getAttempts() {
+      StringBuffer buffer = new StringBuffer();
+      synchronized (attempts) {
+        for (int i = 0; i < attempts.size(); i++) {
+          buffer.append(((Boolean) attempts.get(i)).booleanValue() ? 'F' : 'P');
+        }
+      }
+      return buffer.toString();
+    }
+  }
+
+  /**
+   * A processor that sends its transactions with the given engine
+   */
+  private static class Processor extends TransactionProcessor {
+
+    private final AsyncEngineIF engine;
+
+    Processor(AsyncEngineIF engine) throws Exception {
+      this.engine = engine;
+    }
+
+    protected AsyncEngineIF getAsyncEngine() {
+      return engine;
+    }
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    original = Configurator.getInstance().getConfigurations();
+    primary = new Gateway();
+    failover = new Gateway();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    primary.stop();
+    failover.stop();
+    Configurator.getInstance().setConfigurations(original);
+    EnginePool.resetPool();
+  }
+
+  private static void configure(int port, int failoverPort) throws Exception {
+    Map configurations = new HashMap(Configurator.getInstance().getConfigurations());
+    configurations.put(HttpEngineConstants.PORT_KEY, String.valueOf(port));
+    configurations.put(HttpEngineConstants.PORT_FAILOVER_KEY, String.valueOf(failoverPort));
+    // the failed attempts of a test don't open the circuit of the primary gateway
+    configurations.put(FailoverConstants.MINIMUM_CALLS_KEY, "100");
+    Configurator.getInstance().setConfigurations(configurations);
+    EnginePool.resetPool();
+  }
+
+  private static int closedPort() throws IOException {
+    ServerSocket socket = new ServerSocket(0);
+    int port = socket.getLocalPort();
+    socket.close();
+    return port;
+  }
+
+  private static CountingEngine newEngine() throws Exception {
+    CountingEngine engine = new CountingEngine();
+    engine.init();
+    return engine;
+  }
+
+  private static ResponseIF process(TransactionProcessor processor, RequestIF request) throws Exception {
+    return processor.processAsync(request, new Deadline(10000)).get(15, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void retriesThePrimaryGatewayThenFailsOver() throws Exception {
+    configure(closedPort(), failover.getPort());
+    CountingEngine engine = newEngine();
+
+    ResponseIF response = process(new Processor(engine), newOrder());
+
+    assertTrue(response.isApproved());
+    // the first attempt and two retries on the primary gateway, then the failover gateway
+    assertEquals("PPPF", engine.getAttempts());
+    assertEquals(1, failover.getRequestCount());
+  }
+
+  @Test
+  public void traceNumberIsSentAsAHeader() throws Exception {
+    configure(primary.getPort(), failover.getPort());
+    Request request = newOrder();
+    request.setTraceNumber("42");
+
+    assertTrue(process(new Processor(newEngine()), request).isApproved());
+    assertEquals(1, primary.getRequestCount());
+    assertEquals("42", primary.getTraceNumber(0));
+
+    assertTrue(process(new Processor(newEngine()), newOrder()).isApproved());
+    assertNull(primary.getTraceNumber(1));
+  }
+
+  @Test
+  public void readTimeoutIsRetriedOnlyWithATraceNumber() throws Exception {
+    configure(primary.getPort(), failover.getPort());
+    CountingEngine engine = newEngine();
+    Processor processor = new Processor(engine);
+
+    Request traced = newOrder();
+    traced.setTraceNumber("43");
+    engine.failNext(new SocketTimeoutException("read timed out"));
+    assertTrue(process(processor, traced).isApproved());
+    assertEquals("PP", engine.getAttempts());
+    assertEquals("43", primary.getTraceNumber(0));
+
+    engine.failNext(new SocketTimeoutException("read timed out"));
+    try {
+      process(processor, newOrder());
+      fail("TransactionException expected");
+    } catch (ExecutionException ee) {
+      assertTrue(String.valueOf(ee.getCause()), ee.getCause() instanceof TransactionException);
+    }
+    // the transaction may have reached the gateway, so it is not sent again
+    assertEquals("PPP", engine.getAttempts());
+    assertEquals(1, primary.getRequestCount());
+  }
+
+  @Test
+  public void reconfiguredGatewayIsUsedWithoutANewEngine() throws Exception {
+    configure(primary.getPort(), failover.getPort());
+    CountingEngine engine = newEngine();
+    Processor processor = new Processor(engine);
+    assertTrue(process(processor, newOrder()).isApproved());
+
+    Gateway moved = new Gateway();
+    try {
+      Map configurations = new HashMap(Configurator.getInstance().getConfigurations());
+      configurations.put(HttpEngineConstants.PORT_KEY, String.valueOf(moved.getPort()));
+      Configurator.getInstance().setConfigurations(configurations);
+
+      assertTrue(process(processor, newOrder()).isApproved());
+      assertEquals(1, primary.getRequestCount());
+      assertEquals(1, moved.getRequestCount());
+    } finally {
+      moved.stop();
+    }
+  }
+
+  @Test
+  public void failoverStateIsTheCircuitOfThePrimaryGateway() throws Exception {
+    configure(primary.getPort(), failover.getPort());
+    CountingEngine engine = newEngine();
+    Processor processor = new Processor(engine);
+    assertFalse(processor.getFailoverState());
+
+    processor.setFailoverState(true);
+    assertTrue(processor.getFailoverState());
+    assertTrue(process(processor, newOrder()).isApproved());
+
+    processor.setFailoverState(false);
+    assertFalse(processor.getFailoverState());
+    assertTrue(process(processor, newOrder()).isApproved());
+
+    assertEquals("FP", engine.getAttempts());
+    assertEquals(1, failover.getRequestCount());
+    assertEquals(1, primary.getRequestCount());
+  }
+}
@@ -0,0 +1,147 @@
+package com.paymentech.orbital.sdk.transactionProcessor;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * <p><b>Title:</b> DeadlineTest</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Expiry and cancellation of transaction deadlines, and the abort of the work in
+ * progress. </p>
+ */
+public class DeadlineTest {
+
+  @Test
+  public void unboundedDeadline() {
+    Deadline deadline = Deadline.none();
+
+    assertFalse(deadline.isBounded());
+    assertFalse(deadline.isDone());
+    assertEquals(Long.MAX_VALUE, deadline.getRemainingMillis());
+    assertEquals(5000, deadline.bound(5000));
+  }
+
+  @Test
+  public void boundsTimeouts() {
+    Deadline deadline = new Deadline(60000);
+
+    assertEquals(5000, deadline.bound(5000));
+    assertTrue(deadline.bound(120000) <= 60000);
+    // no timeout becomes the time left
+    assertTrue(deadline.bound(0) > 0);
+  }
+
+  @Test
+  public void expires() throws Exception {
+    Deadline deadline = new Deadline(0);
+
+    assertTrue(deadline.isExpired());
+    assertEquals(0, deadline.getRemainingMillis());
+    assertEquals(1, deadline.bound(5000));
+    try {
+      deadline.check("sending");
+      fail("DeadlineExceededException expected");
+    } catch (DeadlineExceededException dee) {
+      assertFalse(dee.isCancelled());
+    }
+  }
+
+  @Test
+  public void cancelRunsTheAbortAction() throws Exception {
+    Deadline deadline = Deadline.none();
+    final CountDownLatch aborted = new CountDownLatch(1);
+    deadline.setAbortAction(new Runnable() {
+      public void run() {
+        aborted.countDown();
+      }
+    });
+
+    deadline.cancel();
+    assertEquals(0, aborted.getCount());
+    try {
+      deadline.check("sending");
+      fail("DeadlineExceededException expected");
+    } catch (DeadlineExceededException dee) {
+      assertTrue(dee.isCancelled());
+    }
+  }
+
+  @Test
+  public void expiryRunsTheAbortAction() throws Exception {
+    Deadline deadline = new Deadline(50);
+    final CountDownLatch aborted = new CountDownLatch(1);
+    deadline.setAbortAction(new Runnable() {
+      public void run() {
+        aborted.countDown();
+      }
+    });
+
+    assertTrue(aborted.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void clearedAbortActionIsNotRun() throws Exception {
+    Deadline deadline = Deadline.none();
+    final CountDownLatch aborted = new CountDownLatch(1);
+    deadline.setAbortAction(new Runnable() {
+      public void run() {
+        aborted.countDown();
+      }
+    });
+    deadline.clearAbortAction();
+
+    deadline.cancel();
+    assertEquals(1, aborted.getCount());
+  }
+
+  @Test
+  public void cancelInterruptsTheWait() throws Exception {
+    final Deadline deadline = Deadline.none();
+    final CountDownLatch waiting = new CountDownLatch(1);
+    final boolean[] result = new boolean[2];
+
+    Thread waiter = new Thread(new Runnable() {
+      public void run() {
+        deadline.interruptOnAbort();
+        try {
+          waiting.countDown();
+          Thread.sleep(60000);
+        } catch (InterruptedException ie) {
+          result[0] = true;
+        } finally {
+          deadline.endInterruptibleWait();
+          // the interrupt of the deadline is not left on the thread
+          result[1] = Thread.currentThread().isInterrupted();
+        }
+      }
+    });
+    waiter.start();
+    assertTrue(waiting.await(5, TimeUnit.SECONDS));
+
+    deadline.cancel();
+    waiter.join(5000);
+    assertFalse(waiter.isAlive());
+    assertTrue(result[0]);
+    assertFalse(result[1]);
+  }
+
+  @Test
+  public void endedWaitIsNotInterrupted() throws Exception {
+    Deadline deadline = Deadline.none();
+    deadline.interruptOnAbort();
+    assertFalse(deadline.endInterruptibleWait());
+
+    deadline.cancel();
+    assertFalse(Thread.interrupted());
+  }
+}
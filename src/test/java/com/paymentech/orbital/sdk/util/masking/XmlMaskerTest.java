@@ -0,0 +1,59 @@
+package com.paymentech.orbital.sdk.util.masking;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * <p><b>Title:</b> XmlMaskerTest</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Masking of the sensitive elements of request and response messages. </p>
+ */
+public class XmlMaskerTest {
+
+  @Test
+  public void requestKeepsLastDigitsOfAccountNum() {
+    String masked = XmlMasker.forRequests().mask(
+        "<Request><NewOrder><AccountNum>4111111111111111</AccountNum><CardSecVal>1234</CardSecVal>"
+            + "<Amount>1000</Amount></NewOrder></Request>");
+
+    assertEquals("<Request><NewOrder><AccountNum>XXXXXXXXXXXX1111</AccountNum><CardSecVal>XXX</CardSecVal>"
+        + "<Amount>1000</Amount></NewOrder></Request>", masked);
+  }
+
+  @Test
+  public void responseMasksWholeValues() {
+    String masked = XmlMasker.forResponses().mask(
+        "<Response><NewOrderResp><AccountNum>4111111111111111</AccountNum><AuthCode>tst123</AuthCode>"
+            + "</NewOrderResp></Response>");
+
+    assertEquals("<Response><NewOrderResp><AccountNum>XXXXXXXXXXXXXXXX</AccountNum><AuthCode>tst123</AuthCode>"
+        + "</NewOrderResp></Response>", masked);
+  }
+
+  @Test
+  public void masksEveryOccurrence() {
+    String masked = XmlMasker.forResponses().mask(
+        "<a><CheckDDA>123</CheckDDA><b><CheckDDA>45</CheckDDA></b><CheckDDA/></a>");
+
+    assertEquals("<a><CheckDDA>XXX</CheckDDA><b><CheckDDA>XX</CheckDDA></b><CheckDDA/></a>", masked);
+  }
+
+  @Test
+  public void leavesOtherElementsAlone() {
+    String message = "<Response><QuickResp><ProcStatus>0</ProcStatus><AccountNumber>41</AccountNumber>"
+        + "</QuickResp></Response>";
+
+    assertSame(message, XmlMasker.forResponses().mask(message));
+  }
+
+  @Test
+  public void masksASingleField() {
+    assertEquals("<a><OrderID>XXXX</OrderID><AccountNum>41</AccountNum></a>",
+        XmlMasker.forField("OrderID").mask("<a><OrderID>1234</OrderID><AccountNum>41</AccountNum></a>"));
+  }
+}
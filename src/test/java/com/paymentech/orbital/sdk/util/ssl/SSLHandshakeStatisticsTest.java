@@ -0,0 +1,61 @@
+package com.paymentech.orbital.sdk.util.ssl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * <p><b>Title:</b> SSLHandshakeStatisticsTest</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC. All rights
+ * reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> Counting the full and resumed handshakes and the verification cache lookups.
+ * </p>
+ */
+public class SSLHandshakeStatisticsTest {
+
+  @Test
+  public void countsHandshakes() {
+    SSLHandshakeStatistics statistics = new SSLHandshakeStatistics();
+    statistics.recordHandshake(false, 120);
+    statistics.recordHandshake(false, 80);
+    statistics.recordHandshake(true, 6);
+
+    assertEquals(2, statistics.getFullHandshakes());
+    assertEquals(200, statistics.getFullHandshakeMillis());
+    assertEquals(1, statistics.getResumedHandshakes());
+    assertEquals(6, statistics.getResumedHandshakeMillis());
+  }
+
+  @Test
+  public void countsVerifications() {
+    SSLHandshakeStatistics statistics = new SSLHandshakeStatistics();
+    statistics.recordVerification(false);
+    statistics.recordVerification(true);
+    statistics.recordVerification(true);
+
+    assertEquals(2, statistics.getVerificationCacheHits());
+    assertEquals(1, statistics.getVerificationCacheMisses());
+  }
+
+  @Test
+  public void reportsAveragesAndResets() {
+    SSLHandshakeStatistics statistics = new SSLHandshakeStatistics();
+    assertEquals("SSLHandshakeStatistics[full=0, resumed=0, avgFullMillis=0, avgResumedMillis=0, "
+        + "verificationCacheHits=0, verificationCacheMisses=0]", statistics.toString());
+
+    statistics.recordHandshake(false, 120);
+    statistics.recordHandshake(false, 80);
+    statistics.recordHandshake(true, 6);
+    statistics.recordVerification(true);
+    assertEquals("SSLHandshakeStatistics[full=2, resumed=1, avgFullMillis=100, avgResumedMillis=6, "
+        + "verificationCacheHits=1, verificationCacheMisses=0]", statistics.toString());
+
+    statistics.reset();
+    assertEquals(0, statistics.getFullHandshakes());
+    assertEquals(0, statistics.getResumedHandshakeMillis());
+    assertEquals(0, statistics.getVerificationCacheHits());
+  }
+}
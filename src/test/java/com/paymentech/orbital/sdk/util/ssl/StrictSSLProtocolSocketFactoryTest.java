@@ -0,0 +1,76 @@
+package com.paymentech.orbital.sdk.util.ssl;
+
+import com.paymentech.orbital.sdk.configurator.Configurator;
+import org.junit.Test;
+
+import java.net.ServerSocket;
+import java.net.SocketTimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * <p><b>Title:</b> StrictSSLProtocolSocketFactoryTest</p> <p>(C)opyright 2007, Chase Paymentech Solutions, LLC.
+ * All rights reserved
+ * <p/>
+ * The copyright notice above does not evidence any actual or intended
+ * publication of such source code.
+ * The copyright notice above does not evidence any actual or intended publication of such source code.</p>
+ * <p><b>Description:</b><br><br> The cache of verified sessions (its keys, and the eviction beyond the size of
+ * the session cache), and the time limit of the handshake of a new connection. </p>
+ */
+public class StrictSSLProtocolSocketFactoryTest {
+
+  @Test
+  public void cacheKeyIsTheSessionAndTheHost() {
+    byte[] id = new byte[]{0x00, 0x1f, (byte) 0xa0, (byte) 0xff};
+
+    assertEquals("001fa0ff@gateway.example.com",
+        StrictSSLProtocolSocketFactory.getVerificationCacheKey(id, "Gateway.Example.COM"));
+    assertNull(StrictSSLProtocolSocketFactory.getVerificationCacheKey(new byte[0], "gateway.example.com"));
+    assertNull(StrictSSLProtocolSocketFactory.getVerificationCacheKey(null, "gateway.example.com"));
+    assertNull(StrictSSLProtocolSocketFactory.getVerificationCacheKey(id, null));
+    assertFalse(StrictSSLProtocolSocketFactory.isVerified(null));
+  }
+
+  @Test
+  public void leastRecentlyUsedSessionsAreEvicted() {
+    int size = SocketFactoryFactory.getSessionCacheSize();
+    String first = key(0);
+    String second = key(1);
+
+    for (int i = 0; i < size; i++) {
+      StrictSSLProtocolSocketFactory.rememberVerified(key(i));
+    }
+    // looking the first session up makes the second the least recently used
+    assertTrue(StrictSSLProtocolSocketFactory.isVerified(first));
+    StrictSSLProtocolSocketFactory.rememberVerified(key(size));
+
+    assertFalse(StrictSSLProtocolSocketFactory.isVerified(second));
+    assertTrue(StrictSSLProtocolSocketFactory.isVerified(first));
+    assertTrue(StrictSSLProtocolSocketFactory.isVerified(key(2)));
+    assertTrue(StrictSSLProtocolSocketFactory.isVerified(key(size)));
+  }
+
+  private static String key(int session) {
+    return StrictSSLProtocolSocketFactory.getVerificationCacheKey(
+        new byte[]{0x7e, (byte) (session >> 8), (byte) session}, "gateway.example.com");
+  }
+
+  @Test(timeout = 10000)
+  public void handshakeIsBoundedByTheConnectTimeout() throws Exception {
+    // the connection is accepted (by the backlog) but the handshake is never answered
+    ServerSocket server = new ServerSocket(0);
+    try {
+      SocketFactoryFactory.connect(Configurator.getInstance(), "localhost", server.getLocalPort(), null, 0, 200);
+      fail("SocketTimeoutException expected");
+    } catch (SocketTimeoutException ste) {
+      // expected
+    } finally {
+      server.close();
+    }
+  }
+}